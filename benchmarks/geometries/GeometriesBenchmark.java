@@ -0,0 +1,115 @@
+package geometries;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the intersections of a collection of geometries by its size - small spheres and
+ * triangles scattered in a cube around the origin - with and without the bounding volume
+ * hierarchy. Both all the intersections and the closest intersection (as the ray tracers
+ * ask for) are measured.<br>
+ * The time is reported per ray.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometriesBenchmark {
+    /**
+     * Amount of rays of an invocation
+     */
+    private static final int RAYS = 256;
+
+    /**
+     * Amount of geometries in the collection
+     */
+    @Param({"16", "256", "4096"})
+    public int size;
+    /**
+     * Whether the bounding volume hierarchy is built over the collection
+     */
+    @Param({"false", "true"})
+    public boolean bvh;
+
+    /**
+     * The collection of geometries
+     */
+    private Geometries geometries;
+    /**
+     * The rays
+     */
+    private Ray[] rays;
+
+    /**
+     * Prepares the collection and the rays
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        // the geometries get smaller as they get more, so about the same part of the rays hit them
+        double radius = 0.5 / Math.cbrt(size);
+        geometries = new Geometries();
+        for (int k = 0; k < size; ++k) {
+            Point center = new Point(2 * random.nextDouble() - 1, 2 * random.nextDouble() - 1,
+                    2 * random.nextDouble() - 1);
+            if (k % 2 == 0)
+                geometries.add(new Sphere(center, radius));
+            else
+                geometries.add(new Triangle(center.add(new Vector(radius, 0, 0)),
+                        center.add(new Vector(0, radius, 0)), center.add(new Vector(0, 0, radius))));
+        }
+        if (bvh) geometries.buildBVH();
+        rays = IntersectionBenchmark.randomRays(random, RAYS, 1);
+    }
+
+    /**
+     * Finds all the intersections of the rays with the collection
+     *
+     * @param blackhole consumer of the intersections
+     */
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public void intersections(Blackhole blackhole) {
+        for (Ray ray : rays)
+            blackhole.consume(geometries.calculateIntersectionsHelper(ray, Double.POSITIVE_INFINITY));
+    }
+
+    /**
+     * Finds the closest intersection of the rays with the collection
+     *
+     * @param blackhole consumer of the intersections
+     */
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public void closestIntersection(Blackhole blackhole) {
+        for (Ray ray : rays)
+            blackhole.consume(geometries.calculateClosestIntersectionHelper(ray, Double.POSITIVE_INFINITY));
+    }
+
+    /**
+     * Runs the benchmark with the GC profiler
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GeometriesBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,115 @@
+package geometries;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the intersection kernels - the {@code calculateIntersectionsHelper} of every
+ * simple geometry - by a fixed set of rays from all the directions, about half of which
+ * miss the geometry, so both the hit and the rejection paths are measured.<br>
+ * The time is reported per ray. Run with the GC profiler (as {@link #main(String[])} does)
+ * to see the bytes allocated per ray as well.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntersectionBenchmark {
+    /**
+     * Amount of rays of an invocation
+     */
+    static final int RAYS = 1024;
+
+    /**
+     * The measured geometry type
+     */
+    @Param({"Sphere", "Plane", "Triangle", "Polygon", "Tube", "Cylinder"})
+    public String shape;
+
+    /**
+     * The geometry - of about unit size around the origin
+     */
+    private Intersectable geometry;
+    /**
+     * The rays
+     */
+    private Ray[] rays;
+
+    /**
+     * Prepares the geometry and the rays
+     */
+    @Setup
+    public void setup() {
+        geometry = switch (shape) {
+            case "Sphere" -> new Sphere(Point.ZERO, 1);
+            case "Plane" -> new Plane(Point.ZERO, new Vector(0.1, 0.2, 1));
+            case "Triangle" -> new Triangle(new Point(-1, -1, 0), new Point(1, -1, 0.1), new Point(0, 1, -0.1));
+            case "Polygon" -> new Polygon(new Point(-1, -1, 0), new Point(1, -1, 0), new Point(1, 1, 0),
+                    new Point(-1, 1, 0));
+            case "Tube" -> new Tube(new Ray(Point.ZERO, new Vector(0, 0, 1)), 1);
+            case "Cylinder" -> new Cylinder(new Ray(new Point(0, 0, -1), new Vector(0, 0, 1)), 1, 2);
+            default -> throw new IllegalArgumentException("Unknown geometry type " + shape);
+        };
+        rays = randomRays(new Random(42), RAYS, 1.5);
+    }
+
+    /**
+     * Creates rays from random points around the origin towards random points of a cube
+     * around the origin
+     *
+     * @param random the random generator
+     * @param count  amount of rays
+     * @param size   half of the edge of the cube of the targets
+     * @return the rays
+     */
+    static Ray[] randomRays(Random random, int count, double size) {
+        Ray[] rays = new Ray[count];
+        for (int k = 0; k < count; ++k) {
+            Vector out = new Vector(random.nextGaussian(), random.nextGaussian(), random.nextGaussian()).normalize();
+            Point head = Point.ZERO.add(out.scale(10));
+            Point target = new Point(size * (2 * random.nextDouble() - 1), size * (2 * random.nextDouble() - 1),
+                    size * (2 * random.nextDouble() - 1));
+            rays[k] = new Ray(head, target.subtract(head));
+        }
+        return rays;
+    }
+
+    /**
+     * Intersects the geometry with all the rays
+     *
+     * @param blackhole consumer of the intersections
+     */
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public void intersections(Blackhole blackhole) {
+        for (Ray ray : rays)
+            blackhole.consume(geometry.calculateIntersectionsHelper(ray, Double.POSITIVE_INFINITY));
+    }
+
+    /**
+     * Runs the benchmark with the GC profiler
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(IntersectionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,136 @@
+package geometries;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a mixed scene in the manner of {@code FinalImage} - a mountain of triangles and a
+ * moon of thousands of small spheres, with a background plane and a few polygons and cylinders -
+ * as a collection of geometries and as its compiled form ({@link Geometries#compile()}).<br>
+ * The loop of the collection calls the intersection methods of all the types from a single
+ * call site, while the compiled form has a loop per type, so the comparison shows the cost
+ * of the megamorphic calls. The time is reported per ray.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MixedSceneBenchmark {
+    /**
+     * Amount of rays of an invocation
+     */
+    private static final int RAYS = 64;
+    /**
+     * Amount of triangles along each side of the mountain grid
+     */
+    private static final int GRID = 16;
+
+    /**
+     * The form of the scene - "list" for the collection, "compiled" for its compiled form
+     */
+    @Param({"list", "compiled"})
+    public String form;
+    /**
+     * Amount of the spheres of the moon
+     */
+    @Param({"1000", "4000"})
+    public int spheres;
+
+    /**
+     * The geometries of the scene
+     */
+    private Intersectable geometries;
+    /**
+     * The rays
+     */
+    private Ray[] rays;
+
+    /**
+     * Prepares the scene and the rays
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        Geometries scene = new Geometries();
+
+        // the mountain - a grid of triangles of random heights below the moon
+        double step = 2.0 / GRID;
+        for (int i = 0; i < GRID; ++i)
+            for (int j = 0; j < GRID; ++j) {
+                double x = -1 + i * step, y = -1 + j * step;
+                scene.add(new Triangle(new Point(x, y, random.nextDouble() * 0.2 - 0.5),
+                        new Point(x + step, y, random.nextDouble() * 0.2 - 0.5),
+                        new Point(x, y + step, random.nextDouble() * 0.2 - 0.5)));
+            }
+
+        // the moon - a nested collection of small spheres on a sphere surface
+        Geometries moon = new Geometries();
+        for (int k = 0; k < spheres; ++k) {
+            Vector out = new Vector(random.nextGaussian(), random.nextGaussian(), random.nextGaussian()).normalize();
+            moon.add(new Sphere(new Point(0.4, 0.4, 0.2).add(out.scale(0.3)), 0.01));
+        }
+        scene.add(moon);
+
+        // the background and a few other geometries
+        scene.add(new Plane(new Point(0, 0, -1), new Vector(0, 0, 1)));
+        for (int k = 0; k < 4; ++k) {
+            double x = -0.8 + 0.4 * k;
+            scene.add(new Polygon(new Point(x, -0.9, -0.8), new Point(x + 0.2, -0.9, -0.8),
+                    new Point(x + 0.2, -0.7, -0.8), new Point(x, -0.7, -0.8)));
+            scene.add(new Cylinder(new Ray(new Point(x, 0.8, -0.9), new Vector(0, 0, 1)), 0.05, 0.5));
+        }
+
+        geometries = form.equals("compiled") ? scene.compile() : scene;
+        rays = IntersectionBenchmark.randomRays(random, RAYS, 1);
+    }
+
+    /**
+     * Finds the closest intersection of the rays with the scene (as the camera and the
+     * reflected rays ask for)
+     *
+     * @param blackhole consumer of the intersections
+     */
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public void closestIntersection(Blackhole blackhole) {
+        for (Ray ray : rays)
+            blackhole.consume(geometries.calculateClosestIntersection(ray, Double.POSITIVE_INFINITY));
+    }
+
+    /**
+     * Finds the transparency of the scene along the rays (as the shadow rays ask for)
+     *
+     * @param blackhole consumer of the transparency factors
+     */
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public void transparency(Blackhole blackhole) {
+        for (Ray ray : rays)
+            blackhole.consume(geometries.calculateTransparency(ray, Double.POSITIVE_INFINITY));
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MixedSceneBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,125 @@
+package primitives;
+
+import geometries.Triangle;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import static primitives.Util.alignZero;
+import static primitives.VectorMath.crossLengthSquared;
+import static primitives.VectorMath.tripleProduct;
+
+/**
+ * Compares the immutable {@link Vector} API with the allocation-free {@link VectorMath} kernels
+ * on the triangle side test, which dominates the intersection time of triangle scenes.<br>
+ * Run with the GC profiler (as {@link #main(String[])} does) and compare the
+ * {@code gc.alloc.rate.norm} column - the bytes allocated per operation.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MathKernelBenchmark {
+    /**
+     * Ray head
+     */
+    private Point head;
+    /**
+     * Ray direction
+     */
+    private Vector direction;
+    /**
+     * Triangle vertices
+     */
+    private Point p0, p1, p2;
+    /**
+     * The triangle
+     */
+    private Triangle triangle;
+    /**
+     * A ray through the triangle
+     */
+    private Ray ray;
+
+    /**
+     * Prepares the triangle and the ray
+     */
+    @Setup
+    public void setup() {
+        head = new Point(0.2, 0.3, -5);
+        direction = new Vector(0.01, 0.02, 1).normalize();
+        p0 = new Point(0, 0, 0);
+        p1 = new Point(1, 0, 0.1);
+        p2 = new Point(0, 1, -0.1);
+        triangle = new Triangle(p0, p1, p2);
+        ray = new Ray(head, direction);
+    }
+
+    /**
+     * The triangle side test with the immutable API - every step creates objects
+     *
+     * @return the product of the three side tests (positive for a hit)
+     */
+    @Benchmark
+    public double sideTestImmutable() {
+        Vector v1 = p0.subtract(head);
+        Vector v2 = p1.subtract(head);
+        Vector v3 = p2.subtract(head);
+        double d1 = alignZero(v1.crossProduct(v2).normalize().dotProduct(direction));
+        double d2 = alignZero(v2.crossProduct(v3).normalize().dotProduct(direction));
+        double d3 = alignZero(v3.crossProduct(v1).normalize().dotProduct(direction));
+        return d1 * d2 * d3;
+    }
+
+    /**
+     * The same side test with the scalar kernels - no objects are created
+     *
+     * @return the product of the three side tests (positive for a hit)
+     */
+    @Benchmark
+    public double sideTestScalar() {
+        double ox = head.xyz.d1(), oy = head.xyz.d2(), oz = head.xyz.d3();
+        double dx = direction.xyz.d1(), dy = direction.xyz.d2(), dz = direction.xyz.d3();
+        double v1x = p0.xyz.d1() - ox, v1y = p0.xyz.d2() - oy, v1z = p0.xyz.d3() - oz;
+        double v2x = p1.xyz.d1() - ox, v2y = p1.xyz.d2() - oy, v2z = p1.xyz.d3() - oz;
+        double v3x = p2.xyz.d1() - ox, v3y = p2.xyz.d2() - oy, v3z = p2.xyz.d3() - oz;
+        double d1 = alignZero(tripleProduct(dx, dy, dz, v1x, v1y, v1z, v2x, v2y, v2z)
+                / Math.sqrt(crossLengthSquared(v1x, v1y, v1z, v2x, v2y, v2z)));
+        double d2 = alignZero(tripleProduct(dx, dy, dz, v2x, v2y, v2z, v3x, v3y, v3z)
+                / Math.sqrt(crossLengthSquared(v2x, v2y, v2z, v3x, v3y, v3z)));
+        double d3 = alignZero(tripleProduct(dx, dy, dz, v3x, v3y, v3z, v1x, v1y, v1z)
+                / Math.sqrt(crossLengthSquared(v3x, v3y, v3z, v1x, v1y, v1z)));
+        return d1 * d2 * d3;
+    }
+
+    /**
+     * The complete triangle intersection, as used by the ray tracer
+     *
+     * @return the intersection point
+     */
+    @Benchmark
+    public Object triangleIntersection() {
+        return triangle.calculateIntersections(ray);
+    }
+
+    /**
+     * Runs the benchmark with the GC profiler
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MathKernelBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,63 @@
+package renderer;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Runs all the benchmarks of the project - the intersection kernels, the collections of
+ * geometries and the scenes - and exports the results as JSON into
+ * {@code benchmarks/results/jmh-<date>.json}, so the results of the releases can be
+ * compared (e.g. by a JMH visualizer).<br>
+ * JMH command line options may be given to narrow the run, e.g.
+ * {@code -p scene=teapot -p threads=0,-2}.<br>
+ * The benchmarks must be compiled with the JMH annotation processor, which generates the
+ * benchmark list ({@code META-INF/BenchmarkList}) - the IntelliJ project enables it for the
+ * module. From the project directory, with {@code CP} holding the JMH and JUnit jars:
+ * <pre>
+ * javac -encoding UTF-8 -d out/main $(find src -name '*.java')
+ * javac -encoding UTF-8 -proc:full -cp out/main:$CP -d out/test $(find unittests benchmarks -name '*.java')
+ * java -cp out/main:out/test:$CP renderer.BenchmarkSuite
+ * </pre>
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+public final class BenchmarkSuite {
+    /**
+     * Directory of the results - relative to the project directory
+     */
+    private static final Path RESULTS = Path.of("benchmarks", "results");
+
+    /**
+     * Utility class - no instances
+     */
+    private BenchmarkSuite() { /* to satisfy JavaDoc generator */ }
+
+    /**
+     * Runs the benchmarks
+     *
+     * @param args JMH command line options
+     * @throws RunnerException            if a benchmark fails
+     * @throws CommandLineOptionException if the command line options are wrong
+     * @throws IOException                if the results directory cannot be created
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        Files.createDirectories(RESULTS);
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include("primitives\\..*Benchmark")
+                .include("geometries\\..*Benchmark")
+                .include("renderer\\..*Benchmark")
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULTS.resolve("jmh-" + LocalDate.now() + ".json").toString())
+                .build()).run();
+    }
+}
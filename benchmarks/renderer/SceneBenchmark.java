@@ -0,0 +1,226 @@
+package renderer;
+
+import geometries.BoundingBox;
+import geometries.Geometries;
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import primitives.Color;
+import primitives.Material;
+import primitives.Point;
+import primitives.Vector;
+import scene.Scene;
+import scene.TriangleSoupFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rendering of reduced versions of the project images - the tiger, the
+ * mountains and moon, and the teapot - by every multi-threading mode, with a ray per
+ * pixel, with the beams of a blackboard and with adaptive super sampling.<br>
+ * The images are rendered in a lower resolution than the originals (and the moon of fewer
+ * dots), so the whole matrix of the settings is measured in a reasonable time. The scenes
+ * are read from the data files of the project, so the benchmark must be run from the
+ * project directory.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class SceneBenchmark {
+    /**
+     * Vertical resolution of the reduced images
+     */
+    private static final int RESOLUTION = 200;
+    /**
+     * Size of the view plane of the tiger and the mountains
+     */
+    private static final double VIEWPORT_SIZE = 1000;
+    /**
+     * Z coordinate of the plane of the tiger and the mountains triangles
+     */
+    private static final double Z_PLANE = 0.01;
+    /**
+     * Radius of the moon
+     */
+    private static final double MOON_RADIUS = 150;
+    /**
+     * Step between the sampled pixels of the moon texture (a dot for every sampled pixel)
+     */
+    private static final int MOON_SAMPLING_STEP = 6;
+
+    /**
+     * The rendered scene
+     */
+    @Param({"tiger", "mountains", "teapot"})
+    public String scene;
+    /**
+     * The multi-threading mode - as {@link Camera.Builder#setMultithreading(int)}, or
+     * "virtual" for {@link Camera.Builder#setVirtualThreads(int)} with its default amount of threads
+     */
+    @Param({"0", "1", "4", "-1", "-2", "virtual"})
+    public String threads;
+    /**
+     * The sampling of the pixels - "ray" for a ray per pixel, "blackboard" for the beams of
+     * a blackboard, or "ass" for adaptive super sampling
+     */
+    @Param({"ray", "blackboard", "ass"})
+    public String sampling;
+
+    /**
+     * The camera of the scene
+     */
+    private Camera camera;
+
+    /**
+     * Builds the scene and the camera
+     *
+     * @throws IOException if the scene data cannot be read
+     */
+    @Setup
+    public void setup() throws IOException {
+        Camera.Builder builder = switch (scene) {
+            case "tiger" -> tiger();
+            case "mountains" -> mountains();
+            case "teapot" -> TeapotScene.prepareTeapot().setResolution(RESOLUTION, RESOLUTION);
+            default -> throw new IllegalArgumentException("Unknown scene " + scene);
+        };
+        if (threads.equals("virtual"))
+            builder.setVirtualThreads(0);
+        else
+            builder.setMultithreading(Integer.parseInt(threads));
+        switch (sampling) {
+            case "ray" -> { }
+            case "blackboard" -> builder.setBlackboard(new Blackboard(5));
+            case "ass" -> builder.setUseAdaptiveSuperSampling(true).setAssMaxDepth(3).setAssTolerance(7);
+            default -> throw new IllegalArgumentException("Unknown sampling " + sampling);
+        }
+        camera = builder.enableBVH().setDebugPrint(0).build();
+    }
+
+    /**
+     * Creates the camera of the tiger of triangles (as in {@code TigerImage})
+     *
+     * @return the camera builder
+     * @throws IOException if the triangles data cannot be read
+     */
+    private static Camera.Builder tiger() throws IOException {
+        TriangleSoupFile soup = TriangleSoupFile.fromCsv(Paths.get("python_code/tiger_data.txt"));
+        BoundingBox bounds = soup.getBounds();
+        double scale = 0.98 * Math.min(VIEWPORT_SIZE / (bounds.maxX - bounds.minX),
+                VIEWPORT_SIZE / (bounds.maxY - bounds.minY));
+        Scene tiger = polyArt("Tiger", soup, scale);
+        return polyArtCamera(tiger, VIEWPORT_SIZE, VIEWPORT_SIZE).setResolution(RESOLUTION, RESOLUTION);
+    }
+
+    /**
+     * Creates the camera of the mountains of triangles and the moon of dots (as in {@code FinalImage})
+     *
+     * @return the camera builder
+     * @throws IOException if the triangles data or the moon texture cannot be read
+     */
+    private static Camera.Builder mountains() throws IOException {
+        TriangleSoupFile soup = TriangleSoupFile.fromCsv(Paths.get("python_code/mountains_data.txt"));
+        BoundingBox bounds = soup.getBounds();
+        double originalWidth = bounds.maxX - bounds.minX, originalHeight = bounds.maxY - bounds.minY;
+        double scale = VIEWPORT_SIZE / originalHeight;
+        double width = originalWidth * scale, height = VIEWPORT_SIZE;
+        Scene mountains = polyArt("Mountains and moon", soup, scale);
+
+        BufferedImage texture = ImageIO.read(new File("python_code/moon.png"));
+        Point center = new Point(-width / 2 + MOON_RADIUS * 1.5, height / 2 - MOON_RADIUS * 1.5, Z_PLANE);
+        Material material = new Material().setKD(0).setKS(0).setShininess(0);
+        Geometries moon = new Geometries();
+        for (int y = 0; y < texture.getHeight(); y += MOON_SAMPLING_STEP) {
+            double phi = Math.PI * y / texture.getHeight();
+            for (int x = 0; x < texture.getWidth(); x += MOON_SAMPLING_STEP) {
+                java.awt.Color color = new java.awt.Color(texture.getRGB(x, y));
+                if (color.getRed() < 20 && color.getGreen() < 20 && color.getBlue() < 20) continue;
+                double theta = 2 * Math.PI * x / texture.getWidth();
+                Point dot = center.add(new Vector(MOON_RADIUS * Math.sin(phi) * Math.cos(theta) * height / width,
+                        MOON_RADIUS * Math.cos(phi) + 1, MOON_RADIUS * Math.sin(phi) * Math.sin(theta)));
+                moon.add(new Sphere(dot, MOON_RADIUS * 0.03)
+                        .setEmission(new Color(color.getRed(), color.getGreen(), color.getBlue()))
+                        .setMaterial(material));
+            }
+        }
+        mountains.geometries.add(moon);
+        return polyArtCamera(mountains, width, height)
+                .setResolution((int) Math.max(1, Math.round(RESOLUTION * width / height)), RESOLUTION);
+    }
+
+    /**
+     * Creates a scene of a mesh of colored triangles on a plane, centered around the origin,
+     * lit from above the plane
+     *
+     * @param name  the scene name
+     * @param soup  the triangles
+     * @param scale scale of the triangles
+     * @return the scene
+     */
+    private static Scene polyArt(String name, TriangleSoupFile soup, double scale) {
+        BoundingBox bounds = soup.getBounds();
+        // the Y axis is inverted to match the image coordinates
+        TriangleSoupFile.Transform transform = new TriangleSoupFile.Transform(scale, -scale, 0,
+                -(bounds.minX + bounds.maxX) / 2 * scale, (bounds.maxY + bounds.minY) / 2 * scale, Z_PLANE);
+        Scene scene = new Scene(name);
+        scene.geometries.add(soup.toMesh(transform, new Material().setKD(0.6).setKS(0.2).setShininess(10)));
+        scene.setBackground(new Color(0, 0, 0));
+        scene.setAmbientLight(new AmbientLight(new Color(20, 20, 20)));
+        scene.lights.add(new PointLight(new Color(150, 150, 150), new Point(0, 0, VIEWPORT_SIZE * 2))
+                .setKl(0.0008).setKq(0.00003));
+        return scene;
+    }
+
+    /**
+     * Creates the camera looking down on a scene of triangles on a plane
+     *
+     * @param scene  the scene
+     * @param width  width of the view plane
+     * @param height height of the view plane
+     * @return the camera builder
+     */
+    private static Camera.Builder polyArtCamera(Scene scene, double width, double height) {
+        return Camera.getBuilder()
+                .setRayTracer(scene, RayTracerType.SIMPLE)
+                .setLocation(new Point(0, 0, VIEWPORT_SIZE))
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpDistance(VIEWPORT_SIZE)
+                .setVpSize(width, height);
+    }
+
+    /**
+     * Renders the image
+     *
+     * @return the camera
+     */
+    @Benchmark
+    public Camera render() {
+        return camera.renderImage();
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SceneBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
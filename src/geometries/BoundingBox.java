@@ -0,0 +1,214 @@
+package geometries;
+
+import primitives.Point;
+import primitives.Ray;
+
+/**
+ * Axis-aligned bounding box (AABB) of a finite geometry.
+ * <p>
+ * The box is used by acceleration structures for cheap rejection of rays:
+ * a ray which misses the box can not intersect anything that is inside it.
+ * The box is immutable - its six bounds are kept as raw doubles for speed.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+public final class BoundingBox {
+    /**
+     * Minimal X coordinate of the box
+     */
+    public final double minX;
+    /**
+     * Minimal Y coordinate of the box
+     */
+    public final double minY;
+    /**
+     * Minimal Z coordinate of the box
+     */
+    public final double minZ;
+    /**
+     * Maximal X coordinate of the box
+     */
+    public final double maxX;
+    /**
+     * Maximal Y coordinate of the box
+     */
+    public final double maxY;
+    /**
+     * Maximal Z coordinate of the box
+     */
+    public final double maxZ;
+
+    /**
+     * Constructor of a box by its bounds
+     *
+     * @param minX minimal X coordinate
+     * @param minY minimal Y coordinate
+     * @param minZ minimal Z coordinate
+     * @param maxX maximal X coordinate
+     * @param maxY maximal Y coordinate
+     * @param maxZ maximal Z coordinate
+     * @throws IllegalArgumentException if a minimal bound is greater than the maximal one
+     */
+    public BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        if (minX > maxX || minY > maxY || minZ > maxZ)
+            throw new IllegalArgumentException("Minimal bounds of a box must not exceed the maximal bounds");
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Constructor of the smallest box containing all the given points
+     *
+     * @param points the points to be bounded (at least one)
+     * @throws IllegalArgumentException if there are no points
+     */
+    public BoundingBox(Point... points) {
+        if (points.length == 0)
+            throw new IllegalArgumentException("A bounding box needs at least one point");
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY, z0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY, z1 = Double.NEGATIVE_INFINITY;
+        for (Point p : points) {
+            x0 = Math.min(x0, p.xyz.d1());
+            y0 = Math.min(y0, p.xyz.d2());
+            z0 = Math.min(z0, p.xyz.d3());
+            x1 = Math.max(x1, p.xyz.d1());
+            y1 = Math.max(y1, p.xyz.d2());
+            z1 = Math.max(z1, p.xyz.d3());
+        }
+        minX = x0;
+        minY = y0;
+        minZ = z0;
+        maxX = x1;
+        maxY = y1;
+        maxZ = z1;
+    }
+
+    /**
+     * Creates the smallest box that contains both this box and another one
+     *
+     * @param other the other box
+     * @return the union box
+     */
+    public BoundingBox union(BoundingBox other) {
+        return new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+
+    /**
+     * Calculates the surface area of the box (used by the surface area heuristic)
+     *
+     * @return the surface area
+     */
+    public double surfaceArea() {
+        double dx = maxX - minX;
+        double dy = maxY - minY;
+        double dz = maxZ - minZ;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Checks whether a ray passes through the box (slab test)
+     *
+     * @param ray the ray
+     * @return true if the ray intersects the box in front of its head
+     */
+    public boolean intersects(Ray ray) {
+        return intersects(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Checks whether a ray passes through the box not farther than a given distance (slab test)
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray head
+     * @return true if the ray intersects the box between its head and the maximal distance
+     */
+    public boolean intersects(Ray ray, double maxDistance) {
+        Point head = ray.getHead();
+        var dir = ray.getDirection();
+        return intersects(head.xyz.d1(), head.xyz.d2(), head.xyz.d3(),
+                1 / dir.xyz.d1(), 1 / dir.xyz.d2(), 1 / dir.xyz.d3(), maxDistance);
+    }
+
+    /**
+     * Slab test of a ray given by raw components against the box.<br>
+     * Division by zero direction components is allowed - the resulting infinities
+     * (and NaN's for a ray lying in a slab plane) are handled by the comparisons.
+     *
+     * @param ox   ray head X
+     * @param oy   ray head Y
+     * @param oz   ray head Z
+     * @param invX inverse of ray direction X
+     * @param invY inverse of ray direction Y
+     * @param invZ inverse of ray direction Z
+     * @param tMax maximal distance along the ray to be considered
+     * @return true if the ray intersects the box between its head and tMax
+     */
+    public boolean intersects(double ox, double oy, double oz,
+                              double invX, double invY, double invZ, double tMax) {
+        return slab(minX, minY, minZ, maxX, maxY, maxZ, ox, oy, oz, invX, invY, invZ, tMax)
+                != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Slab test against box bounds given by raw numbers
+     *
+     * @param x0   minimal X of the box
+     * @param y0   minimal Y of the box
+     * @param z0   minimal Z of the box
+     * @param x1   maximal X of the box
+     * @param y1   maximal Y of the box
+     * @param z1   maximal Z of the box
+     * @param ox   ray head X
+     * @param oy   ray head Y
+     * @param oz   ray head Z
+     * @param invX inverse of ray direction X
+     * @param invY inverse of ray direction Y
+     * @param invZ inverse of ray direction Z
+     * @param tMax maximal distance along the ray to be considered
+     * @return the entry distance into the box (may be negative if the head is inside),
+     * or positive infinity if the box is missed
+     */
+    static double slab(double x0, double y0, double z0, double x1, double y1, double z1,
+                       double ox, double oy, double oz,
+                       double invX, double invY, double invZ, double tMax) {
+        double tNear = Double.NEGATIVE_INFINITY;
+        double tFar = tMax;
+        double t1 = (x0 - ox) * invX, t2 = (x1 - ox) * invX;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        t1 = (y0 - oy) * invY;
+        t2 = (y1 - oy) * invY;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        t1 = (z0 - oz) * invZ;
+        t2 = (z1 - oz) * invZ;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        return tNear <= tFar && tFar >= 0 ? tNear : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public String toString() {
+        return "Box[(" + minX + "," + minY + "," + minZ + ")-(" + maxX + "," + maxY + "," + maxZ + ")]";
+    }
+}
@@ -0,0 +1,429 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounding volume hierarchy (BVH) over the children of a {@link Geometries} collection.
+ * <p>
+ * The hierarchy is a {@link BoxTree} over the primitive boxes, built with the surface area
+ * heuristic (SAH) and stored flattened in primitive arrays, so traversal does no pointer chasing.
+ * Unbounded geometries (planes, tubes) can not be put in the tree and are tested for every ray.
+ * <p>
+ * The hierarchy is immutable after construction and may be traversed by several threads at once.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+final class BoundingVolumeHierarchy {
+    /**
+     * Primitives of the tree, reordered so that each leaf refers to a contiguous range
+     */
+    private final Intersectable[] primitives;
+    /**
+     * Unbounded geometries which are tested for every ray
+     */
+    private final Intersectable[] unbounded;
+    /**
+     * The tree of the primitive boxes
+     */
+    private final BoxTree tree;
+
+    // ***************** Statistics ********************** //
+    /**
+     * Time of the build in nanoseconds
+     */
+    private final long buildTime;
+    /**
+     * Amount of rays traced through the hierarchy
+     */
+    private final LongAdder rays = new LongAdder();
+    /**
+     * Amount of node boxes tested by all rays
+     */
+    private final LongAdder nodeTests = new LongAdder();
+    /**
+     * Amount of primitive intersection tests done by all rays
+     */
+    private final LongAdder primitiveTests = new LongAdder();
+
+    /**
+     * Builds the hierarchy over the given geometries. Nested {@link Geometries}
+     * collections are flattened so that their children become primitives of the tree.
+     *
+     * @param geometries the geometries to build the hierarchy for
+     */
+    BoundingVolumeHierarchy(List<Intersectable> geometries) {
+        long start = System.nanoTime();
+        List<Intersectable> bounded = new ArrayList<>();
+        List<Intersectable> infinite = new ArrayList<>();
+        flatten(geometries, bounded, infinite);
+        unbounded = infinite.toArray(new Intersectable[0]);
+
+        int n = bounded.size();
+        double[] boxes = new double[6 * n];
+        for (int i = 0; i < n; ++i) {
+            BoundingBox box = bounded.get(i).getBoundingBox();
+            boxes[6 * i] = box.minX;
+            boxes[6 * i + 1] = box.minY;
+            boxes[6 * i + 2] = box.minZ;
+            boxes[6 * i + 3] = box.maxX;
+            boxes[6 * i + 4] = box.maxY;
+            boxes[6 * i + 5] = box.maxZ;
+        }
+        tree = new BoxTree(boxes);
+
+        primitives = new Intersectable[n];
+        for (int i = 0; i < n; ++i) primitives[i] = bounded.get(tree.order[i]);
+        buildTime = System.nanoTime() - start;
+    }
+
+    /**
+     * Splits geometries (recursively through nested collections) into bounded and unbounded ones
+     *
+     * @param geometries the geometries to split
+     * @param bounded    list accumulating geometries with a bounding box
+     * @param infinite   list accumulating geometries without a bounding box
+     */
+    private static void flatten(List<Intersectable> geometries,
+                                List<Intersectable> bounded, List<Intersectable> infinite) {
+        for (Intersectable geometry : geometries) {
+            if (geometry instanceof Geometries collection)
+                flatten(collection.geometries, bounded, infinite);
+            else if (geometry.getBoundingBox() == null)
+                infinite.add(geometry);
+            else
+                bounded.add(geometry);
+        }
+    }
+
+    /**
+     * Finds all intersections of a ray with the primitives of the hierarchy
+     * and with the unbounded geometries, which are not farther than a given distance
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray head
+     * @param hits        the buffer collecting the intersections
+     */
+    void calculateIntersections(Ray ray, double maxDistance, HitBuffer hits) {
+        long tests = 0, visited = 0;
+
+        for (Intersectable geometry : unbounded) {
+            ++tests;
+            geometry.calculateIntersections(ray, maxDistance, hits);
+        }
+
+        if (tree.nodes > 0) {
+            Point head = ray.getHead();
+            Vector dir = ray.getDirection();
+            double ox = head.xyz.d1(), oy = head.xyz.d2(), oz = head.xyz.d3();
+            double invX = 1 / dir.xyz.d1(), invY = 1 / dir.xyz.d2(), invZ = 1 / dir.xyz.d3();
+
+            HitBuffer.Traversal traversal = hits.beginTraversal();
+            try {
+                int[] stack = traversal.nodes;
+                int top = 0;
+                stack[top++] = 0;
+                while (top > 0) {
+                    int node = stack[--top];
+                    ++visited;
+                    if (tree.slab(node, ox, oy, oz, invX, invY, invZ, maxDistance) == Double.POSITIVE_INFINITY)
+                        continue;
+
+                    int count = tree.nodeCount[node];
+                    if (count > 0) {
+                        int first = tree.nodeOffset[node];
+                        for (int i = first; i < first + count; ++i) {
+                            ++tests;
+                            primitives[i].calculateIntersections(ray, maxDistance, hits);
+                        }
+                    } else {
+                        stack[top++] = tree.nodeOffset[node];
+                        stack[top++] = node + 1;
+                    }
+                }
+            } finally {
+                hits.endTraversal();
+            }
+        }
+
+        counted(1, visited, tests);
+    }
+
+    /**
+     * Finds the closest intersection of a ray with the primitives of the hierarchy
+     * and with the unbounded geometries, which is not farther than a given distance.<br>
+     * The children of each inner node are visited nearest first, and every found hit shrinks
+     * the search distance, so nodes behind the closest hit so far are not entered at all.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray head
+     * @return the closest intersection, or {@code null} if there is none
+     */
+    Intersection calculateClosestIntersection(Ray ray, double maxDistance) {
+        Point head = ray.getHead();
+        Intersection closest = null;
+        double best = maxDistance;
+        long tests = 0, visited = 0;
+
+        for (Intersectable geometry : unbounded) {
+            ++tests;
+            Intersection hit = geometry.calculateClosestIntersection(ray, best);
+            if (hit != null) {
+                closest = hit;
+                best = hit.t;
+            }
+        }
+
+        if (tree.nodes > 0) {
+            Vector dir = ray.getDirection();
+            double ox = head.xyz.d1(), oy = head.xyz.d2(), oz = head.xyz.d3();
+            double invX = 1 / dir.xyz.d1(), invY = 1 / dir.xyz.d2(), invZ = 1 / dir.xyz.d3();
+
+            // the stack keeps nodes together with their entry distances, which are re-checked on pop
+            HitBuffer buffer = HitBuffer.get();
+            HitBuffer.Traversal traversal = buffer.beginTraversal();
+            try {
+                int[] stack = traversal.nodes;
+                double[] entry = traversal.entries;
+                int top = 0;
+                double rootEntry = tree.slab(0, ox, oy, oz, invX, invY, invZ, best);
+                if (rootEntry != Double.POSITIVE_INFINITY) {
+                    stack[top] = 0;
+                    entry[top++] = rootEntry;
+                }
+                while (top > 0) {
+                    int node = stack[--top];
+                    if (entry[top] > best) continue;
+                    ++visited;
+
+                    int count = tree.nodeCount[node];
+                    if (count > 0) {
+                        int first = tree.nodeOffset[node];
+                        for (int i = first; i < first + count; ++i) {
+                            ++tests;
+                            Intersection hit = primitives[i].calculateClosestIntersection(ray, best);
+                            if (hit != null) {
+                                closest = hit;
+                                best = hit.t;
+                            }
+                        }
+                    } else {
+                        int left = node + 1, right = tree.nodeOffset[node];
+                        double tLeft = tree.slab(left, ox, oy, oz, invX, invY, invZ, best);
+                        double tRight = tree.slab(right, ox, oy, oz, invX, invY, invZ, best);
+                        // push the farther child first so that the nearer one is popped first
+                        if (tLeft > tRight) {
+                            int n = left;
+                            left = right;
+                            right = n;
+                            double t = tLeft;
+                            tLeft = tRight;
+                            tRight = t;
+                        }
+                        if (tRight != Double.POSITIVE_INFINITY) {
+                            stack[top] = right;
+                            entry[top++] = tRight;
+                        }
+                        if (tLeft != Double.POSITIVE_INFINITY) {
+                            stack[top] = left;
+                            entry[top++] = tLeft;
+                        }
+                    }
+                }
+            } finally {
+                buffer.endTraversal();
+            }
+        }
+
+        counted(1, visited, tests);
+        return closest;
+    }
+
+    /**
+     * Finds the closest intersections of the active lanes of a ray packet with the primitives of
+     * the hierarchy and with the unbounded geometries.<br>
+     * The packet traverses the tree once, nearest node first: an inner node box is tested once
+     * for the whole packet (by interval arithmetic on the bounds of the packet rays), and the
+     * primitives of a leaf are tested only by the lanes which enter the leaf box. The rays of an
+     * incoherent packet are traced one by one - its bounds are too loose for the shared tests.
+     *
+     * @param packet the ray packet, its active lanes are updated with closer hits
+     */
+    void calculateClosestIntersections(RayPacket packet) {
+        int lanes = packet.active;
+        if (!packet.isCoherent(lanes)) {
+            for (; lanes != 0; lanes &= lanes - 1) {
+                int k = Integer.numberOfTrailingZeros(lanes);
+                Ray ray = packet.rays[k];
+                Intersection hit = calculateClosestIntersection(ray, packet.tMax[k]);
+                if (hit != null) packet.hit(k, hit, hit.t);
+            }
+            return;
+        }
+
+        long tests = 0, visited = 0;
+        for (Intersectable geometry : unbounded) {
+            ++tests;
+            geometry.calculateClosestIntersections(packet);
+        }
+
+        if (tree.nodes > 0) {
+            // inner nodes are tested once for the whole packet, leaves are tested by each lane
+            double[] bounds = packet.bounds(lanes);
+            double farthest = packet.farthest(lanes);
+            HitBuffer buffer = HitBuffer.get();
+            HitBuffer.Traversal traversal = buffer.beginTraversal();
+            try {
+                int[] stack = traversal.nodes;
+                double[] entry = traversal.entries;
+                int top = 0;
+                double rootEntry = tree.slab(0, bounds, farthest);
+                if (rootEntry != Double.POSITIVE_INFINITY) {
+                    stack[top] = 0;
+                    entry[top++] = rootEntry;
+                }
+                while (top > 0) {
+                    int node = stack[--top];
+                    if (entry[top] > farthest) continue;
+                    ++visited;
+
+                    int count = tree.nodeCount[node];
+                    if (count > 0) {
+                        if (tree.slab(node, packet, lanes) == Double.POSITIVE_INFINITY) continue;
+                        int first = tree.nodeOffset[node];
+                        packet.active = packet.entered;
+                        for (int i = first; i < first + count; ++i) {
+                            ++tests;
+                            primitives[i].calculateClosestIntersections(packet);
+                        }
+                        packet.active = lanes;
+                        farthest = packet.farthest(lanes);
+                    } else {
+                        int left = node + 1, right = tree.nodeOffset[node];
+                        double tLeft = tree.slab(left, bounds, farthest);
+                        double tRight = tree.slab(right, bounds, farthest);
+                        // push the farther child first so that the nearer one is popped first
+                        if (tLeft > tRight) {
+                            int n = left;
+                            left = right;
+                            right = n;
+                            double t = tLeft;
+                            tLeft = tRight;
+                            tRight = t;
+                        }
+                        if (tRight != Double.POSITIVE_INFINITY) {
+                            stack[top] = right;
+                            entry[top++] = tRight;
+                        }
+                        if (tLeft != Double.POSITIVE_INFINITY) {
+                            stack[top] = left;
+                            entry[top++] = tLeft;
+                        }
+                    }
+                }
+            } finally {
+                buffer.endTraversal();
+            }
+        }
+
+        counted(packet.size, visited, tests);
+    }
+
+    /**
+     * Calculates the transparency along a ray up to a given distance - the product of the
+     * transparency coefficients of all the occluders. The traversal ends as soon as the ray
+     * is fully blocked, so for opaque scenes it stops at the first hit found in any order.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray head
+     * @return the transparency factor ({@link Double3#ZERO} if the ray is blocked)
+     */
+    Double3 calculateTransparency(Ray ray, double maxDistance) {
+        Double3 ktr = Double3.ONE;
+        long tests = 0, visited = 0;
+
+        for (Intersectable geometry : unbounded) {
+            ++tests;
+            ktr = ktr.product(geometry.calculateTransparency(ray, maxDistance));
+            if (Intersectable.isOpaque(ktr)) break;
+        }
+
+        if (tree.nodes > 0 && !Intersectable.isOpaque(ktr)) {
+            Point head = ray.getHead();
+            Vector dir = ray.getDirection();
+            double ox = head.xyz.d1(), oy = head.xyz.d2(), oz = head.xyz.d3();
+            double invX = 1 / dir.xyz.d1(), invY = 1 / dir.xyz.d2(), invZ = 1 / dir.xyz.d3();
+
+            HitBuffer buffer = HitBuffer.get();
+            HitBuffer.Traversal traversal = buffer.beginTraversal();
+            try {
+                int[] stack = traversal.nodes;
+                int top = 0;
+                stack[top++] = 0;
+                traversal:
+                while (top > 0) {
+                    int node = stack[--top];
+                    ++visited;
+                    if (tree.slab(node, ox, oy, oz, invX, invY, invZ, maxDistance) == Double.POSITIVE_INFINITY)
+                        continue;
+
+                    int count = tree.nodeCount[node];
+                    if (count > 0) {
+                        int first = tree.nodeOffset[node];
+                        for (int i = first; i < first + count; ++i) {
+                            ++tests;
+                            ktr = ktr.product(primitives[i].calculateTransparency(ray, maxDistance));
+                            if (Intersectable.isOpaque(ktr)) break traversal;
+                        }
+                    } else {
+                        stack[top++] = tree.nodeOffset[node];
+                        stack[top++] = node + 1;
+                    }
+                }
+            } finally {
+                buffer.endTraversal();
+            }
+        }
+
+        counted(1, visited, tests);
+        return Intersectable.isOpaque(ktr) ? Double3.ZERO : ktr;
+    }
+
+    /**
+     * Counts a traversal in the traversal statistics of the hierarchy, if the current thread
+     * renders with statistics (has a test listener) - other traversals only count in their
+     * local variables and do not touch the shared counters
+     *
+     * @param count   amount of the traced rays
+     * @param visited amount of the visited nodes
+     * @param tests   amount of the primitive intersection tests
+     */
+    private void counted(int count, long visited, long tests) {
+        if (Intersectable.testListener() == null) return;
+        rays.add(count);
+        nodeTests.add(visited);
+        primitiveTests.add(tests);
+    }
+
+    /**
+     * Returns a summary of the build and traversal statistics of the hierarchy - the traversals
+     * are counted only in renderings with statistics
+     *
+     * @return statistics summary
+     */
+    String statistics() {
+        long r = rays.sum();
+        return String.format(
+                "BVH: %,d primitives (+%d unbounded), %,d nodes, %,d leaves, depth %d, built in %.1f ms%n"
+                        + "     %,d rays, %.2f nodes and %.2f primitive tests per ray",
+                primitives.length, unbounded.length, tree.nodes, tree.leaves, tree.maxDepth, buildTime / 1e6,
+                r, r == 0 ? 0d : (double) nodeTests.sum() / r, r == 0 ? 0d : (double) primitiveTests.sum() / r);
+    }
+}
@@ -0,0 +1,383 @@
+package geometries;
+
+import java.util.Arrays;
+
+/**
+ * Flattened binary tree of axis-aligned boxes, built top-down with the surface area heuristic (SAH).
+ * <p>
+ * The tree is built over items given only by their boxes: at every node the items are binned by
+ * their box centroids along each axis, and the split with the lowest expected intersection cost is
+ * chosen. A node becomes a leaf when no split is cheaper than testing all its items.<br>
+ * The tree is stored in primitive arrays (depth-first order - the left child of an inner node
+ * always follows the node itself), and the leaves refer to contiguous ranges of the
+ * {@link #order} permutation of the items. It is shared by the hierarchies of
+ * {@link Geometries} and {@link TriangleMesh}, which keep their items in that order.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+final class BoxTree {
+    /**
+     * Number of centroid bins per axis for the SAH split search
+     */
+    private static final int BINS = 16;
+    /**
+     * Items amount in a node which will always become a leaf
+     */
+    private static final int MIN_LEAF_SIZE = 2;
+    /**
+     * Maximal amount of items in a leaf when there is no profitable split
+     */
+    private static final int MAX_LEAF_SIZE = 16;
+    /**
+     * Relative cost of traversing a node in comparison to intersecting an item
+     */
+    private static final double TRAVERSAL_COST = 1.0;
+    /**
+     * Maximal depth of the traversal stack
+     */
+    static final int STACK_SIZE = 64;
+    /**
+     * Maximal depth of a node - deeper nodes become leaves so that the traversal stack never overflows
+     */
+    private static final int MAX_DEPTH = STACK_SIZE - 2;
+
+    /**
+     * Node boxes - 6 numbers per node: minX, minY, minZ, maxX, maxY, maxZ
+     */
+    double[] nodeBounds;
+    /**
+     * For a leaf - index of its first item in {@link #order}, for an inner node - index of its right child
+     */
+    int[] nodeOffset;
+    /**
+     * For a leaf - amount of its items, for an inner node - zero
+     */
+    int[] nodeCount;
+    /**
+     * Amount of nodes in the tree
+     */
+    int nodes = 0;
+    /**
+     * Item indices in the tree order - each leaf refers to a contiguous range of it
+     */
+    final int[] order;
+    /**
+     * Amount of leaves in the tree
+     */
+    int leaves = 0;
+    /**
+     * Maximal depth of a leaf in the tree
+     */
+    int maxDepth = 0;
+
+    // ***************** Build-time data (released after the build) ********************** //
+    /**
+     * Item boxes - 6 numbers per item
+     */
+    private double[] boxes;
+    /**
+     * Item box centroids - 3 numbers per item
+     */
+    private double[] centroids;
+
+    /**
+     * Builds the tree over items given by their boxes
+     *
+     * @param boxes item boxes - 6 numbers per item: minX, minY, minZ, maxX, maxY, maxZ
+     */
+    BoxTree(double[] boxes) {
+        int n = boxes.length / 6;
+        this.boxes = boxes;
+        centroids = new double[3 * n];
+        order = new int[n];
+        for (int i = 0; i < n; ++i) {
+            for (int a = 0; a < 3; ++a)
+                centroids[3 * i + a] = (boxes[6 * i + a] + boxes[6 * i + a + 3]) / 2;
+            order[i] = i;
+        }
+
+        // a binary tree with leaves of at least one item has less than 2n nodes
+        int capacity = Math.max(1, 2 * n);
+        nodeBounds = new double[6 * capacity];
+        nodeOffset = new int[capacity];
+        nodeCount = new int[capacity];
+        if (n > 0) build(0, n, 0);
+        nodeBounds = Arrays.copyOf(nodeBounds, 6 * nodes);
+        nodeOffset = Arrays.copyOf(nodeOffset, nodes);
+        nodeCount = Arrays.copyOf(nodeCount, nodes);
+        this.boxes = null;
+        centroids = null;
+    }
+
+    /**
+     * Recursively builds the subtree for items order[from..to)
+     *
+     * @param from  index of the first item in the order array
+     * @param to    index after the last item in the order array
+     * @param depth depth of the node
+     * @return index of the created node
+     */
+    private int build(int from, int to, int depth) {
+        int node = nodes++;
+        maxDepth = Math.max(maxDepth, depth);
+
+        // Node box and the box of the primitive centroids
+        double[] nb = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        double[] cb = nb.clone();
+        for (int i = from; i < to; ++i) {
+            int p = order[i];
+            for (int a = 0; a < 3; ++a) {
+                nb[a] = Math.min(nb[a], boxes[6 * p + a]);
+                nb[a + 3] = Math.max(nb[a + 3], boxes[6 * p + a + 3]);
+                cb[a] = Math.min(cb[a], centroids[3 * p + a]);
+                cb[a + 3] = Math.max(cb[a + 3], centroids[3 * p + a]);
+            }
+        }
+        System.arraycopy(nb, 0, nodeBounds, 6 * node, 6);
+
+        int count = to - from;
+        if (count <= MIN_LEAF_SIZE || depth >= MAX_DEPTH) return makeLeaf(node, from, count);
+
+        // SAH binned split search over all three axes
+        double bestCost = Double.POSITIVE_INFINITY;
+        int bestAxis = -1;
+        int bestBin = -1;
+        double parentArea = area(nb, 0);
+        int[] binCount = new int[BINS];
+        double[] binBounds = new double[6 * BINS];
+        double[] rightArea = new double[BINS];
+        int[] rightCount = new int[BINS];
+        for (int axis = 0; axis < 3; ++axis) {
+            double cMin = cb[axis];
+            double extent = cb[axis + 3] - cMin;
+            if (extent <= 0) continue; // all centroids on the same plane - can't split by this axis
+
+            Arrays.fill(binCount, 0);
+            for (int b = 0; b < BINS; ++b) resetBox(binBounds, b);
+            double scale = BINS / extent;
+            for (int i = from; i < to; ++i) {
+                int p = order[i];
+                int b = Math.min(BINS - 1, (int) ((centroids[3 * p + axis] - cMin) * scale));
+                ++binCount[b];
+                growBox(binBounds, b, boxes, p);
+            }
+
+            // sweep from the right to accumulate right side areas
+            double[] acc = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            int accCount = 0;
+            for (int b = BINS - 1; b > 0; --b) {
+                accCount += binCount[b];
+                growBox(acc, 0, binBounds, b);
+                rightCount[b] = accCount;
+                rightArea[b] = accCount == 0 ? 0 : area(acc, 0);
+            }
+            // sweep from the left and evaluate the split before each bin
+            acc = new double[]{Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            accCount = 0;
+            for (int b = 1; b < BINS; ++b) {
+                accCount += binCount[b - 1];
+                growBox(acc, 0, binBounds, b - 1);
+                if (accCount == 0 || rightCount[b] == 0) continue;
+                double cost = TRAVERSAL_COST
+                        + (area(acc, 0) * accCount + rightArea[b] * rightCount[b]) / parentArea;
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestBin = b;
+                }
+            }
+        }
+
+        // no possible split, or a leaf is cheaper and small enough
+        if (bestAxis < 0 || (bestCost >= count && count <= MAX_LEAF_SIZE))
+            return makeLeaf(node, from, count);
+
+        // partition the primitives by the chosen bin
+        double cMin = cb[bestAxis];
+        double scale = BINS / (cb[bestAxis + 3] - cMin);
+        int mid = from;
+        for (int i = from; i < to; ++i) {
+            int p = order[i];
+            int b = Math.min(BINS - 1, (int) ((centroids[3 * p + bestAxis] - cMin) * scale));
+            if (b < bestBin) {
+                order[i] = order[mid];
+                order[mid++] = p;
+            }
+        }
+
+        build(from, mid, depth + 1); // the left child is always node + 1
+        nodeOffset[node] = build(mid, to, depth + 1);
+        nodeCount[node] = 0;
+        return node;
+    }
+
+    /**
+     * Turns a node into a leaf
+     *
+     * @param node  the node index
+     * @param from  index of the first item of the leaf in the order array
+     * @param count amount of primitives in the leaf
+     * @return the node index
+     */
+    private int makeLeaf(int node, int from, int count) {
+        nodeOffset[node] = from;
+        nodeCount[node] = count;
+        ++leaves;
+        return node;
+    }
+
+    /**
+     * Surface area of a box stored in an array
+     *
+     * @param b      array of boxes
+     * @param offset index of the box first number in the array
+     * @return the surface area
+     */
+    private static double area(double[] b, int offset) {
+        double dx = b[offset + 3] - b[offset];
+        double dy = b[offset + 4] - b[offset + 1];
+        double dz = b[offset + 5] - b[offset + 2];
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Sets a box stored in an array to an empty box
+     *
+     * @param b     array of boxes
+     * @param index the box index
+     */
+    private static void resetBox(double[] b, int index) {
+        for (int a = 0; a < 3; ++a) {
+            b[6 * index + a] = Double.POSITIVE_INFINITY;
+            b[6 * index + a + 3] = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Grows a box stored in an array to contain another box
+     *
+     * @param b     array of the box to grow
+     * @param index index of the box to grow
+     * @param o     array of the box to be contained
+     * @param other index of the box to be contained
+     */
+    private static void growBox(double[] b, int index, double[] o, int other) {
+        for (int a = 0; a < 3; ++a) {
+            b[6 * index + a] = Math.min(b[6 * index + a], o[6 * other + a]);
+            b[6 * index + a + 3] = Math.max(b[6 * index + a + 3], o[6 * other + a + 3]);
+        }
+    }
+
+    /**
+     * Slab test of a ray against the box of a node
+     *
+     * @param node the node index
+     * @param ox   ray head X
+     * @param oy   ray head Y
+     * @param oz   ray head Z
+     * @param invX inverse of ray direction X
+     * @param invY inverse of ray direction Y
+     * @param invZ inverse of ray direction Z
+     * @param tMax maximal distance along the ray to be considered
+     * @return the entry distance into the box, or positive infinity if the box is missed
+     */
+    double slab(int node, double ox, double oy, double oz, double invX, double invY, double invZ, double tMax) {
+        int b = 6 * node;
+        return BoundingBox.slab(nodeBounds[b], nodeBounds[b + 1], nodeBounds[b + 2],
+                nodeBounds[b + 3], nodeBounds[b + 4], nodeBounds[b + 5], ox, oy, oz, invX, invY, invZ, tMax);
+    }
+
+    /**
+     * Conservative slab test of the bounding box of a node against a whole ray packet, by interval
+     * arithmetic on the bounds of the packet rays - a single test for all the rays. If no ray of
+     * the packet enters the box, the box is missed; otherwise the result is not farther than the
+     * nearest entry of the rays.
+     *
+     * @param node   the node index
+     * @param bounds the bounds of the packet rays (see {@link RayPacket#bounds(int)})
+     * @param tMax   maximal distance along the rays to be considered
+     * @return a lower bound of the entry distances of the rays into the box,
+     * or positive infinity if the box is missed by all the rays
+     */
+    double slab(int node, double[] bounds, double tMax) {
+        int b = 6 * node;
+        double tNear = Double.NEGATIVE_INFINITY;
+        double tFar = tMax;
+        for (int axis = 0; axis < 3; ++axis) {
+            double oLo = bounds[axis], oHi = bounds[3 + axis];
+            double iLo = bounds[6 + axis], iHi = bounds[9 + axis];
+            double lo = nodeBounds[b + axis], hi = nodeBounds[b + 3 + axis];
+            // the distances of the rays to each plane of the box lie between the extreme products
+            double t1 = lowest(lo - oHi, lo - oLo, iLo, iHi), t2 = lowest(hi - oHi, hi - oLo, iLo, iHi);
+            double near = t1 < t2 ? t1 : t2;
+            t1 = highest(lo - oHi, lo - oLo, iLo, iHi);
+            t2 = highest(hi - oHi, hi - oLo, iLo, iHi);
+            double far = t1 > t2 ? t1 : t2;
+            if (near > tNear) tNear = near;
+            if (far < tFar) tFar = far;
+        }
+        return tNear <= tFar && tFar >= 0 ? tNear : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Lowest product of numbers of two intervals
+     *
+     * @param xLo lower bound of the first interval
+     * @param xHi upper bound of the first interval
+     * @param yLo lower bound of the second interval
+     * @param yHi upper bound of the second interval
+     * @return the lowest product
+     */
+    private static double lowest(double xLo, double xHi, double yLo, double yHi) {
+        double a = xLo * yLo, b = xLo * yHi, c = xHi * yLo, d = xHi * yHi;
+        double ab = a < b ? a : b, cd = c < d ? c : d;
+        return ab < cd ? ab : cd;
+    }
+
+    /**
+     * Highest product of numbers of two intervals
+     *
+     * @param xLo lower bound of the first interval
+     * @param xHi upper bound of the first interval
+     * @param yLo lower bound of the second interval
+     * @param yHi upper bound of the second interval
+     * @return the highest product
+     */
+    private static double highest(double xLo, double xHi, double yLo, double yHi) {
+        double a = xLo * yLo, b = xLo * yHi, c = xHi * yLo, d = xHi * yHi;
+        double ab = a > b ? a : b, cd = c > d ? c : d;
+        return ab > cd ? ab : cd;
+    }
+
+    /**
+     * Slab test of the bounding box of a node against several lanes of a ray packet.
+     * The box bounds are loaded once for all the lanes.
+     * The mask of the lanes which enter the box is left in {@link RayPacket#entered}.
+     *
+     * @param node   the node index
+     * @param packet the ray packet
+     * @param lanes  bit mask of the lanes to test
+     * @return the nearest entry distance of the lanes into the box, or positive infinity if all miss it
+     */
+    double slab(int node, RayPacket packet, int lanes) {
+        int b = 6 * node;
+        double minX = nodeBounds[b], minY = nodeBounds[b + 1], minZ = nodeBounds[b + 2];
+        double maxX = nodeBounds[b + 3], maxY = nodeBounds[b + 4], maxZ = nodeBounds[b + 5];
+        double nearest = Double.POSITIVE_INFINITY;
+        int entered = 0;
+        for (; lanes != 0; lanes &= lanes - 1) {
+            int k = Integer.numberOfTrailingZeros(lanes);
+            double t = BoundingBox.slab(minX, minY, minZ, maxX, maxY, maxZ,
+                    packet.ox[k], packet.oy[k], packet.oz[k], packet.invX[k], packet.invY[k], packet.invZ[k],
+                    packet.tMax[k]);
+            if (t == Double.POSITIVE_INFINITY) continue;
+            entered |= 1 << k;
+            if (t < nearest) nearest = t;
+        }
+        packet.entered = entered;
+        return nearest;
+    }
+}
@@ -0,0 +1,188 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Ray;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiled form of a {@link Geometries} collection - its geometries (nested collections
+ * flattened) partitioned by their concrete type into homogeneous arrays.
+ * <p>
+ * A loop over a mixed list of geometries calls the intersection methods of many types from a
+ * single call site, which the JIT compiler can not inline (a megamorphic call). Here every
+ * common type gets its own tight loop over an array of exactly that type, so the call in each
+ * loop sees a single type and is inlined. The geometries of the other types (and the subclasses
+ * of the common ones) are kept in a mixed array with a generic loop.
+ * <p>
+ * The compiled form gives the same intersections, closest intersection and transparency as the
+ * collection, except that (as with the bounding volume hierarchy) the intersections come by the
+ * geometry types rather than by the order the geometries were added. It is immutable and may be
+ * used by several threads at once; changes of the collection after the compilation are not seen.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+public final class CompiledGeometries extends Intersectable {
+    /**
+     * The triangle meshes
+     */
+    private final TriangleMesh[] meshes;
+    /**
+     * The planes
+     */
+    private final Plane[] planes;
+    /**
+     * The triangles
+     */
+    private final Triangle[] triangles;
+    /**
+     * The spheres
+     */
+    private final Sphere[] spheres;
+    /**
+     * The geometries of all the other types
+     */
+    private final Intersectable[] others;
+
+    /**
+     * Compiles geometries - nested collections are flattened and the geometries are
+     * partitioned by their type
+     *
+     * @param geometries  the geometries
+     * @param boundingBox the bounding box of all the geometries, {@code null} if some are unbounded
+     */
+    CompiledGeometries(List<Intersectable> geometries, BoundingBox boundingBox) {
+        List<TriangleMesh> meshList = new ArrayList<>();
+        List<Plane> planeList = new ArrayList<>();
+        List<Triangle> triangleList = new ArrayList<>();
+        List<Sphere> sphereList = new ArrayList<>();
+        List<Intersectable> otherList = new ArrayList<>();
+        for (Intersectable geometry : geometries) {
+            // only the exact types, so that every array holds a single type
+            Class<?> type = geometry.getClass();
+            if (type == TriangleMesh.class) meshList.add((TriangleMesh) geometry);
+            else if (type == Plane.class) planeList.add((Plane) geometry);
+            else if (type == Triangle.class) triangleList.add((Triangle) geometry);
+            else if (type == Sphere.class) sphereList.add((Sphere) geometry);
+            else otherList.add(geometry);
+        }
+        meshes = meshList.toArray(new TriangleMesh[0]);
+        planes = planeList.toArray(new Plane[0]);
+        triangles = triangleList.toArray(new Triangle[0]);
+        spheres = sphereList.toArray(new Sphere[0]);
+        others = otherList.toArray(new Intersectable[0]);
+        this.boundingBox = boundingBox;
+    }
+
+    /**
+     * Returns the amount of the compiled geometries
+     *
+     * @return the amount of geometries
+     */
+    public int size() {
+        return meshes.length + planes.length + triangles.length + spheres.length + others.length;
+    }
+
+    @Override
+    protected void calculateIntersectionsHelper(Ray ray, double maxDistance, HitBuffer hits) {
+        for (TriangleMesh mesh : meshes) mesh.calculateIntersections(ray, maxDistance, hits);
+        for (Plane plane : planes) plane.calculateIntersections(ray, maxDistance, hits);
+        for (Triangle triangle : triangles) triangle.calculateIntersections(ray, maxDistance, hits);
+        for (Sphere sphere : spheres) sphere.calculateIntersections(ray, maxDistance, hits);
+        for (Intersectable geometry : others) geometry.calculateIntersections(ray, maxDistance, hits);
+    }
+
+    /**
+     * Finds the closest intersection of a ray with the geometries - each geometry is searched
+     * only up to the closest intersection found so far. The meshes and the planes, which are
+     * likely to be large occluders, are searched first, so the distance shrinks early.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray head of the intersection
+     * @return the closest intersection, or {@code null} if there is none
+     */
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        Intersection closest = null;
+        for (TriangleMesh mesh : meshes) {
+            Intersection hit = mesh.calculateClosestIntersection(ray, maxDistance);
+            if (hit != null) {
+                closest = hit;
+                maxDistance = hit.t;
+            }
+        }
+        for (Plane plane : planes) {
+            Intersection hit = plane.calculateClosestIntersection(ray, maxDistance);
+            if (hit != null) {
+                closest = hit;
+                maxDistance = hit.t;
+            }
+        }
+        for (Triangle triangle : triangles) {
+            Intersection hit = triangle.calculateClosestIntersection(ray, maxDistance);
+            if (hit != null) {
+                closest = hit;
+                maxDistance = hit.t;
+            }
+        }
+        for (Sphere sphere : spheres) {
+            Intersection hit = sphere.calculateClosestIntersection(ray, maxDistance);
+            if (hit != null) {
+                closest = hit;
+                maxDistance = hit.t;
+            }
+        }
+        for (Intersectable geometry : others) {
+            Intersection hit = geometry.calculateClosestIntersection(ray, maxDistance);
+            if (hit != null) {
+                closest = hit;
+                maxDistance = hit.t;
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    protected void calculateClosestIntersectionsHelper(RayPacket packet) {
+        for (TriangleMesh mesh : meshes) mesh.calculateClosestIntersections(packet);
+        for (Plane plane : planes) plane.calculateClosestIntersections(packet);
+        for (Triangle triangle : triangles) triangle.calculateClosestIntersections(packet);
+        for (Sphere sphere : spheres) sphere.calculateClosestIntersections(packet);
+        for (Intersectable geometry : others) geometry.calculateClosestIntersections(packet);
+    }
+
+    /**
+     * Calculates the transparency of the geometries along a ray. The rest of the geometries
+     * are skipped as soon as the ray is fully blocked.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray head of the occluders
+     * @return the transparency factor ({@link Double3#ZERO} if the ray is blocked)
+     */
+    @Override
+    protected Double3 calculateTransparencyHelper(Ray ray, double maxDistance) {
+        Double3 ktr = Double3.ONE;
+        for (TriangleMesh mesh : meshes) {
+            ktr = ktr.product(mesh.calculateTransparency(ray, maxDistance));
+            if (isOpaque(ktr)) return Double3.ZERO;
+        }
+        for (Plane plane : planes) {
+            ktr = ktr.product(plane.calculateTransparency(ray, maxDistance));
+            if (isOpaque(ktr)) return Double3.ZERO;
+        }
+        for (Triangle triangle : triangles) {
+            ktr = ktr.product(triangle.calculateTransparency(ray, maxDistance));
+            if (isOpaque(ktr)) return Double3.ZERO;
+        }
+        for (Sphere sphere : spheres) {
+            ktr = ktr.product(sphere.calculateTransparency(ray, maxDistance));
+            if (isOpaque(ktr)) return Double3.ZERO;
+        }
+        for (Intersectable geometry : others) {
+            ktr = ktr.product(geometry.calculateTransparency(ray, maxDistance));
+            if (isOpaque(ktr)) return Double3.ZERO;
+        }
+        return ktr;
+    }
+}
@@ -1,15 +1,14 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
+import static primitives.VectorMath.dot;
+import static primitives.VectorMath.lengthSquared;
 
 /**
  * This class represents a Cylinder, a 3D geometric object defined by its radius and height.
@@ -21,6 +20,14 @@ import static primitives.Util.isZero;
 
 public class Cylinder extends Tube {
     private final double height;
+    /**
+     * Center of the top base
+     */
+    private final Point topCenter;
+    /**
+     * Planes of the bottom and the top bases
+     */
+    private final Plane bottomPlane, topPlane;
 
 
     /**
@@ -36,6 +43,25 @@ public class Cylinder extends Tube {
             throw new IllegalArgumentException("Height must be positive");
         }
         this.height = height;
+
+        // Box of the two base discs: a disc with a unit normal v extends along each
+        // coordinate axis i by radius * sqrt(1 - v_i^2) around its center
+        Point p0 = axis.getHead();
+        Point p1 = p0.add(axis.getDirection().scale(height));
+        topCenter = p1;
+        bottomPlane = new Plane(p0, axis.getDirection().scale(-1));
+        topPlane = new Plane(p1, axis.getDirection());
+        Double3 v = axis.getDirection().xyz;
+        double ex = radius * Math.sqrt(Math.max(0, 1 - v.d1() * v.d1()));
+        double ey = radius * Math.sqrt(Math.max(0, 1 - v.d2() * v.d2()));
+        double ez = radius * Math.sqrt(Math.max(0, 1 - v.d3() * v.d3()));
+        boundingBox = new BoundingBox(
+                Math.min(p0.xyz.d1(), p1.xyz.d1()) - ex,
+                Math.min(p0.xyz.d2(), p1.xyz.d2()) - ey,
+                Math.min(p0.xyz.d3(), p1.xyz.d3()) - ez,
+                Math.max(p0.xyz.d1(), p1.xyz.d1()) + ex,
+                Math.max(p0.xyz.d2(), p1.xyz.d2()) + ey,
+                Math.max(p0.xyz.d3(), p1.xyz.d3()) + ez);
     }
 
     /**
@@ -79,75 +105,67 @@ public class Cylinder extends Tube {
      * It calculates the intersection points (if any) between a given ray and the surface of the finite cylinder
      * (including its two bases).
      *
-     * @param ray The ray for which intersection points with the cylinder are to be found.
-     * @return A list of intersection points, or {@code null} if there are none.
+     * @param ray         The ray for which intersection points with the cylinder are to be found.
+     * @param maxDistance The maximal distance from the ray head of the intersection points.
+     * @param hits        The buffer collecting the intersection points, ordered by their distance.
      */
     @Override
-    public List<Intersection> calculateIntersectionsHelper(Ray ray) {
-        List<Intersection> intersections = super.calculateIntersectionsHelper(ray); // Side intersections from Tube
-        List<Intersection> results = new ArrayList<>();
+    protected void calculateIntersectionsHelper(Ray ray, double maxDistance, HitBuffer hits) {
+        int mark = hits.size();
+        // Side intersections from Tube
+        super.calculateIntersectionsHelper(ray, maxDistance, hits);
 
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
         Point p0 = axis.getHead();                    // Bottom base center of the cylinder
         Vector vAxis = axis.getDirection(); // Cylinder axis direction
 
-        // Filter side intersections to keep only those within cylinder height
-        if (intersections != null) {
-            for (Intersection intersection : intersections) {
-                Point p = intersection.point;
-                double t = vAxis.dotProduct(p.subtract(p0));
-                if (alignZero(t) >= 0 && alignZero(t) <= height) {
-                    results.add(intersection);
-                }
-            }
+        // Filter side intersections to keep only those within cylinder height, on raw coordinates
+        for (int i = hits.size() - 1; i >= mark; --i) {
+            double s = hits.t(i);
+            double t = alignZero(dot(vAxis.xyz.d1(), vAxis.xyz.d2(), vAxis.xyz.d3(),
+                    head.xyz.d1() + direction.xyz.d1() * s - p0.xyz.d1(),
+                    head.xyz.d2() + direction.xyz.d2() * s - p0.xyz.d2(),
+                    head.xyz.d3() + direction.xyz.d3() * s - p0.xyz.d3()));
+            if (t < 0 || t > height) hits.remove(i);
         }
 
         // Intersect with bottom base
-        List<Intersection> bottomHits = intersectBase(p0, vAxis.scale(-1), ray);
-        if (bottomHits != null) results.addAll(bottomHits);
+        intersectBase(bottomPlane, p0, ray, maxDistance, hits);
 
         // Intersect with top base
-        Point topCenter = p0.add(vAxis.scale(height)); // Top base center
-        List<Intersection> topHits = intersectBase(topCenter, vAxis, ray);
-        if (topHits != null) results.addAll(topHits);
-
-        if (results.isEmpty()) return null;
+        intersectBase(topPlane, topCenter, ray, maxDistance, hits);
 
         // Sort the intersection points by their distance from the ray origin
-        results.sort(Comparator.comparingDouble(p -> ray.getDirection().dotProduct(p.point.subtract(ray.getHead()))));
-
-        return results;
+        hits.sortByDistance(mark);
     }
 
     /**
-     * Finds the intersections between a ray and a circular base of a cylinder or a cone.
+     * Finds the intersection between a ray and a circular base of a cylinder.
      * <p>
      * The method first checks intersection with the plane in which the base lies.
-     * Then, it filters out any intersection points that fall outside the circular base
+     * Then, it filters out an intersection point that falls outside the circular base
      * by verifying the distance from the center of the base is less than or equal to the radius.
      *
-     * @param center The center point of the base circle
-     * @param normal The normal vector of the base plane
-     * @param ray    The ray to intersect with the base
-     * @return A list of intersections with the base (null if none are within the radius)
+     * @param plane       The plane of the base
+     * @param center      The center point of the base circle
+     * @param ray         The ray to intersect with the base
+     * @param maxDistance The maximal distance from the ray head of the intersections
+     * @param hits        The buffer collecting the intersection with the base
      */
-    private List<Intersection> intersectBase(Point center, Vector normal, Ray ray) {
-        Plane basePlane = new Plane(center, normal);
-        List<Intersection> baseIntersections = basePlane.calculateIntersectionsHelper(ray);
-        if (baseIntersections == null) return null;
-
-        List<Intersection> result = new ArrayList<>();
-        for (Intersection intersection : baseIntersections) {
-            Point p = intersection.point;
-            if (p.equals(center)) {
-                result.add(new Intersection(this, p)); // Center point – avoid zero vector creation
-            } else {
-                Vector v = p.subtract(center);
-                if (alignZero(v.lengthSquared() - radius * radius) <= 0) {
-                    result.add(new Intersection(this, p));
-                }
-            }
+    private void intersectBase(Plane plane, Point center, Ray ray, double maxDistance, HitBuffer hits) {
+        double t = plane.intersectionDistance(ray, maxDistance);
+        if (Double.isNaN(t)) return;
+
+        // Vector from the center to the intersection point, on raw coordinates
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double x = head.xyz.d1() + direction.xyz.d1() * t - center.xyz.d1();
+        double y = head.xyz.d2() + direction.xyz.d2() * t - center.xyz.d2();
+        double z = head.xyz.d3() + direction.xyz.d3() * t - center.xyz.d3();
+        if (alignZero(lengthSquared(x, y, z) - radius * radius) <= 0) {
+            hits.add(this, ray, t);
         }
-        return result.isEmpty() ? null : result;
     }
 
 
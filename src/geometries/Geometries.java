@@ -1,7 +1,9 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Ray;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -20,6 +22,17 @@ import java.util.List;
 public class Geometries extends Intersectable {
     List<Intersectable> geometries = new LinkedList<Intersectable>();
 
+    /**
+     * Bounding volume hierarchy over the geometries - {@code null} until {@link #buildBVH()} is called,
+     * and discarded whenever the collection is changed
+     */
+    private BoundingVolumeHierarchy bvh = null;
+
+    /**
+     * Whether the bounding box of the collection is up-to-date
+     */
+    private volatile boolean boxReady = false;
+
     /**
      * Default constructor. Initializes an empty collection of geometries.
      */
@@ -42,26 +55,171 @@ public class Geometries extends Intersectable {
      */
     public void add(Intersectable... geometries) {
         Collections.addAll(this.geometries, geometries);
+        bvh = null;
+        boxReady = false;
+    }
+
+    /**
+     * Returns the bounding box of the collection - the union of its children's boxes.
+     * The box is calculated on the first call after the collection was changed;
+     * changes in nested collections after that are not tracked.
+     *
+     * @return the bounding box, or {@code null} if the collection is empty
+     * or contains an unbounded geometry
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        if (!boxReady) {
+            BoundingBox box = null;
+            for (Intersectable geometry : geometries) {
+                BoundingBox childBox = geometry.getBoundingBox();
+                if (childBox == null) {
+                    box = null;
+                    break;
+                }
+                box = box == null ? childBox : box.union(childBox);
+            }
+            boundingBox = box;
+            boxReady = true;
+        }
+        return boundingBox;
+    }
+
+    /**
+     * Returns all the geometries of the collection, with nested collections
+     * replaced (recursively) by their geometries
+     *
+     * @return list of the geometries which are not collections
+     */
+    public List<Intersectable> flatten() {
+        List<Intersectable> result = new ArrayList<>();
+        for (Intersectable geometry : geometries) {
+            if (geometry instanceof Geometries collection)
+                result.addAll(collection.flatten());
+            else
+                result.add(geometry);
+        }
+        return result;
+    }
+
+    /**
+     * Builds a bounding volume hierarchy (BVH) over the geometries in the collection.
+     * Afterwards intersections are calculated by traversing the hierarchy instead of testing
+     * every geometry. Adding geometries to the collection discards the hierarchy, so it must
+     * be built again once the scene is complete. Note that changes in nested collections
+     * are not tracked.
+     *
+     * @return the collection itself
+     */
+    public Geometries buildBVH() {
+        bvh = new BoundingVolumeHierarchy(geometries);
+        return this;
+    }
+
+    /**
+     * Checks whether a bounding volume hierarchy is built over the collection
+     *
+     * @return true if the hierarchy is built (and the collection was not changed since)
+     */
+    public boolean hasBVH() {
+        return bvh != null;
+    }
+
+    /**
+     * Compiles the collection into a flat form with the geometries partitioned by their type,
+     * which is intersected by type specialized loops (see {@link CompiledGeometries}).
+     * The collection itself is not changed, and its later changes are not seen by the compiled form.
+     *
+     * @return the compiled geometries
+     */
+    public CompiledGeometries compile() {
+        return new CompiledGeometries(flatten(), getBoundingBox());
+    }
+
+    /**
+     * Returns the build and traversal statistics of the bounding volume hierarchy
+     *
+     * @return statistics summary, or {@code null} if there is no hierarchy
+     */
+    public String getBVHStatistics() {
+        return bvh == null ? null : bvh.statistics();
     }
 
     /**
      * Finds all intersection points between a given ray and all geometries in the collection.
      *
-     * @param ray The ray for which to find intersections with the geometries.
-     * @return A list of intersection points, or {@code null} if there are no intersections.
+     * @param ray         The ray for which to find intersections with the geometries.
+     * @param maxDistance The maximal distance from the ray head of the intersection points.
+     * @param hits        The buffer collecting the intersection points.
+     */
+    @Override
+    protected void calculateIntersectionsHelper(Ray ray, double maxDistance, HitBuffer hits) {
+        if (bvh != null) {
+            bvh.calculateIntersections(ray, maxDistance, hits);
+            return;
+        }
+        for (Intersectable geometry : geometries)
+            geometry.calculateIntersections(ray, maxDistance, hits);
+    }
+
+    /**
+     * Finds the closest intersection point between a given ray and the geometries in the collection.
+     * Each geometry is searched only up to the closest intersection found so far.
+     *
+     * @param ray         The ray for which to find the closest intersection.
+     * @param maxDistance The maximal distance from the ray head of the intersection point.
+     * @return The closest intersection, or {@code null} if there is no intersection.
      */
     @Override
-    public List<Intersection> calculateIntersectionsHelper(Ray ray) {
-        List<Intersection> intersections = null;
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        if (bvh != null)
+            return bvh.calculateClosestIntersection(ray, maxDistance);
 
+        Intersection closest = null;
         for (Intersectable geometry : geometries) {
-            List<Intersection> geometryIntersections = geometry.calculateIntersections(ray);
-            if (geometryIntersections != null) {
-                if (intersections == null)
-                    intersections = new LinkedList<>();
-                intersections.addAll(geometryIntersections);
+            Intersection intersection = geometry.calculateClosestIntersection(ray, maxDistance);
+            if (intersection != null) {
+                closest = intersection;
+                maxDistance = intersection.t;
             }
         }
-        return intersections;
+        return closest;
+    }
+
+    /**
+     * Finds the closest intersections of the rays of a packet with the geometries in the collection.
+     * Each geometry is searched by each ray only up to the closest intersection of the ray found so far.
+     *
+     * @param packet The ray packet, its active lanes are updated with closer hits.
+     */
+    @Override
+    protected void calculateClosestIntersectionsHelper(RayPacket packet) {
+        if (bvh != null) {
+            bvh.calculateClosestIntersections(packet);
+            return;
+        }
+        for (Intersectable geometry : geometries)
+            geometry.calculateClosestIntersections(packet);
+    }
+
+    /**
+     * Calculates the transparency of the collection along a ray. The geometries are tested one
+     * by one and the rest of them are skipped as soon as the ray is fully blocked.
+     *
+     * @param ray         The ray to check.
+     * @param maxDistance The maximal distance from the ray head of the occluders.
+     * @return The transparency factor ({@link Double3#ZERO} if the ray is blocked).
+     */
+    @Override
+    protected Double3 calculateTransparencyHelper(Ray ray, double maxDistance) {
+        if (bvh != null)
+            return bvh.calculateTransparency(ray, maxDistance);
+
+        Double3 ktr = Double3.ONE;
+        for (Intersectable geometry : geometries) {
+            ktr = ktr.product(geometry.calculateTransparency(ray, maxDistance));
+            if (isOpaque(ktr)) return Double3.ZERO;
+        }
+        return ktr;
     }
 }
@@ -5,6 +5,8 @@ import primitives.Material;
 import primitives.Point;
 import primitives.Vector;
 
+import java.util.function.UnaryOperator;
+
 /**
  * Abstract base class representing a geometric object in 3D space.
  * <p>
@@ -20,7 +22,7 @@ import primitives.Vector;
  *
  * @author Chen Babay & Linoy Shamshian
  */
-public abstract class Geometry extends Intersectable {
+public abstract class Geometry extends Intersectable implements Cloneable {
 
     /**
      * The emission color of the geometry, used in lighting calculations.
@@ -41,6 +43,39 @@ public abstract class Geometry extends Intersectable {
      */
     public abstract Vector getNormal(Point point);
 
+    /**
+     * Gets the normal vector at a point of a part of the geometry. Geometries which consist of
+     * several parts (such as {@link TriangleMesh}) override it; the others ignore the part index.
+     *
+     * @param point The point at which to calculate the normal.
+     * @param part  Index of the part the point lies on (see {@link Intersection#index}).
+     * @return The normal vector at the given point.
+     */
+    public Vector getNormal(Point point, int part) {
+        return getNormal(point);
+    }
+
+    /**
+     * Returns the emission color of a part of the geometry.
+     * By default, all the parts have the emission color of the geometry.
+     *
+     * @param part index of the part (see {@link Intersection#index})
+     * @return the emission color
+     */
+    public Color getEmission(int part) {
+        return getEmission();
+    }
+
+    /**
+     * Returns the material of a part of the geometry.
+     * By default, all the parts have the material of the geometry.
+     *
+     * @param part index of the part (see {@link Intersection#index})
+     * @return the material
+     */
+    public Material getMaterial(int part) {
+        return getMaterial();
+    }
 
     /**
      * Returns the emission color of the geometry.
@@ -77,6 +112,26 @@ public abstract class Geometry extends Intersectable {
     }
 
 
+    /**
+     * Creates a copy of the geometry with other materials. The shape of the geometry (which does
+     * not change after the construction) is shared with the copy, while the emission and the
+     * materials are the copy's own - so the copy is not affected by later changes of the look
+     * of this geometry, and vice versa. Geometries which consist of several parts with their own
+     * materials (such as {@link TriangleMesh}) replace the materials of the parts too.
+     *
+     * @param materials maps every material of this geometry to the material of the copy
+     * @return the copy
+     */
+    public Geometry copyWithMaterials(UnaryOperator<Material> materials) {
+        try {
+            Geometry copy = (Geometry) clone();
+            copy.material = materials.apply(material);
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     /**
      * Sets the material of the geometry.
      *
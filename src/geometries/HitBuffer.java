@@ -0,0 +1,323 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import primitives.Ray;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static primitives.Util.isZero;
+
+/**
+ * Collector of intersections kept in flat primitive arrays (struct of arrays) - the geometry,
+ * the ray, the distance along the ray, the part index and the local coordinates of every hit.
+ * <p>
+ * Geometries write their hits into a buffer instead of creating a list and an
+ * {@link Intersection} object per hit; the objects are created only for the hits which are
+ * needed in the end (such as the closest one). The buffer grows as needed and is reused,
+ * so once it is large enough collecting hits allocates nothing.
+ * <p>
+ * A buffer is used by a single thread - {@link #get()} returns the buffer of the current
+ * thread. Nested collections share the buffer: a caller marks the current size, lets the
+ * geometries append their hits, reads the hits from the mark on and finally truncates the
+ * buffer back to the mark. The buffer also keeps the traversal stacks of the node hierarchies
+ * (the scene hierarchy and the face trees of the meshes), so the traversals allocate nothing.
+ * <p>
+ * The buffers are kept as long as their threads live, so they are reused by all the rays of a
+ * rendering thread - the renderings run a fixed set of worker threads (virtual ones too),
+ * each of which renders tile after tile.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+public final class HitBuffer {
+    /**
+     * Initial capacity of a buffer
+     */
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * The buffers of the threads
+     */
+    private static final ThreadLocal<HitBuffer> BUFFERS = ThreadLocal.withInitial(HitBuffer::new);
+
+    /**
+     * The intersected geometries
+     */
+    private Geometry[] geometries = new Geometry[INITIAL_CAPACITY];
+    /**
+     * The intersecting rays
+     */
+    private Ray[] rays = new Ray[INITIAL_CAPACITY];
+    /**
+     * Distances of the hits from the ray heads
+     */
+    private double[] distances = new double[INITIAL_CAPACITY];
+    /**
+     * Indices of the intersected parts of the geometries
+     */
+    private int[] indices = new int[INITIAL_CAPACITY];
+    /**
+     * Local coordinates of the hits on the intersected parts - 2 numbers per hit
+     */
+    private double[] locals = new double[2 * INITIAL_CAPACITY];
+    /**
+     * Amount of hits in the buffer
+     */
+    private int size = 0;
+    /**
+     * Scratch arrays of the traversals of node hierarchies by their nesting depth - a traversal
+     * may test geometries (such as meshes) which traverse their own hierarchies
+     */
+    private Traversal[] traversals = new Traversal[2];
+    /**
+     * Amount of the traversals in progress
+     */
+    private int depth = 0;
+
+    /**
+     * Scratch arrays of a traversal of a node hierarchy ({@link BoxTree})
+     */
+    static final class Traversal {
+        /**
+         * The stack of the nodes to visit
+         */
+        final int[] nodes = new int[BoxTree.STACK_SIZE];
+        /**
+         * Entry distances of the nodes in the stack
+         */
+        final double[] entries = new double[BoxTree.STACK_SIZE];
+        /**
+         * A number per lane of a ray packet
+         */
+        final int[] lanes = new int[RayPacket.MAX_SIZE];
+
+        /**
+         * Constructs the arrays of a traversal
+         */
+        private Traversal() {
+        }
+    }
+
+    /**
+     * Constructs an empty buffer
+     */
+    public HitBuffer() { /* to satisfy JavaDoc generator */ }
+
+    /**
+     * Returns the buffer of the current thread
+     *
+     * @return the buffer
+     */
+    public static HitBuffer get() {
+        return BUFFERS.get();
+    }
+
+    /**
+     * Starts a traversal of a node hierarchy - it must be ended by {@link #endTraversal()}
+     *
+     * @return the scratch arrays of the traversal
+     */
+    Traversal beginTraversal() {
+        if (depth == traversals.length) traversals = Arrays.copyOf(traversals, 2 * depth);
+        Traversal traversal = traversals[depth];
+        if (traversal == null) traversals[depth] = traversal = new Traversal();
+        ++depth;
+        return traversal;
+    }
+
+    /**
+     * Ends the innermost traversal in progress
+     */
+    void endTraversal() {
+        --depth;
+    }
+
+    /**
+     * Returns the amount of hits in the buffer
+     *
+     * @return the amount of hits
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Drops the hits from a position on
+     *
+     * @param mark the amount of hits to keep
+     */
+    public void truncate(int mark) {
+        // the references are released, so the buffer of a thread does not keep the scene alive
+        Arrays.fill(geometries, mark, size, null);
+        Arrays.fill(rays, mark, size, null);
+        size = mark;
+    }
+
+    /**
+     * Adds a hit of a geometry of a single part
+     *
+     * @param geometry the intersected geometry
+     * @param ray      the intersecting ray
+     * @param t        distance of the hit from the ray head
+     */
+    public void add(Geometry geometry, Ray ray, double t) {
+        add(geometry, ray, t, 0, 0, 0);
+    }
+
+    /**
+     * Adds a hit of a part of a geometry
+     *
+     * @param geometry the intersected geometry
+     * @param ray      the intersecting ray
+     * @param t        distance of the hit from the ray head
+     * @param index    index of the intersected part of the geometry
+     * @param localU   first local coordinate of the hit on the part
+     * @param localV   second local coordinate of the hit on the part
+     */
+    public void add(Geometry geometry, Ray ray, double t, int index, double localU, double localV) {
+        if (size == distances.length) grow();
+        geometries[size] = geometry;
+        rays[size] = ray;
+        distances[size] = t;
+        indices[size] = index;
+        locals[2 * size] = localU;
+        locals[2 * size + 1] = localV;
+        ++size;
+    }
+
+    /**
+     * Doubles the capacity of the buffer
+     */
+    private void grow() {
+        int capacity = 2 * distances.length;
+        geometries = Arrays.copyOf(geometries, capacity);
+        rays = Arrays.copyOf(rays, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+        indices = Arrays.copyOf(indices, capacity);
+        locals = Arrays.copyOf(locals, 2 * capacity);
+    }
+
+    /**
+     * Returns the intersected geometry of a hit
+     *
+     * @param i position of the hit in the buffer
+     * @return the geometry
+     */
+    public Geometry geometry(int i) {
+        return geometries[i];
+    }
+
+    /**
+     * Returns the distance of a hit from the ray head
+     *
+     * @param i position of the hit in the buffer
+     * @return the distance
+     */
+    public double t(int i) {
+        return distances[i];
+    }
+
+    /**
+     * Returns the index of the intersected part of the geometry of a hit
+     *
+     * @param i position of the hit in the buffer
+     * @return the part index
+     */
+    public int index(int i) {
+        return indices[i];
+    }
+
+    /**
+     * Removes a hit - the hits after it are moved back
+     *
+     * @param i position of the hit in the buffer
+     */
+    public void remove(int i) {
+        int moved = size - i - 1;
+        System.arraycopy(geometries, i + 1, geometries, i, moved);
+        System.arraycopy(rays, i + 1, rays, i, moved);
+        System.arraycopy(distances, i + 1, distances, i, moved);
+        System.arraycopy(indices, i + 1, indices, i, moved);
+        System.arraycopy(locals, 2 * i + 2, locals, 2 * i, 2 * moved);
+        truncate(size - 1);
+    }
+
+    /**
+     * Sorts the hits from a position on by their distances from the ray head. The sort is
+     * stable and meant for the few hits of a single geometry.
+     *
+     * @param from position of the first hit to sort
+     */
+    public void sortByDistance(int from) {
+        for (int i = from + 1; i < size; ++i)
+            for (int j = i; j > from && distances[j] < distances[j - 1]; --j) swap(j, j - 1);
+    }
+
+    /**
+     * Swaps two hits
+     *
+     * @param i position of a hit
+     * @param j position of the other hit
+     */
+    private void swap(int i, int j) {
+        Geometry geometry = geometries[i];
+        geometries[i] = geometries[j];
+        geometries[j] = geometry;
+        Ray ray = rays[i];
+        rays[i] = rays[j];
+        rays[j] = ray;
+        double t = distances[i];
+        distances[i] = distances[j];
+        distances[j] = t;
+        int index = indices[i];
+        indices[i] = indices[j];
+        indices[j] = index;
+        for (int k = 0; k < 2; ++k) {
+            double local = locals[2 * i + k];
+            locals[2 * i + k] = locals[2 * j + k];
+            locals[2 * j + k] = local;
+        }
+    }
+
+    /**
+     * Finds the closest hit from a position on - the first of the nearest hits which are in
+     * front of the ray head (as {@link Ray#findClosestIntersection(List)})
+     *
+     * @param from position of the first hit to search
+     * @return position of the closest hit, or -1 if there is none
+     */
+    public int closest(int from) {
+        int closest = -1;
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = from; i < size; ++i) {
+            double t = distances[i];
+            if (t > 0 && !isZero(t) && t < min) {
+                min = t;
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Creates the intersection object of a hit
+     *
+     * @param i position of the hit in the buffer
+     * @return the intersection
+     */
+    public Intersection intersection(int i) {
+        return new Intersection(geometries[i], rays[i], distances[i], indices[i], locals[2 * i], locals[2 * i + 1]);
+    }
+
+    /**
+     * Creates the list of the intersections of the hits from a position on
+     *
+     * @param from position of the first hit
+     * @return the intersections, or {@code null} if there are no hits from the position on
+     */
+    public List<Intersection> toList(int from) {
+        if (from >= size) return null;
+        Intersection[] intersections = new Intersection[size - from];
+        for (int i = from; i < size; ++i) intersections[i - from] = intersection(i);
+        return List.of(intersections);
+    }
+}
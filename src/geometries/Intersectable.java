@@ -1,12 +1,13 @@
 package geometries;
 
-import lighting.LightSource;
+import primitives.Double3;
 import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -19,6 +20,10 @@ public abstract class Intersectable {
 
     /**
      * Passive data structure (PDS) to represent a single intersection point with its geometry.
+     * <p>
+     * A geometry reports a hit by its distance along the ray (and the local coordinates of the hit
+     * where it has them), so the closest hit is chosen by the distances alone. The intersection
+     * point and the normal at it are calculated lazily - only for the hits which are shaded.
      */
     public static class Intersection {
 
@@ -28,57 +33,117 @@ public abstract class Intersectable {
         public final Geometry geometry;
 
         /**
-         * The point at which the ray intersects the geometry
+         * The ray which intersects the geometry, {@code null} for an intersection made of a point
          */
-        public final Point point;
+        private final Ray ray;
 
         /**
-         * The material of the intersected geometry (initialized in the constructor if geometry is not null)
+         * Distance of the intersection point from the ray head - the parameter t of the point
+         * on the (normalized) ray, NaN for an intersection made of a point
          */
-        public final Material material;
+        public final double t;
 
         /**
-         * The ray direction vector at the point of intersection
+         * The point at which the ray intersects the geometry (calculated on demand)
          */
-        public Vector v;
+        private Point point;
 
         /**
-         * The normal vector to the geometry at the point of intersection
+         * The normal to the geometry at the intersection point (calculated on demand)
          */
-        public Vector n;
+        private Vector normal;
 
         /**
-         * Dot product of the ray direction and the normal vector
+         * Index of the intersected part of the geometry (such as a face of a {@link TriangleMesh}),
+         * zero for geometries of a single part
          */
-        public Double nv;
+        public final int index;
 
         /**
-         * The light source affecting this point
+         * Local coordinates of the intersection on the intersected part of the geometry - the
+         * barycentric coordinates (u, v) of the hit on a {@link TriangleMesh} face, zero for the
+         * geometries which do not provide them
          */
-        public LightSource light;
+        public final double localU, localV;
 
         /**
-         * Vector from the light source to the intersection point
+         * The material of the intersected geometry (initialized in the constructor if geometry is not null)
          */
-        public Vector l;
+        public final Material material;
 
         /**
-         * Dot product of the light direction and the normal vector
+         * Constructor for Intersection object.
+         *
+         * @param geometry the intersected geometry
+         * @param point    the intersection point
          */
-        public Double nl;
+        public Intersection(Geometry geometry, Point point) {
+            this(geometry, point, 0);
+        }
 
         /**
-         * Constructor for Intersection object.
+         * Constructor for Intersection object with a part of a geometry.
          *
          * @param geometry the intersected geometry
          * @param point    the intersection point
+         * @param index    index of the intersected part of the geometry
          */
-        public Intersection(Geometry geometry, Point point) {
-            this.geometry = geometry;
+        public Intersection(Geometry geometry, Point point, int index) {
+            this(geometry, null, Double.NaN, index, 0, 0);
             this.point = point;
-            this.material = geometry != null ? geometry.getMaterial() : null;
         }
 
+        /**
+         * Constructor for Intersection object by the distance of the hit along the ray.
+         *
+         * @param geometry the intersected geometry
+         * @param ray      the intersecting ray
+         * @param t        distance of the intersection point from the ray head
+         */
+        public Intersection(Geometry geometry, Ray ray, double t) {
+            this(geometry, ray, t, 0, 0, 0);
+        }
+
+        /**
+         * Constructor for Intersection object with a part of a geometry by the distance of the hit
+         * along the ray and its local coordinates on the part.
+         *
+         * @param geometry the intersected geometry
+         * @param ray      the intersecting ray
+         * @param t        distance of the intersection point from the ray head
+         * @param index    index of the intersected part of the geometry
+         * @param localU   first local coordinate of the intersection on the part
+         * @param localV   second local coordinate of the intersection on the part
+         */
+        public Intersection(Geometry geometry, Ray ray, double t, int index, double localU, double localV) {
+            this.geometry = geometry;
+            this.ray = ray;
+            this.t = t;
+            this.index = index;
+            this.localU = localU;
+            this.localV = localV;
+            this.material = geometry != null ? geometry.getMaterial(index) : null;
+        }
+
+        /**
+         * Returns the intersection point - it is calculated on the first call
+         *
+         * @return the intersection point
+         */
+        public Point getPoint() {
+            if (point == null) point = ray.getPoint(t);
+            return point;
+        }
+
+        /**
+         * Returns the normal to the geometry at the intersection point - it is calculated on the first call
+         *
+         * @return the normal
+         */
+        public Vector getNormal() {
+            if (normal == null) normal = geometry.getNormal(getPoint(), index);
+            return normal;
+        }
 
         /**
          * Indicates whether some other object is "equal to" this one.
@@ -93,7 +158,7 @@ public abstract class Intersectable {
             if (this == obj) return true;
             if (obj == null || getClass() != obj.getClass()) return false;
             Intersection other = (Intersection) obj;
-            return geometry == other.geometry && point.equals(other.point);
+            return geometry == other.geometry && index == other.index && getPoint().equals(other.getPoint());
         }
 
 
@@ -106,30 +171,339 @@ public abstract class Intersectable {
         public String toString() {
             return "Intersection{" +
                     "geometry=" + geometry +
-                    ", point=" + point +
+                    ", point=" + getPoint() +
                     '}';
         }
     }
 
+    /**
+     * Axis-aligned bounding box of the geometry, {@code null} for unbounded geometries
+     * (such as planes and tubes). It is set by finite geometries in their constructors.
+     */
+    protected BoundingBox boundingBox = null;
+
+    /**
+     * Conservative bounding region (CBR) mode flag - when it is on, a ray is intersected
+     * with the geometry only if it passes through the geometry's bounding box
+     */
+    private boolean cbr = false;
+
+    /**
+     * Turns the conservative bounding region (CBR) check on for this geometry (not for the
+     * geometries of a collection). It is turned on for the geometries of a scene compiled with
+     * the check (see {@link scene.Scene#compile(boolean, boolean)}), which are owned by the
+     * compiled scene, so the check of one rendering does not affect the others.
+     *
+     * @return the geometry itself
+     */
+    public Intersectable enableCBR() {
+        cbr = true;
+        return this;
+    }
+
+    /**
+     * Listener of intersection tests of the geometries, for rendering statistics
+     */
+    @FunctionalInterface
+    public interface TestListener {
+        /**
+         * Reports intersection tests of a geometry
+         *
+         * @param geometry the tested geometry
+         * @param rays     amount of tested rays
+         * @param hits     amount of the rays which hit the geometry
+         */
+        void tested(Intersectable geometry, int rays, int hits);
+    }
+
+    /**
+     * The listener of the intersection tests of all the geometries (except composite ones) by
+     * the thread which makes the tests - not set if the tests of the thread are not reported
+     */
+    private static final ThreadLocal<TestListener> testListeners = new ThreadLocal<>();
+
+    /**
+     * Amount of threads which have a test listener - the listener of the thread is looked for
+     * only if there is any, so the tests cost nothing extra while no rendering is counted
+     */
+    private static final AtomicInteger listeningThreads = new AtomicInteger();
+
+    /**
+     * Sets the listener of the intersection tests made by the current thread - every rendering
+     * sets its listener for its own rendering threads, so that renderings which run at the same
+     * time count only their own tests
+     *
+     * @param listener the listener, {@code null} to stop reporting the tests of the thread
+     */
+    public static void setTestListener(TestListener listener) {
+        TestListener former = testListeners.get();
+        if (listener == null) {
+            if (former == null) return;
+            testListeners.remove();
+            listeningThreads.decrementAndGet();
+        } else {
+            if (former == null) listeningThreads.incrementAndGet();
+            testListeners.set(listener);
+        }
+    }
+
+    /**
+     * Returns the listener of the intersection tests made by the current thread
+     *
+     * @return the listener, or {@code null} if the tests of the thread are not reported
+     */
+    static TestListener testListener() {
+        return listeningThreads.get() == 0 ? null : testListeners.get();
+    }
+
+    /**
+     * Reports intersection tests of the geometry to a test listener, if the geometry is not composite
+     *
+     * @param listener the test listener of the current thread
+     * @param rays     amount of tested rays
+     * @param hits     amount of the rays which hit the geometry
+     */
+    private void tested(TestListener listener, int rays, int hits) {
+        if (this instanceof Geometry) listener.tested(this, rays, hits);
+    }
+
+    /**
+     * Returns the axis-aligned bounding box of the geometry
+     *
+     * @return the bounding box, or {@code null} if the geometry is unbounded
+     */
+    public BoundingBox getBoundingBox() {
+        return boundingBox;
+    }
+
     /**
      * Protected abstract helper method to calculate intersections.
-     * Subclasses must implement this method to provide specific intersection logic.
+     * Subclasses must implement this method to provide specific intersection logic:
+     * the hits are appended to the buffer (after the hits which are already in it).
      *
-     * @param ray the ray to intersect with the geometry
+     * @param ray         the ray to intersect with the geometry
+     * @param maxDistance the maximal distance from the ray head of the intersections to be found
+     * @param hits        the buffer collecting the hits
+     */
+    protected abstract void calculateIntersectionsHelper(Ray ray, double maxDistance, HitBuffer hits);
+
+    /**
+     * Protected helper method to calculate intersections as a list - an adapter which collects
+     * the hits in the buffer of the current thread.
+     *
+     * @param ray         the ray to intersect with the geometry
+     * @param maxDistance the maximal distance from the ray head of the intersections to be found
      * @return list of Intersection objects or null if none
      */
-    protected abstract List<Intersection> calculateIntersectionsHelper(Ray ray);
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+        HitBuffer hits = HitBuffer.get();
+        int mark = hits.size();
+        try {
+            calculateIntersectionsHelper(ray, maxDistance, hits);
+            return hits.toList(mark);
+        } finally {
+            hits.truncate(mark);
+        }
+    }
+
+    /**
+     * Protected helper method to find the closest intersection. By default, it picks the closest of all
+     * the hits collected in the buffer of the current thread, and only its intersection object is created;
+     * composite geometries override it to shrink the distance as closer hits are found.
+     *
+     * @param ray         the ray to intersect with the geometry
+     * @param maxDistance the maximal distance from the ray head of the intersection to be found
+     * @return the closest intersection or null if none
+     */
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        HitBuffer hits = HitBuffer.get();
+        int mark = hits.size();
+        try {
+            calculateIntersectionsHelper(ray, maxDistance, hits);
+            int closest = hits.closest(mark);
+            return closest < 0 ? null : hits.intersection(closest);
+        } finally {
+            hits.truncate(mark);
+        }
+    }
+
+    /**
+     * Protected helper method to find the closest intersections of the active lanes of a ray packet.
+     * By default, the rays of the lanes are intersected one by one; geometries with an acceleration
+     * structure override it to traverse the structure once for the whole packet.
+     *
+     * @param packet the ray packet, its active lanes are updated with closer hits
+     */
+    protected void calculateClosestIntersectionsHelper(RayPacket packet) {
+        for (int lanes = packet.active; lanes != 0; lanes &= lanes - 1) {
+            int k = Integer.numberOfTrailingZeros(lanes);
+            Ray ray = packet.rays[k];
+            Intersection hit = calculateClosestIntersectionHelper(ray, packet.tMax[k]);
+            if (hit != null) packet.hit(k, hit, hit.t);
+        }
+    }
+
+    /**
+     * Protected helper method to calculate the transparency along a ray. By default, it multiplies the
+     * transparency coefficients (kT) of all the intersections, stopping at the first fully opaque one;
+     * composite geometries override it to skip the rest of their geometries once the ray is blocked.
+     *
+     * @param ray         the ray to intersect with the geometry
+     * @param maxDistance the maximal distance from the ray head of the occluders
+     * @return the transparency factor ({@link Double3#ZERO} if the ray is blocked)
+     */
+    protected Double3 calculateTransparencyHelper(Ray ray, double maxDistance) {
+        HitBuffer hits = HitBuffer.get();
+        int mark = hits.size();
+        try {
+            calculateIntersectionsHelper(ray, maxDistance, hits);
+            Double3 ktr = Double3.ONE;
+            for (int i = mark; i < hits.size(); ++i) {
+                ktr = ktr.product(hits.geometry(i).getMaterial(hits.index(i)).kT);
+                if (isOpaque(ktr)) return Double3.ZERO;
+            }
+            return ktr;
+        } finally {
+            hits.truncate(mark);
+        }
+    }
+
+    /**
+     * Checks whether a transparency factor blocks the light completely
+     *
+     * @param ktr the transparency factor
+     * @return true if the factor is zero
+     */
+    public static boolean isOpaque(Double3 ktr) {
+        return ktr.equals(Double3.ZERO);
+    }
 
+    /**
+     * Checks the conservative bounding region (CBR) of the geometry if its CBR mode is on
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray head
+     * @return false if the CBR mode is on and the ray misses the bounding box, true otherwise
+     */
+    private boolean passesCBR(Ray ray, double maxDistance) {
+        if (!cbr) return true;
+        BoundingBox box = getBoundingBox();
+        return box == null || box.intersects(ray, maxDistance);
+    }
 
     /**
      * Public method to calculate intersections using the internal helper.
-     * Ensures consistent behavior for all geometries.
+     * Ensures consistent behavior for all geometries: in CBR mode a ray which misses
+     * the bounding box of the geometry is rejected without calculating intersections.
      *
      * @param ray the ray to intersect with
      * @return list of Intersection objects, or null if there are no intersections
      */
     public final List<Intersection> calculateIntersections(Ray ray) {
-        return calculateIntersectionsHelper(ray);
+        return calculateIntersections(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Public method to calculate the intersections which are not farther than a given distance
+     * from the ray head.
+     *
+     * @param ray         the ray to intersect with
+     * @param maxDistance the maximal distance from the ray head of the intersections to be found
+     * @return list of Intersection objects, or null if there are no intersections
+     */
+    public final List<Intersection> calculateIntersections(Ray ray, double maxDistance) {
+        List<Intersection> intersections =
+                passesCBR(ray, maxDistance) ? calculateIntersectionsHelper(ray, maxDistance) : null;
+        TestListener listener = testListener();
+        if (listener != null) tested(listener, 1, intersections == null ? 0 : 1);
+        return intersections;
+    }
+
+    /**
+     * Public method to collect the intersections which are not farther than a given distance
+     * from the ray head into a hit buffer, without creating intersection objects.
+     * In CBR mode a ray which misses the bounding box of the geometry adds no hits.
+     *
+     * @param ray         the ray to intersect with
+     * @param maxDistance the maximal distance from the ray head of the intersections to be found
+     * @param hits        the buffer collecting the hits (they are appended to it)
+     */
+    public final void calculateIntersections(Ray ray, double maxDistance, HitBuffer hits) {
+        int mark = hits.size();
+        if (passesCBR(ray, maxDistance)) calculateIntersectionsHelper(ray, maxDistance, hits);
+        TestListener listener = testListener();
+        if (listener != null) tested(listener, 1, hits.size() > mark ? 1 : 0);
+    }
+
+    /**
+     * Public method to find the closest intersection which is not farther than a given distance
+     * from the ray head.
+     *
+     * @param ray         the ray to intersect with
+     * @param maxDistance the maximal distance from the ray head of the intersection to be found
+     * @return the closest intersection, or null if there is no intersection
+     */
+    public final Intersection calculateClosestIntersection(Ray ray, double maxDistance) {
+        Intersection intersection =
+                passesCBR(ray, maxDistance) ? calculateClosestIntersectionHelper(ray, maxDistance) : null;
+        TestListener listener = testListener();
+        if (listener != null) tested(listener, 1, intersection == null ? 0 : 1);
+        return intersection;
+    }
+
+    /**
+     * Public method to find the closest intersections of the rays of a packet - every active lane
+     * gets the hit which is closer than its closest hit so far, if there is one.
+     * In CBR mode the lanes whose rays miss the bounding box of the geometry are skipped.
+     *
+     * @param packet the ray packet
+     */
+    public final void calculateClosestIntersections(RayPacket packet) {
+        int active = packet.active;
+        int lanes = active;
+        if (cbr)
+            for (int rest = active; rest != 0; rest &= rest - 1) {
+                int k = Integer.numberOfTrailingZeros(rest);
+                if (!passesCBR(packet.rays[k], packet.tMax[k])) lanes &= ~(1 << k);
+            }
+        TestListener listener = testListener();
+        if (listener != null) {
+            // the lanes whose closest hit changes hit the geometry
+            Intersection[] hits = packet.hits.clone();
+            if (lanes != 0) {
+                packet.active = lanes;
+                calculateClosestIntersectionsHelper(packet);
+                packet.active = active;
+            }
+            int hit = 0;
+            for (int rest = active; rest != 0; rest &= rest - 1) {
+                int k = Integer.numberOfTrailingZeros(rest);
+                if (packet.hits[k] != hits[k]) ++hit;
+            }
+            tested(listener, Integer.bitCount(active), hit);
+            return;
+        }
+        if (lanes == 0) return;
+        packet.active = lanes;
+        calculateClosestIntersectionsHelper(packet);
+        packet.active = active;
+    }
+
+    /**
+     * Public method to calculate the transparency of the geometry along a ray up to a given distance
+     * from the ray head (an any-hit occlusion query for shadow rays). The result is the product of
+     * the transparency coefficients of all the occluders; the search ends at the first fully
+     * opaque occluder.
+     *
+     * @param ray         the ray to intersect with
+     * @param maxDistance the maximal distance from the ray head of the occluders
+     * @return the transparency factor ({@link Double3#ZERO} if the ray is blocked)
+     */
+    public final Double3 calculateTransparency(Ray ray, double maxDistance) {
+        Double3 ktr = passesCBR(ray, maxDistance) ? calculateTransparencyHelper(ray, maxDistance) : Double3.ONE;
+        TestListener listener = testListener();
+        if (listener != null) tested(listener, 1, ktr.equals(Double3.ONE) ? 0 : 1);
+        return ktr;
     }
 
     /**
@@ -140,8 +514,17 @@ public abstract class Intersectable {
      */
 //    public abstract List<Point> findIntersections(Ray ray);
     public final List<Point> findIntersections(Ray ray) {
-        var list = calculateIntersections(ray);
-        return list == null ? null : list.stream().map(intersection -> intersection.point).toList();
+        HitBuffer hits = HitBuffer.get();
+        int mark = hits.size();
+        try {
+            calculateIntersections(ray, Double.POSITIVE_INFINITY, hits);
+            if (hits.size() == mark) return null;
+            Point[] points = new Point[hits.size() - mark];
+            for (int i = mark; i < hits.size(); ++i) points[i - mark] = ray.getPoint(hits.t(i));
+            return List.of(points);
+        } finally {
+            hits.truncate(mark);
+        }
     }
 
 
@@ -4,9 +4,9 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
-import java.util.List;
-
+import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
+import static primitives.VectorMath.dot;
 
 /**
  * The Plane class represents a geometric plane in 3D space.
@@ -69,14 +69,28 @@ public class Plane extends Geometry {
      * <p>
      * If the ray is parallel to the plane or starts on the plane – there is no intersection.
      * If the intersection point is behind the ray's head (t <= 0), it is not considered valid.
-     * Otherwise, the method returns a list with the single intersection point.
+     * Otherwise, the method adds the single intersection point.
      *
-     * @param ray the ray to intersect with the plane
-     * @return list with one intersection point if there is an intersection; {@code null} otherwise
+     * @param ray         the ray to intersect with the plane
+     * @param maxDistance the maximal distance from the ray head of the intersection point
+     * @param hits        the buffer collecting the intersection
      */
 
     @Override
-    public List<Intersection> calculateIntersectionsHelper(Ray ray) {
+    protected void calculateIntersectionsHelper(Ray ray, double maxDistance, HitBuffer hits) {
+        double t = intersectionDistance(ray, maxDistance);
+        if (!Double.isNaN(t)) hits.add(this, ray, t);
+    }
+
+    /**
+     * Finds the distance from the ray head of the intersection point between the given ray and the plane,
+     * by the same rules as {@link #calculateIntersectionsHelper(Ray, double, HitBuffer)} - without creating any object.
+     *
+     * @param ray         the ray to intersect with the plane
+     * @param maxDistance the maximal distance from the ray head of the intersection point
+     * @return the distance t of the intersection point, or NaN if there is no intersection
+     */
+    double intersectionDistance(Ray ray, double maxDistance) {
         // Ray starting point
         Point p0 = ray.getHead();
 
@@ -85,34 +99,32 @@ public class Plane extends Geometry {
 
         // If the ray starts exactly at the reference point of the plane
         if (q.equals(p0)) {
-            return null; // no intersection – edge case
+            return Double.NaN; // no intersection – edge case
         }
 
-        // Vector from ray start to plane point (Q - P0)
-        Vector qMinusP0 = q.subtract(p0);
-
-        // Numerator of the t formula: normal • (Q - P0)
-        double numerator = normal.dotProduct(qMinusP0);
+        // Numerator of the t formula: normal • (Q - P0), on raw coordinates
+        double numerator = dot(normal.xyz.d1(), normal.xyz.d2(), normal.xyz.d3(),
+                q.xyz.d1() - p0.xyz.d1(), q.xyz.d2() - p0.xyz.d2(), q.xyz.d3() - p0.xyz.d3());
 
         // Denominator of the t formula: normal • v
         double denominator = normal.dotProduct(v);
 
         // If the denominator is 0, the ray is parallel to the plane
         if (isZero(denominator)) {
-            return null; // no intersection
+            return Double.NaN; // no intersection
         }
 
         // Compute t = numerator / denominator
         double t = numerator / denominator;
 
-        // If t is zero or negative – intersection is behind the ray
-        if (t <= 0) {
-            return null; // no valid intersection
+        // If t is zero or negative – intersection is behind the ray,
+        // and an intersection beyond the maximal distance is not required
+        if (t <= 0 || alignZero(t - maxDistance) > 0) {
+            return Double.NaN; // no valid intersection
         }
 
-        // Calculate intersection point: P = P0 + t*v
-        return List.of(new Intersection(this, ray.getPoint(t)));
-
+        // The intersection point is P = P0 + t*v
+        return t;
     }
 
 
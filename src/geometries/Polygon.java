@@ -4,10 +4,11 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import static primitives.Util.isZero;
+import static primitives.VectorMath.dot;
+import static primitives.VectorMath.isZeroVector;
 
 /**
  * Polygon class represents two-dimensional polygon in 3D Cartesian coordinate
@@ -57,6 +58,7 @@ public class Polygon extends Geometry {
             throw new IllegalArgumentException("A polygon can't have less than 3 vertices");
         this.vertices = List.of(vertices);
         size = vertices.length;
+        boundingBox = new BoundingBox(vertices);
 
         // Generate the plane according to the first three vertices and associate the
         // polygon with this plane.
@@ -96,44 +98,47 @@ public class Polygon extends Geometry {
     }
 
     @Override
-    public List<Intersection> calculateIntersectionsHelper(Ray ray) {
+    protected void calculateIntersectionsHelper(Ray ray, double maxDistance, HitBuffer hits) {
         // Intersect ray with the polygon's plane.
-        List<Point> planeIntersections = plane.findIntersections(ray);
-        if (planeIntersections == null) {
+        double t = plane.intersectionDistance(ray, maxDistance);
+        if (Double.isNaN(t)) {
             // No intersection with the plane, so no intersection with the polygon.
-            return null;
-        }
-
-        // Get the intersection point with the plane.
-        Point p = planeIntersections.get(0);
-
-        // Get the vertices of the polygon.
-        List<Point> polygonVertices = vertices;
-
-        // Calculate the vectors from the vertices to the point.
-        List<Vector> vertexVectors = new ArrayList<>();
-        for (Point vertex : polygonVertices) {
-            vertexVectors.add(p.subtract(vertex));
-        }
-
-        // Calculate the cross products of the edges and the vectors to the point.
-        List<Vector> normals = new ArrayList<>();
-        for (int i = 0; i < polygonVertices.size(); i++) {
-            Point currentVertex = polygonVertices.get(i);
-            Point nextVertex = polygonVertices.get((i + 1) % polygonVertices.size()); // Wrap around for the last edge
-            normals.add(nextVertex.subtract(currentVertex).crossProduct(vertexVectors.get(i)));
+            return;
         }
 
-        // Check if all the cross products point in the same direction.
-        for (int i = 0; i < normals.size() - 1; i++) {
-            if (normals.get(i).dotProduct(normals.get(i + 1)) <= 0) {
+        // Get the intersection point with the plane, on raw coordinates.
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double px = head.xyz.d1() + direction.xyz.d1() * t;
+        double py = head.xyz.d2() + direction.xyz.d2() * t;
+        double pz = head.xyz.d3() + direction.xyz.d3() * t;
+
+        // Calculate the cross products of the edges and the vectors from the vertices to the point
+        // on raw coordinates, and check that each one points in the same direction as the previous one.
+        // A point on a vertex or on an edge line yields a zero vector, which is rejected as by Vector.
+        boolean inside = true;
+        double prevX = 0, prevY = 0, prevZ = 0;
+        for (int i = 0; i < size; i++) {
+            Point currentVertex = vertices.get(i);
+            Point nextVertex = vertices.get((i + 1) % size); // Wrap around for the last edge
+            double cx = currentVertex.xyz.d1(), cy = currentVertex.xyz.d2(), cz = currentVertex.xyz.d3();
+            double ex = nextVertex.xyz.d1() - cx, ey = nextVertex.xyz.d2() - cy, ez = nextVertex.xyz.d3() - cz;
+            double wx = px - cx, wy = py - cy, wz = pz - cz;
+            double nx = ey * wz - ez * wy, ny = ez * wx - ex * wz, nz = ex * wy - ey * wx;
+            if (isZeroVector(wx, wy, wz) || isZeroVector(nx, ny, nz))
+                throw new IllegalArgumentException("Vector cannot be the zero vector");
+            if (i > 0 && dot(prevX, prevY, prevZ, nx, ny, nz) <= 0) {
                 // The intersection point is outside the polygon.
-                return null;
+                inside = false;
             }
+            prevX = nx;
+            prevY = ny;
+            prevZ = nz;
         }
+        if (!inside) return;
 
         // The intersection point is inside the polygon.
-        return List.of(new Intersection(this, p));
+        hits.add(this, ray, t);
     }
 
 
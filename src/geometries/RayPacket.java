@@ -0,0 +1,238 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Arrays;
+
+/**
+ * A packet of up to {@link #MAX_SIZE} rays which are traced through the scene together.<br>
+ * The rays are kept as parallel arrays of raw coordinates (a lane per ray), so a bounding box
+ * of an acceleration structure is loaded once and tested against all the rays of the packet
+ * in a tight loop. Every lane carries its closest hit so far and the distance of that hit,
+ * which bounds the search of the lane.<br>
+ * Coherent packets (neighbouring primary rays, the beam rays of a pixel) mostly enter the
+ * same nodes - the rays of a packet which is too small, or whose rays do not all point into
+ * the same octant, are traced one by one.<br>
+ * A packet is reusable but not thread-safe - every rendering thread keeps its own.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+public final class RayPacket {
+    /**
+     * Maximal amount of rays in a packet
+     */
+    public static final int MAX_SIZE = 16;
+    /**
+     * Minimal amount of rays traced together - the shared traversal of fewer rays costs
+     * more than tracing them one by one
+     */
+    public static final int MIN_SIZE = 4;
+
+    /**
+     * The rays of the packet
+     */
+    final Ray[] rays = new Ray[MAX_SIZE];
+    /**
+     * Ray heads per lane
+     */
+    final double[] ox = new double[MAX_SIZE], oy = new double[MAX_SIZE], oz = new double[MAX_SIZE];
+    /**
+     * Ray directions per lane
+     */
+    final double[] dx = new double[MAX_SIZE], dy = new double[MAX_SIZE], dz = new double[MAX_SIZE];
+    /**
+     * Inverse ray directions per lane (for the slab tests)
+     */
+    final double[] invX = new double[MAX_SIZE], invY = new double[MAX_SIZE], invZ = new double[MAX_SIZE];
+    /**
+     * Distance of the closest hit so far per lane - the search bound of the lane
+     */
+    final double[] tMax = new double[MAX_SIZE];
+    /**
+     * The closest hit so far per lane, {@code null} if there is none
+     */
+    final Intersection[] hits = new Intersection[MAX_SIZE];
+    /**
+     * Amount of rays in the packet
+     */
+    int size = 0;
+    /**
+     * Bit mask of the lanes to be tested by a geometry - the lanes whose rays enter the
+     * bounding box of the geometry
+     */
+    int active = 0;
+    /**
+     * Bit mask of the lanes which entered the last box tested by {@link BoxTree#slab(int, RayPacket, int)}
+     */
+    int entered = 0;
+
+    /**
+     * Removes all the rays from the packet
+     */
+    public void clear() {
+        for (int k = 0; k < size; ++k) {
+            rays[k] = null;
+            hits[k] = null;
+        }
+        size = 0;
+        active = 0;
+    }
+
+    /**
+     * Adds a ray to the packet
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance from the ray head of its closest hit
+     * @return the lane of the ray
+     * @throws IllegalStateException if the packet is full
+     */
+    public int add(Ray ray, double maxDistance) {
+        if (size == MAX_SIZE) throw new IllegalStateException("The ray packet is full");
+        int k = size++;
+        Point head = ray.getHead();
+        Vector dir = ray.getDirection();
+        rays[k] = ray;
+        ox[k] = head.xyz.d1();
+        oy[k] = head.xyz.d2();
+        oz[k] = head.xyz.d3();
+        dx[k] = dir.xyz.d1();
+        dy[k] = dir.xyz.d2();
+        dz[k] = dir.xyz.d3();
+        invX[k] = 1 / dx[k];
+        invY[k] = 1 / dy[k];
+        invZ[k] = 1 / dz[k];
+        tMax[k] = maxDistance;
+        hits[k] = null;
+        active |= 1 << k;
+        return k;
+    }
+
+    /**
+     * Returns the amount of rays in the packet
+     *
+     * @return the amount of rays
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the ray of a lane
+     *
+     * @param lane the lane
+     * @return the ray
+     */
+    public Ray getRay(int lane) {
+        return rays[lane];
+    }
+
+    /**
+     * Returns the closest hit of a lane
+     *
+     * @param lane the lane
+     * @return the closest hit, or {@code null} if the ray hits nothing
+     */
+    public Intersection getHit(int lane) {
+        return hits[lane];
+    }
+
+    /**
+     * Checks whether the rays of the packet are coherent enough to be traced together
+     * (see {@link #isCoherent(int)})
+     *
+     * @return true if the packet is coherent
+     */
+    public boolean isCoherent() {
+        return isCoherent(size == MAX_SIZE ? -1 : (1 << size) - 1);
+    }
+
+    /**
+     * Checks whether several lanes are coherent enough to be traced together - there are at least
+     * {@link #MIN_SIZE} of them, and all their directions lie strictly inside the same octant
+     * (no direction is parallel to an axis plane)
+     *
+     * @param lanes bit mask of the lanes
+     * @return true if the lanes are coherent
+     */
+    boolean isCoherent(int lanes) {
+        if (Integer.bitCount(lanes) < MIN_SIZE) return false;
+        int first = Integer.numberOfTrailingZeros(lanes);
+        for (; lanes != 0; lanes &= lanes - 1) {
+            int k = Integer.numberOfTrailingZeros(lanes);
+            if (dx[k] == 0 || dy[k] == 0 || dz[k] == 0 || (dx[k] < 0) != (dx[first] < 0)
+                    || (dy[k] < 0) != (dy[first] < 0) || (dz[k] < 0) != (dz[first] < 0))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the bounds of several lanes - the ranges of their ray heads and of their inverse
+     * directions along each axis, for testing boxes against all of them at once
+     *
+     * @param lanes bit mask of the lanes
+     * @return the minimal heads (X, Y, Z), the maximal heads, the minimal inverse directions
+     * and the maximal inverse directions
+     */
+    double[] bounds(int lanes) {
+        double[] bounds = new double[12];
+        Arrays.fill(bounds, 0, 3, Double.POSITIVE_INFINITY);
+        Arrays.fill(bounds, 3, 6, Double.NEGATIVE_INFINITY);
+        Arrays.fill(bounds, 6, 9, Double.POSITIVE_INFINITY);
+        Arrays.fill(bounds, 9, 12, Double.NEGATIVE_INFINITY);
+        for (; lanes != 0; lanes &= lanes - 1) {
+            int k = Integer.numberOfTrailingZeros(lanes);
+            grow(bounds, 0, ox[k], oy[k], oz[k]);
+            grow(bounds, 6, invX[k], invY[k], invZ[k]);
+        }
+        return bounds;
+    }
+
+    /**
+     * Grows a pair of ranges (minimal X, Y, Z and maximal X, Y, Z) to include a triad
+     *
+     * @param bounds the ranges
+     * @param offset the offset of the pair of ranges in the array
+     * @param x      X of the triad
+     * @param y      Y of the triad
+     * @param z      Z of the triad
+     */
+    private static void grow(double[] bounds, int offset, double x, double y, double z) {
+        if (x < bounds[offset]) bounds[offset] = x;
+        if (y < bounds[offset + 1]) bounds[offset + 1] = y;
+        if (z < bounds[offset + 2]) bounds[offset + 2] = z;
+        if (x > bounds[offset + 3]) bounds[offset + 3] = x;
+        if (y > bounds[offset + 4]) bounds[offset + 4] = y;
+        if (z > bounds[offset + 5]) bounds[offset + 5] = z;
+    }
+
+    /**
+     * Returns the farthest search bound of several lanes
+     *
+     * @param lanes bit mask of the lanes
+     * @return the maximal distance of the closest hits so far of the lanes
+     */
+    double farthest(int lanes) {
+        double farthest = Double.NEGATIVE_INFINITY;
+        for (; lanes != 0; lanes &= lanes - 1) {
+            int k = Integer.numberOfTrailingZeros(lanes);
+            if (tMax[k] > farthest) farthest = tMax[k];
+        }
+        return farthest;
+    }
+
+    /**
+     * Records a hit of a lane which is closer than its closest hit so far
+     *
+     * @param lane the lane
+     * @param hit  the hit
+     * @param t    the distance of the hit from the ray head
+     */
+    void hit(int lane, Intersection hit, double t) {
+        hits[lane] = hit;
+        tMax[lane] = t;
+    }
+}
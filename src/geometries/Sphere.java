@@ -4,9 +4,10 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
-import java.util.List;
-
+import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
+import static primitives.VectorMath.dot;
+import static primitives.VectorMath.lengthSquared;
 
 /**
  * Represents a Sphere, a 3D geometry with a center point and a radius.
@@ -27,6 +28,9 @@ public class Sphere extends RadialGeometry {
     public Sphere(Point center, double radius) {
         super(radius);
         this.center = center;
+        boundingBox = new BoundingBox(
+                center.xyz.d1() - radius, center.xyz.d2() - radius, center.xyz.d3() - radius,
+                center.xyz.d1() + radius, center.xyz.d2() + radius, center.xyz.d3() + radius);
     }
 
     /**
@@ -44,48 +48,45 @@ public class Sphere extends RadialGeometry {
      * Finds intersection points between a ray and the sphere.
      * <p>
      * Calculates the intersection points using geometric relations between
-     * the ray and the sphere. Returns up to two points in front of the ray,
-     * or null if there are no valid intersections.
+     * the ray and the sphere. Adds up to two points in front of the ray.
      *
-     * @param ray The ray to intersect with the sphere.
-     * @return A list of intersection points, or null if none.
+     * @param ray         The ray to intersect with the sphere.
+     * @param maxDistance The maximal distance from the ray head of the intersection points.
+     * @param hits        The buffer collecting the intersections.
      */
     @Override
-    public List<Intersection> calculateIntersectionsHelper(Ray ray) {
+    protected void calculateIntersectionsHelper(Ray ray, double maxDistance, HitBuffer hits) {
         Point p0 = ray.getHead();
         Vector v = ray.getDirection();
 
         // Ray starts at the center → one intersection in direction of the ray
         if (p0.equals(center)) {
-            return List.of(new Intersection(this, ray.getPoint(radius)));
+            if (alignZero(radius - maxDistance) <= 0) hits.add(this, ray, radius);
+            return;
         }
 
-        Vector u = center.subtract(p0);
-        double tm = v.dotProduct(u);
-        double dSquared = u.lengthSquared() - tm * tm;
+        // u = center - p0, on raw coordinates
+        double ux = center.xyz.d1() - p0.xyz.d1(), uy = center.xyz.d2() - p0.xyz.d2(), uz = center.xyz.d3() - p0.xyz.d3();
+        double tm = dot(v.xyz.d1(), v.xyz.d2(), v.xyz.d3(), ux, uy, uz);
+        double dSquared = lengthSquared(ux, uy, uz) - tm * tm;
         double rSquared = radius * radius;
 
         // No intersection: ray misses the sphere or just touches (tangent)
-        if (dSquared >= rSquared) return null;
+        if (dSquared >= rSquared) return;
 
         double th = Math.sqrt(rSquared - dSquared);
 
         // Tangent case (touches only one point) – doesn't count as intersection
-        if (isZero(th)) return null;
+        if (isZero(th)) return;
 
         double t1 = tm - th;
         double t2 = tm + th;
+        // Keep only the points in front of the ray head and not beyond the maximal distance
+        boolean valid1 = t1 > 0 && alignZero(t1 - maxDistance) <= 0;
+        boolean valid2 = t2 > 0 && alignZero(t2 - maxDistance) <= 0;
 
-        // Only create list if we actually have intersections
-        if (t1 > 0 && t2 > 0) {
-            return List.of(new Intersection(this, ray.getPoint(t1)), new Intersection(this, ray.getPoint(t2)));
-        } else if (t1 > 0) {
-            return List.of(new Intersection(this, ray.getPoint(t1)));
-        } else if (t2 > 0) {
-            return List.of(new Intersection(this, ray.getPoint(t2)));
-        }
-
-        return null;
+        if (valid1) hits.add(this, ray, t1);
+        if (valid2) hits.add(this, ray, t2);
     }
 
 
@@ -8,6 +8,9 @@ import java.util.List;
 
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
+import static primitives.VectorMath.crossLengthSquared;
+import static primitives.VectorMath.isZeroVector;
+import static primitives.VectorMath.tripleProduct;
 
 /**
  * Class representing a triangle in 3D space.
@@ -34,52 +37,75 @@ public class Triangle extends Polygon {
      * and then determines if the intersection point is within the triangle itself
      * using the edge-cross-product method.
      *
-     * @param ray The ray to check intersection with.
-     * @return A list with a single intersection point if the ray intersects the triangle, otherwise {@code null}.
+     * @param ray         The ray to check intersection with.
+     * @param maxDistance The maximal distance from the ray head of the intersection point.
+     * @param hits        The buffer collecting the intersection point if the ray intersects the triangle.
      */
     @Override
-    public List<Intersection> calculateIntersectionsHelper(Ray ray) {
-        var planeIntersections = plane.findIntersections(ray);
-        // Check if the ray intersects the plane of the triangle
-        if (planeIntersections == null)
-            return null;
+    protected void calculateIntersectionsHelper(Ray ray, double maxDistance, HitBuffer hits) {
+        // The side tests are done first on raw coordinates (no objects are created),
+        // so the plane intersection point is calculated only for rays which pass them
+
+        // Retrieve the head point and the direction vector of the ray
+        Point rayPoint = ray.getHead();
+        Vector rayDirection = ray.getDirection();
+        double ox = rayPoint.xyz.d1(), oy = rayPoint.xyz.d2(), oz = rayPoint.xyz.d3();
+        double dx = rayDirection.xyz.d1(), dy = rayDirection.xyz.d2(), dz = rayDirection.xyz.d3();
 
-        // Retrieve the vertices of the triangle
+        // Calculate vectors from the ray head to the vertices of the triangle
         Point p0 = vertices.get(0);
         Point p1 = vertices.get(1);
         Point p2 = vertices.get(2);
-        // Retrieve the direction vector and head point of the ray
-        Vector rayDirection = ray.getDirection();
-        Point rayPoint = ray.getHead();
+        double v1x = p0.xyz.d1() - ox, v1y = p0.xyz.d2() - oy, v1z = p0.xyz.d3() - oz;
+        double v2x = p1.xyz.d1() - ox, v2y = p1.xyz.d2() - oy, v2z = p1.xyz.d3() - oz;
+        double v3x = p2.xyz.d1() - ox, v3y = p2.xyz.d2() - oy, v3z = p2.xyz.d3() - oz;
 
-        if (p0.equals(rayPoint) || p1.equals(rayPoint) || p2.equals(rayPoint))
-            return null; // The ray's head is one of the triangle's vertices
+        if (isZeroVector(v1x, v1y, v1z) || isZeroVector(v2x, v2y, v2z) || isZeroVector(v3x, v3y, v3z))
+            return; // The ray's head is one of the triangle's vertices
 
-        // Calculate vectors representing edges of the triangle
-        Vector v1 = p0.subtract(rayPoint);
-        Vector v2 = p1.subtract(rayPoint);
-        // Calculate normal vectors to the triangle's edges
-        Vector n1 = v1.crossProduct(v2).normalize();
-        // Calculate dot products between the normal vectors and the ray direction
-        double d1 = alignZero(n1.dotProduct(rayDirection));
+        // Dot products between the (normalized) normals of the side planes and the ray direction
+        double d1 = side(dx, dy, dz, v1x, v1y, v1z, v2x, v2y, v2z);
         // Check if the ray does not intersect the triangle.
-        if (d1 == 0)
-            return null;
+        if (d1 == 0 || Double.isNaN(d1))
+            return;
 
-        Vector v3 = p2.subtract(rayPoint);
-        Vector n2 = v2.crossProduct(v3).normalize();
-        double d2 = alignZero(n2.dotProduct(rayDirection));
+        double d2 = side(dx, dy, dz, v2x, v2y, v2z, v3x, v3y, v3z);
         // Check if the ray does not intersect the triangle
-        if (d1 * d2 <= 0)
-            return null;
+        if (!(d1 * d2 > 0))
+            return;
 
-        Vector n3 = v3.crossProduct(v1).normalize();
-        double d3 = alignZero(n3.dotProduct(rayDirection));
+        double d3 = side(dx, dy, dz, v3x, v3y, v3z, v1x, v1y, v1z);
         // Check if the ray does not intersect the triangle
-        if (d1 * d3 <= 0)
-            return null;
+        if (!(d1 * d3 > 0))
+            return;
+
+        double t = plane.intersectionDistance(ray, maxDistance);
+        // Check if the ray intersects the plane of the triangle
+        if (Double.isNaN(t))
+            return;
+
+        hits.add(this, ray, t);
+    }
 
-        return List.of(new Intersection(this, planeIntersections.getFirst()));
+    /**
+     * Calculates the dot product of the ray direction and the normalized normal of a side plane
+     * (the plane through the ray head and one of the triangle's edges)
+     *
+     * @param dx  ray direction X
+     * @param dy  ray direction Y
+     * @param dz  ray direction Z
+     * @param ax  X of the vector from the ray head to the 1st vertex of the edge
+     * @param ay  Y of the vector from the ray head to the 1st vertex of the edge
+     * @param az  Z of the vector from the ray head to the 1st vertex of the edge
+     * @param bx  X of the vector from the ray head to the 2nd vertex of the edge
+     * @param by  Y of the vector from the ray head to the 2nd vertex of the edge
+     * @param bz  Z of the vector from the ray head to the 2nd vertex of the edge
+     * @return the aligned dot product, or NaN if the ray head lies on the edge line
+     */
+    private static double side(double dx, double dy, double dz,
+                               double ax, double ay, double az, double bx, double by, double bz) {
+        double length = Math.sqrt(crossLengthSquared(ax, ay, az, bx, by, bz));
+        return isZero(length) ? Double.NaN : alignZero(tripleProduct(dx, dy, dz, ax, ay, az, bx, by, bz) / length);
     }
 
     /**
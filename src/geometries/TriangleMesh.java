@@ -0,0 +1,787 @@
+package geometries;
+
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * Triangle mesh - a single geometry made of many triangular faces.
+ * <p>
+ * Unlike a collection of {@link Triangle} objects, the mesh keeps its data in flat primitive
+ * arrays (struct of arrays): the vertex coordinates, the three vertex indices of each face and
+ * the per-face precomputed edges, unit normal, emission index and material index. A ray is
+ * intersected with the faces by the Möller–Trumbore algorithm, and only the faces found through
+ * the mesh's own bounding volume hierarchy (a {@link BoxTree} over the face boxes) are tested.
+ * <p>
+ * A face is hit including its edges, so that a ray through an edge shared by two faces can
+ * not slip through the mesh. The index of the hit face is kept in {@link Intersection#index}
+ * and selects the normal, emission and material of the face.<br>
+ * Meshes are created with the {@link Builder} returned by {@link #getBuilder()}.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+public class TriangleMesh extends Geometry {
+    /**
+     * Vertex coordinates - 3 numbers per vertex
+     */
+    private final double[] vertices;
+    /**
+     * Vertex indices of the faces - 3 numbers per face
+     */
+    private final int[] faces;
+    /**
+     * Face edges from the first vertex - 6 numbers per face: e1 = v1 - v0, e2 = v2 - v0
+     */
+    private final double[] edges;
+    /**
+     * Unit normals of the faces - 3 numbers per face
+     */
+    private final double[] normals;
+    /**
+     * Index of the emission color of each face in {@link #emissions} (-1 for the mesh emission)
+     */
+    private final int[] faceEmission;
+    /**
+     * Index of the material of each face in {@link #materials} (-1 for the mesh material)
+     */
+    private final int[] faceMaterial;
+    /**
+     * Distinct emission colors of the faces
+     */
+    private final Color[] emissions;
+    /**
+     * Distinct materials of the faces (replaced only in a fresh copy of the mesh)
+     */
+    private Material[] materials;
+    /**
+     * Hierarchy of the face boxes
+     */
+    private final BoxTree tree;
+
+    /**
+     * Constructor of a mesh by its raw data; all the faces get the emission and the material
+     * of the mesh
+     *
+     * @param vertices vertex coordinates - 3 numbers per vertex (the array is copied)
+     * @param faces    vertex indices of the faces - 3 numbers per face (the array is copied)
+     * @throws IllegalArgumentException if the arrays are malformed or a face is degenerate
+     */
+    public TriangleMesh(double[] vertices, int[] faces) {
+        this(vertices, triples(vertices.length), faces, triples(faces.length),
+                meshLook(faces.length / 3), new Color[0], meshLook(faces.length / 3), new Material[0]);
+    }
+
+    /**
+     * Returns the amount of triples in an array of raw mesh data
+     *
+     * @param length length of the array
+     * @return the amount of triples
+     * @throws IllegalArgumentException if the length is not a multiple of 3
+     */
+    private static int triples(int length) {
+        if (length % 3 != 0)
+            throw new IllegalArgumentException("A mesh needs 3 coordinates per vertex and 3 indices per face");
+        return length / 3;
+    }
+
+    /**
+     * Creates per-face indices which refer all the faces to the look of the mesh itself
+     *
+     * @param n amount of faces
+     * @return array of n indices -1
+     */
+    private static int[] meshLook(int n) {
+        int[] look = new int[n];
+        Arrays.fill(look, -1);
+        return look;
+    }
+
+    /**
+     * Constructor of a mesh by its raw data with per-face emission colors and materials.
+     * The data is copied from the beginning of the arrays, so later changes of the arrays
+     * do not affect the mesh (its edges, normals and face hierarchy are calculated here).
+     *
+     * @param vertices     vertex coordinates - 3 numbers per vertex
+     * @param vertexCount  amount of vertices
+     * @param faces        vertex indices of the faces - 3 numbers per face
+     * @param faceCount    amount of faces
+     * @param faceEmission index of the emission color of each face (-1 for the mesh emission)
+     * @param emissions    the distinct emission colors
+     * @param faceMaterial index of the material of each face (-1 for the mesh material)
+     * @param materials    the distinct materials
+     * @throws IllegalArgumentException if the arrays are malformed or a face is degenerate
+     */
+    private TriangleMesh(double[] vertices, int vertexCount, int[] faces, int faceCount,
+                         int[] faceEmission, Color[] emissions, int[] faceMaterial, Material[] materials) {
+        if (faceCount == 0)
+            throw new IllegalArgumentException("A mesh needs at least one face");
+        this.vertices = Arrays.copyOf(vertices, 3 * vertexCount);
+        this.faces = Arrays.copyOf(faces, 3 * faceCount);
+        for (int index : this.faces)
+            if (index < 0 || index >= vertexCount)
+                throw new IllegalArgumentException("Face vertex index out of range: " + index);
+        this.faceEmission = Arrays.copyOf(faceEmission, faceCount);
+        this.emissions = emissions.clone();
+        this.faceMaterial = Arrays.copyOf(faceMaterial, faceCount);
+        this.materials = materials.clone();
+        // the rest is calculated from the copies
+        vertices = this.vertices;
+        faces = this.faces;
+
+        int n = faceCount;
+        edges = new double[6 * n];
+        normals = new double[3 * n];
+        double[] boxes = new double[6 * n];
+        for (int f = 0; f < n; ++f) {
+            int i0 = 3 * faces[3 * f], i1 = 3 * faces[3 * f + 1], i2 = 3 * faces[3 * f + 2];
+            double e1x = vertices[i1] - vertices[i0], e1y = vertices[i1 + 1] - vertices[i0 + 1];
+            double e1z = vertices[i1 + 2] - vertices[i0 + 2];
+            double e2x = vertices[i2] - vertices[i0], e2y = vertices[i2 + 1] - vertices[i0 + 1];
+            double e2z = vertices[i2 + 2] - vertices[i0 + 2];
+            edges[6 * f] = e1x;
+            edges[6 * f + 1] = e1y;
+            edges[6 * f + 2] = e1z;
+            edges[6 * f + 3] = e2x;
+            edges[6 * f + 4] = e2y;
+            edges[6 * f + 5] = e2z;
+
+            double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+            double length = Math.sqrt(VectorMath.lengthSquared(nx, ny, nz));
+            if (isZero(length))
+                throw new IllegalArgumentException("Degenerate mesh face: " + f);
+            normals[3 * f] = nx / length;
+            normals[3 * f + 1] = ny / length;
+            normals[3 * f + 2] = nz / length;
+
+            for (int a = 0; a < 3; ++a) {
+                boxes[6 * f + a] = Math.min(vertices[i0 + a], Math.min(vertices[i1 + a], vertices[i2 + a]));
+                boxes[6 * f + a + 3] = Math.max(vertices[i0 + a], Math.max(vertices[i1 + a], vertices[i2 + a]));
+            }
+        }
+        tree = new BoxTree(boxes);
+
+        double[] b = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int v = 0; v < vertexCount; ++v)
+            for (int a = 0; a < 3; ++a) {
+                b[a] = Math.min(b[a], vertices[3 * v + a]);
+                b[a + 3] = Math.max(b[a + 3], vertices[3 * v + a]);
+            }
+        boundingBox = new BoundingBox(b[0], b[1], b[2], b[3], b[4], b[5]);
+    }
+
+    /**
+     * Returns the amount of the faces in the mesh
+     *
+     * @return the amount of faces
+     */
+    public int size() {
+        return faces.length / 3;
+    }
+
+    /**
+     * Returns the normal of the face which the point lies on - or, for a point off the mesh,
+     * of the face nearest to the point. The faces are searched one by one, so the intersections
+     * (which know their face) use {@link #getNormal(Point, int)} instead.
+     *
+     * @param point the point
+     * @return the unit normal of the face
+     */
+    @Override
+    public Vector getNormal(Point point) {
+        double px = point.xyz.d1(), py = point.xyz.d2(), pz = point.xyz.d3();
+        int nearest = 0;
+        double min = Double.POSITIVE_INFINITY;
+        for (int f = 0; f < size() && min > 0; ++f) {
+            double d = distanceSquared(f, px, py, pz);
+            if (d < min) {
+                min = d;
+                nearest = f;
+            }
+        }
+        return getNormal(point, nearest);
+    }
+
+    /**
+     * Calculates the squared distance from a point to a face - to the closest point of the
+     * face, which may be on its inside, on an edge or a vertex (by Ericson's region tests)
+     *
+     * @param f  the face index
+     * @param px point X
+     * @param py point Y
+     * @param pz point Z
+     * @return the squared distance
+     */
+    private double distanceSquared(int f, double px, double py, double pz) {
+        int e = 6 * f;
+        double abx = edges[e], aby = edges[e + 1], abz = edges[e + 2];
+        double acx = edges[e + 3], acy = edges[e + 4], acz = edges[e + 5];
+        int a = 3 * faces[3 * f];
+        double ax = vertices[a], ay = vertices[a + 1], az = vertices[a + 2];
+        double apx = px - ax, apy = py - ay, apz = pz - az;
+
+        // coefficients (s, t) of the closest point a + s*ab + t*ac
+        double s, t;
+        double d1 = VectorMath.dot(abx, aby, abz, apx, apy, apz), d2 = VectorMath.dot(acx, acy, acz, apx, apy, apz);
+        double d3 = d1 - VectorMath.lengthSquared(abx, aby, abz), d4 = d2 - VectorMath.dot(abx, aby, abz, acx, acy, acz);
+        double d5 = d1 - VectorMath.dot(abx, aby, abz, acx, acy, acz), d6 = d2 - VectorMath.lengthSquared(acx, acy, acz);
+        double va = d3 * d6 - d5 * d4, vb = d5 * d2 - d1 * d6, vc = d1 * d4 - d3 * d2;
+        if (d1 <= 0 && d2 <= 0) { // vertex a
+            s = 0;
+            t = 0;
+        } else if (d3 >= 0 && d4 <= d3) { // vertex b
+            s = 1;
+            t = 0;
+        } else if (vc <= 0 && d1 >= 0 && d3 <= 0) { // edge ab
+            s = d1 / (d1 - d3);
+            t = 0;
+        } else if (d6 >= 0 && d5 <= d6) { // vertex c
+            s = 0;
+            t = 1;
+        } else if (vb <= 0 && d2 >= 0 && d6 <= 0) { // edge ac
+            s = 0;
+            t = d2 / (d2 - d6);
+        } else if (va <= 0 && d4 - d3 >= 0 && d5 - d6 >= 0) { // edge bc
+            t = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+            s = 1 - t;
+        } else { // inside the face
+            double denominator = 1 / (va + vb + vc);
+            s = vb * denominator;
+            t = vc * denominator;
+        }
+        return VectorMath.lengthSquared(apx - s * abx - t * acx, apy - s * aby - t * acy, apz - s * abz - t * acz);
+    }
+
+    @Override
+    public Vector getNormal(Point point, int part) {
+        return new Vector(normals[3 * part], normals[3 * part + 1], normals[3 * part + 2]);
+    }
+
+    @Override
+    public Color getEmission(int part) {
+        int index = faceEmission[part];
+        return index < 0 ? getEmission() : emissions[index];
+    }
+
+    @Override
+    public TriangleMesh copyWithMaterials(UnaryOperator<Material> materials) {
+        TriangleMesh copy = (TriangleMesh) super.copyWithMaterials(materials);
+        copy.materials = new Material[this.materials.length];
+        for (int k = 0; k < copy.materials.length; ++k) copy.materials[k] = materials.apply(this.materials[k]);
+        return copy;
+    }
+
+    @Override
+    public Material getMaterial(int part) {
+        int index = faceMaterial[part];
+        return index < 0 ? getMaterial() : materials[index];
+    }
+
+    /**
+     * Intersects a ray with a face by the Möller–Trumbore algorithm
+     *
+     * @param f           the face index
+     * @param ox          ray head X
+     * @param oy          ray head Y
+     * @param oz          ray head Z
+     * @param dx          ray direction X
+     * @param dy          ray direction Y
+     * @param dz          ray direction Z
+     * @param maxDistance the maximal distance from the ray head
+     * @return the distance of the intersection from the ray head, or NaN if there is none
+     */
+    private double intersectFace(int f, double ox, double oy, double oz,
+                                 double dx, double dy, double dz, double maxDistance) {
+        int e = 6 * f;
+        double e1x = edges[e], e1y = edges[e + 1], e1z = edges[e + 2];
+        double e2x = edges[e + 3], e2y = edges[e + 4], e2z = edges[e + 5];
+
+        // p = d × e2, det = e1 · p - zero if the ray is parallel to the face
+        double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+        double det = VectorMath.dot(e1x, e1y, e1z, px, py, pz);
+        if (isZero(det)) return Double.NaN;
+        double inv = 1 / det;
+
+        // barycentric coordinates of the hit point
+        int v0 = 3 * faces[3 * f];
+        double sx = ox - vertices[v0], sy = oy - vertices[v0 + 1], sz = oz - vertices[v0 + 2];
+        double u = VectorMath.dot(sx, sy, sz, px, py, pz) * inv;
+        if (u < 0 || u > 1) return Double.NaN;
+        double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        double v = VectorMath.dot(dx, dy, dz, qx, qy, qz) * inv;
+        if (v < 0 || u + v > 1) return Double.NaN;
+
+        double t = VectorMath.dot(e2x, e2y, e2z, qx, qy, qz) * inv;
+        return alignZero(t) > 0 && alignZero(t - maxDistance) <= 0 ? t : Double.NaN;
+    }
+
+    /**
+     * Creates the intersection of a ray with a face, through the hit buffer of the thread
+     *
+     * @param ray the ray
+     * @param t   the distance of the hit from the ray head
+     * @param f   the face index
+     * @return the intersection
+     */
+    private Intersection hit(Ray ray, double t, int f) {
+        HitBuffer hits = HitBuffer.get();
+        int mark = hits.size();
+        try {
+            addHit(hits, ray, t, f);
+            return hits.intersection(mark);
+        } finally {
+            hits.truncate(mark);
+        }
+    }
+
+    /**
+     * Adds the hit of a ray with a face, with the barycentric coordinates (u, v) of the hit
+     * on the face - they are calculated again only for the hits which are returned
+     *
+     * @param hits the buffer collecting the hit
+     * @param ray  the ray
+     * @param t    the distance of the hit from the ray head
+     * @param f    the face index
+     */
+    private void addHit(HitBuffer hits, Ray ray, double t, int f) {
+        Point head = ray.getHead();
+        Vector dir = ray.getDirection();
+        double dx = dir.xyz.d1(), dy = dir.xyz.d2(), dz = dir.xyz.d3();
+        int e = 6 * f;
+        double e1x = edges[e], e1y = edges[e + 1], e1z = edges[e + 2];
+        double e2x = edges[e + 3], e2y = edges[e + 4], e2z = edges[e + 5];
+        double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+        double inv = 1 / VectorMath.dot(e1x, e1y, e1z, px, py, pz);
+        int v0 = 3 * faces[3 * f];
+        double sx = head.xyz.d1() - vertices[v0], sy = head.xyz.d2() - vertices[v0 + 1];
+        double sz = head.xyz.d3() - vertices[v0 + 2];
+        double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        hits.add(this, ray, t, f,
+                VectorMath.dot(sx, sy, sz, px, py, pz) * inv, VectorMath.dot(dx, dy, dz, qx, qy, qz) * inv);
+    }
+
+    /**
+     * Intersects several lanes of a ray packet with a face by the Möller–Trumbore algorithm.
+     * The face is loaded once for all the lanes, and a lane which hits the face closer than
+     * its closest hit so far gets the face as its closest one.
+     *
+     * @param f        the face index
+     * @param packet   the ray packet
+     * @param lanes    bit mask of the lanes
+     * @param bestFace the closest face so far per lane
+     */
+    private void intersectFace(int f, RayPacket packet, int lanes, int[] bestFace) {
+        int e = 6 * f;
+        double e1x = edges[e], e1y = edges[e + 1], e1z = edges[e + 2];
+        double e2x = edges[e + 3], e2y = edges[e + 4], e2z = edges[e + 5];
+        int v0 = 3 * faces[3 * f];
+        double x0 = vertices[v0], y0 = vertices[v0 + 1], z0 = vertices[v0 + 2];
+        double[] tMax = packet.tMax;
+        for (; lanes != 0; lanes &= lanes - 1) {
+            int k = Integer.numberOfTrailingZeros(lanes);
+            double dx = packet.dx[k], dy = packet.dy[k], dz = packet.dz[k];
+            double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+            double det = VectorMath.dot(e1x, e1y, e1z, px, py, pz);
+            if (isZero(det)) continue;
+            double inv = 1 / det;
+
+            double sx = packet.ox[k] - x0, sy = packet.oy[k] - y0, sz = packet.oz[k] - z0;
+            double u = VectorMath.dot(sx, sy, sz, px, py, pz) * inv;
+            if (u < 0 || u > 1) continue;
+            double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+            double v = VectorMath.dot(dx, dy, dz, qx, qy, qz) * inv;
+            if (v < 0 || u + v > 1) continue;
+
+            double t = VectorMath.dot(e2x, e2y, e2z, qx, qy, qz) * inv;
+            if (alignZero(t) > 0 && alignZero(t - tMax[k]) <= 0) {
+                tMax[k] = t;
+                bestFace[k] = f;
+            }
+        }
+    }
+
+    @Override
+    protected void calculateIntersectionsHelper(Ray ray, double maxDistance, HitBuffer hits) {
+        Point head = ray.getHead();
+        Vector dir = ray.getDirection();
+        double ox = head.xyz.d1(), oy = head.xyz.d2(), oz = head.xyz.d3();
+        double dx = dir.xyz.d1(), dy = dir.xyz.d2(), dz = dir.xyz.d3();
+        double invX = 1 / dx, invY = 1 / dy, invZ = 1 / dz;
+
+        HitBuffer.Traversal traversal = hits.beginTraversal();
+        try {
+            int[] stack = traversal.nodes;
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top];
+                if (tree.slab(node, ox, oy, oz, invX, invY, invZ, maxDistance) == Double.POSITIVE_INFINITY)
+                    continue;
+                int count = tree.nodeCount[node];
+                if (count > 0) {
+                    int first = tree.nodeOffset[node];
+                    for (int i = first; i < first + count; ++i) {
+                        int f = tree.order[i];
+                        double t = intersectFace(f, ox, oy, oz, dx, dy, dz, maxDistance);
+                        if (!Double.isNaN(t)) addHit(hits, ray, t, f);
+                    }
+                } else {
+                    stack[top++] = tree.nodeOffset[node];
+                    stack[top++] = node + 1;
+                }
+            }
+        } finally {
+            hits.endTraversal();
+        }
+    }
+
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray, double maxDistance) {
+        Point head = ray.getHead();
+        Vector dir = ray.getDirection();
+        double ox = head.xyz.d1(), oy = head.xyz.d2(), oz = head.xyz.d3();
+        double dx = dir.xyz.d1(), dy = dir.xyz.d2(), dz = dir.xyz.d3();
+        double invX = 1 / dx, invY = 1 / dy, invZ = 1 / dz;
+
+        // the faces are searched nearest node first, each hit shrinks the search distance
+        double best = maxDistance;
+        int bestFace = -1;
+        HitBuffer buffer = HitBuffer.get();
+        HitBuffer.Traversal traversal = buffer.beginTraversal();
+        try {
+            int[] stack = traversal.nodes;
+            double[] entry = traversal.entries;
+            int top = 0;
+            double rootEntry = tree.slab(0, ox, oy, oz, invX, invY, invZ, best);
+            if (rootEntry != Double.POSITIVE_INFINITY) {
+                stack[top] = 0;
+                entry[top++] = rootEntry;
+            }
+            while (top > 0) {
+                int node = stack[--top];
+                if (entry[top] > best) continue;
+                int count = tree.nodeCount[node];
+                if (count > 0) {
+                    int first = tree.nodeOffset[node];
+                    for (int i = first; i < first + count; ++i) {
+                        int f = tree.order[i];
+                        double t = intersectFace(f, ox, oy, oz, dx, dy, dz, best);
+                        if (!Double.isNaN(t)) {
+                            best = t;
+                            bestFace = f;
+                        }
+                    }
+                } else {
+                    int left = node + 1, right = tree.nodeOffset[node];
+                    double tLeft = tree.slab(left, ox, oy, oz, invX, invY, invZ, best);
+                    double tRight = tree.slab(right, ox, oy, oz, invX, invY, invZ, best);
+                    // push the farther child first so that the nearer one is popped first
+                    if (tLeft > tRight) {
+                        int n = left;
+                        left = right;
+                        right = n;
+                        double t = tLeft;
+                        tLeft = tRight;
+                        tRight = t;
+                    }
+                    if (tRight != Double.POSITIVE_INFINITY) {
+                        stack[top] = right;
+                        entry[top++] = tRight;
+                    }
+                    if (tLeft != Double.POSITIVE_INFINITY) {
+                        stack[top] = left;
+                        entry[top++] = tLeft;
+                    }
+                }
+            }
+            return bestFace < 0 ? null : hit(ray, best, bestFace);
+        } finally {
+            buffer.endTraversal();
+        }
+    }
+
+    /**
+     * Finds the closest intersections of the active lanes of a ray packet with the faces.
+     * The packet traverses the face tree once, like the hierarchy of the scene: an inner node box
+     * is tested once for the whole packet, and the faces of a leaf are tested by the lanes which
+     * enter the leaf box. The lanes of an incoherent packet are intersected one by one.
+     *
+     * @param packet the ray packet, its active lanes are updated with closer hits
+     */
+    @Override
+    protected void calculateClosestIntersectionsHelper(RayPacket packet) {
+        int lanes = packet.active;
+        if (!packet.isCoherent(lanes)) {
+            super.calculateClosestIntersectionsHelper(packet);
+            return;
+        }
+        HitBuffer buffer = HitBuffer.get();
+        HitBuffer.Traversal traversal = buffer.beginTraversal();
+        try {
+            int[] bestFace = traversal.lanes;
+            Arrays.fill(bestFace, -1);
+            double[] tMax = packet.tMax;
+
+            // the lane distances shrink with the hits while the faces are searched nearest node first
+            double[] bounds = packet.bounds(lanes);
+            double farthest = packet.farthest(lanes);
+            int[] stack = traversal.nodes;
+            double[] entry = traversal.entries;
+            int top = 0;
+            double rootEntry = tree.slab(0, bounds, farthest);
+            if (rootEntry != Double.POSITIVE_INFINITY) {
+                stack[top] = 0;
+                entry[top++] = rootEntry;
+            }
+            while (top > 0) {
+                int node = stack[--top];
+                if (entry[top] > farthest) continue;
+                int count = tree.nodeCount[node];
+                if (count > 0) {
+                    if (tree.slab(node, packet, lanes) == Double.POSITIVE_INFINITY) continue;
+                    int mask = packet.entered;
+                    int first = tree.nodeOffset[node];
+                    for (int i = first; i < first + count; ++i)
+                        intersectFace(tree.order[i], packet, mask, bestFace);
+                    farthest = packet.farthest(lanes);
+                } else {
+                    int left = node + 1, right = tree.nodeOffset[node];
+                    double tLeft = tree.slab(left, bounds, farthest);
+                    double tRight = tree.slab(right, bounds, farthest);
+                    // push the farther child first so that the nearer one is popped first
+                    if (tLeft > tRight) {
+                        int n = left;
+                        left = right;
+                        right = n;
+                        double t = tLeft;
+                        tLeft = tRight;
+                        tRight = t;
+                    }
+                    if (tRight != Double.POSITIVE_INFINITY) {
+                        stack[top] = right;
+                        entry[top++] = tRight;
+                    }
+                    if (tLeft != Double.POSITIVE_INFINITY) {
+                        stack[top] = left;
+                        entry[top++] = tLeft;
+                    }
+                }
+            }
+
+            for (; lanes != 0; lanes &= lanes - 1) {
+                int k = Integer.numberOfTrailingZeros(lanes);
+                if (bestFace[k] < 0) continue;
+                packet.hit(k, hit(packet.rays[k], tMax[k], bestFace[k]), tMax[k]);
+            }
+        } finally {
+            buffer.endTraversal();
+        }
+    }
+
+    @Override
+    protected Double3 calculateTransparencyHelper(Ray ray, double maxDistance) {
+        Point head = ray.getHead();
+        Vector dir = ray.getDirection();
+        double ox = head.xyz.d1(), oy = head.xyz.d2(), oz = head.xyz.d3();
+        double dx = dir.xyz.d1(), dy = dir.xyz.d2(), dz = dir.xyz.d3();
+        double invX = 1 / dx, invY = 1 / dy, invZ = 1 / dz;
+
+        // any hit of an opaque face ends the search
+        Double3 ktr = Double3.ONE;
+        HitBuffer buffer = HitBuffer.get();
+        HitBuffer.Traversal traversal = buffer.beginTraversal();
+        try {
+            int[] stack = traversal.nodes;
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top];
+                if (tree.slab(node, ox, oy, oz, invX, invY, invZ, maxDistance) == Double.POSITIVE_INFINITY)
+                    continue;
+                int count = tree.nodeCount[node];
+                if (count > 0) {
+                    int first = tree.nodeOffset[node];
+                    for (int i = first; i < first + count; ++i) {
+                        int f = tree.order[i];
+                        if (Double.isNaN(intersectFace(f, ox, oy, oz, dx, dy, dz, maxDistance))) continue;
+                        ktr = ktr.product(getMaterial(f).kT);
+                        if (isOpaque(ktr)) return Double3.ZERO;
+                    }
+                } else {
+                    stack[top++] = tree.nodeOffset[node];
+                    stack[top++] = node + 1;
+                }
+            }
+            return ktr;
+        } finally {
+            buffer.endTraversal();
+        }
+    }
+
+    /**
+     * Creates a builder of a mesh
+     *
+     * @return a new builder
+     */
+    public static Builder getBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder of a {@link TriangleMesh} - collects faces one by one.
+     * Emission colors and materials are shared by reference, so faces which use the same
+     * {@link Color} and {@link Material} objects share a single entry of the mesh.
+     */
+    public static class Builder {
+        /**
+         * Vertex coordinates collected so far
+         */
+        private double[] vertices = new double[3 * 64];
+        /**
+         * Amount of collected vertices
+         */
+        private int vertexCount = 0;
+        /**
+         * Vertex indices of the faces collected so far
+         */
+        private int[] faces = new int[3 * 64];
+        /**
+         * Emission index of each face
+         */
+        private int[] faceEmission = new int[64];
+        /**
+         * Material index of each face
+         */
+        private int[] faceMaterial = new int[64];
+        /**
+         * Amount of collected faces
+         */
+        private int faceCount = 0;
+        /**
+         * The distinct emission colors
+         */
+        private final List<Color> emissions = new ArrayList<>();
+        /**
+         * The distinct materials
+         */
+        private final List<Material> materials = new ArrayList<>();
+        /**
+         * Indices of the emission colors, by reference
+         */
+        private final Map<Color, Integer> emissionIndex = new IdentityHashMap<>();
+        /**
+         * Indices of the materials, by reference
+         */
+        private final Map<Material, Integer> materialIndex = new IdentityHashMap<>();
+
+        /**
+         * Private constructor - use {@link TriangleMesh#getBuilder()}
+         */
+        private Builder() {
+        }
+
+        /**
+         * Adds a vertex
+         *
+         * @param point the vertex
+         * @return index of the vertex
+         */
+        public int addVertex(Point point) {
+            return addVertex(point.xyz.d1(), point.xyz.d2(), point.xyz.d3());
+        }
+
+        /**
+         * Adds a vertex given by its raw coordinates (for loaders of large meshes)
+         *
+         * @param x the vertex X
+         * @param y the vertex Y
+         * @param z the vertex Z
+         * @return index of the vertex
+         */
+        public int addVertex(double x, double y, double z) {
+            if (3 * vertexCount == vertices.length) vertices = Arrays.copyOf(vertices, 2 * vertices.length);
+            vertices[3 * vertexCount] = x;
+            vertices[3 * vertexCount + 1] = y;
+            vertices[3 * vertexCount + 2] = z;
+            return vertexCount++;
+        }
+
+        /**
+         * Adds a face of previously added vertices
+         *
+         * @param v0       index of the 1st vertex
+         * @param v1       index of the 2nd vertex
+         * @param v2       index of the 3rd vertex
+         * @param emission emission color of the face ({@code null} for the mesh emission)
+         * @param material material of the face ({@code null} for the mesh material)
+         * @return the builder
+         */
+        public Builder addFace(int v0, int v1, int v2, Color emission, Material material) {
+            if (faceCount == faceEmission.length) {
+                faces = Arrays.copyOf(faces, 6 * faceCount);
+                faceEmission = Arrays.copyOf(faceEmission, 2 * faceCount);
+                faceMaterial = Arrays.copyOf(faceMaterial, 2 * faceCount);
+            }
+            faces[3 * faceCount] = v0;
+            faces[3 * faceCount + 1] = v1;
+            faces[3 * faceCount + 2] = v2;
+            faceEmission[faceCount] = emission == null ? -1
+                    : emissionIndex.computeIfAbsent(emission, c -> {
+                emissions.add(c);
+                return emissions.size() - 1;
+            });
+            faceMaterial[faceCount] = material == null ? -1
+                    : materialIndex.computeIfAbsent(material, m -> {
+                materials.add(m);
+                return materials.size() - 1;
+            });
+            ++faceCount;
+            return this;
+        }
+
+        /**
+         * Adds a triangle with its own vertices
+         *
+         * @param p0       1st vertex
+         * @param p1       2nd vertex
+         * @param p2       3rd vertex
+         * @param emission emission color of the face ({@code null} for the mesh emission)
+         * @param material material of the face ({@code null} for the mesh material)
+         * @return the builder
+         */
+        public Builder addTriangle(Point p0, Point p1, Point p2, Color emission, Material material) {
+            return addFace(addVertex(p0), addVertex(p1), addVertex(p2), emission, material);
+        }
+
+        /**
+         * Adds a triangle with its own vertices, which has the emission and the material of the mesh
+         *
+         * @param p0 1st vertex
+         * @param p1 2nd vertex
+         * @param p2 3rd vertex
+         * @return the builder
+         */
+        public Builder addTriangle(Point p0, Point p1, Point p2) {
+            return addTriangle(p0, p1, p2, null, null);
+        }
+
+        /**
+         * Builds the mesh
+         *
+         * @return the mesh
+         * @throws IllegalArgumentException if there are no faces, or a face is degenerate
+         */
+        public TriangleMesh build() {
+            return new TriangleMesh(vertices, vertexCount, faces, faceCount,
+                    faceEmission, emissions.toArray(new Color[0]), faceMaterial, materials.toArray(new Material[0]));
+        }
+    }
+}
@@ -4,8 +4,6 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
-import java.util.List;
-
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
 
@@ -54,15 +52,16 @@ public class Tube extends RadialGeometry {
     /**
      * This method implements the {@code calculateIntersectionsHelper} method defined in the {@code Intersectable} interface.
      * It calculates the intersection points (if any) between a given ray and the surface of the infinite tube.
-     * If there are no intersections or if the ray only touches the tube (tangent), the method returns {@code null}.
+     * If there are no intersections or if the ray only touches the tube (tangent), the method adds no points.
      * Intersection points where the ray origin lies exactly on the surface are not considered valid intersections.
      *
-     * @param ray The ray for which intersection points with the tube are to be found.
-     * @return A list of intersection points, or {@code null} if there are none.
+     * @param ray         The ray for which intersection points with the tube are to be found.
+     * @param maxDistance The maximal distance from the ray head of the intersection points.
+     * @param hits        The buffer collecting the intersection points, ordered by their distance.
      */
 
     @Override
-    public List<Intersection> calculateIntersectionsHelper(Ray ray) {
+    protected void calculateIntersectionsHelper(Ray ray, double maxDistance, HitBuffer hits) {
         Vector va = axis.getDirection(); // Direction vector of the tube's axis
         Point pa = axis.getHead(); // A point on the tube's axis
         Vector vr = ray.getDirection(); // Direction vector of the ray
@@ -70,7 +69,7 @@ public class Tube extends RadialGeometry {
 
         // Calculate the vector (pr - pa)
         if (pr.equals(pa))
-            return null;
+            return;
         Vector deltaP = pr.subtract(pa);
 
         // Calculate the coefficients A, B, and C of the quadratic equation At^2 + Bt + C = 0
@@ -84,37 +83,23 @@ public class Tube extends RadialGeometry {
         double discriminant = B * B - 4 * A * C;
 
         if (discriminant < 0 || isZero(discriminant)) {
-            return null; // No real intersections (including tangent)
+            return; // No real intersections (including tangent)
         }
 
         double t1 = (-B + Math.sqrt(discriminant)) / (2 * A);
         double t2 = (-B - Math.sqrt(discriminant)) / (2 * A);
 
-        Point p1 = null, p2 = null;
+        boolean valid1 = alignZero(t1) > 0 && alignZero(t1 - maxDistance) <= 0;
+        boolean valid2 = alignZero(t2) > 0 && alignZero(t2 - maxDistance) <= 0;
 
-        if (alignZero(t1) > 0) {
-            p1 = pr.add(vr.scale(t1));
-        }
-        if (alignZero(t2) > 0) {
-            p2 = pr.add(vr.scale(t2));
-        }
-
-        if (p1 != null && p2 != null) {
+        if (valid1 && valid2) {
             // Ensure the intersections are ordered by their distance from the ray origin
-            if (p2.subtract(pr).lengthSquared() < p1.subtract(pr).lengthSquared()) {
-                return List.of(new Intersection(this, p2), new Intersection(this, p1));
-            }
-            return List.of(new Intersection(this, p1), new Intersection(this, p2));
+            hits.add(this, ray, Math.min(t1, t2));
+            hits.add(this, ray, Math.max(t1, t2));
+        } else if (valid1) {
+            hits.add(this, ray, t1);
+        } else if (valid2) {
+            hits.add(this, ray, t2);
         }
-
-        if (p1 != null) {
-            return List.of(new Intersection(this, p1));
-        }
-
-        if (p2 != null) {
-            return List.of(new Intersection(this, p2));
-        }
-
-        return null;
     }
 }
\ No newline at end of file
@@ -77,6 +77,26 @@ public class Color {
         return new java.awt.Color(ir > 255 ? 255 : ir, ig > 255 ? 255 : ig, ib > 255 ? 255 : ib);
     }
 
+    /**
+     * Color getter - returns the RGB components of the color as they are (not clamped to 255)
+     *
+     * @return triad of Red/Green/Blue components
+     */
+    public Double3 getRgb() {
+        return rgb;
+    }
+
+    /**
+     * Operation of adding this and another color (by component).
+     * This overload spares the array of the variable arguments version in the shading loops.
+     *
+     * @param color the other color to add
+     * @return new Color object which is a result of the operation
+     */
+    public Color add(Color color) {
+        return new Color(rgb.d1() + color.rgb.d1(), rgb.d2() + color.rgb.d2(), rgb.d3() + color.rgb.d3());
+    }
+
     /**
      * Operation of adding this and one or more other colors (by component)
      *
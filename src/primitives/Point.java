@@ -57,8 +57,7 @@ public class Point {
      * @return The squared distance between the two points.
      */
     public double distanceSquared(Point p) {
-        Double3 sub = xyz.subtract(p.xyz);
-        return sub.d1() * sub.d1() + sub.d2() * sub.d2() + sub.d3() * sub.d3();
+        return VectorMath.lengthSquared(xyz.d1() - p.xyz.d1(), xyz.d2() - p.xyz.d2(), xyz.d3() - p.xyz.d3());
     }
 
     /**
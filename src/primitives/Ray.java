@@ -129,13 +129,15 @@ public class Ray {
         return intersections == null ? null
                 : findClosestIntersection(
                 intersections.stream().map(p -> new Intersection(null, p))
-                        .toList()).point;
+                        .toList()).getPoint();
     }
 
 
     /**
      * Finds the closest intersection point to the ray's head from a list of intersections,
      * considering only those that lie in the direction of the ray (i.e., dot product > 0).
+     * The intersections which carry their distance along the ray are compared by it, without
+     * calculating their points.
      *
      * @param intersections List of {@link Intersection} objects to check
      * @return The closest {@link Intersection} in the ray's direction, or {@code null} if none are valid
@@ -146,17 +148,27 @@ public class Ray {
         double minDistance = Double.POSITIVE_INFINITY;
         Intersection closestIntersection = null;
         for (Intersection intersection : intersections) {
-            Point point = intersection.point;
-            // Skip if the point is exactly at the ray's origin
-            if (point.equals(head)) continue;
-            Vector toPoint = point.subtract(head);
-            // Check if point is in the direction of the ray
-            if (direction.dotProduct(toPoint) > 0) {
-                double distance = toPoint.lengthSquared(); // faster than distance()
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    closestIntersection = intersection;
-                }
+            double distance; // squared distance from the ray's head
+            if (!Double.isNaN(intersection.t)) {
+                // Skip if the point is at the ray's origin or behind it
+                if (intersection.t <= 0 || isZero(intersection.t)) continue;
+                distance = intersection.t * intersection.t;
+            } else {
+                Point point = intersection.getPoint();
+                // Skip if the point is exactly at the ray's origin
+                if (point.equals(head)) continue;
+                // Vector from the head to the point, on raw coordinates
+                double x = point.xyz.d1() - head.xyz.d1();
+                double y = point.xyz.d2() - head.xyz.d2();
+                double z = point.xyz.d3() - head.xyz.d3();
+                // Skip if point is not in the direction of the ray
+                if (VectorMath.dot(direction.xyz.d1(), direction.xyz.d2(), direction.xyz.d3(), x, y, z) <= 0)
+                    continue;
+                distance = VectorMath.lengthSquared(x, y, z); // faster than distance()
+            }
+            if (distance < minDistance) {
+                minDistance = distance;
+                closestIntersection = intersection;
             }
         }
 
@@ -0,0 +1,96 @@
+package primitives;
+
+import static primitives.Util.isZero;
+
+/**
+ * Allocation-free vector math on raw coordinates.
+ * <p>
+ * Every operation of the immutable {@link Point}, {@link Vector} and {@link Color} API creates
+ * new objects. The hot paths of the ray tracer (ray construction and intersection tests) use
+ * these static kernels on raw {@code double} coordinates instead, and create objects only for
+ * their final results.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+public final class VectorMath {
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private VectorMath() {
+    }
+
+    /**
+     * Dot product of two vectors
+     *
+     * @param ax 1st vector X
+     * @param ay 1st vector Y
+     * @param az 1st vector Z
+     * @param bx 2nd vector X
+     * @param by 2nd vector Y
+     * @param bz 2nd vector Z
+     * @return a · b
+     */
+    public static double dot(double ax, double ay, double az, double bx, double by, double bz) {
+        return ax * bx + ay * by + az * bz;
+    }
+
+    /**
+     * Squared length of a vector
+     *
+     * @param x vector X
+     * @param y vector Y
+     * @param z vector Z
+     * @return |v|²
+     */
+    public static double lengthSquared(double x, double y, double z) {
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * Scalar triple product of three vectors
+     *
+     * @param dx 1st vector X
+     * @param dy 1st vector Y
+     * @param dz 1st vector Z
+     * @param ax 2nd vector X
+     * @param ay 2nd vector Y
+     * @param az 2nd vector Z
+     * @param bx 3rd vector X
+     * @param by 3rd vector Y
+     * @param bz 3rd vector Z
+     * @return d · (a × b)
+     */
+    public static double tripleProduct(double dx, double dy, double dz,
+                                       double ax, double ay, double az,
+                                       double bx, double by, double bz) {
+        return dx * (ay * bz - az * by) + dy * (az * bx - ax * bz) + dz * (ax * by - ay * bx);
+    }
+
+    /**
+     * Squared length of the cross product of two vectors
+     *
+     * @param ax 1st vector X
+     * @param ay 1st vector Y
+     * @param az 1st vector Z
+     * @param bx 2nd vector X
+     * @param by 2nd vector Y
+     * @param bz 2nd vector Z
+     * @return |a × b|²
+     */
+    public static double crossLengthSquared(double ax, double ay, double az, double bx, double by, double bz) {
+        return lengthSquared(ay * bz - az * by, az * bx - ax * bz, ax * by - ay * bx);
+    }
+
+    /**
+     * Checks whether all the coordinates of a vector are [almost] zero,
+     * the same way as {@link Vector} rejects the zero vector
+     *
+     * @param x vector X
+     * @param y vector Y
+     * @param z vector Z
+     * @return true if the vector is the zero vector
+     */
+    public static boolean isZeroVector(double x, double y, double z) {
+        return isZero(x) && isZero(y) && isZero(z);
+    }
+}
@@ -7,13 +7,47 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Simplified Blackboard class for super-sampling (anti-aliasing) with jittered pattern only.
- * Pattern is fixed to JITTERED, shape is fixed to SQUARE for simplicity and speed.
- * Only gridSize is configurable via constructor.
+ * Simplified Blackboard class for super-sampling (anti-aliasing).
+ * The shape is fixed to SQUARE for simplicity and speed, the sample pattern and the
+ * gridSize are configurable via constructor.<br>
+ * The random numbers of a pixel are derived from the pixel coordinates only (there is no
+ * shared random generator), so threads do not contend on them and the rendered image
+ * does not depend on the order in which the pixels are rendered.
  */
 public class Blackboard {
+    /**
+     * Pattern of the sample points in a pixel
+     */
+    public enum Pattern {
+        /**
+         * A random point in every cell of the N x N grid (stratified sampling)
+         */
+        JITTERED,
+        /**
+         * Halton sequence of bases 2 and 3, randomly rotated per pixel (Cranley-Patterson)
+         */
+        HALTON,
+        /**
+         * Sobol (0,2)-sequence, scrambled per pixel by random digit scrambling - for a power of
+         * 2 samples, every elementary interval of the pixel gets exactly one sample
+         */
+        SOBOL
+    }
+
     private int gridSize; // Number of samples per axis (N x N)
     private boolean enabled;
+    private Pattern pattern = Pattern.JITTERED;
+    private double[] sequence; // Unrotated Halton points (x, y pairs), the same for all the pixels
+
+    /**
+     * Scale of a 32-bit integer to a fraction of [0,1)
+     */
+    private static final double INT_TO_FRACTION = 1.0 / (1L << 32);
+
+    /**
+     * Increment of the random state (the odd fraction of the golden ratio)
+     */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
 
     public Blackboard() {
         this.enabled = false;
@@ -23,7 +57,7 @@ public class Blackboard {
     /**
      * Constructor with only gridSize parameter.
      * Supersampling is enabled by default.
-     * Pattern is fixed to JITTERED, shape fixed to SQUARE for performance.
+     * Pattern is JITTERED, shape fixed to SQUARE for performance.
      *
      * @param gridSize Number of samples per axis (e.g., 3 for 3x3)
      */
@@ -32,6 +66,28 @@ public class Blackboard {
         this.gridSize = gridSize;
     }
 
+    /**
+     * Constructor with gridSize and sample pattern.
+     * Supersampling is enabled by default, shape fixed to SQUARE.
+     * The low discrepancy patterns converge faster than JITTERED, so a smaller gridSize
+     * gives the same quality.
+     *
+     * @param gridSize Number of samples per axis (gridSize * gridSize samples in total)
+     * @param pattern  the sample pattern
+     */
+    public Blackboard(int gridSize, Pattern pattern) {
+        this(gridSize);
+        this.pattern = pattern;
+        if (pattern == Pattern.HALTON) {
+            int count = gridSize * gridSize;
+            sequence = new double[2 * count];
+            for (int k = 0; k < count; k++) {
+                sequence[2 * k] = radicalInverse(k, 2);
+                sequence[2 * k + 1] = radicalInverse(k, 3);
+            }
+        }
+    }
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -40,43 +96,152 @@ public class Blackboard {
         return gridSize;
     }
 
+    public Pattern getPattern() {
+        return pattern;
+    }
+
     /**
-     * Generates 2D sample points in normalized pixel coordinates (centered at (0,0), range [-0.5,0.5]).
-     * Pattern is fixed to JITTERED. Shape is fixed to SQUARE.
+     * Returns the amount of samples in a pixel
      *
-     * @return List of double arrays: [dx, dy] offsets
+     * @return gridSize * gridSize
      */
-    public List<double[]> generateSamples2D() {
-        List<double[]> samples = new ArrayList<>();
-        double step = 1.0 / gridSize;
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                double dx = (i + 0.5) * step - 0.5;
-                double dy = (j + 0.5) * step - 0.5;
-                // Add jittered random offset inside each cell
-                dx += (Math.random() - 0.5) * step;
-                dy += (Math.random() - 0.5) * step;
-                samples.add(new double[]{dx, dy});
+    public int getSampleCount() {
+        return gridSize * gridSize;
+    }
+
+    /**
+     * Generates the 2D sample points of a pixel into a buffer, in normalized pixel coordinates
+     * (centered at (0,0), range [-0.5,0.5]). Nothing is allocated, so it may be called for
+     * every pixel.<br>
+     * The samples are deterministic - the same pixel gets the same samples.
+     *
+     * @param j       column index of the pixel
+     * @param i       row index of the pixel
+     * @param offsets buffer of at least 2 * {@link #getSampleCount()} values, filled with
+     *                dx, dy pairs
+     */
+    public void generateSamples(int j, int i, double[] offsets) {
+        int count = getSampleCount();
+        // Random state of the pixel, advanced by the golden gamma as in SplittableRandom
+        long state = mix(((long) j << 32) ^ i);
+        switch (pattern) {
+            case JITTERED -> {
+                double step = 1.0 / gridSize;
+                int k = 0;
+                for (int a = 0; a < gridSize; a++) {
+                    for (int b = 0; b < gridSize; b++) {
+                        // A random point inside each cell
+                        offsets[k++] = (a + toFraction(state += GOLDEN_GAMMA)) * step - 0.5;
+                        offsets[k++] = (b + toFraction(state += GOLDEN_GAMMA)) * step - 0.5;
+                    }
+                }
+            }
+            case HALTON -> {
+                double rx = toFraction(state += GOLDEN_GAMMA);
+                double ry = toFraction(state += GOLDEN_GAMMA);
+                for (int k = 0; k < count; k++) {
+                    double x = sequence[2 * k] + rx;
+                    double y = sequence[2 * k + 1] + ry;
+                    offsets[2 * k] = x - Math.floor(x) - 0.5;
+                    offsets[2 * k + 1] = y - Math.floor(y) - 0.5;
+                }
+            }
+            case SOBOL -> {
+                int sx = (int) mix(state += GOLDEN_GAMMA);
+                int sy = (int) mix(state += GOLDEN_GAMMA);
+                for (int k = 0; k < count; k++) {
+                    offsets[2 * k] = Integer.toUnsignedLong(Integer.reverse(k) ^ sx) * INT_TO_FRACTION - 0.5;
+                    offsets[2 * k + 1] = Integer.toUnsignedLong(sobol2(k) ^ sy) * INT_TO_FRACTION - 0.5;
+                }
             }
         }
+    }
+
+    /**
+     * Generates 2D sample points of a pixel in normalized pixel coordinates
+     * (centered at (0,0), range [-0.5,0.5]).
+     * The samples are deterministic - the same pixel gets the same samples.
+     *
+     * @param j column index of the pixel
+     * @param i row index of the pixel
+     * @return List of double arrays: [dx, dy] offsets
+     */
+    public List<double[]> generateSamples2D(int j, int i) {
+        double[] offsets = new double[2 * getSampleCount()];
+        generateSamples(j, i, offsets);
+        List<double[]> samples = new ArrayList<>();
+        for (int k = 0; k < offsets.length; k += 2)
+            samples.add(new double[]{offsets[k], offsets[k + 1]});
         return samples;
     }
 
     /**
-     * Maps 2D sample offsets to 3D points on the view plane.
+     * Maps 2D sample offsets of a pixel to 3D points on the view plane.
      *
      * @param pixelCenter The 3D center of the pixel (primitives.Point)
      * @param right       The right vector of the view plane (normalized, scaled to pixel width)
      * @param up          The up vector of the view plane (normalized, scaled to pixel height)
+     * @param j           column index of the pixel
+     * @param i           row index of the pixel
      * @return List of 3D points (primitives.Point) for ray directions
      */
-    public List<Point> generateSamples3D(Point pixelCenter, Vector right, Vector up) {
+    public List<Point> generateSamples3D(Point pixelCenter, Vector right, Vector up, int j, int i) {
         List<Point> points3D = new ArrayList<>();
-        for (double[] offset : generateSamples2D()) {
+        for (double[] offset : generateSamples2D(j, i)) {
             // pixelCenter + dx * right + dy * up
             Point p = pixelCenter.add(right.scale(offset[0])).add(up.scale(offset[1]));
             points3D.add(p);
         }
         return points3D;
     }
+
+    /**
+     * Mixes the bits of a random state (the SplitMix64 finalizer)
+     *
+     * @param z the state
+     * @return the random bits
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Random fraction in [0,1) of a random state
+     *
+     * @param state the state
+     * @return the fraction
+     */
+    private static double toFraction(long state) {
+        return (mix(state) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Radical inverse of an index in a base - its digits mirrored around the fraction point
+     *
+     * @param index the index
+     * @param base  the base
+     * @return the radical inverse in [0,1)
+     */
+    private static double radicalInverse(int index, int base) {
+        double inverse = 0;
+        double digitValue = 1.0 / base;
+        for (int n = index; n > 0; n /= base, digitValue /= base)
+            inverse += (n % base) * digitValue;
+        return inverse;
+    }
+
+    /**
+     * Second dimension of the Sobol sequence, as 32 bits of a fraction
+     *
+     * @param index the index
+     * @return the bits of the fraction
+     */
+    private static int sobol2(int index) {
+        int result = 0;
+        for (int v = 1 << 31; index != 0; index >>>= 1, v ^= v >>> 1)
+            if ((index & 1) != 0) result ^= v;
+        return result;
+    }
 }
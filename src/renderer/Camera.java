@@ -1,15 +1,22 @@
 package renderer;
 
 import primitives.*;
+import scene.RenderScene;
 import scene.Scene;
 
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.MissingResourceException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.IntStream;
 
 import static primitives.Color.colorDistance;
+import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
 
 /**
@@ -30,6 +37,10 @@ public class Camera implements Cloneable {
     //View plane center point to save CPU time - it's always the same
     private Point viewPlanePC;
     private ImageWriter imageWriter;
+    /**
+     * Primary ray tables of the image, built with the camera
+     */
+    private RayGenerator rayGenerator;
     private RayTracerBase rayTracer;
     private int nX = 1;
     private int nY = 1;
@@ -37,15 +48,61 @@ public class Camera implements Cloneable {
     private boolean useAdaptiveSuperSampling = false;
     private int assMaxDepth = 3;
     private double assTolerance = 10.0;
+    /**
+     * Whether to anti-alias only the edge pixels found by a first pass of one ray per pixel
+     */
+    private boolean useEdgeAntiAliasing = false;
+    /**
+     * Maximal color distance of neighbouring pixels in a smooth area for edge anti-aliasing
+     */
+    private double edgeTolerance = 10.0;
+    /**
+     * Geometry buffer of the image while rendering with edge anti-aliasing, null otherwise
+     */
+    private GBuffer gBuffer;
+    /**
+     * Whether the current rendering pass of edge anti-aliasing re-renders the edge pixels
+     */
+    private boolean refining = false;
+    /**
+     * Amount of edge pixels in the last rendering with edge anti-aliasing
+     */
+    private int edgePixels = 0;
+    /**
+     * Amount of sample requests of adaptive super sampling in the last rendering
+     */
+    private LongAdder assRequests = new LongAdder();
+    /**
+     * Amount of traced samples of adaptive super sampling in the last rendering
+     */
+    private LongAdder assTraced = new LongAdder();
     /**
      * Amount of threads to use fore rendering image by the camera
      */
     private int threadsCount = 0;
+    /**
+     * Amount of the virtual threads which render the tiles, 0 if virtual threads are not used
+     */
+    private int virtualThreads = 0;
+    /**
+     * Width and height in pixels of the image tiles handed out to the rendering threads
+     */
+    private int tileSize = PixelManager.DEFAULT_TILE_SIZE;
     /**
      * Amount of threads to spare for Java VM threads:<br>
      * Spare threads if trying to use all the cores
      */
     private static final int SPARE_THREADS = 2;
+    /**
+     * Default amount of rendering virtual threads per carrier thread - with more virtual threads
+     * than carriers, a carrier released by a blocked virtual thread is taken by another one
+     */
+    private static final int VIRTUAL_THREADS_PER_CARRIER = 2;
+    /**
+     * Side of the square blocks of neighbouring pixels (or samples), whose rays are traced
+     * together by the ray tracers which trace rays in packets
+     */
+    private static final int PACKET_SIDE = 4;
     /**
      * Debug print interval in seconds (for progress percentage)<br>
      * if it is zero - there is no progress output
@@ -59,6 +116,18 @@ public class Camera implements Cloneable {
      * </ul>
      */
     private PixelManager pixelManager;
+    /**
+     * Whether to collect the statistics of the renderings
+     */
+    private boolean collectStats = false;
+    /**
+     * Whether to print the summary of the statistics at the end of every rendering
+     */
+    private boolean printStats = false;
+    /**
+     * Statistics of the last (or current) rendering, null if they are not collected
+     */
+    private RenderStats stats;
 
     /**
      * Default constructor - private for use by Builder only.
@@ -101,28 +170,28 @@ public class Camera implements Cloneable {
     public Ray constructRay(int nX, int nY, int j, int i) {
         double rX = width / nX;
         double rY = height / nY;
-        double xJ = (j - (nX - 1) / 2d) * rX;
-        double yI = -(i - (nY - 1) / 2d) * rY;
-
-        Point pIJ = viewPlanePC;
+        double xJ = alignZero((j - (nX - 1) / 2d) * rX);
+        double yI = alignZero(-(i - (nY - 1) / 2d) * rY);
 
-        if (!isZero(xJ)) {
-            pIJ = pIJ.add(vRight.scale(xJ));
-        }
-        if (!isZero(yI)) {
-            pIJ = pIJ.add(vUp.scale(yI));
-        }
+        // The vector from the camera to the pixel center is calculated on raw coordinates,
+        // only the ray direction itself is created (and normalized by the ray)
+        double x = viewPlanePC.xyz.d1() - p0.xyz.d1() + xJ * vRight.xyz.d1() + yI * vUp.xyz.d1();
+        double y = viewPlanePC.xyz.d2() - p0.xyz.d2() + xJ * vRight.xyz.d2() + yI * vUp.xyz.d2();
+        double z = viewPlanePC.xyz.d3() - p0.xyz.d3() + xJ * vRight.xyz.d3() + yI * vUp.xyz.d3();
         // If the ray is exactly at the camera origin, return the forward direction directly
-        Vector direction;
-        if (pIJ.equals(p0)) {
-            direction = vTo;
-        } else {
-            direction = pIJ.subtract(p0).normalize();
-        }
-        return new Ray(p0, direction);
+        return new Ray(p0, VectorMath.isZeroVector(x, y, z) ? vTo : new Vector(x, y, z));
     }
 
 
+    /**
+     * Returns the primary ray generator of the camera
+     *
+     * @return the ray generator
+     */
+    RayGenerator getRayGenerator() {
+        return rayGenerator;
+    }
+
     /**
      * Computes the 3D center of a pixel on the view plane.
      */
@@ -150,7 +219,7 @@ public class Camera implements Cloneable {
         Vector pixelUp = vUp.scale(height / nY);
 
         // Get all 3D sample points in the pixel
-        List<Point> samplePoints = blackboard.generateSamples3D(pixelCenter, pixelRight, pixelUp);
+        List<Point> samplePoints = blackboard.generateSamples3D(pixelCenter, pixelRight, pixelUp, j, i);
 
         // For each sample point, create a ray from the camera origin (p0) through the sample
         for (Point sample : samplePoints) {
@@ -162,29 +231,106 @@ public class Camera implements Cloneable {
     /**
      * Casts a single ray through a pixel, gets its color and writes it to the image.
      *
-     * @param j column index of the pixel
-     * @param i row index of the pixel
+     * @param j       column index of the pixel
+     * @param i       row index of the pixel
+     * @param lattice the sample cache of the pixel's tile for adaptive super sampling
+     * @param beam    the beam ray buffers of the rendering thread for super-sampling
      */
-    private void castRay(int j, int i) {
+    private void castRay(int j, int i, SampleLattice lattice, RayGenerator.Beam beam) {
         Color color;
-        if (useAdaptiveSuperSampling) {
-            Point pixelCenter = getPixelCenter(nX, nY, j, i);
-            Vector pixelRight = vRight.scale(width / nX);
-            Vector pixelUp = vUp.scale(height / nY);
-            color = adaptiveSuperSample(pixelCenter, pixelRight, pixelUp, 0, assMaxDepth, assTolerance);
-        } else if (blackboard.isEnabled()) {
-            List<Ray> rays = constructBeamRays(nX, nY, j, i);
-            color = Color.BLACK;
-            for (Ray ray : rays) {
-                color = color.add(rayTracer.traceRay(ray));
+        if (gBuffer != null) {
+            int pixel = gBuffer.pixel(j, i);
+            if (!refining) {
+                if (stats != null) stats.countRays(RenderStats.RayType.PRIMARY, 1);
+                color = rayTracer.traceRay(rayGenerator.centerRay(j, i), gBuffer, pixel);
             }
-            color = color.scale(1.0 / rays.size());
+            else if (gBuffer.isEdge(pixel))
+                color = superSample(j, i, beam);
+            else
+                return; // smooth pixels keep the color of the first pass
+        } else if (useAdaptiveSuperSampling) {
+            int scale = 1 << assMaxDepth;
+            color = adaptiveSuperSample((long) j * scale, (long) i * scale, scale, lattice);
+        } else if (blackboard.isEnabled()) {
+            color = superSample(j, i, beam);
         } else {
-            Ray ray = constructRay(nX, nY, j, i);
-            color = rayTracer.traceRay(ray);
+            if (stats != null) stats.countRays(RenderStats.RayType.PRIMARY, 1);
+            color = rayTracer.traceRay(rayGenerator.centerRay(j, i));
         }
         imageWriter.writePixel(j, i, color);
-        pixelManager.pixelDone();
+    }
+
+    /**
+     * Casts the beam rays of the blackboard through a pixel and averages their colors.
+     *
+     * @param j    column index of the pixel
+     * @param i    row index of the pixel
+     * @param beam the beam ray buffers of the rendering thread
+     * @return the average color
+     */
+    private Color superSample(int j, int i, RayGenerator.Beam beam) {
+        int count = rayGenerator.beam(j, i, beam);
+        for (int k = 0; k < count; ++k) beam.rays[k] = rayGenerator.beamRay(beam, k);
+        traceRays(beam.rays, count, beam.colors);
+        Color color = Color.BLACK;
+        for (int k = 0; k < count; ++k) {
+            color = color.add(beam.colors[k]);
+        }
+        return color.scale(1.0 / count);
+    }
+
+    /**
+     * Traces primary rays by the ray tracer, and counts them in the rendering statistics.
+     *
+     * @param rays   the rays to trace
+     * @param count  the amount of rays to trace from the beginning of the array
+     * @param colors the array receiving the color of each ray
+     */
+    private void traceRays(Ray[] rays, int count, Color[] colors) {
+        if (stats != null) stats.countRays(RenderStats.RayType.PRIMARY, count);
+        rayTracer.traceRays(rays, count, colors);
+    }
+
+    /**
+     * Casts the rays of all the pixels of a tile and reports them as done. The statistics of
+     * the rendering, if they are collected, are bound to the thread while it renders the tile.
+     *
+     * @param tile the tile
+     */
+    private void renderTile(PixelManager.Tile tile) {
+        RenderStats.run(stats, () -> traceTile(tile));
+    }
+
+    /**
+     * Casts the rays of all the pixels of a tile and reports them as done.
+     *
+     * @param tile the tile
+     */
+    private void traceTile(PixelManager.Tile tile) {
+        long start = stats == null ? 0 : System.nanoTime();
+        SampleLattice lattice = useAdaptiveSuperSampling ? new SampleLattice(tile, 1 << assMaxDepth) : null;
+        RayGenerator.Beam beam = blackboard.isEnabled() ? rayGenerator.newBeam() : null;
+        if (lattice == null && beam == null && gBuffer == null) {
+            // one ray per pixel - the rays of the whole tile are traced together, block by block
+            int[] cols = new int[tile.size()], rows = new int[tile.size()];
+            int count = blockOrder(tile.col0(), tile.row0(), tile.col1(), tile.row1(), cols, rows);
+            Ray[] rays = new Ray[count];
+            Color[] colors = new Color[count];
+            for (int k = 0; k < count; ++k) rays[k] = rayGenerator.centerRay(cols[k], rows[k]);
+            traceRays(rays, count, colors);
+            for (int k = 0; k < count; ++k) imageWriter.writePixel(cols[k], rows[k], colors[k]);
+        } else {
+            if (lattice != null) traceLatticeCorners(tile, lattice);
+            for (int i = tile.row0(); i < tile.row1(); ++i)
+                for (int j = tile.col0(); j < tile.col1(); ++j)
+                    castRay(j, i, lattice, beam);
+        }
+        if (lattice != null) {
+            assRequests.add(lattice.requests());
+            assTraced.add(lattice.traced());
+        }
+        if (stats != null) stats.tileDone(tile.size(), System.nanoTime() - start);
+        pixelManager.pixelsDone(tile.size());
     }
 
     /**
@@ -194,7 +340,50 @@ public class Camera implements Cloneable {
      * @return the camera object itself
      */
     public Camera renderImage() {
-        pixelManager = new PixelManager(nY, nX, printInterval);
+        assRequests.reset();
+        assTraced.reset();
+        if (!collectStats) {
+            stats = null;
+            return render();
+        }
+
+        // the statistics are bound to the rendering threads tile by tile (see renderTile)
+        stats = new RenderStats((useEdgeAntiAliasing ? 2L : 1L) * nX * nY);
+        try {
+            return render();
+        } finally {
+            stats.finish();
+            if (printStats) System.out.print(stats);
+        }
+    }
+
+    /**
+     * Renders the image by one rendering pass, or by two passes for edge anti-aliasing
+     *
+     * @return the camera object itself
+     */
+    private Camera render() {
+        if (!useEdgeAntiAliasing) return renderPass();
+
+        // First pass - a ray per pixel, then the blackboard beams only where edges are found
+        gBuffer = new GBuffer(nX, nY);
+        renderPass();
+        edgePixels = gBuffer.detectEdges(edgeTolerance);
+        refining = true;
+        renderPass();
+        refining = false;
+        gBuffer = null;
+        return this;
+    }
+
+    /**
+     * Renders all the pixels of the image once, by the chosen multi-threading mode
+     *
+     * @return the camera object itself
+     */
+    private Camera renderPass() {
+        pixelManager = new PixelManager(nY, nX, tileSize, printInterval);
+        if (virtualThreads > 0) return renderImageVirtualThreads();
         return switch (threadsCount) {
             case 0 -> renderImageNoThreads();
             case -1 -> renderImageStream();
@@ -239,6 +428,42 @@ public class Camera implements Cloneable {
         return this;
     }
 
+    /**
+     * Writes the image to disk in a given format.
+     *
+     * @param filename name of the image file (without extension)
+     * @param format   the file format
+     * @return this camera instance
+     */
+    public Camera writeToImage(String filename, ImageFormat format) {
+        imageWriter.writeToImage(filename, format);
+        return this;
+    }
+
+    /**
+     * Writes the image into a file in a given format.
+     *
+     * @param file   path of the image file
+     * @param format the file format
+     * @return this camera instance
+     */
+    public Camera writeToImage(Path file, ImageFormat format) {
+        imageWriter.writeToImage(file, format);
+        return this;
+    }
+
+    /**
+     * Writes the image into a stream in a given format (the stream is not closed).
+     *
+     * @param out    the stream
+     * @param format the image format
+     * @return this camera instance
+     */
+    public Camera writeToImage(OutputStream out, ImageFormat format) {
+        imageWriter.writeToImage(out, format);
+        return this;
+    }
+
 
     /**
      * Clones the current Camera object.
@@ -251,6 +476,9 @@ public class Camera implements Cloneable {
     public Camera clone() {
         try {
             Camera clone = (Camera) super.clone();
+            // every camera counts its own rendering statistics
+            clone.assRequests = new LongAdder();
+            clone.assTraced = new LongAdder();
             return clone;
         } catch (CloneNotSupportedException e) {
             throw new AssertionError();
@@ -259,54 +487,184 @@ public class Camera implements Cloneable {
 
     /**
      * Adaptive Super Sampling for a single pixel.
-     * Recursively subdivides the pixel and samples only where needed.
-     *
-     * @param center    The 3D center of the pixel/sub-pixel
-     * @param right     The right vector (scaled to sub-pixel width)
-     * @param up        The up vector (scaled to sub-pixel height)
-     * @param depth     Current recursion depth
-     * @param maxDepth  Max recursion depth (settable from test)
-     * @param tolerance Color difference threshold (settable from test)
+     * Recursively subdivides the pixel and samples only where needed.<br>
+     * The pixel and its sub-pixels are given on the sample lattice, which divides every pixel
+     * into 2<sup>max depth</sup> cells along each side; the lattice rows go down the image
+     * like the pixel rows. The corner samples are shared by the sub-pixels and the neighbouring
+     * pixels, so they are traced once and kept in the tile's lattice cache.
+     *
+     * @param x       lattice column of the top-left corner of the pixel/sub-pixel
+     * @param y       lattice row of the top-left corner of the pixel/sub-pixel
+     * @param size    side of the pixel/sub-pixel in lattice cells (1 at the max depth)
+     * @param lattice the sample cache of the tile
      * @return The averaged color for the pixel/sub-pixel
      */
-    private Color adaptiveSuperSample(Point center, Vector right, Vector up, int depth, int maxDepth, double tolerance) {
-        // Sample 4 corners and the center
-        Point[] points = {
-                center.add(right.scale(-0.5)).add(up.scale(-0.5)), // bottom-left
-                center.add(right.scale(0.5)).add(up.scale(-0.5)),  // bottom-right
-                center.add(right.scale(-0.5)).add(up.scale(0.5)),  // top-left
-                center.add(right.scale(0.5)).add(up.scale(0.5))    // top-right
-        };
-
-        Color[] colors = new Color[4];
-        for (int i = 0; i < 4; i++) {
-            Ray ray = new Ray(p0, points[i].subtract(p0));
-            colors[i] = rayTracer.traceRay(ray);
-        }
+    private Color adaptiveSuperSample(long x, long y, int size, SampleLattice lattice) {
+        // Sample 4 corners: bottom-left, bottom-right, top-left, top-right
+        Color[] colors = latticeSamples(new long[]{x, x + size, x, x + size},
+                new long[]{y + size, y + size, y, y}, lattice);
 
         // If all corner colors are "similar" (within tolerance) or we've reached the maximum recursion depth,
         // return the average color for this region.
-        if (isUniform(colors, tolerance) || depth >= maxDepth) {
+        if (size == 1 || isUniform(colors, assTolerance)) {
             return average(colors);
         }
 
         // Otherwise, subdivide the region into 4 sub-quadrants and recursively sample each.
-        Color[] subColors = new Color[4];
-        Vector halfRight = right.scale(0.5);
-        Vector halfUp = up.scale(0.5);
-        // Centers of 4 sub-pixels (quarter pixels)
-        Point[] subCenters = {
-                center.add(right.scale(-0.25)).add(up.scale(-0.25)), // bottom-left
-                center.add(right.scale(0.25)).add(up.scale(-0.25)),  // bottom-right
-                center.add(right.scale(-0.25)).add(up.scale(0.25)),  // top-left
-                center.add(right.scale(0.25)).add(up.scale(0.25))    // top-right
+        int half = size / 2;
+        Color[] subColors = {
+                adaptiveSuperSample(x, y + half, half, lattice),        // bottom-left
+                adaptiveSuperSample(x + half, y + half, half, lattice), // bottom-right
+                adaptiveSuperSample(x, y, half, lattice),               // top-left
+                adaptiveSuperSample(x + half, y, half, lattice)         // top-right
         };
-        for (int i = 0; i < 4; i++) {
-            subColors[i] = adaptiveSuperSample(subCenters[i], halfRight, halfUp, depth + 1, maxDepth, tolerance);
-        }
         return average(subColors);
     }
 
+    /**
+     * Traces the pixel corners of a tile into its sample lattice - they are sampled by adaptive
+     * super sampling of every pixel, so they are traced in advance, in square blocks of
+     * neighbouring rays which are traced together.
+     *
+     * @param tile    the tile
+     * @param lattice the empty sample cache of the tile
+     */
+    private void traceLatticeCorners(PixelManager.Tile tile, SampleLattice lattice) {
+        int scale = 1 << assMaxDepth;
+        int size = (tile.col1() - tile.col0() + 1) * (tile.row1() - tile.row0() + 1);
+        int[] cols = new int[size], rows = new int[size];
+        int count = blockOrder(tile.col0(), tile.row0(), tile.col1() + 1, tile.row1() + 1, cols, rows);
+        Ray[] rays = new Ray[count];
+        Color[] colors = new Color[count];
+        for (int k = 0; k < count; ++k) rays[k] = latticeRay((long) cols[k] * scale, (long) rows[k] * scale);
+        traceRays(rays, count, colors);
+        for (int k = 0; k < count; ++k) lattice.put((long) cols[k] * scale, (long) rows[k] * scale, colors[k]);
+    }
+
+    /**
+     * Lists the points of a rectangle of pixels (or of pixel corners) in square blocks of
+     * neighbouring points, so that the rays through the points of a block are traced together
+     *
+     * @param col0 first column of the rectangle
+     * @param row0 first row of the rectangle
+     * @param col1 column after the last one of the rectangle
+     * @param row1 row after the last one of the rectangle
+     * @param cols the array receiving the columns of the points
+     * @param rows the array receiving the rows of the points
+     * @return the amount of points
+     */
+    private static int blockOrder(int col0, int row0, int col1, int row1, int[] cols, int[] rows) {
+        int count = 0;
+        for (int i0 = row0; i0 < row1; i0 += PACKET_SIDE)
+            for (int j0 = col0; j0 < col1; j0 += PACKET_SIDE)
+                for (int i = i0; i < Math.min(i0 + PACKET_SIDE, row1); ++i)
+                    for (int j = j0; j < Math.min(j0 + PACKET_SIDE, col1); ++j) {
+                        cols[count] = j;
+                        rows[count++] = i;
+                    }
+        return count;
+    }
+
+    /**
+     * Returns the colors of points of the sample lattice of adaptive super sampling.
+     * The points which are not cached yet are traced together and cached.
+     *
+     * @param xs      lattice columns of the points
+     * @param ys      lattice rows of the points
+     * @param lattice the sample cache of the tile
+     * @return the colors of the samples
+     */
+    private Color[] latticeSamples(long[] xs, long[] ys, SampleLattice lattice) {
+        int n = xs.length;
+        Color[] colors = new Color[n];
+        Ray[] rays = new Ray[n];
+        int[] missing = new int[n];
+        int count = 0;
+        for (int c = 0; c < n; ++c) {
+            colors[c] = lattice.get(xs[c], ys[c]);
+            if (colors[c] == null) {
+                rays[count] = latticeRay(xs[c], ys[c]);
+                missing[count++] = c;
+            }
+        }
+        if (count == 0) return colors;
+
+        Color[] traced = new Color[count];
+        traceRays(rays, count, traced);
+        for (int k = 0; k < count; ++k) {
+            int c = missing[k];
+            colors[c] = traced[k];
+            lattice.put(xs[c], ys[c], traced[k]);
+        }
+        return colors;
+    }
+
+    /**
+     * Constructs the ray through a point of the sample lattice of adaptive super sampling
+     *
+     * @param x lattice column
+     * @param y lattice row
+     * @return the ray
+     */
+    private Ray latticeRay(long x, long y) {
+        double scale = 1 << assMaxDepth;
+        double xJ = (x / scale - nX / 2d) * (width / nX);
+        double yI = -(y / scale - nY / 2d) * (height / nY);
+        // The vector from the camera to the sample is calculated on raw coordinates, as in constructRay
+        double dx = viewPlanePC.xyz.d1() - p0.xyz.d1() + xJ * vRight.xyz.d1() + yI * vUp.xyz.d1();
+        double dy = viewPlanePC.xyz.d2() - p0.xyz.d2() + xJ * vRight.xyz.d2() + yI * vUp.xyz.d2();
+        double dz = viewPlanePC.xyz.d3() - p0.xyz.d3() + xJ * vRight.xyz.d3() + yI * vUp.xyz.d3();
+        return new Ray(p0, new Vector(dx, dy, dz));
+    }
+
+    /**
+     * Returns the statistics of adaptive super sampling in the last rendering - the
+     * amount of samples requested by the recursion, the amount of distinct samples which
+     * were traced, and the ratio between them (the average reuse of a traced sample)
+     *
+     * @return statistics summary
+     */
+    public String getAssStatistics() {
+        long requests = assRequests.sum();
+        long traced = assTraced.sum();
+        return String.format("ASS: %,d samples requested, %,d traced, reuse ratio %.2f",
+                requests, traced, traced == 0 ? 0d : (double) requests / traced);
+    }
+
+    /**
+     * Returns the build and traversal statistics of the bounding volume hierarchy of the
+     * rendered scene - the traversals are counted only while rendering with statistics
+     * (see {@link Builder#setRenderStats(boolean)})
+     *
+     * @return statistics summary, or {@code null} if the scene has no hierarchy
+     */
+    public String getBVHStatistics() {
+        return rayTracer.getBVHStatistics();
+    }
+
+    /**
+     * Returns the statistics of edge anti-aliasing in the last rendering - the amount of
+     * edge pixels which were re-rendered by the blackboard beams
+     *
+     * @return statistics summary
+     */
+    public String getEdgeStatistics() {
+        long pixels = (long) nX * nY;
+        return String.format("Edge AA: %,d of %,d pixels (%.1f%%) re-rendered",
+                edgePixels, pixels, 100d * edgePixels / pixels);
+    }
+
+    /**
+     * Returns the statistics of the last rendering (or of the current one, while rendering) -
+     * the traced rays, the intersection tests and the time of the rendering threads
+     *
+     * @return the statistics, or null if they are not collected
+     * (see {@link Builder#setRenderStats(boolean)})
+     */
+    public RenderStats getRenderStats() {
+        return stats;
+    }
+
     /**
      * Checks if all colors in the array are within the given tolerance.
      * <p>
@@ -339,14 +697,13 @@ public class Camera implements Cloneable {
     }
 
     /**
-     * Render image using multi-threading by parallel streaming
+     * Render image using multi-threading by parallel streaming of the image tiles
      *
      * @return the camera object itself
      */
     private Camera renderImageStream() {
-        IntStream.range(0, nY).parallel()
-                .forEach(i -> IntStream.range(0, nX).parallel()
-                        .forEach(j -> castRay(j, i)));
+        IntStream.range(0, pixelManager.tiles()).parallel()
+                .forEach(t -> renderTile(pixelManager.tile(t)));
         return this;
     }
 
@@ -356,24 +713,24 @@ public class Camera implements Cloneable {
      * @return the camera object itself
      */
     private Camera renderImageNoThreads() {
-        for (int i = 0; i < nY; ++i)
-            for (int j = 0; j < nX; ++j)
-                castRay(j, i);
+        for (int t = 0; t < pixelManager.tiles(); ++t)
+            renderTile(pixelManager.tile(t));
         return this;
     }
 
     /**
-     * Render image using multi-threading by creating and running raw threads
+     * Render image using multi-threading by creating and running raw threads,
+     * each of them takes the next free tile until the image is done
      *
      * @return the camera object itself
      */
     private Camera renderImageRawThreads() {
         var threads = new LinkedList<Thread>();
-        while (threadsCount-- > 0)
+        for (int count = threadsCount; count > 0; --count)
             threads.add(new Thread(() -> {
-                PixelManager.Pixel pixel;
-                while ((pixel = pixelManager.nextPixel()) != null)
-                    castRay(pixel.col(), pixel.row());
+                PixelManager.Tile tile;
+                while ((tile = pixelManager.nextTile()) != null)
+                    renderTile(tile);
             }));
         for (var thread : threads) thread.start();
         try {
@@ -383,12 +740,53 @@ public class Camera implements Cloneable {
         return this;
     }
 
+    /**
+     * Render image using virtual threads, each of them takes the next free tile until
+     * the image is done. The virtual threads run on the carrier threads of the virtual
+     * thread scheduler, whose amount is bounded by the {@code jdk.virtualThreadScheduler.parallelism}
+     * system property (the number of logical processors by default). There are more virtual
+     * threads than carriers by default, so a blocked virtual thread (e.g. by output or texture
+     * loading) releases its carrier thread for another one. The threads live for the whole
+     * rendering, so their scratch buffers are reused for all their tiles.
+     *
+     * @return the camera object itself
+     */
+    private Camera renderImageVirtualThreads() {
+        // the threads are named, so their busy time is counted separately in the statistics
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("render-", 0).factory())) {
+            for (int count = virtualThreads; count > 0; --count)
+                executor.execute(() -> {
+                    PixelManager.Tile tile;
+                    while ((tile = pixelManager.nextTile()) != null)
+                        renderTile(tile);
+                });
+        } // closing the executor waits for all the threads
+        return this;
+    }
+
     /**
      * Builder class for {@link Camera}. Follows the Builder design pattern.
      * Allows step-by-step construction of a Camera object with flexible configuration.
      */
     public static class Builder { // this is the way for internal class
         private final Camera camera = new Camera();
+        /**
+         * The scene to render, compiled when a camera is built
+         */
+        private Scene scene = null;
+        /**
+         * The type of the ray tracer, created when a camera is built
+         */
+        private RayTracerType rayTracerType = RayTracerType.SIMPLE;
+        /**
+         * Whether to build a bounding volume hierarchy over the scene geometries
+         */
+        private boolean bvh = false;
+        /**
+         * Whether to check bounding boxes before intersecting geometries (CBR)
+         */
+        private boolean cbr = false;
 
         /**
          * Default constructor for the {@link Builder} class.
@@ -503,18 +901,56 @@ public class Camera implements Cloneable {
         }
 
         /**
-         * Sets the ray tracer for the camera.
+         * Sets the ray tracer for the camera. The ray tracer is created and the scene is compiled
+         * when the camera is built.
          *
          * @param scene the scene to trace
          * @param type  the type of the ray tracer
          * @return this builder
          */
         public Builder setRayTracer(Scene scene, RayTracerType type) {
-            if (type == RayTracerType.SIMPLE) {
-                camera.rayTracer = new SimpleRayTracer(scene);
-            } else {
-                camera.rayTracer = null;
-            }
+            this.scene = scene;
+            rayTracerType = type;
+            return this;
+        }
+
+        /**
+         * Creates the ray tracer of a built camera
+         *
+         * @param scene the compiled scene, {@code null} for an empty scene
+         * @return the ray tracer
+         */
+        private RayTracerBase createRayTracer(RenderScene scene) {
+            return switch (rayTracerType) {
+                case SIMPLE -> new SimpleRayTracer(scene);
+                case GRID -> new GridRayTracer(scene);
+                case PACKET -> new PacketRayTracer(scene);
+                case WAVEFRONT -> new WavefrontRayTracer(scene);
+            };
+        }
+
+        /**
+         * Enables the bounding volume hierarchy (BVH) acceleration: the hierarchy is built over
+         * the scene geometries when the camera is built (as the scene is compiled, see
+         * {@link scene.Scene#compile(boolean)}), so the scene must be complete by then
+         *
+         * @return this builder
+         */
+        public Builder enableBVH() {
+            bvh = true;
+            return this;
+        }
+
+        /**
+         * Enables the conservative bounding region (CBR) check: a ray is intersected with
+         * a geometry or a collection of geometries only if it passes through its bounding box.
+         * The check is turned on for the geometries of the scene compiled for the built camera
+         * only (see {@link Scene#compile(boolean, boolean)}), so other cameras are not affected.
+         *
+         * @return this builder
+         */
+        public Builder enableCBR() {
+            cbr = true;
             return this;
         }
 
@@ -529,6 +965,35 @@ public class Camera implements Cloneable {
             return this;
         }
 
+        /**
+         * Enables or disables edge anti-aliasing for this camera - the image is rendered
+         * by a ray per pixel first, and only the pixels on edges (between different
+         * geometries or faces, at depth jumps, or at color contrast above the edge
+         * tolerance) are rendered again by the beams of the blackboard.
+         *
+         * @param useEdgeAntiAliasing true to enable edge anti-aliasing, false to disable
+         * @return this builder instance (for method chaining)
+         */
+        public Builder setUseEdgeAntiAliasing(boolean useEdgeAntiAliasing) {
+            camera.useEdgeAntiAliasing = useEdgeAntiAliasing;
+            return this;
+        }
+
+        /**
+         * Sets the color difference tolerance of edge anti-aliasing - neighbouring pixels
+         * of the same geometry whose colors differ more are anti-aliased.
+         *
+         * @param edgeTolerance maximal color distance inside a smooth area (must be >= 0)
+         * @return this builder instance (for method chaining)
+         * @throws IllegalArgumentException if edgeTolerance is negative
+         */
+        public Builder setEdgeTolerance(double edgeTolerance) {
+            if (edgeTolerance < 0)
+                throw new IllegalArgumentException("Tolerance must be non-negative");
+            camera.edgeTolerance = edgeTolerance;
+            return this;
+        }
+
         /**
          * Enables or disables adaptive super sampling for this camera.
          *
@@ -589,10 +1054,48 @@ public class Camera implements Cloneable {
                 camera.threadsCount = cores <= 2 ? 1 : cores;
             } else
                 camera.threadsCount = threads;
+            camera.virtualThreads = 0;
+            return this;
+        }
+
+        /**
+         * Set multi-threading by virtual threads - the given amount of virtual threads
+         * render the tiles of the image, instead of {@link #setMultithreading(int)} threads.
+         * The virtual threads run on the carrier threads of the virtual thread scheduler: the
+         * amount of the tiles traced at the same time is bounded by the amount of the carriers,
+         * which is set by the {@code jdk.virtualThreadScheduler.parallelism} system property
+         * when the JVM is started (the number of logical processors by default). Only virtual
+         * threads beyond the carriers may use the carrier of a blocked one.
+         *
+         * @param threads amount of the rendering virtual threads, 0 for twice the amount of
+         *                the carrier threads
+         * @return builder object itself
+         * @throws IllegalArgumentException if the amount of threads is negative
+         */
+        public Builder setVirtualThreads(int threads) {
+            if (threads < 0) throw new IllegalArgumentException("Amount of virtual threads must be non-negative");
+            camera.virtualThreads = threads > 0 ? threads : VIRTUAL_THREADS_PER_CARRIER
+                    * Integer.getInteger("jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+            camera.threadsCount = 0;
             return this;
         }
 
 
+        /**
+         * Set the size of the square tiles of pixels which are handed out to the
+         * rendering threads. Larger tiles mean less scheduling, smaller tiles balance
+         * the load better between the threads.
+         *
+         * @param size width and height of a tile in pixels
+         * @return builder object itself
+         * @throws IllegalArgumentException if the size is not positive
+         */
+        public Builder setTileSize(int size) {
+            if (size <= 0) throw new IllegalArgumentException("Tile size must be positive");
+            camera.tileSize = size;
+            return this;
+        }
+
         /**
          * Set debug printing interval. If it's zero - there won't be printing at all
          *
@@ -605,10 +1108,38 @@ public class Camera implements Cloneable {
             return this;
         }
 
+        /**
+         * Set collecting the statistics of the renderings (see {@link Camera#getRenderStats()}).
+         * The counting costs some rendering time, so it is off by default.
+         *
+         * @param collect whether to collect the statistics
+         * @return builder object itself
+         */
+        public Builder setRenderStats(boolean collect) {
+            camera.collectStats = collect;
+            if (!collect) camera.printStats = false;
+            return this;
+        }
+
+        /**
+         * Set printing the summary of the statistics at the end of every rendering
+         * (the statistics are collected if they are printed)
+         *
+         * @param print whether to print the statistics
+         * @return builder object itself
+         */
+        public Builder setPrintRenderStats(boolean print) {
+            camera.printStats = print;
+            if (print) camera.collectStats = true;
+            return this;
+        }
+
 
         /**
          * Finalizes the building of the {@link Camera} object.
-         * Verifies that all required components are set and valid.
+         * Verifies that all required components are set and valid, and compiles the scene for
+         * the ray tracer of the camera - later changes of the scene are not rendered by the
+         * camera, and cameras built before are not affected.
          *
          * @return a cloned and fully initialized {@code Camera} object
          * @throws MissingResourceException if required fields are missing
@@ -641,14 +1172,19 @@ public class Camera implements Cloneable {
                 throw new IllegalArgumentException("ASS maxDepth must be non-negative");
             if (camera.assTolerance < 0)
                 throw new IllegalArgumentException("ASS tolerance must be non-negative");
+            if (camera.useEdgeAntiAliasing && !camera.blackboard.isEnabled())
+                throw new IllegalArgumentException("Edge anti-aliasing requires a blackboard");
+            if (camera.useEdgeAntiAliasing && camera.useAdaptiveSuperSampling)
+                throw new IllegalArgumentException("Edge anti-aliasing and adaptive super sampling are exclusive");
 
             camera.imageWriter = new ImageWriter(camera.nX, camera.nY);
 
-            if (camera.rayTracer == null) {
-                camera.rayTracer = new SimpleRayTracer(null); // default to empty scene
-            }
+            // every camera gets its own ray tracer of the scene compiled once, here
+            camera.rayTracer = createRayTracer(scene == null ? null : scene.compile(bvh, cbr));
             camera.vRight = camera.vTo.crossProduct(camera.vUp).normalize();
             camera.viewPlanePC = camera.p0.add(camera.vTo.scale(camera.distance));
+            camera.rayGenerator = new RayGenerator(camera.p0, camera.viewPlanePC, camera.vRight, camera.vUp,
+                    camera.width, camera.height, camera.nX, camera.nY, camera.blackboard);
             return (Camera) camera.clone(); // Cloneable – get a full shadow copy
         }
     }
@@ -0,0 +1,150 @@
+package renderer;
+
+import geometries.Geometry;
+import primitives.Color;
+
+import static primitives.Color.colorDistance;
+
+/**
+ * Geometry buffer of a rendered image - for every pixel it keeps what the ray through
+ * the pixel center hit first (the primitive and its depth) and the traced color.<br>
+ * It is used for finding the edges of the image (silhouettes, creases between faces,
+ * shadow and color borders), where anti-aliasing is needed. Every pixel is written by
+ * a single thread.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+final class GBuffer {
+    /**
+     * Relative difference of the depths of neighbouring pixels which makes an edge
+     */
+    private static final double EDGE_DEPTH_RATIO = 0.1;
+
+    /**
+     * Amount of pixel columns
+     */
+    private final int nX;
+    /**
+     * Amount of pixel rows
+     */
+    private final int nY;
+    /**
+     * Hit geometry per pixel, {@code null} if the ray missed the scene
+     */
+    private final Geometry[] geometries;
+    /**
+     * Hit part of the geometry per pixel (e.g. a mesh face)
+     */
+    private final int[] parts;
+    /**
+     * Distance from the camera to the hit per pixel
+     */
+    private final double[] depths;
+    /**
+     * Traced color per pixel
+     */
+    private final Color[] colors;
+    /**
+     * Edge flags per pixel
+     */
+    private final boolean[] edges;
+
+    /**
+     * Constructs an empty buffer
+     *
+     * @param nX amount of pixel columns
+     * @param nY amount of pixel rows
+     */
+    GBuffer(int nX, int nY) {
+        this.nX = nX;
+        this.nY = nY;
+        int size = nX * nY;
+        geometries = new Geometry[size];
+        parts = new int[size];
+        depths = new double[size];
+        colors = new Color[size];
+        edges = new boolean[size];
+    }
+
+    /**
+     * Returns the index of a pixel in the buffer
+     *
+     * @param j column index of the pixel
+     * @param i row index of the pixel
+     * @return the index
+     */
+    int pixel(int j, int i) {
+        return i * nX + j;
+    }
+
+    /**
+     * Records the first hit of a pixel
+     *
+     * @param pixel    the pixel index
+     * @param geometry the hit geometry, {@code null} for a miss
+     * @param part     the hit part of the geometry
+     * @param depth    the distance to the hit
+     */
+    void setHit(int pixel, Geometry geometry, int part, double depth) {
+        geometries[pixel] = geometry;
+        parts[pixel] = part;
+        depths[pixel] = depth;
+    }
+
+    /**
+     * Records the traced color of a pixel
+     *
+     * @param pixel the pixel index
+     * @param color the color
+     */
+    void setColor(int pixel, Color color) {
+        colors[pixel] = color;
+    }
+
+    /**
+     * Checks whether a pixel has been marked as an edge
+     *
+     * @param pixel the pixel index
+     * @return true if the pixel is on an edge
+     */
+    boolean isEdge(int pixel) {
+        return edges[pixel];
+    }
+
+    /**
+     * Marks the edge pixels - a pair of neighbouring pixels is an edge if they hit
+     * different primitives, their depths differ much, or their colors differ more
+     * than the tolerance. Both pixels of the pair are marked.
+     *
+     * @param tolerance maximal color distance of neighbouring pixels inside a smooth area
+     * @return the amount of edge pixels
+     */
+    int detectEdges(double tolerance) {
+        for (int i = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j) {
+                int p = pixel(j, i);
+                if (j + 1 < nX && isEdge(p, p + 1, tolerance)) edges[p] = edges[p + 1] = true;
+                if (i + 1 < nY && isEdge(p, p + nX, tolerance)) edges[p] = edges[p + nX] = true;
+            }
+        int count = 0;
+        for (boolean edge : edges)
+            if (edge) ++count;
+        return count;
+    }
+
+    /**
+     * Checks whether there is an edge between two pixels
+     *
+     * @param p1        the first pixel index
+     * @param p2        the second pixel index
+     * @param tolerance maximal color distance inside a smooth area
+     * @return true if there is an edge
+     */
+    private boolean isEdge(int p1, int p2, double tolerance) {
+        if (geometries[p1] != geometries[p2]) return true;
+        if (geometries[p1] != null
+                && Math.abs(depths[p1] - depths[p2]) > EDGE_DEPTH_RATIO * Math.min(depths[p1], depths[p2]))
+            return true;
+        return colorDistance(colors[p1], colors[p2]) > tolerance;
+    }
+}
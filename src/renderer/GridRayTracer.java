@@ -0,0 +1,491 @@
+package renderer;
+
+import geometries.BoundingBox;
+import geometries.HitBuffer;
+import geometries.Intersectable;
+import geometries.Intersectable.Intersection;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+import scene.RenderScene;
+import scene.Scene;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ray tracer accelerated by a regular (uniform) grid.
+ * <p>
+ * The bounded scene geometries are voxelized into a regular 3D grid of cells - each geometry
+ * is registered in all the cells overlapped by its bounding box. A ray walks through the cells
+ * it pierces with the 3D-DDA algorithm (Amanatides &amp; Woo) and tests only the geometries
+ * registered there. The walk stops at the first cell which contains a confirmed hit, i.e. a hit
+ * that is not farther than the cell exit. Every geometry is tested at most once per ray
+ * (mailboxing). Unbounded geometries (planes, tubes) are kept out of the grid and tested for
+ * every ray.
+ * <p>
+ * The grid is built lazily on the first traced ray, over the primitives of the compiled scene.
+ * The lighting model is the one of {@link SimpleRayTracer}.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+public class GridRayTracer extends SimpleRayTracer {
+    /**
+     * Desired average amount of cells per bounded geometry
+     */
+    private static final double CELLS_PER_GEOMETRY = 2.0;
+    /**
+     * Maximal amount of cells along a single axis
+     */
+    private static final int MAX_AXIS_CELLS = 1024;
+
+    /**
+     * The grid (built on the first traced ray)
+     */
+    private volatile Grid grid = null;
+
+    /**
+     * Constructor for GridRayTracer.
+     *
+     * @param scene the scene to trace rays in
+     */
+    public GridRayTracer(Scene scene) {
+        super(scene);
+    }
+
+    /**
+     * Constructor for GridRayTracer of a compiled scene.
+     *
+     * @param scene the compiled scene to trace rays in
+     */
+    public GridRayTracer(RenderScene scene) {
+        super(scene);
+    }
+
+    /**
+     * Returns the grid of the scene, building it if needed
+     *
+     * @return the grid
+     */
+    private Grid getGrid() {
+        Grid result = grid;
+        if (result == null) {
+            synchronized (this) {
+                result = grid;
+                if (result == null) grid = result = new Grid(scene.primitives);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersections(Ray ray, double maxDistance) {
+        HitBuffer hits = HitBuffer.get();
+        int mark = hits.size();
+        try {
+            getGrid().traverse(ray, new AllHits(maxDistance, hits));
+            return hits.toList(mark);
+        } finally {
+            hits.truncate(mark);
+        }
+    }
+
+    @Override
+    protected Intersection findClosestIntersection(Ray ray) {
+        ClosestHit query = new ClosestHit();
+        getGrid().traverse(ray, query);
+        return query.closest;
+    }
+
+    @Override
+    protected Double3 calculateTransparency(Ray ray, double maxDistance) {
+        Transparency query = new Transparency(maxDistance);
+        getGrid().traverse(ray, query);
+        return query.ktr;
+    }
+
+    /**
+     * A query performed on the geometries met by a ray walking through the grid
+     */
+    private abstract static class Query {
+        /**
+         * Distance along the ray beyond which no geometry is needed by the query
+         */
+        double maxDistance;
+
+        /**
+         * Constructor of a query
+         *
+         * @param maxDistance initial distance along the ray beyond which no geometry is needed
+         */
+        Query(double maxDistance) {
+            this.maxDistance = maxDistance;
+        }
+
+        /**
+         * Tests a geometry met by the ray
+         *
+         * @param geometry the geometry
+         * @param ray      the ray
+         * @return true if the query is answered and the walk may stop
+         */
+        abstract boolean test(Intersectable geometry, Ray ray);
+    }
+
+    /**
+     * Query of all the intersections up to a distance
+     */
+    private static final class AllHits extends Query {
+        /**
+         * The buffer collecting the found intersections
+         */
+        final HitBuffer hits;
+
+        /**
+         * Constructor of the query
+         *
+         * @param maxDistance the maximal distance of the intersections
+         * @param hits        the buffer collecting the found intersections
+         */
+        AllHits(double maxDistance, HitBuffer hits) {
+            super(maxDistance);
+            this.hits = hits;
+        }
+
+        @Override
+        boolean test(Intersectable geometry, Ray ray) {
+            geometry.calculateIntersections(ray, maxDistance, hits);
+            return false;
+        }
+    }
+
+    /**
+     * Query of the closest intersection - the distance shrinks as closer hits are found
+     */
+    private static final class ClosestHit extends Query {
+        /**
+         * The closest intersection found so far
+         */
+        Intersection closest = null;
+
+        /**
+         * Constructor of the query
+         */
+        ClosestHit() {
+            super(Double.POSITIVE_INFINITY);
+        }
+
+        @Override
+        boolean test(Intersectable geometry, Ray ray) {
+            Intersection hit = geometry.calculateClosestIntersection(ray, maxDistance);
+            if (hit != null) {
+                closest = hit;
+                maxDistance = hit.t;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Any-hit occlusion query - accumulates the transparency and stops at the first opaque occluder
+     */
+    private static final class Transparency extends Query {
+        /**
+         * The accumulated transparency factor
+         */
+        Double3 ktr = Double3.ONE;
+
+        /**
+         * Constructor of the query
+         *
+         * @param maxDistance the maximal distance of the occluders
+         */
+        Transparency(double maxDistance) {
+            super(maxDistance);
+        }
+
+        @Override
+        boolean test(Intersectable geometry, Ray ray) {
+            ktr = ktr.product(geometry.calculateTransparency(ray, maxDistance));
+            if (!Intersectable.isOpaque(ktr)) return false;
+            ktr = Double3.ZERO;
+            return true;
+        }
+    }
+
+    /**
+     * Per-thread mailbox - remembers which geometries were already tested for the current ray
+     */
+    private static final class Mailbox {
+        /**
+         * Id of the last ray that tested each geometry
+         */
+        int[] stamps = new int[0];
+        /**
+         * Id of the current ray
+         */
+        int ray = 0;
+    }
+
+    /**
+     * Mailboxes of the rendering threads
+     */
+    private static final ThreadLocal<Mailbox> MAILBOX = ThreadLocal.withInitial(Mailbox::new);
+
+    /**
+     * Immutable regular grid over bounded geometries, stored in compressed rows:
+     * the geometries of cell c are items[cellStart[c] .. cellStart[c + 1])
+     */
+    private static final class Grid {
+        /**
+         * Geometries registered in the grid
+         */
+        private final Intersectable[] bounded;
+        /**
+         * Geometries without a bounding box - tested for every ray
+         */
+        private final Intersectable[] unbounded;
+        /**
+         * Minimal corner of the grid
+         */
+        private final double x0, y0, z0;
+        /**
+         * Cell sizes along each axis
+         */
+        private final double sx, sy, sz;
+        /**
+         * Amounts of cells along each axis
+         */
+        private final int nx, ny, nz;
+        /**
+         * Index of the first item of each cell (plus one sentinel)
+         */
+        private final int[] cellStart;
+        /**
+         * Geometry indices of all the cells
+         */
+        private final int[] items;
+
+        /**
+         * Voxelizes the geometries
+         *
+         * @param geometries the geometries (without nested collections)
+         */
+        Grid(List<Intersectable> geometries) {
+            List<Intersectable> inGrid = new ArrayList<>();
+            List<Intersectable> outOfGrid = new ArrayList<>();
+            BoundingBox box = null;
+            for (Intersectable geometry : geometries) {
+                BoundingBox b = geometry.getBoundingBox();
+                if (b == null) {
+                    outOfGrid.add(geometry);
+                } else {
+                    inGrid.add(geometry);
+                    box = box == null ? b : box.union(b);
+                }
+            }
+            bounded = inGrid.toArray(new Intersectable[0]);
+            unbounded = outOfGrid.toArray(new Intersectable[0]);
+
+            if (box == null) {
+                x0 = y0 = z0 = 0;
+                sx = sy = sz = 1;
+                nx = ny = nz = 0;
+                cellStart = new int[1];
+                items = new int[0];
+                return;
+            }
+
+            // pad the grid a little so that flat scenes get a non-degenerate extent along every axis
+            double ex = box.maxX - box.minX, ey = box.maxY - box.minY, ez = box.maxZ - box.minZ;
+            double pad = 1e-6 * Math.max(ex, Math.max(ey, ez)) + 1e-9;
+            x0 = box.minX - pad;
+            y0 = box.minY - pad;
+            z0 = box.minZ - pad;
+            ex += 2 * pad;
+            ey += 2 * pad;
+            ez += 2 * pad;
+
+            // cell size is chosen by the measure of the non-degenerate axes only,
+            // so that a nearly flat scene gets a 2D grid rather than a few huge cells
+            double flat = 4 * pad;
+            int dims = 0;
+            double measure = 1;
+            for (double e : new double[]{ex, ey, ez}) {
+                if (e > flat) {
+                    ++dims;
+                    measure *= e;
+                }
+            }
+            double cell = dims == 0 ? 1 : Math.pow(measure / (CELLS_PER_GEOMETRY * bounded.length), 1.0 / dims);
+            nx = axisCells(ex, cell, flat);
+            ny = axisCells(ey, cell, flat);
+            nz = axisCells(ez, cell, flat);
+            sx = ex / nx;
+            sy = ey / ny;
+            sz = ez / nz;
+
+            // two passes - count the items of each cell, then fill them
+            int cells = nx * ny * nz;
+            cellStart = new int[cells + 1];
+            int[][] ranges = new int[bounded.length][];
+            for (int g = 0; g < bounded.length; ++g) {
+                int[] r = ranges[g] = cellRange(bounded[g].getBoundingBox());
+                for (int k = r[4]; k <= r[5]; ++k)
+                    for (int j = r[2]; j <= r[3]; ++j)
+                        for (int i = r[0]; i <= r[1]; ++i)
+                            ++cellStart[cellIndex(i, j, k) + 1];
+            }
+            for (int c = 0; c < cells; ++c) cellStart[c + 1] += cellStart[c];
+            items = new int[cellStart[cells]];
+            int[] fill = new int[cells];
+            for (int g = 0; g < bounded.length; ++g) {
+                int[] r = ranges[g];
+                for (int k = r[4]; k <= r[5]; ++k)
+                    for (int j = r[2]; j <= r[3]; ++j)
+                        for (int i = r[0]; i <= r[1]; ++i) {
+                            int c = cellIndex(i, j, k);
+                            items[cellStart[c] + fill[c]++] = g;
+                        }
+            }
+        }
+
+        /**
+         * Calculates the amount of cells along an axis
+         *
+         * @param extent the grid extent along the axis
+         * @param cell   the desired cell size
+         * @param flat   extent below which the axis is considered degenerate
+         * @return amount of cells
+         */
+        private static int axisCells(double extent, double cell, double flat) {
+            if (extent <= flat) return 1;
+            return (int) Math.max(1, Math.min(MAX_AXIS_CELLS, Math.ceil(extent / cell)));
+        }
+
+        /**
+         * Finds the cells overlapped by a box
+         *
+         * @param b the box
+         * @return minimal and maximal cell indices: {i0, i1, j0, j1, k0, k1}
+         */
+        private int[] cellRange(BoundingBox b) {
+            return new int[]{
+                    clamp((int) ((b.minX - x0) / sx), nx), clamp((int) ((b.maxX - x0) / sx), nx),
+                    clamp((int) ((b.minY - y0) / sy), ny), clamp((int) ((b.maxY - y0) / sy), ny),
+                    clamp((int) ((b.minZ - z0) / sz), nz), clamp((int) ((b.maxZ - z0) / sz), nz)};
+        }
+
+        /**
+         * Clamps a cell index to the grid
+         *
+         * @param i index
+         * @param n amount of cells along the axis
+         * @return the clamped index
+         */
+        private static int clamp(int i, int n) {
+            return i < 0 ? 0 : Math.min(i, n - 1);
+        }
+
+        /**
+         * Calculates the linear index of a cell
+         *
+         * @param i cell index along X
+         * @param j cell index along Y
+         * @param k cell index along Z
+         * @return the linear index
+         */
+        private int cellIndex(int i, int j, int k) {
+            return (k * ny + j) * nx + i;
+        }
+
+        /**
+         * Walks a ray through the grid with 3D-DDA and performs a query on the geometries on its way.
+         * The walk stops when the query is answered or when the next cell lies beyond the query distance.
+         *
+         * @param ray   the ray
+         * @param query the query
+         */
+        void traverse(Ray ray, Query query) {
+            for (Intersectable geometry : unbounded)
+                if (query.test(geometry, ray)) return;
+            if (nx == 0) return;
+
+            Point head = ray.getHead();
+            Vector dir = ray.getDirection();
+            double ox = head.xyz.d1(), oy = head.xyz.d2(), oz = head.xyz.d3();
+            double dx = dir.xyz.d1(), dy = dir.xyz.d2(), dz = dir.xyz.d3();
+
+            // entry into the grid box
+            double tEnter = 0, tExit = Double.POSITIVE_INFINITY;
+            double[] o = {ox, oy, oz}, d = {dx, dy, dz};
+            double[] lo = {x0, y0, z0}, hi = {x0 + sx * nx, y0 + sy * ny, z0 + sz * nz};
+            for (int a = 0; a < 3; ++a) {
+                if (d[a] == 0) {
+                    if (o[a] < lo[a] || o[a] > hi[a]) return;
+                    continue;
+                }
+                double t1 = (lo[a] - o[a]) / d[a], t2 = (hi[a] - o[a]) / d[a];
+                if (t1 > t2) {
+                    double t = t1;
+                    t1 = t2;
+                    t2 = t;
+                }
+                if (t1 > tEnter) tEnter = t1;
+                if (t2 < tExit) tExit = t2;
+            }
+            if (tEnter > tExit || tEnter > query.maxDistance) return;
+
+            // starting cell and DDA parameters
+            int i = clamp((int) ((ox + dx * tEnter - x0) / sx), nx);
+            int j = clamp((int) ((oy + dy * tEnter - y0) / sy), ny);
+            int k = clamp((int) ((oz + dz * tEnter - z0) / sz), nz);
+            int stepX = dx > 0 ? 1 : -1, stepY = dy > 0 ? 1 : -1, stepZ = dz > 0 ? 1 : -1;
+            double deltaX = dx == 0 ? Double.POSITIVE_INFINITY : sx / Math.abs(dx);
+            double deltaY = dy == 0 ? Double.POSITIVE_INFINITY : sy / Math.abs(dy);
+            double deltaZ = dz == 0 ? Double.POSITIVE_INFINITY : sz / Math.abs(dz);
+            double nextX = dx == 0 ? Double.POSITIVE_INFINITY : (x0 + (i + (dx > 0 ? 1 : 0)) * sx - ox) / dx;
+            double nextY = dy == 0 ? Double.POSITIVE_INFINITY : (y0 + (j + (dy > 0 ? 1 : 0)) * sy - oy) / dy;
+            double nextZ = dz == 0 ? Double.POSITIVE_INFINITY : (z0 + (k + (dz > 0 ? 1 : 0)) * sz - oz) / dz;
+
+            Mailbox mailbox = MAILBOX.get();
+            if (mailbox.stamps.length < bounded.length) mailbox.stamps = new int[bounded.length];
+            int[] stamps = mailbox.stamps;
+            int rayId = ++mailbox.ray;
+            if (rayId == 0) { // counter wrap-around - reset the stamps
+                Arrays.fill(stamps, 0);
+                rayId = mailbox.ray = 1;
+            }
+
+            while (true) {
+                int c = cellIndex(i, j, k);
+                for (int n = cellStart[c]; n < cellStart[c + 1]; ++n) {
+                    int g = items[n];
+                    if (stamps[g] == rayId) continue;
+                    stamps[g] = rayId;
+                    if (query.test(bounded[g], ray)) return;
+                }
+
+                // a hit inside the visited cells can't be hidden by anything in the next cells,
+                // and nothing beyond the query distance is needed
+                if (query.maxDistance <= Math.min(nextX, Math.min(nextY, nextZ))) return;
+
+                if (nextX <= nextY && nextX <= nextZ) {
+                    i += stepX;
+                    if (i < 0 || i >= nx) return;
+                    nextX += deltaX;
+                } else if (nextY <= nextZ) {
+                    j += stepY;
+                    if (j < 0 || j >= ny) return;
+                    nextY += deltaY;
+                } else {
+                    k += stepZ;
+                    if (k < 0 || k >= nz) return;
+                    nextZ += deltaZ;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encoder of the pixel color matrix of an image writer into an image file.<br>
+ * The image is encoded in bands of scanlines - every band is converted, filtered and
+ * compressed by its own task, several bands at a time on all the cores, and the encoded
+ * bands are written to the output in order as soon as they are done. So the image is
+ * streamed out, and only the bands in flight are ever held in 8 bits.<br>
+ * PNG bands are compressed as in pigz: every band by its own deflater, primed with the
+ * last 32K of the filtered data before it, and flushed to a byte boundary, so the
+ * compressed bands join into a single deflate stream.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+final class ImageEncoder {
+    /**
+     * Approximate amount of encoded bytes of a band
+     */
+    private static final int BAND_BYTES = 1 << 18;
+    /**
+     * Maximal amount of bands in flight
+     */
+    private static final int WINDOW = 2 * Runtime.getRuntime().availableProcessors();
+    /**
+     * Size of the deflate window - the filtered data before a band which primes its deflater
+     */
+    private static final int DICTIONARY_SIZE = 1 << 15;
+    /**
+     * Signature of PNG files
+     */
+    private static final byte[] PNG_SIGNATURE = {(byte) 137, 'P', 'N', 'G', '\r', '\n', 26, '\n'};
+    /**
+     * Zlib header of the compressed PNG data - deflate with 32K window, default compression
+     */
+    private static final byte[] ZLIB_HEADER = {0x78, (byte) 0x9C};
+    /**
+     * Modulus of Adler-32 checksums
+     */
+    private static final int ADLER_BASE = 65521;
+
+    /**
+     * Encoded band of scanlines
+     *
+     * @param data   the encoded bytes of the band
+     * @param length amount of encoded bytes
+     * @param adler  Adler-32 checksum of the filtered (uncompressed) PNG scanlines of the band
+     * @param size   amount of filtered PNG bytes of the band
+     */
+    private record Band(byte[] data, int length, long adler, int size) {
+    }
+
+    /**
+     * The image writer holding the pixel color matrix
+     */
+    private final ImageWriter image;
+    /**
+     * The file format
+     */
+    private final ImageFormat format;
+    /**
+     * Amount of bytes of an encoded scanline (with the filter type byte of PNG)
+     */
+    private final int rowBytes;
+    /**
+     * Amount of scanlines per band
+     */
+    private final int bandRows;
+
+    /**
+     * Constructs an encoder of an image
+     *
+     * @param image  the image writer holding the pixel color matrix
+     * @param format the file format
+     */
+    ImageEncoder(ImageWriter image, ImageFormat format) {
+        this.image = image;
+        this.format = format;
+        rowBytes = switch (format) {
+            case PNG -> 1 + 3 * image.nX();
+            case PPM -> 3 * image.nX();
+            case PFM -> 3 * Float.BYTES * image.nX();
+        };
+        bandRows = Math.max(1, BAND_BYTES / rowBytes);
+    }
+
+    /**
+     * Encodes the image into a channel
+     *
+     * @param channel the channel
+     * @throws IOException if writing to the channel fails
+     */
+    void encode(WritableByteChannel channel) throws IOException {
+        int nX = image.nX(), nY = image.nY();
+        switch (format) {
+            case PNG -> {
+                write(channel, PNG_SIGNATURE, PNG_SIGNATURE.length);
+                ByteBuffer header = ByteBuffer.allocate(13).putInt(nX).putInt(nY)
+                        .put((byte) 8).put((byte) 2).put((byte) 0).put((byte) 0).put((byte) 0);
+                writeChunk(channel, "IHDR", header.array(), header.position());
+            }
+            case PPM -> write(channel, "P6\n" + nX + " " + nY + "\n255\n");
+            // negative scale - little-endian floats
+            case PFM -> write(channel, "PF\n" + nX + " " + nY + "\n-1.0\n");
+        }
+
+        int bands = (nY + bandRows - 1) / bandRows;
+        ArrayDeque<CompletableFuture<Band>> window = new ArrayDeque<>();
+        long adler = 1;
+        int written = 0;
+        for (int band = 0; written < bands; ) {
+            if (band < bands && window.size() < WINDOW) {
+                int first = band++ * bandRows, last = Math.min(first + bandRows, nY);
+                window.add(CompletableFuture.supplyAsync(() -> encodeBand(first, last)));
+                continue;
+            }
+            Band encoded = window.remove().join();
+            ++written;
+            if (format != ImageFormat.PNG) {
+                write(channel, encoded.data, encoded.length);
+                continue;
+            }
+            // the zlib stream of the bands starts with its header and ends with the Adler-32 of all the bands
+            adler = combineAdler(adler, encoded.adler, encoded.size);
+            boolean head = written == 1, tail = written == bands;
+            byte[] data = encoded.data;
+            int length = encoded.length;
+            if (head || tail) {
+                data = new byte[length + (head ? 2 : 0) + (tail ? 4 : 0)];
+                if (head) System.arraycopy(ZLIB_HEADER, 0, data, 0, 2);
+                System.arraycopy(encoded.data, 0, data, head ? 2 : 0, length);
+                length += head ? 2 : 0;
+                if (tail) ByteBuffer.wrap(data, length, 4).putInt((int) adler);
+                length += tail ? 4 : 0;
+            }
+            writeChunk(channel, "IDAT", data, length);
+        }
+        if (format == ImageFormat.PNG) writeChunk(channel, "IEND", new byte[0], 0);
+    }
+
+    /**
+     * Encodes a band of scanlines
+     *
+     * @param first first scanline of the band
+     * @param last  scanline after the last one of the band
+     * @return the encoded band
+     */
+    private Band encodeBand(int first, int last) {
+        int size = (last - first) * rowBytes;
+        return switch (format) {
+            case PNG -> compress(first, last);
+            case PPM -> {
+                byte[] data = new byte[size];
+                for (int i = first; i < last; ++i) image.readRow(i, data, (i - first) * rowBytes);
+                yield new Band(data, size, 0, 0);
+            }
+            case PFM -> {
+                // the scanlines of PFM go from the bottom of the image up
+                ByteBuffer data = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = first; i < last; ++i) image.readRow(image.nY() - 1 - i, data.asFloatBuffer()
+                        .position((i - first) * 3 * image.nX()));
+                yield new Band(data.array(), size, 0, 0);
+            }
+        };
+    }
+
+    /**
+     * Filters and compresses a band of PNG scanlines
+     *
+     * @param first first scanline of the band
+     * @param last  scanline after the last one of the band
+     * @return the compressed band
+     */
+    private Band compress(int first, int last) {
+        // the filtered scanlines before the band which fill the deflate window, then the band
+        int primer = Math.min(first, (DICTIONARY_SIZE + rowBytes - 1) / rowBytes);
+        byte[] filtered = filter(first - primer, last);
+        int offset = primer * rowBytes, size = (last - first) * rowBytes;
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        if (primer > 0) {
+            int dictionary = Math.min(offset, DICTIONARY_SIZE);
+            deflater.setDictionary(filtered, offset - dictionary, dictionary);
+        }
+        deflater.setInput(filtered, offset, size);
+        boolean end = last == image.nY();
+        if (end) deflater.finish();
+        byte[] data = new byte[size / 2 + 64];
+        int length = 0;
+        while (true) {
+            if (length == data.length) data = Arrays.copyOf(data, 2 * data.length);
+            int free = data.length - length;
+            int n = end ? deflater.deflate(data, length, free) : deflater.deflate(data, length, free, Deflater.SYNC_FLUSH);
+            length += n;
+            if (end ? deflater.finished() : n < free) break;
+        }
+        deflater.end();
+
+        Adler32 adler = new Adler32();
+        adler.update(filtered, offset, size);
+        return new Band(data, length, adler.getValue(), size);
+    }
+
+    /**
+     * Converts scanlines into 8-bit RGB and filters them by PNG filters - every scanline by
+     * the filter which minimizes the sum of the absolute values of its bytes (the heuristic
+     * of libpng)
+     *
+     * @param first first scanline
+     * @param last  scanline after the last one
+     * @return the filtered scanlines, every one starting by its filter type
+     */
+    private byte[] filter(int first, int last) {
+        int n = rowBytes - 1;
+        byte[] filtered = new byte[(last - first) * rowBytes];
+        byte[] previous = new byte[n], current = new byte[n], candidate = new byte[n], best = new byte[n];
+        if (first > 0) image.readRow(first - 1, previous, 0);
+        for (int i = first; i < last; ++i) {
+            image.readRow(i, current, 0);
+            long bestSum = Long.MAX_VALUE;
+            int bestType = 0;
+            for (int type = 0; type < 5; ++type) {
+                long sum = filterRow(type, current, previous, candidate);
+                if (sum < bestSum) {
+                    bestSum = sum;
+                    bestType = type;
+                    byte[] swap = best;
+                    best = candidate;
+                    candidate = swap;
+                }
+            }
+            int offset = (i - first) * rowBytes;
+            filtered[offset] = (byte) bestType;
+            System.arraycopy(best, 0, filtered, offset + 1, n);
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return filtered;
+    }
+
+    /**
+     * Filters a scanline by a PNG filter
+     *
+     * @param type     the filter type - none, sub, up, average or Paeth
+     * @param current  the scanline
+     * @param previous the scanline above it (zeros for the first scanline)
+     * @param filtered the array receiving the filtered scanline
+     * @return sum of the absolute values of the filtered bytes (as signed bytes)
+     */
+    private static long filterRow(int type, byte[] current, byte[] previous, byte[] filtered) {
+        long sum = 0;
+        for (int k = 0; k < current.length; ++k) {
+            int x = current[k] & 0xFF, a = k < 3 ? 0 : current[k - 3] & 0xFF, b = previous[k] & 0xFF;
+            int predictor = switch (type) {
+                case 0 -> 0;
+                case 1 -> a;
+                case 2 -> b;
+                case 3 -> (a + b) >> 1;
+                default -> paeth(a, b, k < 3 ? 0 : previous[k - 3] & 0xFF);
+            };
+            byte value = (byte) (x - predictor);
+            filtered[k] = value;
+            sum += Math.abs(value);
+        }
+        return sum;
+    }
+
+    /**
+     * The Paeth predictor of PNG - the one of the left, upper and upper left bytes
+     * which is closest to left + upper - upper left
+     *
+     * @param a the left byte
+     * @param b the upper byte
+     * @param c the upper left byte
+     * @return the predicted byte
+     */
+    private static int paeth(int a, int b, int c) {
+        int pa = Math.abs(b - c), pb = Math.abs(a - c), pc = Math.abs(a + b - 2 * c);
+        return pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+    }
+
+    /**
+     * Combines the Adler-32 checksums of two consecutive blocks of data into the checksum
+     * of the joined data (as adler32_combine of zlib)
+     *
+     * @param adler1 checksum of the first block
+     * @param adler2 checksum of the second block
+     * @param length2 length of the second block
+     * @return checksum of the joined blocks
+     */
+    private static long combineAdler(long adler1, long adler2, int length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = remainder * sum1 % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += (adler1 >> 16) + (adler2 >> 16) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= 2L * ADLER_BASE) sum2 -= 2L * ADLER_BASE;
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return sum1 | sum2 << 16;
+    }
+
+    /**
+     * Writes a PNG chunk
+     *
+     * @param channel the channel
+     * @param type    the chunk type
+     * @param data    the chunk data
+     * @param length  amount of bytes of the chunk data
+     * @throws IOException if writing to the channel fails
+     */
+    private static void writeChunk(WritableByteChannel channel, String type, byte[] data, int length)
+            throws IOException {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(data, 0, length);
+        write(channel, ByteBuffer.allocate(8).putInt(length).put(name).array(), 8);
+        write(channel, data, length);
+        write(channel, ByteBuffer.allocate(4).putInt((int) crc.getValue()).array(), 4);
+    }
+
+    /**
+     * Writes a text header
+     *
+     * @param channel the channel
+     * @param text    the header
+     * @throws IOException if writing to the channel fails
+     */
+    private static void write(WritableByteChannel channel, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        write(channel, bytes, bytes.length);
+    }
+
+    /**
+     * Writes bytes to a channel
+     *
+     * @param channel the channel
+     * @param data    the bytes
+     * @param length  amount of bytes to write
+     * @throws IOException if writing to the channel fails
+     */
+    private static void write(WritableByteChannel channel, byte[] data, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+}
@@ -0,0 +1,33 @@
+package renderer;
+
+/**
+ * Image file formats
+ */
+public enum ImageFormat {
+    /**
+     * PNG - 8-bit RGB, compressed by deflate
+     */
+    PNG("png"),
+    /**
+     * Binary PPM (P6) - 8-bit RGB, uncompressed
+     */
+    PPM("ppm"),
+    /**
+     * PFM - 32-bit float RGB, uncompressed, in full dynamic range
+     */
+    PFM("pfm");
+
+    /**
+     * File name extension of the format
+     */
+    final String extension;
+
+    /**
+     * Constructs an image format
+     *
+     * @param extension file name extension of the format
+     */
+    ImageFormat(String extension) {
+        this.extension = extension;
+    }
+}
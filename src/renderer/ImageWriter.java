@@ -1,17 +1,29 @@
 package renderer;
 
 import primitives.Color;
+import primitives.Double3;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Image writer class combines accumulation of pixel color matrix and finally
  * producing a non-optimized jpeg image from this matrix. The class although is
  * responsible for holding image related parameters of View Plane - pixel matrix
- * size and resolution
+ * size and resolution.<br>
+ * The pixel color matrix is a high dynamic range framebuffer of float RGB triads,
+ * kept off the heap in a direct buffer. Rendering threads write their pixels into
+ * it by index - without locks and without allocating - and may add up samples of
+ * a pixel for progressive rendering. The colors are converted into 8-bit RGB
+ * once, in parallel, when the image is written - the image is encoded in bands
+ * of scanlines on all the cores and streamed out (see {@link ImageEncoder}).
  *
  * @author Dan
  */
@@ -32,9 +44,10 @@ final class ImageWriter {
     private static final String FOLDER_PATH = System.getProperty("user.dir") + "/final_images";
 
     /**
-     * Image generation buffer (the matrix of the pixels)
+     * Image generation buffer (the matrix of the pixels) - red, green and blue
+     * components of the pixels, row after row
      */
-    private final BufferedImage image;
+    private final FloatBuffer pixels;
 
     // ***************** Constructors ********************** //
 
@@ -48,7 +61,7 @@ final class ImageWriter {
         this.nX = nX;
         this.nY = nY;
 
-        image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+        pixels = ByteBuffer.allocateDirect(3 * Float.BYTES * nX * nY).order(ByteOrder.nativeOrder()).asFloatBuffer();
     }
 
     // ***************** Getters ********************** //
@@ -74,20 +87,75 @@ final class ImageWriter {
     // ***************** Operations ******************** //
 
     /**
-     * Function writeToImage produces unoptimized png file of the image according
+     * Function writeToImage produces png file of the image according
      * to pixel color matrix in the directory of the project
      *
      * @param imageName the name of png file
      */
     void writeToImage(String imageName) {
+        writeToImage(imageName, ImageFormat.PNG);
+    }
+
+    /**
+     * Function writeToImage produces an image file according to pixel color
+     * matrix in the directory of the project
+     *
+     * @param imageName the name of the file (without extension)
+     * @param format    the file format
+     */
+    void writeToImage(String imageName, ImageFormat format) {
         try {
-            File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-            ImageIO.write(image, "png", file);
+            write(Path.of(FOLDER_PATH, imageName + '.' + format.extension), format);
         } catch (IOException e) {
             throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
         }
     }
 
+    /**
+     * Function writeToImage produces an image file according to pixel color
+     * matrix
+     *
+     * @param file   the path of the file
+     * @param format the file format
+     */
+    void writeToImage(Path file, ImageFormat format) {
+        try {
+            write(file, format);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error writing " + file, e);
+        }
+    }
+
+    /**
+     * Encodes the image into a file, through a file channel
+     *
+     * @param file   the path of the file
+     * @param format the file format
+     * @throws IOException if the file cannot be written
+     */
+    private void write(Path file, ImageFormat format) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            new ImageEncoder(this, format).encode(channel);
+        }
+    }
+
+    /**
+     * Function writeToImage writes the image according to pixel color matrix
+     * into a stream (the stream is not closed)
+     *
+     * @param out    the stream
+     * @param format the image format
+     */
+    void writeToImage(OutputStream out, ImageFormat format) {
+        try {
+            new ImageEncoder(this, format).encode(Channels.newChannel(out));
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error writing the image", e);
+        }
+    }
+
     /**
      * The function writePixel writes a color of a specific pixel into pixel color
      * matrix
@@ -97,7 +165,66 @@ final class ImageWriter {
      * @param color  final color of the pixel
      */
     void writePixel(int xIndex, int yIndex, Color color) {
-        image.setRGB(xIndex, yIndex, color.getColor().getRGB());
+        Double3 rgb = color.getRgb();
+        int index = 3 * (yIndex * nX + xIndex);
+        pixels.put(index, (float) rgb.d1());
+        pixels.put(index + 1, (float) rgb.d2());
+        pixels.put(index + 2, (float) rgb.d3());
+    }
+
+    /**
+     * The function accumulatePixel adds a color to the color of a specific pixel
+     * in pixel color matrix - for adding up samples of the pixel which are
+     * rendered one after the other (a pixel must be accumulated by a single thread)
+     *
+     * @param xIndex X_axis index of the pixel
+     * @param yIndex Y_axis index of the pixel
+     * @param color  the color to add
+     */
+    void accumulatePixel(int xIndex, int yIndex, Color color) {
+        Double3 rgb = color.getRgb();
+        int index = 3 * (yIndex * nX + xIndex);
+        pixels.put(index, pixels.get(index) + (float) rgb.d1());
+        pixels.put(index + 1, pixels.get(index + 1) + (float) rgb.d2());
+        pixels.put(index + 2, pixels.get(index + 2) + (float) rgb.d3());
+    }
+
+    /**
+     * The function readPixel reads the color of a specific pixel from pixel color
+     * matrix - in full dynamic range
+     *
+     * @param xIndex X_axis index of the pixel
+     * @param yIndex Y_axis index of the pixel
+     * @return the color of the pixel
+     */
+    Color readPixel(int xIndex, int yIndex) {
+        int index = 3 * (yIndex * nX + xIndex);
+        return new Color(pixels.get(index), pixels.get(index + 1), pixels.get(index + 2));
     }
 
+    /**
+     * The function readRow reads a row of pixel color matrix in 8-bit RGB - converted
+     * the same way as by {@link Color#getColor()}, truncated and clamped to 255
+     *
+     * @param yIndex Y_axis index of the row
+     * @param rgb    the array receiving the red, green and blue components of the row
+     * @param offset index in the array of the first component
+     */
+    void readRow(int yIndex, byte[] rgb, int offset) {
+        for (int index = 3 * yIndex * nX, end = index + 3 * nX; index < end; ++index) {
+            int value = (int) pixels.get(index);
+            rgb[offset++] = (byte) (value > 255 ? 255 : value);
+        }
+    }
+
+    /**
+     * The function readRow reads a row of pixel color matrix in full dynamic range
+     *
+     * @param yIndex Y_axis index of the row
+     * @param rgb    the buffer receiving the red, green and blue components of the row
+     *               at its position
+     */
+    void readRow(int yIndex, FloatBuffer rgb) {
+        rgb.put(pixels.slice(3 * yIndex * nX, 3 * nX));
+    }
 }
@@ -0,0 +1,67 @@
+package renderer;
+
+import geometries.Intersectable.Intersection;
+import geometries.RayPacket;
+import primitives.Color;
+import primitives.Ray;
+import scene.RenderScene;
+import scene.Scene;
+
+/**
+ * Ray tracer which traces coherent rays in packets.
+ * <p>
+ * Rays which are traced together (square blocks of neighbouring pixels, the beam rays of
+ * a pixel, the corners of adaptive super sampling) are grouped into packets of up to
+ * {@link RayPacket#MAX_SIZE} rays. The closest hits of a packet are found by a single traversal
+ * of the bounding volume hierarchy of the scene and of the meshes - an inner node box is tested
+ * once for the whole packet, by interval arithmetic on the bounds of its rays. Fewer rays than
+ * {@link RayPacket#MIN_SIZE}, and packets whose rays diverge (point into different octants),
+ * are traced ray by ray.<br>
+ * The shading, and the secondary rays it spawns, are the ones of {@link SimpleRayTracer},
+ * so the image is the same as rendered by it.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+public class PacketRayTracer extends SimpleRayTracer {
+    /**
+     * The ray packet of each rendering thread, reused for all its packets
+     */
+    private final ThreadLocal<RayPacket> packets = ThreadLocal.withInitial(RayPacket::new);
+
+    /**
+     * Constructor for PacketRayTracer.
+     *
+     * @param scene the scene to trace rays in
+     */
+    public PacketRayTracer(Scene scene) {
+        super(scene);
+    }
+
+    /**
+     * Constructor for PacketRayTracer of a compiled scene.
+     *
+     * @param scene the compiled scene to trace rays in
+     */
+    public PacketRayTracer(RenderScene scene) {
+        super(scene);
+    }
+
+    @Override
+    public void traceRays(Ray[] rays, int count, Color[] colors) {
+        RayPacket packet = packets.get();
+        for (int first = 0; first < count; first += RayPacket.MAX_SIZE) {
+            int size = Math.min(RayPacket.MAX_SIZE, count - first);
+            if (size < RayPacket.MIN_SIZE) {
+                for (int k = first; k < count; ++k) colors[k] = traceRay(rays[k]);
+                break;
+            }
+            packet.clear();
+            for (int k = 0; k < size; ++k) packet.add(rays[first + k], Double.POSITIVE_INFINITY);
+            scene.geometries.calculateClosestIntersections(packet);
+            for (int k = 0; k < size; ++k) {
+                Intersection hit = packet.getHit(k);
+                colors[first + k] = hit == null ? scene.background : calcColor(hit, rays[first + k]);
+            }
+        }
+    }
+}
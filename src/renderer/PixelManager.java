@@ -1,136 +1,177 @@
 package renderer;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * PixelManager is a helper class. It is used for multi-threading in the
  * renderer and
  * for follow up its progress.<br/>
- * A Camera uses one pixel manager object and several Pixel objects - one in
- * each thread.
+ * The image is divided into square tiles of pixels, which are handed out to the
+ * threads by a lock-free counter - a thread renders a whole tile before it asks for
+ * the next one, so neighbouring rays (which hit the same geometries) are traced
+ * together. The progress is counted by a striped counter, so the threads do not
+ * contend on it either.
  *
  * @author Dan Zilberstein
  */
 class PixelManager {
     /**
-     * Immutable class for object containing allocated pixel (with its row and
-     * column numbers)
+     * Immutable class for object containing allocated tile of pixels (with the
+     * range of its columns and rows)
      *
-     * @param col pixel column number
-     * @param row pixel row number
-     */
-    record Pixel(int col, int row) {
+     * @param col0 first pixel column of the tile
+     * @param row0 first pixel row of the tile
+     * @param col1 pixel column after the last one of the tile
+     * @param row1 pixel row after the last one of the tile
+     */
+    record Tile(int col0, int row0, int col1, int row1) {
+        /**
+         * Returns the amount of pixels in the tile
+         *
+         * @return the amount of pixels
+         */
+        int size() {
+            return (col1 - col0) * (row1 - row0);
+        }
     }
 
+    /**
+     * Default width and height of a tile in pixels
+     */
+    static final int DEFAULT_TILE_SIZE = 16;
+
     /**
      * Maximum rows of pixels
      */
-    private int maxRows = 0;
+    private final int maxRows;
     /**
      * Maximum columns of pixels
      */
-    private int maxCols = 0;
+    private final int maxCols;
     /**
-     * Total amount of pixels in the generated image
+     * Width and height of a tile in pixels
      */
-    private long totalPixels = 0l;
-
+    private final int tileSize;
+    /**
+     * Amount of tiles in a row of tiles
+     */
+    private final int tileCols;
     /**
-     * Currently processed row of pixels
+     * Total amount of tiles in the image
+     */
+    private final int totalTiles;
+    /**
+     * Total amount of pixels in the generated image
      */
-    private volatile int cRow = 0;
+    private final long totalPixels;
+
     /**
-     * Currently processed column of pixels
+     * Index of the next tile to hand out
      */
-    private volatile int cCol = -1;
+    private final AtomicInteger nextTile = new AtomicInteger();
     /**
      * Amount of pixels that have been processed
      */
-    private volatile long pixels = 0l;
+    private final LongAdder pixels = new LongAdder();
     /**
      * Last printed progress update percentage
      */
-    private volatile int lastPrinted = 0;
+    private final AtomicInteger lastPrinted = new AtomicInteger();
 
     /**
      * Flag of debug printing of progress percentage
      */
-    private boolean print = false;
+    private final boolean print;
     /**
      * Progress percentage printing interval
      */
-    private long printInterval = 100l;
+    private final long printInterval;
     /**
      * Printing format
      */
     private static final String PRINT_FORMAT = "%5.1f%%\r";
     /**
-     * Mutual exclusion object for synchronizing next pixel allocation between
-     * threads
+     * Printing format with the estimated remaining time
      */
-    private Object mutexNext = new Object();
+    private static final String ETA_FORMAT = "%5.1f%% ETA %.0f s   \r";
     /**
-     * Mutual exclusion object for printing progress percentage in console window
-     * by different threads
+     * Start time of the rendering in nanoseconds
      */
-    private Object mutexPixels = new Object();
+    private final long start = System.nanoTime();
 
     /**
      * Initialize pixel manager data for multi-threading
      *
      * @param maxRows  the amount of pixel rows
      * @param maxCols  the amount of pixel columns
+     * @param tileSize width and height of a tile in pixels
      * @param interval print time interval in seconds, 0 if printing is not
      *                 required
      */
-    PixelManager(int maxRows, int maxCols, double... interval) {
+    PixelManager(int maxRows, int maxCols, int tileSize, double... interval) {
         if (interval.length > 1) throw new IllegalArgumentException("only up to one interval argument is allowed");
+        if (tileSize <= 0) throw new IllegalArgumentException("tile size must be positive");
         this.maxRows = maxRows;
         this.maxCols = maxCols;
+        this.tileSize = tileSize;
+        tileCols = (maxCols + tileSize - 1) / tileSize;
+        totalTiles = tileCols * ((maxRows + tileSize - 1) / tileSize);
         totalPixels = (long) maxRows * maxCols;
-        printInterval = interval.length == 0 ? printInterval : (long) (interval[0] * 10);
+        printInterval = interval.length == 0 ? 100l : (long) (interval[0] * 10);
         print = printInterval != 0;
         if (print) System.out.printf(PRINT_FORMAT, 0d);
     }
 
     /**
-     * Function for thread-safe manipulating of main follow up Pixel object - this
-     * function is critical section for all the threads, and the pixel manager data
-     * is the shared data of this critical section.<br/>
-     * The function provides next available pixel number each call.
+     * Returns the total amount of tiles in the image
      *
-     * @return true if next pixel is allocated, false if there are no more pixels
+     * @return the amount of tiles
      */
-    Pixel nextPixel() {
-        synchronized (mutexNext) {
-            if (cRow == maxRows) return null;
+    int tiles() {
+        return totalTiles;
+    }
 
-            ++cCol;
-            if (cCol < maxCols)
-                return new Pixel(cCol, cRow);
+    /**
+     * Returns a tile by its index (tiles are numbered row by row)
+     *
+     * @param index index of the tile
+     * @return the tile, cut at the image borders
+     */
+    Tile tile(int index) {
+        int col0 = (index % tileCols) * tileSize;
+        int row0 = (index / tileCols) * tileSize;
+        return new Tile(col0, row0, Math.min(col0 + tileSize, maxCols), Math.min(row0 + tileSize, maxRows));
+    }
 
-            cCol = 0;
-            ++cRow;
-            if (cRow < maxRows)
-                return new Pixel(cCol, cRow);
-        }
-        return null;
+    /**
+     * Function for thread-safe allocation of the next tile - the tile counter is
+     * incremented atomically, so no thread waits for another one.
+     *
+     * @return the next available tile, or null if there are no more tiles
+     */
+    Tile nextTile() {
+        int index = nextTile.getAndIncrement();
+        return index < totalTiles ? tile(index) : null;
     }
 
     /**
-     * Finish pixel processing by updating and printing of progress percentage
-     */
-    void pixelDone() {
-        boolean flag = false;
-        int percentage = 0;
-        synchronized (mutexPixels) {
-            ++pixels;
-            if (print) {
-                percentage = (int) (1000l * pixels / totalPixels);
-                if (percentage - lastPrinted >= printInterval) {
-                    lastPrinted = percentage;
-                    flag = true;
-                }
-            }
-            if (flag) System.out.printf(PRINT_FORMAT, percentage / 10d);
+     * Finish processing of several pixels (e.g. a tile) by updating and printing of
+     * progress percentage and of the estimated remaining time
+     *
+     * @param count the amount of processed pixels
+     */
+    void pixelsDone(int count) {
+        pixels.add(count);
+        if (!print) return;
+
+        int percentage = (int) (1000l * pixels.sum() / totalPixels);
+        int last = lastPrinted.get();
+        // only the thread which updates the last printed percentage prints it
+        if (percentage - last >= printInterval && lastPrinted.compareAndSet(last, percentage)) {
+            // the remaining pixels at the rate of the pixels done so far
+            double eta = (System.nanoTime() - start) / 1e9 * (1000 - percentage) / Math.max(percentage, 1);
+            System.out.printf(ETA_FORMAT, percentage / 10d, eta);
         }
     }
-}
\ No newline at end of file
+}
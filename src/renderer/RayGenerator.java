@@ -0,0 +1,187 @@
+package renderer;
+
+import primitives.Color;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static primitives.Util.alignZero;
+
+/**
+ * Primary ray generation engine of a camera.<br>
+ * The view plane geometry of the camera is tabulated once, when the camera is built:
+ * the vector from the camera to every pixel column on the central row, and the offset
+ * of every pixel row along the up axis. A ray through a pixel is then two table look-ups
+ * and a sum, and the beam rays of a pixel are emitted into caller-provided buffers of
+ * raw coordinates - no intermediate points or vectors are created.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+final class RayGenerator {
+    /**
+     * Reusable buffers of the beam rays of a pixel - one per rendering thread
+     */
+    static final class Beam {
+        /**
+         * Sample offsets in the pixel (dx, dy pairs)
+         */
+        private final double[] offsets;
+        /**
+         * Directions of the beam rays (x, y, z triads), not normalized
+         */
+        private final double[] directions;
+        /**
+         * The beam rays, for tracing them together
+         */
+        final Ray[] rays;
+        /**
+         * Traced colors of the beam rays
+         */
+        final Color[] colors;
+
+        /**
+         * Constructs the buffers for a given amount of samples
+         *
+         * @param samples the amount of samples in a pixel
+         */
+        private Beam(int samples) {
+            offsets = new double[2 * samples];
+            directions = new double[3 * samples];
+            rays = new Ray[samples];
+            colors = new Color[samples];
+        }
+    }
+
+    /**
+     * The camera location
+     */
+    private final Point origin;
+    /**
+     * Vectors from the camera to the view plane at the pixel columns (x, y, z per column)
+     */
+    private final double[] columns;
+    /**
+     * Offsets of the pixel rows along the up axis of the view plane (x, y, z per row)
+     */
+    private final double[] rows;
+    /**
+     * Pixel width along the right axis of the view plane
+     */
+    private final double rightX, rightY, rightZ;
+    /**
+     * Pixel height along the up axis of the view plane
+     */
+    private final double upX, upY, upZ;
+    /**
+     * The blackboard of the beam rays
+     */
+    private final Blackboard blackboard;
+
+    /**
+     * Tabulates the view plane of a camera
+     *
+     * @param p0          the camera location
+     * @param viewPlanePC the center of the view plane
+     * @param vRight      the right axis of the view plane
+     * @param vUp         the up axis of the view plane
+     * @param width       the view plane width
+     * @param height      the view plane height
+     * @param nX          the amount of pixel columns
+     * @param nY          the amount of pixel rows
+     * @param blackboard  the blackboard of the beam rays
+     */
+    RayGenerator(Point p0, Point viewPlanePC, Vector vRight, Vector vUp,
+                 double width, double height, int nX, int nY, Blackboard blackboard) {
+        this.origin = p0;
+        this.blackboard = blackboard;
+        double rX = width / nX;
+        double rY = height / nY;
+        rightX = vRight.xyz.d1() * rX;
+        rightY = vRight.xyz.d2() * rX;
+        rightZ = vRight.xyz.d3() * rX;
+        upX = vUp.xyz.d1() * rY;
+        upY = vUp.xyz.d2() * rY;
+        upZ = vUp.xyz.d3() * rY;
+
+        // The same sums, in the same order, as Camera#constructRay
+        double cX = viewPlanePC.xyz.d1() - p0.xyz.d1();
+        double cY = viewPlanePC.xyz.d2() - p0.xyz.d2();
+        double cZ = viewPlanePC.xyz.d3() - p0.xyz.d3();
+        columns = new double[3 * nX];
+        for (int j = 0; j < nX; ++j) {
+            double xJ = alignZero((j - (nX - 1) / 2d) * rX);
+            columns[3 * j] = cX + xJ * vRight.xyz.d1();
+            columns[3 * j + 1] = cY + xJ * vRight.xyz.d2();
+            columns[3 * j + 2] = cZ + xJ * vRight.xyz.d3();
+        }
+        rows = new double[3 * nY];
+        for (int i = 0; i < nY; ++i) {
+            double yI = alignZero(-(i - (nY - 1) / 2d) * rY);
+            rows[3 * i] = yI * vUp.xyz.d1();
+            rows[3 * i + 1] = yI * vUp.xyz.d2();
+            rows[3 * i + 2] = yI * vUp.xyz.d3();
+        }
+    }
+
+    /**
+     * Creates the buffers of the beam rays for a rendering thread
+     *
+     * @return the buffers
+     */
+    Beam newBeam() {
+        return new Beam(blackboard.getSampleCount());
+    }
+
+    /**
+     * Constructs the ray through the center of a pixel - the same ray as
+     * {@link Camera#constructRay(int, int, int, int)}, bit for bit. The view plane is at a
+     * positive distance from the camera, so the direction is never zero.
+     *
+     * @param j column index of the pixel
+     * @param i row index of the pixel
+     * @return the ray
+     */
+    Ray centerRay(int j, int i) {
+        double x = columns[3 * j] + rows[3 * i];
+        double y = columns[3 * j + 1] + rows[3 * i + 1];
+        double z = columns[3 * j + 2] + rows[3 * i + 2];
+        return new Ray(origin, new Vector(x, y, z));
+    }
+
+    /**
+     * Emits the directions of the beam rays of a pixel into the beam buffers
+     *
+     * @param j    column index of the pixel
+     * @param i    row index of the pixel
+     * @param beam the buffers
+     * @return the amount of rays
+     */
+    int beam(int j, int i, Beam beam) {
+        int count = blackboard.getSampleCount();
+        double[] offsets = beam.offsets;
+        double[] directions = beam.directions;
+        blackboard.generateSamples(j, i, offsets);
+        double cX = columns[3 * j] + rows[3 * i];
+        double cY = columns[3 * j + 1] + rows[3 * i + 1];
+        double cZ = columns[3 * j + 2] + rows[3 * i + 2];
+        for (int k = 0; k < count; ++k) {
+            double dx = offsets[2 * k], dy = offsets[2 * k + 1];
+            directions[3 * k] = cX + dx * rightX + dy * upX;
+            directions[3 * k + 1] = cY + dx * rightY + dy * upY;
+            directions[3 * k + 2] = cZ + dx * rightZ + dy * upZ;
+        }
+        return count;
+    }
+
+    /**
+     * Constructs a beam ray emitted by {@link #beam(int, int, Beam)}
+     *
+     * @param beam the buffers
+     * @param k    the index of the ray in the beam
+     * @return the ray
+     */
+    Ray beamRay(Beam beam, int k) {
+        double[] directions = beam.directions;
+        return new Ray(origin, new Vector(directions[3 * k], directions[3 * k + 1], directions[3 * k + 2]));
+    }
+}
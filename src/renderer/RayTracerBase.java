@@ -2,6 +2,7 @@ package renderer;
 
 import primitives.Color;
 import primitives.Ray;
+import scene.RenderScene;
 import scene.Scene;
 
 /**
@@ -10,19 +11,38 @@ import scene.Scene;
  */
 public abstract class RayTracerBase {
     /**
-     * The scene to be rendered.
+     * The compiled scene which is rendered, {@code null} if there is no scene
      */
-    protected final Scene scene;
+    protected final RenderScene scene;
 
     /**
-     * Constructor for RayTracerBase.
+     * Constructor for RayTracerBase of a scene - the scene is compiled as it is now
+     * (see {@link Scene#compile()}), so its later changes are not traced
      *
      * @param scene the scene to trace rays in
      */
     public RayTracerBase(Scene scene) {
+        this(scene == null ? null : scene.compile());
+    }
+
+    /**
+     * Constructor for RayTracerBase of a compiled scene
+     *
+     * @param scene the compiled scene to trace rays in
+     */
+    public RayTracerBase(RenderScene scene) {
         this.scene = scene;
     }
 
+    /**
+     * Returns the build and traversal statistics of the bounding volume hierarchy of the scene
+     *
+     * @return statistics summary, or {@code null} if there is no hierarchy
+     */
+    String getBVHStatistics() {
+        return scene == null ? null : scene.getBVHStatistics();
+    }
+
     /**
      * Traces a ray and returns the color it encounters in the scene.
      *
@@ -30,4 +50,36 @@ public abstract class RayTracerBase {
      * @return the color resulting from the ray tracing
      */
     public abstract Color traceRay(Ray ray);
+
+    /**
+     * Traces several rays (such as the beam rays of a pixel) and stores the colors they encounter.<br>
+     * The default implementation traces the rays one by one - ray tracers which trace rays
+     * together override it.
+     *
+     * @param rays   the rays to trace
+     * @param count  the amount of rays to trace from the beginning of the array
+     * @param colors the array receiving the color of each ray
+     */
+    public void traceRays(Ray[] rays, int count, Color[] colors) {
+        for (int k = 0; k < count; ++k)
+            colors[k] = traceRay(rays[k]);
+    }
+
+    /**
+     * Traces a ray through a pixel center, and records the first hit of the ray and the
+     * color in the geometry buffer of the image.<br>
+     * The default implementation records a miss - ray tracers which find the closest
+     * intersection override it.
+     *
+     * @param ray     the ray to trace
+     * @param gBuffer the geometry buffer of the image
+     * @param pixel   the index of the pixel in the buffer
+     * @return the color resulting from the ray tracing
+     */
+    Color traceRay(Ray ray, GBuffer gBuffer, int pixel) {
+        Color color = traceRay(ray);
+        gBuffer.setHit(pixel, null, 0, 0);
+        gBuffer.setColor(pixel, color);
+        return color;
+    }
 }
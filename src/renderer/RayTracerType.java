@@ -11,5 +11,13 @@ public enum RayTracerType {
     /**
      * Ray tracer using regular grid
      */
-    GRID
+    GRID,
+    /**
+     * Ray tracer tracing coherent rays in packets
+     */
+    PACKET,
+    /**
+     * Ray tracer tracing rays breadth-first, in stage queues
+     */
+    WAVEFRONT
 }
@@ -0,0 +1,373 @@
+package renderer;
+
+import geometries.Intersectable;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of a rendering - the traced rays by their type and by their recursion depth,
+ * the intersection tests and hits by geometry type, and the busy and idle time of the
+ * rendering threads.<br>
+ * All the counters are {@link LongAdder}s - every thread counts in its own cell of the
+ * adder, so the counting threads do not contend, and the cells are summed only when the
+ * statistics are read. The statistics are collected only when they are turned on by
+ * {@link Camera.Builder#setRenderStats(boolean)}.<br>
+ * The statistics of a rendering are bound to the threads which render it (see
+ * {@link #run(RenderStats, Runnable)}) - the ray tracers and the geometries count in the
+ * statistics of the current thread, so renderings which run at the same time do not mix
+ * their counts.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+public final class RenderStats {
+    /**
+     * Types of traced rays
+     */
+    public enum RayType {
+        /**
+         * Rays from the camera
+         */
+        PRIMARY,
+        /**
+         * Rays from a hit point towards a light source
+         */
+        SHADOW,
+        /**
+         * Reflected rays
+         */
+        REFLECTED,
+        /**
+         * Refracted (transmitted) rays
+         */
+        REFRACTED
+    }
+
+    /**
+     * Maximal recursion depth counted separately - deeper rays are counted with it
+     */
+    public static final int MAX_DEPTH = 16;
+
+    /**
+     * The statistics bound to every thread, not set for a thread which renders without statistics
+     */
+    private static final ThreadLocal<RenderStats> bound = new ThreadLocal<>();
+    /**
+     * Amount of threads with bound statistics - the statistics of the thread are looked for
+     * only if there is any, so the rays cost nothing extra while no rendering is counted
+     */
+    private static final AtomicInteger boundThreads = new AtomicInteger();
+
+    /**
+     * The test listener of the geometries which counts in these statistics
+     */
+    private final Intersectable.TestListener listener = this::tested;
+    /**
+     * Amount of traced rays by type
+     */
+    private final LongAdder[] rays = adders(RayType.values().length);
+    /**
+     * Amount of traced primary and secondary rays by recursion depth (0 for primary rays)
+     */
+    private final LongAdder[] depths = adders(MAX_DEPTH + 1);
+    /**
+     * Amount of intersection tests by geometry type
+     */
+    private final Map<Class<?>, LongAdder> tests = new ConcurrentHashMap<>();
+    /**
+     * Amount of hits by geometry type
+     */
+    private final Map<Class<?>, LongAdder> hits = new ConcurrentHashMap<>();
+    /**
+     * Busy (rendering) time in nanoseconds by thread name
+     */
+    private final Map<String, LongAdder> busy = new ConcurrentHashMap<>();
+    /**
+     * Amount of rendered pixels
+     */
+    private final LongAdder pixels = new LongAdder();
+    /**
+     * Total amount of pixels of the rendering
+     */
+    private final long totalPixels;
+    /**
+     * Start time of the rendering in nanoseconds
+     */
+    private final long start;
+    /**
+     * End time of the rendering in nanoseconds, 0 while rendering
+     */
+    private volatile long end = 0;
+
+    /**
+     * Constructs the statistics of a rendering which starts now
+     *
+     * @param totalPixels total amount of pixels to render (of all the rendering passes)
+     */
+    RenderStats(long totalPixels) {
+        this.totalPixels = totalPixels;
+        start = System.nanoTime();
+    }
+
+    /**
+     * Returns the statistics bound to the current thread
+     *
+     * @return the statistics, or {@code null} if the thread renders without statistics
+     */
+    static RenderStats current() {
+        return boundThreads.get() == 0 ? null : bound.get();
+    }
+
+    /**
+     * Runs a task with statistics bound to the current thread - the rays traced and the
+     * intersections tested by the task are counted in them. The former binding of the thread
+     * is restored at the end, so tasks of another rendering (such as the batches of a parallel
+     * stream, which may run on a thread of the caller) are not affected.
+     *
+     * @param stats the statistics, {@code null} to run the task without statistics
+     * @param task  the task
+     */
+    static void run(RenderStats stats, Runnable task) {
+        RenderStats former = bound.get();
+        if (former == stats) {
+            task.run();
+            return;
+        }
+        bind(stats);
+        try {
+            task.run();
+        } finally {
+            bind(former);
+        }
+    }
+
+    /**
+     * Binds statistics to the current thread, together with their test listener
+     *
+     * @param stats the statistics, {@code null} to unbind the statistics of the thread
+     */
+    private static void bind(RenderStats stats) {
+        RenderStats former = bound.get();
+        if (stats == null) {
+            if (former != null) boundThreads.decrementAndGet();
+            bound.remove();
+        } else {
+            if (former == null) boundThreads.incrementAndGet();
+            bound.set(stats);
+        }
+        Intersectable.setTestListener(stats == null ? null : stats.listener);
+    }
+
+    /**
+     * Creates an array of counters
+     *
+     * @param length amount of counters
+     * @return the counters
+     */
+    private static LongAdder[] adders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+        for (int k = 0; k < length; ++k) adders[k] = new LongAdder();
+        return adders;
+    }
+
+    /**
+     * Counts traced rays
+     *
+     * @param type  type of the rays
+     * @param count amount of the rays
+     */
+    void countRays(RayType type, int count) {
+        rays[type.ordinal()].add(count);
+        if (type == RayType.PRIMARY) depths[0].add(count);
+    }
+
+    /**
+     * Counts a traced secondary ray
+     *
+     * @param type  type of the ray
+     * @param depth recursion depth of the ray (1 for the rays spawned at primary hits)
+     */
+    void countRay(RayType type, int depth) {
+        rays[type.ordinal()].increment();
+        if (type != RayType.SHADOW) depths[Math.min(depth, MAX_DEPTH)].increment();
+    }
+
+    /**
+     * Counts intersection tests of a geometry - it is the test listener of the geometries for
+     * the threads the statistics are bound to (see {@link Intersectable#setTestListener(Intersectable.TestListener)})
+     *
+     * @param geometry the tested geometry
+     * @param count    amount of tested rays
+     * @param hit      amount of rays which hit the geometry
+     */
+    void tested(Intersectable geometry, int count, int hit) {
+        Class<?> type = geometry.getClass();
+        tests.computeIfAbsent(type, t -> new LongAdder()).add(count);
+        if (hit > 0) hits.computeIfAbsent(type, t -> new LongAdder()).add(hit);
+    }
+
+    /**
+     * Counts a rendered tile
+     *
+     * @param count amount of pixels of the tile
+     * @param nanos rendering time of the tile in nanoseconds
+     */
+    void tileDone(int count, long nanos) {
+        busy.computeIfAbsent(Thread.currentThread().getName(), n -> new LongAdder()).add(nanos);
+        pixels.add(count);
+    }
+
+    /**
+     * Marks the end of the rendering
+     */
+    void finish() {
+        end = System.nanoTime();
+    }
+
+    /**
+     * Returns the amount of traced rays of a type
+     *
+     * @param type the ray type
+     * @return amount of rays
+     */
+    public long getRays(RayType type) {
+        return rays[type.ordinal()].sum();
+    }
+
+    /**
+     * Returns the total amount of traced rays of all the types
+     *
+     * @return amount of rays
+     */
+    public long getRays() {
+        long sum = 0;
+        for (LongAdder adder : rays) sum += adder.sum();
+        return sum;
+    }
+
+    /**
+     * Returns the amount of traced primary and secondary rays of a recursion depth
+     *
+     * @param depth the recursion depth, 0 for primary rays (deeper rays than {@link #MAX_DEPTH}
+     *              are counted with it)
+     * @return amount of rays
+     */
+    public long getRaysAtDepth(int depth) {
+        return depths[depth].sum();
+    }
+
+    /**
+     * Returns the amount of intersection tests by geometry type
+     *
+     * @return map of the amount of tests by the simple class name of the geometries
+     */
+    public Map<String, Long> getTests() {
+        return sums(tests);
+    }
+
+    /**
+     * Returns the amount of hits by geometry type
+     *
+     * @return map of the amount of hits by the simple class name of the geometries
+     */
+    public Map<String, Long> getHits() {
+        return sums(hits);
+    }
+
+    /**
+     * Sums counters by class into a sorted map by simple class name
+     *
+     * @param counters the counters
+     * @return the sorted sums
+     */
+    private static Map<String, Long> sums(Map<Class<?>, LongAdder> counters) {
+        Map<String, Long> sums = new TreeMap<>();
+        counters.forEach((type, adder) -> sums.merge(type.getSimpleName(), adder.sum(), Long::sum));
+        return sums;
+    }
+
+    /**
+     * Returns the elapsed time of the rendering - until now while rendering
+     *
+     * @return the elapsed time
+     */
+    public Duration getElapsed() {
+        long last = end;
+        return Duration.ofNanos((last == 0 ? System.nanoTime() : last) - start);
+    }
+
+    /**
+     * Returns the busy (rendering) time of every rendering thread
+     *
+     * @return map of busy times by thread name
+     */
+    public Map<String, Duration> getBusy() {
+        Map<String, Duration> times = new TreeMap<>();
+        busy.forEach((name, adder) -> times.put(name, Duration.ofNanos(adder.sum())));
+        return times;
+    }
+
+    /**
+     * Returns the idle time of every rendering thread - the elapsed time of the rendering
+     * not spent in rendering
+     *
+     * @return map of idle times by thread name
+     */
+    public Map<String, Duration> getIdle() {
+        Duration elapsed = getElapsed();
+        Map<String, Duration> times = new TreeMap<>();
+        getBusy().forEach((name, time) -> times.put(name, time.compareTo(elapsed) < 0 ? elapsed.minus(time) : Duration.ZERO));
+        return times;
+    }
+
+    /**
+     * Returns the amount of traced rays per second of the rendering
+     *
+     * @return rays per second
+     */
+    public double getRaysPerSecond() {
+        long nanos = getElapsed().toNanos();
+        return nanos == 0 ? 0 : getRays() * 1e9 / nanos;
+    }
+
+    /**
+     * Returns the estimated time until the rendering is done, by the rate of the pixels
+     * rendered so far
+     *
+     * @return the estimated remaining time, {@link Duration#ZERO} when the rendering is done,
+     * or null before any pixel is done
+     */
+    public Duration getEta() {
+        long done = pixels.sum();
+        if (end != 0 || done >= totalPixels) return Duration.ZERO;
+        if (done == 0) return null;
+        return Duration.ofNanos((long) (getElapsed().toNanos() * (double) (totalPixels - done) / done));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder();
+        double seconds = getElapsed().toNanos() / 1e9;
+        summary.append(String.format("Render: %.3f s, %,d of %,d pixels, %,d rays (%,.0f rays/s)%n",
+                seconds, pixels.sum(), totalPixels, getRays(), getRaysPerSecond()));
+        for (RayType type : RayType.values())
+            summary.append(String.format("  %-10s rays %,15d%n", type.name().toLowerCase(), getRays(type)));
+        summary.append("  depth:");
+        for (int depth = 0; depth <= MAX_DEPTH; ++depth) {
+            long count = getRaysAtDepth(depth);
+            if (count > 0) summary.append(String.format(" %d:%,d", depth, count));
+        }
+        summary.append(System.lineSeparator());
+        Map<String, Long> hitSums = getHits();
+        getTests().forEach((type, count) -> summary.append(String.format("  %-22s tests %,15d hits %,15d%n",
+                type, count, hitSums.getOrDefault(type, 0L))));
+        Map<String, Duration> idle = getIdle();
+        getBusy().forEach((name, time) -> summary.append(String.format("  %-22s busy %10.3f s idle %10.3f s%n",
+                name, time.toNanos() / 1e9, idle.get(name).toNanos() / 1e9)));
+        return summary.toString();
+    }
+}
@@ -0,0 +1,152 @@
+package renderer;
+
+import primitives.Color;
+
+/**
+ * Cache of the colors traced by adaptive super sampling in a tile of pixels.<br>
+ * The samples of adaptive super sampling lie on a lattice which divides every pixel
+ * into 2<sup>max depth</sup> x 2<sup>max depth</sup> cells - the corners of a sub-pixel
+ * at any recursion depth are lattice points, shared with its siblings and with the
+ * neighbouring pixels. The lattice points are the keys of the cache, so every sample
+ * position of the tile is traced only once.<br>
+ * The cache is an open addressing hash table on primitive keys, since only a small
+ * part of the lattice is sampled where the image is smooth. It is not thread-safe -
+ * a tile is rendered by a single thread.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+final class SampleLattice {
+    /**
+     * Initial capacity of the table (a power of 2)
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * First lattice column of the tile
+     */
+    private final long x0;
+    /**
+     * First lattice row of the tile
+     */
+    private final long y0;
+    /**
+     * Amount of lattice columns in the tile (including its right border)
+     */
+    private final long stride;
+
+    /**
+     * Keys of the table
+     */
+    private long[] keys = new long[INITIAL_CAPACITY];
+    /**
+     * Colors of the table, {@code null} for an empty slot
+     */
+    private Color[] colors = new Color[INITIAL_CAPACITY];
+    /**
+     * Amount of colors in the table - the amount of traced samples
+     */
+    private int size = 0;
+    /**
+     * Amount of sample requests
+     */
+    private long requests = 0;
+
+    /**
+     * Constructs an empty cache of a tile
+     *
+     * @param tile  the tile
+     * @param scale amount of lattice cells along a pixel side (2 to the power of the max depth)
+     */
+    SampleLattice(PixelManager.Tile tile, int scale) {
+        x0 = (long) tile.col0() * scale;
+        y0 = (long) tile.row0() * scale;
+        stride = (long) (tile.col1() - tile.col0()) * scale + 1;
+    }
+
+    /**
+     * Key of a lattice point of the tile
+     *
+     * @param x lattice column (of the whole image)
+     * @param y lattice row (of the whole image)
+     * @return the key
+     */
+    private long key(long x, long y) {
+        return (y - y0) * stride + (x - x0);
+    }
+
+    /**
+     * Slot of a key in the table
+     *
+     * @param key the key
+     * @return the index of the key's slot, or of the empty slot where it belongs
+     */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        // Fibonacci hashing - the top bits of the product, as many as the capacity needs
+        int i = (int) ((key * 0x9E3779B97F4A7C15L) >>> Long.numberOfLeadingZeros(mask));
+        while (colors[i] != null && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    /**
+     * Returns the cached color of a lattice point, and counts the request
+     *
+     * @param x lattice column (of the whole image)
+     * @param y lattice row (of the whole image)
+     * @return the color, or {@code null} if the point has not been traced yet
+     */
+    Color get(long x, long y) {
+        ++requests;
+        return colors[slot(key(x, y))];
+    }
+
+    /**
+     * Caches the traced color of a lattice point
+     *
+     * @param x     lattice column (of the whole image)
+     * @param y     lattice row (of the whole image)
+     * @param color the traced color
+     */
+    void put(long x, long y, Color color) {
+        if (2 * (size + 1) > keys.length) grow();
+        long key = key(x, y);
+        int i = slot(key);
+        if (colors[i] == null) ++size;
+        keys[i] = key;
+        colors[i] = color;
+    }
+
+    /**
+     * Doubles the capacity of the table
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        Color[] oldColors = colors;
+        keys = new long[2 * oldKeys.length];
+        colors = new Color[2 * oldColors.length];
+        for (int i = 0; i < oldKeys.length; ++i)
+            if (oldColors[i] != null) {
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                colors[j] = oldColors[i];
+            }
+    }
+
+    /**
+     * Returns the amount of sample requests
+     *
+     * @return the amount of requests
+     */
+    long requests() {
+        return requests;
+    }
+
+    /**
+     * Returns the amount of traced samples (the distinct sample positions)
+     *
+     * @return the amount of traced samples
+     */
+    long traced() {
+        return size;
+    }
+}
@@ -0,0 +1,209 @@
+package renderer;
+
+import geometries.Intersectable.Intersection;
+import lighting.LightSource;
+import primitives.*;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * The state of the shading of an intersection by the lights - the view direction, the normal,
+ * the direction to the current light and their dot products, kept as raw numbers.<br>
+ * A context is mutable and is reused for all the intersections shaded by a thread at a
+ * recursion level ({@link SimpleRayTracer#shadingContext(int)}), so the local lighting
+ * loop neither boxes the dot products nor creates vectors and coefficient triads per light.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+final class ShadingContext {
+    /**
+     * The ray tracer which shades by the context
+     */
+    private final SimpleRayTracer tracer;
+
+    /**
+     * The shaded intersection
+     */
+    Intersection intersection;
+    /**
+     * The intersection point
+     */
+    Point point;
+    /**
+     * The normal at the intersection point
+     */
+    Vector normal;
+    /**
+     * The material at the intersection point
+     */
+    private Material material;
+    /**
+     * The normalized direction of the viewing ray
+     */
+    private double vX, vY, vZ;
+    /**
+     * The normal at the intersection point
+     */
+    private double nX, nY, nZ;
+    /**
+     * Dot product of the normal and the view direction
+     */
+    private double nv;
+
+    /**
+     * The current light source
+     */
+    private LightSource light;
+    /**
+     * The normalized direction from the current light to the intersection point
+     */
+    private double lX, lY, lZ;
+    /**
+     * Dot product of the normal and the light direction
+     */
+    private double nl;
+    /**
+     * Distance of the current light from the intersection point
+     */
+    private double lightDistance;
+
+    /**
+     * Constructs a context of a ray tracer
+     *
+     * @param tracer the ray tracer
+     */
+    ShadingContext(SimpleRayTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Starts shading an intersection - keeps the view direction and the normal at the
+     * intersection point
+     *
+     * @param intersection the intersection
+     * @param rayDirection the direction of the intersecting ray
+     * @return true if the dot product of normal and view direction is non-zero, false otherwise
+     */
+    boolean preprocess(Intersection intersection, Vector rayDirection) {
+        this.intersection = intersection;
+        point = intersection.getPoint();
+        normal = intersection.getNormal();
+        material = intersection.material;
+
+        // View direction
+        double dx = rayDirection.xyz.d1(), dy = rayDirection.xyz.d2(), dz = rayDirection.xyz.d3();
+        double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        vX = dx / length;
+        vY = dy / length;
+        vZ = dz / length;
+
+        nX = normal.xyz.d1();
+        nY = normal.xyz.d2();
+        nZ = normal.xyz.d3();
+        nv = alignZero(nX * vX + nY * vY + nZ * vZ); // dot(n, v)
+        return !isZero(nv); // If dot product is zero, there is no contribution
+    }
+
+    /**
+     * Sets the current light source - the direction from it and its distance
+     *
+     * @param lightSource the light source
+     * @return true if the light and the viewer are on the same side of the surface, so the
+     * light may illuminate the point as seen by the viewer
+     */
+    boolean setLightSource(LightSource lightSource) {
+        light = lightSource;
+        Vector l = lightSource.getL(point);
+        double x = l.xyz.d1(), y = l.xyz.d2(), z = l.xyz.d3();
+        double length = Math.sqrt(x * x + y * y + z * z);
+        lX = x / length;
+        lY = y / length;
+        lZ = z / length;
+        nl = nX * lX + nY * lY + nZ * lZ; // dot(n, l)
+        if (nl * nv <= 0) return false;
+        lightDistance = lightSource.getDistance(point);
+        return true;
+    }
+
+    /**
+     * Returns the distance of the current light from the intersection point
+     *
+     * @return the distance
+     */
+    double lightDistance() {
+        return lightDistance;
+    }
+
+    /**
+     * Constructs the shadow ray from the intersection point towards the current light
+     *
+     * @return the shadow ray
+     */
+    Ray shadowRay() {
+        return new Ray(point, new Vector(-lX, -lY, -lZ), normal);
+    }
+
+    /**
+     * Calculates local lighting effects (emission, diffuse and specular) at the intersection
+     *
+     * @param k the cumulative attenuation coefficient of the viewing ray
+     * @return the color resulting from local lighting at the point
+     */
+    Color calcColorLocalEffects(Double3 k) {
+        Color emission = intersection.geometry.getEmission(intersection.index); // Start with emission color
+        double r = emission.getRgb().d1(), g = emission.getRgb().d2(), b = emission.getRgb().d3();
+        for (LightSource lightSource : tracer.scene.lights) {
+            if (!setLightSource(lightSource)) continue;
+            Double3 ktr = tracer.transparency(this);
+            if (ktr.d1() * k.d1() > SimpleRayTracer.MIN_CALC_COLOR_K
+                    && ktr.d2() * k.d2() > SimpleRayTracer.MIN_CALC_COLOR_K
+                    && ktr.d3() * k.d3() > SimpleRayTracer.MIN_CALC_COLOR_K) {
+                Double3 iL = lightSource.getIntensity(point).getRgb();
+                double diffusive = calcDiffusive(), specular = calcSpecular();
+                // Add the scaled light contribution to the total color
+                r += iL.d1() * ktr.d1() * (material.kD.d1() * diffusive + material.kS.d1() * specular);
+                g += iL.d2() * ktr.d2() * (material.kD.d2() * diffusive + material.kS.d2() * specular);
+                b += iL.d3() * ktr.d3() * (material.kD.d3() * diffusive + material.kS.d3() * specular);
+            }
+        }
+        return new Color(r, g, b);
+    }
+
+    /**
+     * Calculates the reflection coefficient of the current light - the diffuse and the specular one
+     *
+     * @return the reflection coefficient
+     */
+    Double3 reflectance() {
+        double diffusive = calcDiffusive(), specular = calcSpecular();
+        return new Double3(material.kD.d1() * diffusive + material.kS.d1() * specular,
+                material.kD.d2() * diffusive + material.kS.d2() * specular,
+                material.kD.d3() * diffusive + material.kS.d3() * specular);
+    }
+
+    /**
+     * Calculates the diffuse lighting factor of the current light by Lambert's cosine law -
+     * it scales the diffuse coefficient of the material
+     *
+     * @return the diffuse factor |dot(n, l)|
+     */
+    double calcDiffusive() {
+        return Math.abs(nl);
+    }
+
+    /**
+     * Calculates the specular lighting factor of the current light by the Phong reflection
+     * model - it scales the specular coefficient of the material
+     *
+     * @return the specular factor, zero if the reflection is away from the viewer
+     */
+    double calcSpecular() {
+        // Compute reflection vector: r = l - 2*(n•l)*n
+        double scale = 2 * nl;
+        double rX = lX - nX * scale, rY = lY - nY * scale, rZ = lZ - nZ * scale;
+        double length = Math.sqrt(rX * rX + rY * rY + rZ * rZ);
+        double vr = alignZero(-vX * (rX / length) + -vY * (rY / length) + -vZ * (rZ / length)); // dot(-v, r)
+        return vr <= 0 ? 0 : Math.pow(vr, material.nSh);
+    }
+}
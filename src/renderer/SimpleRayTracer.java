@@ -1,15 +1,12 @@
 package renderer;
 
 import geometries.Intersectable.Intersection;
-import lighting.LightSource;
 import primitives.*;
+import scene.RenderScene;
 import scene.Scene;
 
 import java.util.List;
 
-import static primitives.Util.alignZero;
-import static primitives.Util.isZero;
-
 /**
  * Simple implementation of a ray tracer.
  * Currently, this implementation does not support ray tracing
@@ -20,17 +17,23 @@ public class SimpleRayTracer extends RayTracerBase {
     /**
      * Maximum recursion level for global effects like reflection and refraction.
      */
-    private static final int MAX_CALC_COLOR_LEVEL = 10;
+    protected static final int MAX_CALC_COLOR_LEVEL = 10;
 
     /**
      * Minimum attenuation coefficient to continue recursion.
      */
-    private static final double MIN_CALC_COLOR_K = 0.001;
+    protected static final double MIN_CALC_COLOR_K = 0.001;
 
     /**
      * Initial attenuation coefficient (no attenuation).
      */
-    private static final Double3 INITIAL_K = Double3.ONE;
+    protected static final Double3 INITIAL_K = Double3.ONE;
+
+    /**
+     * The shading contexts of every thread - one for every recursion level
+     */
+    private final ThreadLocal<ShadingContext[]> shadingContexts =
+            ThreadLocal.withInitial(() -> new ShadingContext[MAX_CALC_COLOR_LEVEL + 1]);
 
     /**
      * Constructor for SimpleRayTracer.
@@ -41,6 +44,15 @@ public class SimpleRayTracer extends RayTracerBase {
         super(scene);
     }
 
+    /**
+     * Constructor for SimpleRayTracer of a compiled scene.
+     *
+     * @param scene the compiled scene to trace rays in
+     */
+    public SimpleRayTracer(RenderScene scene) {
+        super(scene);
+    }
+
     /**
      * Computes the final color at the intersection point including local lighting effects.
      *
@@ -48,30 +60,28 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param ray          the viewing ray
      * @return the resulting color at the intersection
      */
-    private Color calcColor(Intersection intersection, Ray ray) {
-        if (!preprocessIntersection(intersection, ray.getDirection())) {
+    protected Color calcColor(Intersection intersection, Ray ray) {
+        ShadingContext context = shadingContext(MAX_CALC_COLOR_LEVEL);
+        if (!context.preprocess(intersection, ray.getDirection())) {
             return Color.BLACK;
         }
 
-        return calcColor(intersection, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K)
+        return calcColor(context, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K)
                 .add(scene.ambientLight.getIntensity());
     }
 
     /**
      * Calculates the color at the intersection point, including local lighting and global effects.
      *
-     * @param intersection the intersection information
-     * @param level        current recursion depth
-     * @param k            cumulative attenuation coefficient
+     * @param context the shading context of the level, with the preprocessed intersection
+     * @param level   current recursion depth
+     * @param k       cumulative attenuation coefficient
      * @return the final color at the intersection point
      */
 
-    private Color calcColor(Intersection intersection, Ray ray, int level, Double3 k) {
-        if (!preprocessIntersection(intersection, ray.getDirection())) {
-            return Color.BLACK;
-        }
-        Color color = calcColorLocalEffects(intersection, k);
-        return level == 1 ? color : color.add(calcGlobalEffects(intersection, ray, level, k));
+    private Color calcColor(ShadingContext context, Ray ray, int level, Double3 k) {
+        Color color = context.calcColorLocalEffects(k);
+        return level == 1 ? color : color.add(calcGlobalEffects(context.intersection, ray, level, k));
     }
 
 
@@ -91,123 +101,33 @@ public class SimpleRayTracer extends RayTracerBase {
         return calcColor(closestIntersection, ray);
     }
 
-    /**
-     * Initializes intersection data with the ray direction and normal at the intersection point.
-     *
-     * @param intersection the intersection object to update
-     * @param rayDirection the direction of the intersecting ray
-     * @return true if the dot product of normal and view direction is non-zero, false otherwise
-     */
-    private boolean preprocessIntersection(Intersection intersection, Vector rayDirection) {
-        intersection.v = rayDirection.normalize(); // View direction
-        intersection.n = intersection.geometry.getNormal(intersection.point); // Surface normal
-
-        intersection.nv = alignZero(intersection.n.dotProduct(intersection.v)); // dot(n, v)
-        return !isZero(intersection.nv); // If dot product is zero, there is no contribution
-    }
-
-    /**
-     * Sets light-related vectors in the intersection object.
-     *
-     * @param intersection the intersection object to update
-     * @param lightSource  the light source for calculating lighting effects
-     */
-    private void setLightSource(Intersection intersection, LightSource lightSource) {
-        intersection.light = lightSource;
-        intersection.l = lightSource.getL(intersection.point).normalize();
-        // Light direction
-        intersection.nl = intersection.n.dotProduct(intersection.l); // dot(n, l)
-    }
-
-    /**
-     * Calculates local lighting effects (diffuse and specular) for the given intersection.
-     *
-     * @param intersection the intersection with initialized geometry and normal data
-     * @return the color resulting from local lighting at the point
-     */
-    private Color calcColorLocalEffects(Intersection intersection, Double3 k) {
-        Color color = intersection.geometry.getEmission(); // Start with emission color
-        for (LightSource lightSource : scene.lights) {
-            setLightSource(intersection, lightSource);
-            if (intersection.nl * intersection.nv > 0) {
-                Double3 ktr = transparency(intersection);
-                if (ktr.product(k).greaterThan(MIN_CALC_COLOR_K)) {
-                    Color iL = lightSource.getIntensity(intersection.point).scale(ktr);
-                    // Add the scaled light contribution to the total color
-                    color = color.add(iL.scale(calcDiffusive(intersection)
-                            .add(calcSpecular(intersection))));
-                }
-
-            }
+    @Override
+    Color traceRay(Ray ray, GBuffer gBuffer, int pixel) {
+        Intersection closestIntersection = findClosestIntersection(ray);
+        Color color;
+        if (closestIntersection == null) {
+            gBuffer.setHit(pixel, null, 0, 0);
+            color = scene.background;
+        } else {
+            gBuffer.setHit(pixel, closestIntersection.geometry, closestIntersection.index,
+                    closestIntersection.t);
+            color = calcColor(closestIntersection, ray);
         }
-
+        gBuffer.setColor(pixel, color);
         return color;
     }
 
     /**
-     * Calculates the diffuse lighting component using Lambert's cosine law.
-     *
-     * @param intersection the intersection containing light and surface data
-     * @return the diffuse reflection coefficient as a Double3
-     */
-    private Double3 calcDiffusive(Intersection intersection) {
-        double absNL = Math.abs(intersection.nl); // |dot(n, l)|
-        return intersection.material.kD.scale(absNL);
-    }
-
-    /**
-     * Calculates the specular lighting component using the Phong reflection model.
+     * Returns the shading context of the current thread for a recursion level
      *
-     * @param intersection the intersection containing light, normal, and view vectors
-     * @return the specular reflection coefficient as a Double3
-     */
-    private Double3 calcSpecular(Intersection intersection) {
-
-        // Compute reflection vector: r = l - 2*(n•l)*n
-        Vector r = intersection.l.subtract(intersection.n.scale(2 * intersection.nl)).normalize();
-        double vr = alignZero(intersection.v.scale(-1).dotProduct(r)); // dot(v, r)
-
-        if (vr <= 0) return Double3.ZERO;
-
-        return intersection.material.kS.scale(Math.pow(vr, intersection.material.nSh));
-    }
-
-    /**
-     * Determines whether a point on a surface is unshaded (i.e., fully illuminated by a light source).
-     * This method checks if any geometry blocks the light from reaching the point by casting a shadow ray
-     * toward the light source. If the ray intersects any geometry before reaching the light, the point is considered shaded.
-     *
-     * @param intersection An {@link Intersection} object containing details about the intersection point,
-     *                     its normal vector, light direction, and dot product (nl).
-     * @return {@code true} if the point is unshaded (no blocking geometry), {@code false} if the point is in shadow.
+     * @param level the recursion level
+     * @return the shading context
      */
-    private boolean unshaded(Intersection intersection) {
-        Vector pointToLight = intersection.l.scale(-1);
-        Ray shadowRay = new Ray(intersection.point, pointToLight, intersection.n);
-
-        List<Intersection> intersections = scene.geometries.calculateIntersectionsHelper(shadowRay);
-
-        // If there are no intersections, the point is unshaded
-        if (null == intersections || intersections.isEmpty()) {
-            return true;
-        }
-
-        // Calculate the distance from the point to the light source
-        double lightDistance = intersection.light.getDistance(intersection.point);
-
-        // Check if there is any intersection point that blocks the light before it reaches the point
-        for (Intersection intersect : intersections) {
-            double disPoints = intersect.point.distance(intersection.point);
-            if (disPoints < lightDistance) {
-                Double3 transparency = intersect.material.kT; // assuming red channel is used
-                if (transparency.lowerThan(MIN_CALC_COLOR_K)) {
-                    return false;
-                }
-            }
-        }
-
-        // No object blocks the light → the point is unshaded
-        return true;
+    ShadingContext shadingContext(int level) {
+        ShadingContext[] contexts = shadingContexts.get();
+        ShadingContext context = contexts[level];
+        if (context == null) contexts[level] = context = new ShadingContext(this);
+        return context;
     }
 
     /**
@@ -218,11 +138,11 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param ray          the incoming ray hitting the surface
      * @return the reflected ray constructed from the intersection point and direction
      */
-    private Ray constructReflectedRay(Intersection intersection, Ray ray) {
+    protected Ray constructReflectedRay(Intersection intersection, Ray ray) {
         Vector v = ray.getDirection();
-        Vector n = intersection.n;
+        Vector n = intersection.getNormal();
         double vn = v.dotProduct(n);
-        return new Ray(intersection.point, v.subtract(n.scale(2 * vn)), n);
+        return new Ray(intersection.getPoint(), v.subtract(n.scale(2 * vn)), n);
     }
 
     /**
@@ -233,29 +153,36 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param ray          the incoming ray hitting the surface
      * @return the refracted ray starting from the intersection point in the same direction
      */
-    private Ray constructRefractedRay(Intersection intersection, Ray ray) {
-        return new Ray(intersection.point, ray.getDirection(), intersection.n);
+    protected Ray constructRefractedRay(Intersection intersection, Ray ray) {
+        return new Ray(intersection.getPoint(), ray.getDirection(), intersection.getNormal());
     }
 
     /**
      * Calculates the global effect (either reflection or refraction) for a single ray.
      *
      * @param ray   the reflected or refracted ray
+     * @param type  the type of the ray (reflected or refracted), for the rendering statistics
      * @param level the recursion level
      * @param kx    the material coefficient (reflection/refraction)
      * @param k     the cumulative transparency coefficient
      * @return the resulting color from tracing the global ray
      */
-    private Color calcGlobalEffect(Ray ray, int level, Double3 k, Double3 kx) {
+    private Color calcGlobalEffect(Ray ray, RenderStats.RayType type, int level, Double3 k, Double3 kx) {
         Double3 kkx = kx.product(k);
         if (kkx.lowerThan(MIN_CALC_COLOR_K)) {
             return Color.BLACK;
         }
+        RenderStats stats = RenderStats.current();
+        if (stats != null) stats.countRay(type, MAX_CALC_COLOR_LEVEL - level + 1);
         Intersection intersection = findClosestIntersection(ray);
         if (intersection == null) {
             return scene.background;
         }
-        return calcColor(intersection, ray, level - 1, kkx).scale(kx);
+        ShadingContext context = shadingContext(level - 1);
+        if (!context.preprocess(intersection, ray.getDirection())) {
+            return Color.BLACK;
+        }
+        return calcColor(context, ray, level - 1, kkx).scale(kx);
     }
 
     /**
@@ -268,49 +195,59 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return color resulting from global effects (reflected and refracted rays)
      */
     private Color calcGlobalEffects(Intersection intersection, Ray ray, int level, Double3 k) {
-        Material material = intersection.geometry.getMaterial();
-        return calcGlobalEffect(constructReflectedRay(intersection, ray), level, material.kR, k)
-                .add(calcGlobalEffect(constructRefractedRay(intersection, ray), level, material.kT, k));
+        Material material = intersection.material;
+        return calcGlobalEffect(constructReflectedRay(intersection, ray), RenderStats.RayType.REFLECTED,
+                level, material.kR, k)
+                .add(calcGlobalEffect(constructRefractedRay(intersection, ray), RenderStats.RayType.REFRACTED,
+                        level, material.kT, k));
+    }
+
+    /**
+     * Finds the intersections of the given ray with the scene geometries which are not farther
+     * than a given distance from the ray head. Ray tracers with acceleration structures override it.
+     *
+     * @param ray         the ray to check for intersections
+     * @param maxDistance the maximal distance from the ray head of the intersections
+     * @return list of the intersections, or null if no intersection exists
+     */
+    protected List<Intersection> calculateIntersections(Ray ray, double maxDistance) {
+        return scene.geometries.calculateIntersections(ray, maxDistance);
     }
 
     /**
      * Finds the closest intersection of the given ray with the scene geometries.
+     * Ray tracers with acceleration structures override it.
      *
      * @param ray the ray to check for intersections
      * @return the closest intersection, or null if no intersection exists
      */
-    private Intersection findClosestIntersection(Ray ray) {
-        List<Intersection> intersections = scene.geometries.calculateIntersections(ray);
-        return intersections == null ? null : ray.findClosestIntersection(intersections);
+    protected Intersection findClosestIntersection(Ray ray) {
+        return scene.geometries.calculateClosestIntersection(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Calculates the transparency of the scene geometries along the given ray up to a given distance.
+     * The search stops at the first fully opaque occluder. Ray tracers with acceleration structures
+     * override it.
+     *
+     * @param ray         the shadow ray
+     * @param maxDistance the maximal distance from the ray head of the occluders
+     * @return the combined transparency factor ({@link Double3#ZERO} if the ray is blocked)
+     */
+    protected Double3 calculateTransparency(Ray ray, double maxDistance) {
+        return scene.geometries.calculateTransparency(ray, maxDistance);
     }
 
     /**
      * Calculates the transparency factor from the point to the light source.
      *
-     * @param intersection the intersection data
+     * @param context the shading context with the intersection point and the current light
      * @return the combined transparency factor along the shadow ray
      */
-    private Double3 transparency(Intersection intersection) {
-        Ray shadowRay = new Ray(intersection.point, intersection.l.scale(-1), intersection.n);
-        List<Intersection> intersections = scene.geometries.calculateIntersectionsHelper(shadowRay);
-
-        if (intersections == null) {
-            return Double3.ONE;
-        }
-
-        Double3 ktr = Double3.ONE;
-        double lightDistance = intersection.light.getDistance(intersection.point);
-
-        for (Intersection inter : intersections) {
-            if (inter.point.distance(intersection.point) < lightDistance) {
-                ktr = ktr.product(inter.material.kT);
-//                if (ktr.lowerThan(MIN_CALC_COLOR_K)) {
-//                    return Double3.ZERO;
-//                }
-            }
-        }
-
-        return ktr;
+    Double3 transparency(ShadingContext context) {
+        RenderStats stats = RenderStats.current();
+        if (stats != null) stats.countRay(RenderStats.RayType.SHADOW, 0);
+        return calculateTransparency(context.shadowRay(), context.lightDistance());
     }
 
 
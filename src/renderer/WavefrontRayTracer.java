@@ -0,0 +1,541 @@
+package renderer;
+
+import geometries.Intersectable.Intersection;
+import geometries.RayPacket;
+import lighting.LightSource;
+import primitives.Color;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Ray;
+import scene.RenderScene;
+import scene.Scene;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Wavefront (breadth-first) ray tracer.
+ * <p>
+ * Instead of following every ray depth first through its reflections and refractions, the rays
+ * traced together are processed generation by generation in stage queues:
+ * <ol>
+ * <li><b>intersect</b> - the closest hits of the whole generation are found (in ray packets)</li>
+ * <li><b>shade</b> - the emission of the hits is accumulated, a shadow ray is queued for every
+ * light which may illuminate a hit, and the reflected and refracted rays are queued as the
+ * next generation</li>
+ * <li><b>shadow</b> - the transparency along the queued shadow rays is found, and the light
+ * which gets through is accumulated</li>
+ * </ol>
+ * The queues keep the per ray state in primitive arrays - most importantly the attenuation of
+ * every ray (the product of the reflection/refraction coefficients along its path) and its
+ * throughput weight, by which its contributions are scaled. Every stage processes its queue in batches, in
+ * parallel if there are several of them; the results of the batches are gathered in the queue
+ * order, so the image does not depend on the threads.<br>
+ * The lighting model is the one of {@link SimpleRayTracer}, so the image is the same as
+ * rendered by it, up to rounding of the color sums.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+public class WavefrontRayTracer extends SimpleRayTracer {
+    /**
+     * Amount of queue entries processed together by a stage
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * Queue of the rays of a generation
+     */
+    private static final class RayQueue {
+        /**
+         * The rays
+         */
+        private Ray[] rays;
+        /**
+         * Index of the result of every ray (such as its pixel)
+         */
+        private int[] targets;
+        /**
+         * Attenuation of every ray (r, g, b per ray) - the product of the reflection/refraction
+         * coefficients along its path, which cuts off the faint rays
+         */
+        private double[] attenuations;
+        /**
+         * Throughput weight of every ray (r, g, b per ray), by which its contributions are scaled
+         */
+        private double[] weights;
+        /**
+         * Weight of the background of every ray which misses the scene (r, g, b per ray)
+         */
+        private double[] missWeights;
+        /**
+         * The closest hit of every ray, found by the intersect stage
+         */
+        private Intersection[] hits;
+        /**
+         * Accumulated color of every ray by the shade stage (r, g, b per ray)
+         */
+        private double[] colors;
+        /**
+         * Amount of rays in the queue
+         */
+        private int size = 0;
+
+        /**
+         * Constructs an empty queue
+         *
+         * @param capacity the initial capacity
+         */
+        private RayQueue(int capacity) {
+            capacity = Math.max(capacity, 1);
+            rays = new Ray[capacity];
+            targets = new int[capacity];
+            attenuations = new double[3 * capacity];
+            weights = new double[3 * capacity];
+            missWeights = new double[3 * capacity];
+        }
+
+        /**
+         * Adds a ray to the queue
+         *
+         * @param ray         the ray
+         * @param target      index of the result of the ray
+         * @param attenuation attenuation of the ray
+         * @param weight      throughput weight of the ray
+         * @param missWeight  weight of the background if the ray misses the scene
+         */
+        private void add(Ray ray, int target, Double3 attenuation, Double3 weight, Double3 missWeight) {
+            reserve(1);
+            rays[size] = ray;
+            targets[size] = target;
+            set(attenuations, size, attenuation);
+            set(weights, size, weight);
+            set(missWeights, size, missWeight);
+            ++size;
+        }
+
+        /**
+         * Appends the rays of another queue
+         *
+         * @param other the other queue
+         */
+        private void addAll(RayQueue other) {
+            reserve(other.size);
+            System.arraycopy(other.rays, 0, rays, size, other.size);
+            System.arraycopy(other.targets, 0, targets, size, other.size);
+            System.arraycopy(other.attenuations, 0, attenuations, 3 * size, 3 * other.size);
+            System.arraycopy(other.weights, 0, weights, 3 * size, 3 * other.size);
+            System.arraycopy(other.missWeights, 0, missWeights, 3 * size, 3 * other.size);
+            size += other.size;
+        }
+
+        /**
+         * Makes room for more rays in the queue
+         *
+         * @param count the amount of rays to be added
+         */
+        private void reserve(int count) {
+            if (size + count <= rays.length) return;
+            int capacity = Math.max(2 * rays.length, size + count);
+            rays = Arrays.copyOf(rays, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            attenuations = Arrays.copyOf(attenuations, 3 * capacity);
+            weights = Arrays.copyOf(weights, 3 * capacity);
+            missWeights = Arrays.copyOf(missWeights, 3 * capacity);
+        }
+
+        /**
+         * Allocates the stage results of the rays in the queue
+         */
+        private void prepare() {
+            hits = new Intersection[size];
+            colors = new double[3 * size];
+        }
+    }
+
+    /**
+     * Queue of the shadow rays towards the lights
+     */
+    private static final class ShadowQueue {
+        /**
+         * The shadow rays
+         */
+        private Ray[] rays;
+        /**
+         * Index of the result of every shadow ray (the result of its primary ray)
+         */
+        private int[] targets;
+        /**
+         * Distance to the light of every shadow ray
+         */
+        private double[] distances;
+        /**
+         * Attenuation of every shadow ray (r, g, b per ray) - the attenuation of the shaded ray
+         */
+        private double[] attenuations;
+        /**
+         * Throughput weight of every shadow ray (r, g, b per ray) - the weight of the shaded ray
+         */
+        private double[] weights;
+        /**
+         * Light intensity at the shaded point (r, g, b per ray)
+         */
+        private double[] intensities;
+        /**
+         * Diffuse and specular reflection coefficient of the light (r, g, b per ray)
+         */
+        private double[] factors;
+        /**
+         * Light color which gets through by the shadow stage (r, g, b per ray)
+         */
+        private double[] colors;
+        /**
+         * Amount of shadow rays in the queue
+         */
+        private int size = 0;
+
+        /**
+         * Constructs an empty queue
+         *
+         * @param capacity the initial capacity
+         */
+        private ShadowQueue(int capacity) {
+            capacity = Math.max(capacity, 1);
+            rays = new Ray[capacity];
+            targets = new int[capacity];
+            distances = new double[capacity];
+            attenuations = new double[3 * capacity];
+            weights = new double[3 * capacity];
+            intensities = new double[3 * capacity];
+            factors = new double[3 * capacity];
+        }
+
+        /**
+         * Adds a shadow ray to the queue
+         *
+         * @param ray         the shadow ray
+         * @param target      index of the result of the ray
+         * @param distance    distance to the light
+         * @param attenuation attenuation of the shaded ray
+         * @param weight      throughput weight of the shaded ray
+         * @param intensity   light intensity at the shaded point
+         * @param factor      diffuse and specular reflection coefficient of the light
+         */
+        private void add(Ray ray, int target, double distance, Double3 attenuation, Double3 weight,
+                         Double3 intensity, Double3 factor) {
+            reserve(1);
+            rays[size] = ray;
+            targets[size] = target;
+            distances[size] = distance;
+            set(attenuations, size, attenuation);
+            set(weights, size, weight);
+            set(intensities, size, intensity);
+            set(factors, size, factor);
+            ++size;
+        }
+
+        /**
+         * Appends the shadow rays of another queue
+         *
+         * @param other the other queue
+         */
+        private void addAll(ShadowQueue other) {
+            reserve(other.size);
+            System.arraycopy(other.rays, 0, rays, size, other.size);
+            System.arraycopy(other.targets, 0, targets, size, other.size);
+            System.arraycopy(other.distances, 0, distances, size, other.size);
+            System.arraycopy(other.attenuations, 0, attenuations, 3 * size, 3 * other.size);
+            System.arraycopy(other.weights, 0, weights, 3 * size, 3 * other.size);
+            System.arraycopy(other.intensities, 0, intensities, 3 * size, 3 * other.size);
+            System.arraycopy(other.factors, 0, factors, 3 * size, 3 * other.size);
+            size += other.size;
+        }
+
+        /**
+         * Makes room for more shadow rays in the queue
+         *
+         * @param count the amount of shadow rays to be added
+         */
+        private void reserve(int count) {
+            if (size + count <= rays.length) return;
+            int capacity = Math.max(2 * rays.length, size + count);
+            rays = Arrays.copyOf(rays, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            distances = Arrays.copyOf(distances, capacity);
+            attenuations = Arrays.copyOf(attenuations, 3 * capacity);
+            weights = Arrays.copyOf(weights, 3 * capacity);
+            intensities = Arrays.copyOf(intensities, 3 * capacity);
+            factors = Arrays.copyOf(factors, 3 * capacity);
+        }
+    }
+
+    /**
+     * Constructor for WavefrontRayTracer.
+     *
+     * @param scene the scene to trace rays in
+     */
+    public WavefrontRayTracer(Scene scene) {
+        super(scene);
+    }
+
+    /**
+     * Constructor for WavefrontRayTracer of a compiled scene.
+     *
+     * @param scene the compiled scene to trace rays in
+     */
+    public WavefrontRayTracer(RenderScene scene) {
+        super(scene);
+    }
+
+    @Override
+    public Color traceRay(Ray ray) {
+        Color[] colors = new Color[1];
+        traceRays(new Ray[]{ray}, 1, colors);
+        return colors[0];
+    }
+
+    @Override
+    public void traceRays(Ray[] rays, int count, Color[] colors) {
+        // generate: the primary rays, with the full weight
+        RayQueue queue = new RayQueue(count);
+        for (int i = 0; i < count; ++i) queue.add(rays[i], i, INITIAL_K, Double3.ONE, Double3.ONE);
+
+        double[] results = new double[3 * count];
+        // the ambient light is added to the primary rays which hit a visible surface
+        boolean[] ambient = new boolean[count];
+        for (int level = MAX_CALC_COLOR_LEVEL; queue.size > 0; --level) {
+            intersect(queue);
+            RayQueue next = new RayQueue(0);
+            ShadowQueue shadows = new ShadowQueue(0);
+            shade(queue, level, level == MAX_CALC_COLOR_LEVEL ? ambient : null, next, shadows);
+            for (int i = 0; i < queue.size; ++i) accumulate(results, queue.targets[i], queue.colors, i);
+            shadow(shadows);
+            for (int i = 0; i < shadows.size; ++i) accumulate(results, shadows.targets[i], shadows.colors, i);
+            queue = next;
+        }
+
+        for (int i = 0; i < count; ++i) {
+            Color color = new Color(results[3 * i], results[3 * i + 1], results[3 * i + 2]);
+            colors[i] = ambient[i] ? color.add(scene.ambientLight.getIntensity()) : color;
+        }
+    }
+
+    /**
+     * Intersect stage - finds the closest hits of the rays of a queue
+     *
+     * @param queue the queue
+     */
+    private void intersect(RayQueue queue) {
+        queue.prepare();
+        forEachBatch(queue.size, (from, to) -> {
+            RayPacket packet = new RayPacket();
+            for (int first = from; first < to; first += RayPacket.MAX_SIZE) {
+                int size = Math.min(RayPacket.MAX_SIZE, to - first);
+                packet.clear();
+                for (int k = 0; k < size; ++k) packet.add(queue.rays[first + k], Double.POSITIVE_INFINITY);
+                scene.geometries.calculateClosestIntersections(packet);
+                for (int k = 0; k < size; ++k) queue.hits[first + k] = packet.getHit(k);
+            }
+        });
+    }
+
+    /**
+     * Shade stage - accumulates the emission of the hits (or the background of the misses),
+     * queues the shadow rays towards the lights and the rays of the next generation
+     *
+     * @param queue   the queue of the current generation, after the intersect stage
+     * @param level   the remaining recursion levels of the generation
+     * @param ambient flags of the primary rays which get the ambient light, for the first
+     *                generation only (null for the others)
+     * @param next    the queue receiving the next generation
+     * @param shadows the queue receiving the shadow rays
+     */
+    private void shade(RayQueue queue, int level, boolean[] ambient, RayQueue next, ShadowQueue shadows) {
+        int batches = batches(queue.size);
+        RayQueue[] nextParts = new RayQueue[batches];
+        ShadowQueue[] shadowParts = new ShadowQueue[batches];
+        forEachBatch(queue.size, (from, to) -> {
+            RayQueue nextPart = new RayQueue(to - from);
+            ShadowQueue shadowPart = new ShadowQueue(to - from);
+            ShadingContext context = shadingContext(level);
+            for (int i = from; i < to; ++i) {
+                Ray ray = queue.rays[i];
+                Intersection hit = queue.hits[i];
+                if (hit == null) {
+                    // the background is added unscaled by the coefficient of the missing ray
+                    set(queue.colors, i, scene.background, get(queue.missWeights, i));
+                    continue;
+                }
+                if (!context.preprocess(hit, ray.getDirection())) continue;
+                if (ambient != null) ambient[queue.targets[i]] = true;
+
+                Double3 k = get(queue.attenuations, i);
+                Double3 weight = get(queue.weights, i);
+                set(queue.colors, i, hit.geometry.getEmission(hit.index), weight);
+                for (LightSource light : scene.lights) {
+                    if (context.setLightSource(light))
+                        shadowPart.add(context.shadowRay(), queue.targets[i], context.lightDistance(), k, weight,
+                                get(light.getIntensity(context.point)), context.reflectance());
+                }
+                if (level == 1) continue;
+
+                // as in SimpleRayTracer, the colors of the reflected and refracted rays are scaled by
+                // the attenuation of the shaded ray, and the background of their misses by its weight
+                Material material = hit.material;
+                Double3 childWeight = weight.product(k);
+                Double3 kR = material.kR.product(k);
+                if (!kR.lowerThan(MIN_CALC_COLOR_K)) {
+                    nextPart.add(constructReflectedRay(hit, ray), queue.targets[i], kR, childWeight, weight);
+                    RenderStats stats = RenderStats.current();
+                    if (stats != null) stats.countRay(RenderStats.RayType.REFLECTED, MAX_CALC_COLOR_LEVEL - level + 1);
+                }
+                Double3 kT = material.kT.product(k);
+                if (!kT.lowerThan(MIN_CALC_COLOR_K)) {
+                    nextPart.add(constructRefractedRay(hit, ray), queue.targets[i], kT, childWeight, weight);
+                    RenderStats stats = RenderStats.current();
+                    if (stats != null) stats.countRay(RenderStats.RayType.REFRACTED, MAX_CALC_COLOR_LEVEL - level + 1);
+                }
+            }
+            nextParts[from / BATCH_SIZE] = nextPart;
+            shadowParts[from / BATCH_SIZE] = shadowPart;
+        });
+        for (int b = 0; b < batches; ++b) {
+            next.addAll(nextParts[b]);
+            shadows.addAll(shadowParts[b]);
+        }
+    }
+
+    /**
+     * Shadow stage - finds the transparency along the shadow rays, and the light which gets through
+     *
+     * @param shadows the queue of the shadow rays
+     */
+    private void shadow(ShadowQueue shadows) {
+        shadows.colors = new double[3 * shadows.size];
+        RenderStats stats = RenderStats.current();
+        if (stats != null) stats.countRays(RenderStats.RayType.SHADOW, shadows.size);
+        forEachBatch(shadows.size, (from, to) -> {
+            for (int i = from; i < to; ++i) {
+                Double3 ktr = calculateTransparency(shadows.rays[i], shadows.distances[i]);
+                if (!ktr.product(get(shadows.attenuations, i)).greaterThan(MIN_CALC_COLOR_K)) continue;
+                Double3 light = get(shadows.intensities, i).product(ktr).product(get(shadows.factors, i));
+                set(shadows.colors, i, light, get(shadows.weights, i));
+            }
+        });
+    }
+
+    /**
+     * A stage's processing of a batch of queue entries
+     */
+    @FunctionalInterface
+    private interface Batch {
+        /**
+         * Processes the entries of a batch
+         *
+         * @param from the first entry
+         * @param to   the entry after the last one
+         */
+        void process(int from, int to);
+    }
+
+    /**
+     * Returns the amount of batches of a queue
+     *
+     * @param size the amount of entries in the queue
+     * @return the amount of batches
+     */
+    private static int batches(int size) {
+        return (size + BATCH_SIZE - 1) / BATCH_SIZE;
+    }
+
+    /**
+     * Processes the entries of a queue in batches, in parallel if there are several batches
+     *
+     * @param size  the amount of entries in the queue
+     * @param batch the processing of a batch
+     */
+    private static void forEachBatch(int size, Batch batch) {
+        int batches = batches(size);
+        if (batches == 1) batch.process(0, size);
+        else if (batches > 1) {
+            // the batches are counted in the statistics of the rendering which processes the queue
+            RenderStats stats = RenderStats.current();
+            IntStream.range(0, batches).parallel()
+                    .forEach(b -> RenderStats.run(stats,
+                            () -> batch.process(b * BATCH_SIZE, Math.min(size, (b + 1) * BATCH_SIZE))));
+        }
+    }
+
+    /**
+     * Adds a color of a queue entry to a result
+     *
+     * @param results the results (r, g, b per result)
+     * @param target  the index of the result
+     * @param colors  the colors of the queue (r, g, b per entry)
+     * @param i       the index of the entry
+     */
+    private static void accumulate(double[] results, int target, double[] colors, int i) {
+        results[3 * target] += colors[3 * i];
+        results[3 * target + 1] += colors[3 * i + 1];
+        results[3 * target + 2] += colors[3 * i + 2];
+    }
+
+    /**
+     * Stores a triad in a primitive array of triads
+     *
+     * @param array the array (3 numbers per entry)
+     * @param i     the index of the entry
+     * @param value the triad
+     */
+    private static void set(double[] array, int i, Double3 value) {
+        array[3 * i] = value.d1();
+        array[3 * i + 1] = value.d2();
+        array[3 * i + 2] = value.d3();
+    }
+
+    /**
+     * Stores a weighted triad in a primitive array of triads
+     *
+     * @param array  the array (3 numbers per entry)
+     * @param i      the index of the entry
+     * @param value  the triad
+     * @param weight the weight of the triad
+     */
+    private static void set(double[] array, int i, Double3 value, Double3 weight) {
+        array[3 * i] = value.d1() * weight.d1();
+        array[3 * i + 1] = value.d2() * weight.d2();
+        array[3 * i + 2] = value.d3() * weight.d3();
+    }
+
+    /**
+     * Stores a weighted color in a primitive array of triads
+     *
+     * @param array  the array (3 numbers per entry)
+     * @param i      the index of the entry
+     * @param color  the color
+     * @param weight the weight of the color
+     */
+    private static void set(double[] array, int i, Color color, Double3 weight) {
+        set(array, i, get(color), weight);
+    }
+
+    /**
+     * Loads a triad from a primitive array of triads
+     *
+     * @param array the array (3 numbers per entry)
+     * @param i     the index of the entry
+     * @return the triad
+     */
+    private static Double3 get(double[] array, int i) {
+        return new Double3(array[3 * i], array[3 * i + 1], array[3 * i + 2]);
+    }
+
+    /**
+     * Returns the components of a color
+     *
+     * @param color the color
+     * @return the red, green and blue components
+     */
+    private static Double3 get(Color color) {
+        return color.getRgb();
+    }
+}
@@ -0,0 +1,150 @@
+package scene;
+
+import geometries.Geometries;
+import geometries.Geometry;
+import geometries.Intersectable;
+import lighting.AmbientLight;
+import lighting.LightSource;
+import primitives.Color;
+import primitives.Material;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * The compiled form of a {@link Scene} which the ray tracers render - made once before the
+ * rendering by {@link Scene#compile(boolean, boolean)}.
+ * <p>
+ * The compilation takes a snapshot of the scene: the lights are copied into a list, the
+ * nested collections of geometries are flattened into a list of primitives, and the
+ * primitives are put in an acceleration structure - a bounding volume hierarchy, or the
+ * type-partitioned arrays of {@link geometries.CompiledGeometries}. The primitives are copies
+ * of the scene geometries (see {@link Geometry#copyWithMaterials}) which share their shapes,
+ * and their materials are copies too - equal materials get a single shared copy. The bounding
+ * boxes are calculated in advance, and the conservative bounding region (CBR) check is turned
+ * on for the copies if the scene is compiled with it.
+ * <p>
+ * A render scene is immutable (its lists are unmodifiable, and its materials must not be
+ * changed by its users), so it may be used by several threads at once. The scene is not changed by the compilation, and
+ * its later changes - of its geometries and lights lists, and of the emissions and materials
+ * of its geometries - do not affect the render scene. The light sources themselves are shared
+ * with the scene.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+public final class RenderScene {
+    /**
+     * The name of the scene
+     */
+    public final String name;
+    /**
+     * The background color of the scene
+     */
+    public final Color background;
+    /**
+     * The ambient light of the scene
+     */
+    public final AmbientLight ambientLight;
+    /**
+     * The light sources of the scene - an unmodifiable list
+     */
+    public final List<LightSource> lights;
+    /**
+     * The primitives of the scene - copies of the geometries with nested collections flattened
+     */
+    public final List<Intersectable> primitives;
+    /**
+     * The acceleration structure over the primitives, which the rays are intersected with
+     */
+    public final Intersectable geometries;
+    /**
+     * The primitives with the bounding volume hierarchy, {@code null} if there is no hierarchy
+     */
+    private final Geometries hierarchy;
+
+    /**
+     * Compiles a scene
+     *
+     * @param scene the scene
+     * @param bvh   whether to build a bounding volume hierarchy over the primitives
+     * @param cbr   whether the primitives and their acceleration structure check their bounding
+     *              boxes before calculating intersections
+     */
+    RenderScene(Scene scene, boolean bvh, boolean cbr) {
+        name = scene.name;
+        background = scene.background;
+        ambientLight = scene.ambientLight;
+        lights = List.copyOf(scene.lights);
+        primitives = copyPrimitives(scene.geometries.flatten(), cbr);
+        if (bvh) {
+            hierarchy = new Geometries(primitives.toArray(new Intersectable[0])).buildBVH();
+            hierarchy.getBoundingBox();
+            geometries = hierarchy;
+        } else {
+            hierarchy = null;
+            geometries = new Geometries(primitives.toArray(new Intersectable[0])).compile();
+        }
+        if (cbr) geometries.enableCBR();
+    }
+
+    /**
+     * Copies the primitives of the scene, so that the render scene owns its geometries and their
+     * materials. The materials are copied once per distinct coefficients - the geometries with
+     * equal materials share a single copy, so a scene whose geometries were each given their
+     * own default material ends up with a few materials.
+     *
+     * @param primitives the primitives of the scene
+     * @param cbr        whether the copies check their bounding boxes before calculating intersections
+     * @return the copies of the primitives
+     */
+    private static List<Intersectable> copyPrimitives(List<Intersectable> primitives, boolean cbr) {
+        Map<List<Number>, Material> shared = new HashMap<>();
+        Map<Material, Material> copies = new IdentityHashMap<>();
+        UnaryOperator<Material> intern = material -> material == null ? null
+                : copies.computeIfAbsent(material, m -> shared.computeIfAbsent(key(m), k -> copy(m)));
+        Intersectable[] result = new Intersectable[primitives.size()];
+        int i = 0;
+        for (Intersectable primitive : primitives) {
+            Intersectable copy = primitive instanceof Geometry geometry ? geometry.copyWithMaterials(intern) : primitive;
+            result[i++] = cbr ? copy.enableCBR() : copy;
+        }
+        return List.of(result);
+    }
+
+    /**
+     * Returns the coefficients of a material - they are compared exactly (unlike Double3#equals)
+     *
+     * @param material the material
+     * @return the coefficients
+     */
+    private static List<Number> key(Material material) {
+        return List.of(material.kA.d1(), material.kA.d2(), material.kA.d3(),
+                material.kD.d1(), material.kD.d2(), material.kD.d3(),
+                material.kS.d1(), material.kS.d2(), material.kS.d3(),
+                material.kT.d1(), material.kT.d2(), material.kT.d3(),
+                material.kR.d1(), material.kR.d2(), material.kR.d3(), material.nSh);
+    }
+
+    /**
+     * Copies a material
+     *
+     * @param material the material
+     * @return a new material with the same coefficients
+     */
+    private static Material copy(Material material) {
+        return new Material().setKA(material.kA).setKD(material.kD).setKS(material.kS)
+                .setShininess(material.nSh).setKT(material.kT).setKR(material.kR);
+    }
+
+    /**
+     * Returns the build and traversal statistics of the bounding volume hierarchy
+     *
+     * @return statistics summary, or {@code null} if there is no hierarchy
+     */
+    public String getBVHStatistics() {
+        return hierarchy == null ? null : hierarchy.getBVHStatistics();
+    }
+}
@@ -99,4 +99,39 @@ public class Scene {
         return this;
     }
 
+    /**
+     * Compiles the scene into the form which is rendered - see {@link RenderScene}.
+     * A bounding volume hierarchy is built over the primitives if it was built over the
+     * scene geometries ({@link Geometries#buildBVH()}), otherwise they are partitioned by type.
+     *
+     * @return the render scene
+     */
+    public RenderScene compile() {
+        return compile(false);
+    }
+
+    /**
+     * Compiles the scene into the form which is rendered - see {@link RenderScene}.
+     *
+     * @param bvh whether to build a bounding volume hierarchy over the primitives - it is built
+     *            anyway if it was built over the scene geometries ({@link Geometries#buildBVH()})
+     * @return the render scene
+     */
+    public RenderScene compile(boolean bvh) {
+        return compile(bvh, false);
+    }
+
+    /**
+     * Compiles the scene into the form which is rendered - see {@link RenderScene}.
+     *
+     * @param bvh whether to build a bounding volume hierarchy over the primitives - it is built
+     *            anyway if it was built over the scene geometries ({@link Geometries#buildBVH()})
+     * @param cbr whether the geometries of the render scene check their bounding boxes before
+     *            calculating intersections (see {@link geometries.Intersectable#enableCBR()})
+     * @return the render scene
+     */
+    public RenderScene compile(boolean bvh, boolean cbr) {
+        return new RenderScene(this, bvh || geometries.hasBVH(), cbr);
+    }
+
 }
@@ -0,0 +1,264 @@
+package scene;
+
+import geometries.BoundingBox;
+import geometries.TriangleMesh;
+import primitives.Color;
+import primitives.Material;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary file of a triangle soup (independent colored triangles), read through a
+ * memory-mapped buffer.
+ * <p>
+ * The file format (little-endian):
+ * <pre>
+ * offset 0   4 bytes   magic "TSF1"
+ * offset 4   int       amount of triangles
+ * offset 8   6 floats  bounds of all the vertices: minX, minY, minZ, maxX, maxY, maxZ
+ * offset 32  records   40 bytes per triangle: 9 floats (x, y, z of the 3 vertices),
+ *                      3 unsigned bytes (red, green, blue) and a padding byte
+ * </pre>
+ * The bounds in the header let a loader fit the scene before it reads the triangles, so a mesh
+ * is created in a single pass over the records. Files are created from the text format of the
+ * python scripts (12 comma separated integers per line - 3 vertices and a color) by
+ * {@link #convert(Path, Path)}, or transparently by {@link #fromCsv(Path)}.
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+public final class TriangleSoupFile {
+    /**
+     * File signature and version
+     */
+    private static final byte[] MAGIC = "TSF1".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * Size of the header in bytes
+     */
+    private static final int HEADER_SIZE = 32;
+    /**
+     * Size of a triangle record in bytes
+     */
+    private static final int RECORD_SIZE = 40;
+    /**
+     * Amount of values in a line of the text format
+     */
+    private static final int CSV_VALUES = 12;
+    /**
+     * Extension of the binary files created next to the text files by {@link #fromCsv(Path)}
+     */
+    public static final String EXTENSION = ".tsf";
+
+    /**
+     * Mapped content of the file
+     */
+    private final ByteBuffer buffer;
+    /**
+     * Amount of triangles
+     */
+    private final int size;
+    /**
+     * Bounds of the raw vertices
+     */
+    private final BoundingBox bounds;
+
+    /**
+     * Per-axis affine transform applied to the raw vertices while a mesh is created:
+     * x' = scaleX * x + offsetX, and the same for Y and Z
+     *
+     * @param scaleX  X scale factor
+     * @param scaleY  Y scale factor
+     * @param scaleZ  Z scale factor
+     * @param offsetX X offset
+     * @param offsetY Y offset
+     * @param offsetZ Z offset
+     */
+    public record Transform(double scaleX, double scaleY, double scaleZ,
+                            double offsetX, double offsetY, double offsetZ) {
+        /**
+         * Transform which keeps the vertices as they are
+         */
+        public static final Transform IDENTITY = new Transform(1, 1, 1, 0, 0, 0);
+    }
+
+    /**
+     * Maps an existing binary file
+     *
+     * @param file the binary file
+     * @throws IOException if the file can't be read or is not a triangle soup file
+     */
+    private TriangleSoupFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_SIZE)
+                throw new IOException("Not a triangle soup file: " + file);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        for (int i = 0; i < MAGIC.length; ++i)
+            if (buffer.get(i) != MAGIC[i])
+                throw new IOException("Not a triangle soup file: " + file);
+        size = buffer.getInt(4);
+        if (size < 0 || buffer.capacity() != HEADER_SIZE + (long) size * RECORD_SIZE)
+            throw new IOException("Corrupted triangle soup file: " + file);
+        bounds = size == 0 ? null : new BoundingBox(buffer.getFloat(8), buffer.getFloat(12), buffer.getFloat(16),
+                buffer.getFloat(20), buffer.getFloat(24), buffer.getFloat(28));
+    }
+
+    /**
+     * Opens a binary triangle soup file
+     *
+     * @param file the binary file
+     * @return the opened file
+     * @throws IOException if the file can't be read or is not a triangle soup file
+     */
+    public static TriangleSoupFile open(Path file) throws IOException {
+        return new TriangleSoupFile(file);
+    }
+
+    /**
+     * Opens the binary version of a text triangle file. The binary file (the text file name with
+     * the {@link #EXTENSION} suffix) is created, or re-created if it is older than the text file.
+     *
+     * @param csv the text file
+     * @return the opened binary file
+     * @throws IOException if a file can't be read or written, or the text is malformed
+     */
+    public static TriangleSoupFile fromCsv(Path csv) throws IOException {
+        Path binary = csv.resolveSibling(csv.getFileName() + EXTENSION);
+        if (!Files.exists(binary)
+                || Files.getLastModifiedTime(binary).compareTo(Files.getLastModifiedTime(csv)) < 0)
+            convert(csv, binary);
+        return open(binary);
+    }
+
+    /**
+     * Converts a text triangle file to the binary format in a single streaming pass.
+     * Empty lines, lines starting with '#' and lines without exactly 12 values are skipped.
+     *
+     * @param csv    the text file - 12 comma separated integers per line: x, y, z of the
+     *               3 vertices followed by red, green and blue
+     * @param binary the binary file to write
+     * @throws IOException if a file can't be read or written, or a value is not a number
+     */
+    public static void convert(Path csv, Path binary) throws IOException {
+        float[] b = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+                Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        int count = 0;
+        ByteBuffer records = ByteBuffer.allocate(RECORD_SIZE * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.US_ASCII);
+             FileChannel out = FileChannel.open(binary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.position(HEADER_SIZE); // the header is written when the bounds are known
+            double[] values = new double[CSV_VALUES];
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!parseLine(line, values)) continue;
+                for (int v = 0; v < 9; ++v) {
+                    float c = (float) values[v];
+                    records.putFloat(c);
+                    b[v % 3] = Math.min(b[v % 3], c);
+                    b[v % 3 + 3] = Math.max(b[v % 3 + 3], c);
+                }
+                for (int c = 9; c < CSV_VALUES; ++c)
+                    records.put((byte) Math.max(0, Math.min(255, (int) values[c])));
+                records.put((byte) 0);
+                ++count;
+                if (!records.hasRemaining()) {
+                    records.flip();
+                    while (records.hasRemaining()) out.write(records);
+                    records.clear();
+                }
+            }
+            records.flip();
+            while (records.hasRemaining()) out.write(records);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC).putInt(count);
+            for (float f : b) header.putFloat(count == 0 ? 0 : f);
+            header.flip();
+            out.position(0);
+            while (header.hasRemaining()) out.write(header);
+        }
+    }
+
+    /**
+     * Parses a line of the text format without splitting it into strings
+     *
+     * @param line   the line
+     * @param values array to fill with the 12 values of the line
+     * @return false if the line is empty, a comment, or does not have exactly 12 values
+     * @throws NumberFormatException if a value is not a number
+     */
+    private static boolean parseLine(String line, double[] values) {
+        int length = line.length();
+        int pos = 0;
+        while (pos < length && Character.isWhitespace(line.charAt(pos))) ++pos;
+        if (pos == length || line.charAt(pos) == '#') return false;
+
+        int count = 0;
+        while (pos <= length) {
+            int end = line.indexOf(',', pos);
+            if (end < 0) end = length;
+            if (count == CSV_VALUES) return false; // too many values
+            values[count++] = Double.parseDouble(line.substring(pos, end).trim());
+            pos = end + 1;
+        }
+        return count == CSV_VALUES;
+    }
+
+    /**
+     * Returns the amount of triangles in the file
+     *
+     * @return the amount of triangles
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the bounds of the raw (not transformed) vertices of the file
+     *
+     * @return the bounds, or {@code null} if the file has no triangles
+     */
+    public BoundingBox getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Creates a mesh of all the triangles of the file, each with its own color as emission.
+     * The records are read once, directly from the mapped file.
+     *
+     * @param transform transform of the raw vertices
+     * @param material  the material of all the triangles
+     * @return the mesh
+     * @throws IllegalArgumentException if the file has no triangles, or a triangle is degenerate
+     */
+    public TriangleMesh toMesh(Transform transform, Material material) {
+        TriangleMesh.Builder builder = TriangleMesh.getBuilder();
+        Map<Integer, Color> colors = new HashMap<>();
+        for (int t = 0; t < size; ++t) {
+            int record = HEADER_SIZE + t * RECORD_SIZE;
+            for (int v = 0; v < 3; ++v) {
+                int at = record + 12 * v;
+                builder.addVertex(
+                        transform.scaleX() * buffer.getFloat(at) + transform.offsetX(),
+                        transform.scaleY() * buffer.getFloat(at + 4) + transform.offsetY(),
+                        transform.scaleZ() * buffer.getFloat(at + 8) + transform.offsetZ());
+            }
+            int rgb = buffer.getInt(record + 36) & 0xFFFFFF;
+            Color color = colors.computeIfAbsent(rgb,
+                    c -> new Color(c & 0xFF, (c >> 8) & 0xFF, (c >> 16) & 0xFF));
+            builder.addFace(3 * t, 3 * t + 1, 3 * t + 2, color, material);
+        }
+        return builder.build();
+    }
+}
@@ -1,6 +1,8 @@
 package geometries;
 
 import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -8,6 +10,11 @@ import primitives.Vector;
 import static org.junit.jupiter.api.Assertions.*;
 
 class GeometriesTest {
+    /**
+     * Delta value for accuracy when comparing the numbers of type 'double' in
+     * assertEquals
+     */
+    private static final double DELTA = 0.00001;
 
     @Test
     void testFindIntersections() {
@@ -70,4 +77,178 @@ class GeometriesTest {
                 resultAllHit.size(),
                 "Expected four intersection points (triangle + plane + 2 from sphere)");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link geometries.Geometries#buildBVH()}.
+     * The hierarchy must not change the found intersections.
+     */
+    @Test
+    void testBVH() {
+        Geometries linear = new Geometries();
+        Geometries nested = new Geometries();
+        for (int i = 0; i < 20; ++i)
+            for (int j = 0; j < 20; ++j) {
+                Triangle triangle = new Triangle(new Point(i, j, 0), new Point(i + 1, j, 0), new Point(i, j + 1, 0));
+                Sphere sphere = new Sphere(new Point(i + 0.5, j + 0.5, 3), 0.3);
+                linear.add(triangle, sphere);
+                nested.add(triangle);
+                nested.add(new Geometries(sphere));
+            }
+        Plane plane = new Plane(new Point(0, 0, -5), new Vector(0, 0, 1));
+        linear.add(plane);
+        nested.add(plane);
+        Geometries accelerated = nested.buildBVH();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rays from different directions through the grid hit the same geometries
+        for (int i = 0; i < 50; ++i) {
+            Ray ray = new Ray(new Point(10, 10, 20), new Vector(i % 7 - 3.1, i % 5 - 2.3, -5));
+            var expected = linear.findIntersections(ray);
+            var result = accelerated.findIntersections(ray);
+            assertNotNull(result, "BVH lost the intersections");
+            assertEquals(expected.size(), result.size(), "Wrong number of points with BVH");
+            assertTrue(result.containsAll(expected), "Wrong points with BVH");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray which misses the hierarchy still hits the unbounded plane
+        Ray ray = new Ray(new Point(-100, -100, 20), new Vector(0, 0, -1));
+        assertEquals(1, accelerated.findIntersections(ray).size(), "Unbounded geometry is lost with BVH");
+        assertNotNull(accelerated.getBVHStatistics(), "BVH statistics are missing");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#compile()}.
+     * The compiled form must find the same intersections as the collection.
+     */
+    @Test
+    void testCompile() {
+        Geometries group = new Geometries();
+        for (int i = 0; i < 10; ++i) {
+            group.add(new Triangle(new Point(i, 0, 0), new Point(i + 1, 0, 0), new Point(i, 1, 0)));
+            group.add(new Geometries(new Sphere(new Point(i + 0.5, 0.5, 3), 0.3)));
+            group.add(new Cylinder(new Ray(new Point(i + 0.5, 0.5, 5), new Vector(0, 0, 1)), 0.2, 1));
+        }
+        group.add(new Plane(new Point(0, 0, -5), new Vector(0, 0, 1)));
+        CompiledGeometries compiled = group.compile();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Nested collections are flattened into all their geometries
+        assertEquals(31, compiled.size(), "Wrong number of compiled geometries");
+
+        // TC02: Rays from different directions hit the same geometries, and the same one first
+        for (int i = 0; i < 30; ++i) {
+            Ray ray = new Ray(new Point(5, 0.5, 20), new Vector(i % 7 - 3.1, i % 3 - 1.2, -5));
+            var expected = group.findIntersections(ray);
+            var result = compiled.findIntersections(ray);
+            assertEquals(expected.size(), result.size(), "Wrong number of points of the compiled geometries");
+            assertTrue(result.containsAll(expected), "Wrong points of the compiled geometries");
+            assertEquals(group.calculateClosestIntersection(ray, Double.POSITIVE_INFINITY).getPoint(),
+                    compiled.calculateClosestIntersection(ray, Double.POSITIVE_INFINITY).getPoint(),
+                    "Wrong closest point of the compiled geometries");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: The compiled form is not changed by later changes of the collection
+        group.add(new Sphere(new Point(100, 100, 100), 1));
+        assertEquals(31, compiled.size(), "The compiled geometries must not change");
+        // TC12: A collection with an unbounded geometry compiles without a box
+        assertNull(compiled.getBoundingBox(), "Unbounded compiled geometries must not have a box");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#getBoundingBox()} and the CBR mode
+     * of {@link geometries.Intersectable#calculateIntersections(primitives.Ray)}.
+     */
+    @Test
+    void testBoundingBox() {
+        Sphere sphere = new Sphere(new Point(0, 0, 3), 1);
+        Triangle triangle = new Triangle(new Point(0, 1, 0), new Point(1, -1, 0), new Point(-1, -1, 0));
+        Geometries group = new Geometries(new Geometries(sphere), triangle);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The box of a collection is the union of its children's boxes
+        BoundingBox box = group.getBoundingBox();
+        assertNotNull(box, "Bounded collection must have a box");
+        assertEquals(-1, box.minX, DELTA, "Wrong box minimal X");
+        assertEquals(-1, box.minY, DELTA, "Wrong box minimal Y");
+        assertEquals(0, box.minZ, DELTA, "Wrong box minimal Z");
+        assertEquals(1, box.maxX, DELTA, "Wrong box maximal X");
+        assertEquals(1, box.maxY, DELTA, "Wrong box maximal Y");
+        assertEquals(4, box.maxZ, DELTA, "Wrong box maximal Z");
+
+        // TC02: CBR mode keeps intersections of rays through the box and rejects the others
+        Geometries checked = new Geometries(new Geometries(sphere), triangle);
+        checked.enableCBR();
+        assertEquals(3, checked.findIntersections(new Ray(new Point(0, 0, -1), new Vector(0, 0, 1))).size(),
+                "CBR lost intersections");
+        assertNull(checked.findIntersections(new Ray(new Point(5, 5, -1), new Vector(0, 0, 1))),
+                "Ray outside the box must not intersect");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A collection with an unbounded geometry has no box
+        group.add(new Plane(new Point(0, 0, 1), new Vector(0, 0, 1)));
+        assertNull(group.getBoundingBox(), "Unbounded collection must not have a box");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#calculateIntersections(primitives.Ray, double)}
+     * and {@link geometries.Intersectable#calculateClosestIntersection(primitives.Ray, double)}.
+     */
+    @Test
+    void testMaxDistance() {
+        Geometries geometries = new Geometries(
+                new Sphere(new Point(0, 0, 5), 1),
+                new Triangle(new Point(0, 1, 2), new Point(1, -1, 2), new Point(-1, -1, 2)),
+                new Plane(new Point(0, 0, 10), new Vector(0, 0, 1)));
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+
+        for (Intersectable group : new Intersectable[]{geometries, new Geometries(geometries).buildBVH(),
+                geometries.compile()}) {
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: Only the intersections up to the distance are found (triangle and sphere front)
+            assertEquals(2, group.calculateIntersections(ray, 5).size(), "Wrong number of points");
+            // TC02: The closest intersection is the triangle
+            assertEquals(new Point(0, 0, 2), group.calculateClosestIntersection(ray, 100).getPoint(),
+                    "Wrong closest point");
+            // TC03: Nothing is found before the distance
+            assertNull(group.calculateIntersections(ray, 1.5), "Intersections beyond the distance");
+            assertNull(group.calculateClosestIntersection(ray, 1.5), "Intersection beyond the distance");
+
+            // =============== Boundary Values Tests ==================
+            // TC11: An intersection exactly at the distance is found
+            assertEquals(1, group.calculateIntersections(ray, 2).size(), "Point at the distance is lost");
+            // TC12: Unlimited distance finds all the intersections
+            assertEquals(4, group.calculateIntersections(ray, Double.POSITIVE_INFINITY).size(),
+                    "Wrong number of points");
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#calculateTransparency(primitives.Ray, double)}.
+     */
+    @Test
+    void testTransparency() {
+        Geometries geometries = new Geometries(
+                new Sphere(new Point(0, 0, 5), 1).setMaterial(new Material().setKT(0.5)),
+                new Triangle(new Point(0, 1, 2), new Point(1, -1, 2), new Point(-1, -1, 2))
+                        .setMaterial(new Material().setKT(0.8)),
+                new Plane(new Point(0, 0, 10), new Vector(0, 0, 1)));
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+
+        for (Intersectable group : new Intersectable[]{geometries, new Geometries(geometries).buildBVH(),
+                geometries.compile()}) {
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: Transparent occluders multiply their coefficients (triangle and both sphere sides)
+            assertEquals(new Double3(0.2), group.calculateTransparency(ray, 8), "Wrong transparency");
+            // TC02: An opaque occluder blocks the ray
+            assertEquals(Double3.ZERO, group.calculateTransparency(ray, 100), "Opaque plane must block");
+            // TC03: No occluders before the distance
+            assertEquals(Double3.ONE, group.calculateTransparency(ray, 1), "Nothing should block");
+
+            // =============== Boundary Values Tests ==================
+            // TC11: An occluder exactly at the distance blocks the ray
+            assertEquals(Double3.ZERO, group.calculateTransparency(ray, 10), "Plane at the distance must block");
+        }
+    }
+}
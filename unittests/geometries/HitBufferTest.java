@@ -0,0 +1,122 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HitBufferTest {
+    /**
+     * Delta value for accuracy when comparing the numbers of type 'double' in
+     * assertEquals
+     */
+    private static final double DELTA = 0.00001;
+    /**
+     * A ray along the X axis
+     */
+    private final Ray ray = new Ray(Point.ZERO, new Vector(1, 0, 0));
+    /**
+     * A geometry for the hits
+     */
+    private final Sphere sphere = new Sphere(new Point(5, 0, 0), 1);
+
+    /**
+     * Test method for {@link HitBuffer#sortByDistance(int)} and {@link HitBuffer#closest(int)}.
+     */
+    @Test
+    void testSortAndClosest() {
+        HitBuffer hits = new HitBuffer();
+        hits.add(sphere, ray, 7);
+        int mark = hits.size();
+        hits.add(sphere, ray, 6, 1, 0, 0);
+        hits.add(sphere, ray, 4, 2, 0, 0);
+        hits.add(sphere, ray, 4, 3, 0, 0);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the hits after the mark are sorted by distance, equal distances keep their order
+        hits.sortByDistance(mark);
+        assertEquals(7, hits.t(0), "The hit before the mark must not move");
+        assertEquals(2, hits.index(1), "Wrong closest hit after the sort");
+        assertEquals(3, hits.index(2), "The sort must be stable");
+        assertEquals(1, hits.index(3), "Wrong farthest hit after the sort");
+
+        // TC02: the first of the nearest hits from the mark is the closest
+        assertEquals(1, hits.closest(mark), "Wrong closest hit");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a hit at the ray head is not in front of the ray
+        HitBuffer head = new HitBuffer();
+        head.add(sphere, ray, 0);
+        assertEquals(-1, head.closest(0), "A hit at the ray head must not be the closest");
+    }
+
+    /**
+     * Test method for {@link HitBuffer#remove(int)}, {@link HitBuffer#truncate(int)} and
+     * {@link HitBuffer#toList(int)}.
+     */
+    @Test
+    void testRemoveTruncateAndList() {
+        HitBuffer hits = new HitBuffer();
+        // more hits than the initial capacity, so the buffer grows
+        for (int i = 1; i <= 40; ++i) hits.add(sphere, ray, i, i, 0.1 * i, 0.2 * i);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: removing a hit moves back the hits after it with all their data
+        hits.remove(0);
+        assertEquals(39, hits.size(), "Wrong size after the removal");
+        Intersection first = hits.intersection(0);
+        assertEquals(2, first.t, "Wrong distance after the removal");
+        assertEquals(2, first.index, "Wrong part index after the removal");
+        assertEquals(0.2, first.localU, DELTA, "Wrong local coordinate after the removal");
+        assertEquals(0.4, first.localV, DELTA, "Wrong local coordinate after the removal");
+        assertEquals(new Point(2, 0, 0), first.getPoint(), "Wrong intersection point");
+
+        // TC02: the list holds the hits from the position on, in their order
+        List<Intersection> list = hits.toList(37);
+        assertEquals(2, list.size(), "Wrong amount of intersections");
+        assertEquals(39, list.get(0).t, "Wrong first intersection");
+        assertEquals(40, list.get(1).t, "Wrong second intersection");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: truncating to the start empties the buffer, and the list of no hits is null
+        hits.truncate(0);
+        assertEquals(0, hits.size(), "The buffer must be empty");
+        assertNull(hits.toList(0), "The list of no hits must be null");
+    }
+
+    /**
+     * Test method for {@link HitBuffer#beginTraversal()} and {@link HitBuffer#endTraversal()}.
+     */
+    @Test
+    void testTraversals() {
+        HitBuffer hits = new HitBuffer();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a nested traversal gets its own arrays
+        HitBuffer.Traversal outer = hits.beginTraversal();
+        HitBuffer.Traversal inner = hits.beginTraversal();
+        assertNotSame(outer, inner, "A nested traversal must not share the arrays");
+        hits.endTraversal();
+
+        // TC02: the arrays of an ended traversal are reused
+        assertSame(inner, hits.beginTraversal(), "The arrays of a traversal must be reused");
+        hits.endTraversal();
+        hits.endTraversal();
+        assertSame(outer, hits.beginTraversal(), "The arrays of a traversal must be reused");
+        hits.endTraversal();
+
+        // =============== Boundary Values Tests ==================
+        // TC11: traversals nested deeper than the initial capacity
+        HitBuffer.Traversal[] nested = new HitBuffer.Traversal[5];
+        for (int i = 0; i < nested.length; ++i) nested[i] = hits.beginTraversal();
+        for (int i = 1; i < nested.length; ++i)
+            assertNotSame(nested[i - 1], nested[i], "A nested traversal must not share the arrays");
+        assertEquals(BoxTree.STACK_SIZE, nested[4].nodes.length, "Wrong size of the node stack");
+        for (int i = 0; i < nested.length; ++i) hits.endTraversal();
+    }
+}
@@ -0,0 +1,145 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TriangleMeshTest {
+    /**
+     * Delta value for accuracy when comparing the numbers of type 'double' in
+     * assertEquals
+     */
+    private static final double DELTA = 0.00001;
+
+    /**
+     * A grid of 2 x n x n faces on the plane z = 0 (every square split along its diagonal)
+     *
+     * @param n         amount of squares along each axis
+     * @param triangles geometries collecting equal standalone triangles
+     * @return the mesh
+     */
+    private static TriangleMesh grid(int n, Geometries triangles) {
+        TriangleMesh.Builder builder = TriangleMesh.getBuilder();
+        for (int i = 0; i < n; ++i)
+            for (int j = 0; j < n; ++j) {
+                Point p00 = new Point(i, j, 0), p10 = new Point(i + 1, j, 0);
+                Point p01 = new Point(i, j + 1, 0), p11 = new Point(i + 1, j + 1, 0);
+                builder.addTriangle(p00, p10, p11).addTriangle(p00, p11, p01);
+                triangles.add(new Triangle(p00, p10, p11), new Triangle(p00, p11, p01));
+            }
+        return builder.build();
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#calculateIntersections(primitives.Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        Geometries triangles = new Geometries();
+        TriangleMesh mesh = grid(10, triangles);
+        assertEquals(200, mesh.size(), "Wrong amount of faces");
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rays through the inside of faces hit the same points as standalone triangles
+        for (int i = 0; i < 40; ++i) {
+            Ray ray = new Ray(new Point(5.13, 4.77, 10), new Vector(i % 7 - 3.1, i % 5 - 2.3, -3));
+            List<Point> expected = triangles.findIntersections(ray);
+            List<Point> result = mesh.findIntersections(ray);
+            if (expected == null) {
+                assertNull(result, "Mesh found a point which the triangles did not");
+                continue;
+            }
+            assertNotNull(result, "Mesh lost the intersection");
+            assertEquals(1, result.size(), "Wrong number of points");
+            assertTrue(result.getFirst().distance(expected.getFirst()) < DELTA, "Wrong intersection point");
+        }
+        // TC02: Ray which misses the mesh
+        assertNull(mesh.findIntersections(new Ray(new Point(20, 20, 10), new Vector(0, 0, -1))),
+                "Ray outside the mesh");
+        // TC03: Ray which goes away from the mesh
+        assertNull(mesh.findIntersections(new Ray(new Point(5.5, 5.2, 10), new Vector(0, 0, 1))),
+                "Ray directed away from the mesh");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray through an edge shared by two faces does not slip through the mesh
+        Ray edgeRay = new Ray(new Point(5.5, 5.5, 10), new Vector(0, 0, -1));
+        assertNotNull(mesh.calculateClosestIntersection(edgeRay, Double.POSITIVE_INFINITY),
+                "Ray through a shared edge slipped through");
+        // TC12: Ray parallel to the mesh plane
+        assertNull(mesh.findIntersections(new Ray(new Point(-1, 5.5, 0), new Vector(1, 0, 0))),
+                "Ray in the mesh plane");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#getBuilder()} - the per-face look.
+     */
+    @Test
+    void testFaceLook() {
+        Color red = new Color(255, 0, 0);
+        Material glass = new Material().setKT(0.5);
+        TriangleMesh mesh = (TriangleMesh) TriangleMesh.getBuilder()
+                .addTriangle(new Point(0, 0, 0), new Point(1, 0, 0), new Point(0, 1, 0), red, glass)
+                .addTriangle(new Point(0, 0, 2), new Point(1, 0, 2), new Point(0, 1, 2))
+                .build()
+                .setEmission(new Color(0, 0, 255));
+        Ray ray = new Ray(new Point(0.2, 0.2, 5), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The closest face is the one without its own look
+        Intersection closest = mesh.calculateClosestIntersection(ray, Double.POSITIVE_INFINITY);
+        assertNotNull(closest, "Mesh lost the intersection");
+        assertEquals(new Point(0.2, 0.2, 2), closest.getPoint(), "Wrong closest point");
+        assertEquals(1, closest.index, "Wrong face index");
+        assertEquals(3, closest.t, DELTA, "Wrong distance of the hit");
+        assertEquals(0.2, closest.localU, DELTA, "Wrong barycentric coordinate u");
+        assertEquals(0.2, closest.localV, DELTA, "Wrong barycentric coordinate v");
+        assertSame(mesh.getMaterial(), closest.material, "Face must have the mesh material");
+        // TC02: The lower face has its own emission and material
+        Intersection lower = mesh.calculateClosestIntersection(new Ray(new Point(0.2, 0.2, 1), new Vector(0, 0, -1)),
+                Double.POSITIVE_INFINITY);
+        assertSame(glass, lower.material, "Wrong face material");
+        assertSame(red, mesh.getEmission(lower.index), "Wrong face emission");
+        assertEquals(new Vector(0, 0, 1), mesh.getNormal(lower.getPoint(), lower.index), "Wrong face normal");
+        // TC03: The transparency along the ray stops at the opaque upper face
+        assertEquals(Double3.ZERO, mesh.calculateTransparency(ray, 10), "Opaque face must block");
+        assertEquals(new Double3(0.5), mesh.calculateTransparency(new Ray(new Point(0.2, 0.2, 1),
+                new Vector(0, 0, -1)), 10), "Wrong transparency");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: The search distance ends before the faces
+        assertNull(mesh.calculateClosestIntersection(ray, 2.5), "Face beyond the distance");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#getNormal(primitives.Point)}.
+     */
+    @Test
+    void testGetNormal() {
+        // a floor face at z = 0 and a wall face at x = 3, facing -x
+        double[] vertices = {0, 0, 0, 2, 0, 0, 0, 2, 0, 3, 0, 0, 3, 0, 2, 3, 2, 0};
+        int[] faces = {0, 1, 2, 3, 4, 5};
+        TriangleMesh mesh = new TriangleMesh(vertices, faces);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Point on a face
+        assertEquals(new Vector(0, 0, 1), mesh.getNormal(new Point(0.5, 0.5, 0)), "Wrong normal of the floor");
+        assertEquals(new Vector(-1, 0, 0), mesh.getNormal(new Point(3, 0.5, 0.5)), "Wrong normal of the wall");
+        // TC02: Point off the mesh gets the normal of the nearest face
+        assertEquals(new Vector(-1, 0, 0), mesh.getNormal(new Point(2.8, 0.5, 0.5)), "Wrong nearest face");
+        assertEquals(new Vector(0, 0, 1), mesh.getNormal(new Point(-1, -1, 0.1)), "Wrong nearest face");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Point on an edge of a face
+        assertEquals(new Vector(0, 0, 1), mesh.getNormal(new Point(1, 0, 0)), "Wrong normal on an edge");
+        // TC12: Changes of the raw data after the construction do not affect the mesh
+        vertices[0] = 100;
+        faces[0] = 5;
+        assertEquals(new Vector(0, 0, 1), mesh.getNormal(new Point(0.5, 0.5, 0)), "The mesh data was changed");
+        assertNotNull(mesh.calculateClosestIntersection(new Ray(new Point(0.2, 0.2, 1), new Vector(0, 0, -1)),
+                Double.POSITIVE_INFINITY), "The mesh data was changed");
+    }
+}
@@ -1,11 +1,14 @@
 package primitives;
 
+import geometries.Intersectable.Intersection;
+import geometries.Sphere;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class RayTest {
 
@@ -76,5 +79,32 @@ class RayTest {
         assertEquals(p5, ray.findClosestPoint(pointsLast), "Expected last point to be closest");
     }
 
+    /**
+     * Test method for {@link Ray#findClosestIntersection(List)}.
+     * Checks the closest of intersections which carry their distance along the ray.
+     */
+    @Test
+    void testFindClosestIntersection() {
+        Ray ray = new Ray(new Point(1, 2, 3), new Vector(1, 0, 0));
+        Sphere sphere = new Sphere(new Point(6, 2, 3), 1);
+        Intersection near = new Intersection(sphere, ray, 4);
+        Intersection far = new Intersection(sphere, ray, 6);
+
+        // ============ Equivalence Partition (EP) ==============
 
-}
\ No newline at end of file
+        // TC01: The nearer hit is the closest, and its point is calculated on demand
+        assertSame(near, ray.findClosestIntersection(List.of(far, near)), "Expected the nearer hit");
+        assertEquals(new Point(5, 2, 3), near.getPoint(), "Wrong point of the hit");
+        assertEquals(new Vector(-1, 0, 0), near.getNormal(), "Wrong normal at the hit");
+
+        // TC02: A hit by its distance is compared with a hit by its point
+        Intersection point = new Intersection(sphere, new Point(6, 2, 3));
+        assertSame(near, ray.findClosestIntersection(List.of(point, near)), "Expected the hit by distance");
+
+        // ============ Boundary Value Tests (BVA) ==============
+
+        // TC11: A hit at the ray head is skipped
+        assertSame(far, ray.findClosestIntersection(List.of(new Intersection(sphere, ray, 0), far)),
+                "Expected the hit after the head");
+    }
+}
@@ -0,0 +1,62 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorMathTest {
+    /**
+     * Delta value for accuracy when comparing the numbers of type 'double' in
+     * assertEquals
+     */
+    private static final double DELTA = 0.00001;
+
+    /**
+     * Test method for
+     * {@link primitives.VectorMath#dot(double, double, double, double, double, double)}.
+     */
+    @Test
+    void testDot() {
+        Vector v1 = new Vector(1, 2, 3);
+        Vector v2 = new Vector(-2, 4, 0.5);
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The scalar kernel matches Vector#dotProduct
+        assertEquals(v1.dotProduct(v2), VectorMath.dot(1, 2, 3, -2, 4, 0.5), DELTA, "Wrong dot product");
+    }
+
+    /**
+     * Test method for
+     * {@link primitives.VectorMath#tripleProduct(double, double, double, double, double, double, double, double, double)}
+     * and {@link primitives.VectorMath#crossLengthSquared(double, double, double, double, double, double)}.
+     */
+    @Test
+    void testCross() {
+        Vector d = new Vector(0.5, -1, 2);
+        Vector a = new Vector(1, 2, 3);
+        Vector b = new Vector(-2, 4, 0.5);
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The triple product matches d · (a × b)
+        assertEquals(d.dotProduct(a.crossProduct(b)),
+                VectorMath.tripleProduct(0.5, -1, 2, 1, 2, 3, -2, 4, 0.5), DELTA, "Wrong triple product");
+        // TC02: The cross product length matches |a × b|²
+        assertEquals(a.crossProduct(b).lengthSquared(),
+                VectorMath.crossLengthSquared(1, 2, 3, -2, 4, 0.5), DELTA, "Wrong cross product length");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Parallel vectors have a zero cross product
+        assertEquals(0, VectorMath.crossLengthSquared(1, 2, 3, 2, 4, 6), DELTA, "Parallel vectors cross product");
+    }
+
+    /**
+     * Test method for {@link primitives.VectorMath#isZeroVector(double, double, double)}.
+     */
+    @Test
+    void testIsZeroVector() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Non-zero vector
+        assertFalse(VectorMath.isZeroVector(0, 0, 0.1), "Non-zero vector");
+        // =============== Boundary Values Tests ==================
+        // TC11: Almost zero vector is zero, the same as for Vector
+        assertTrue(VectorMath.isZeroVector(1e-15, 0, -1e-15), "Almost zero vector");
+    }
+}
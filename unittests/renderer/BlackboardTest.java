@@ -0,0 +1,48 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link renderer.Blackboard} class
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+class BlackboardTest {
+    /**
+     * Test method for {@link renderer.Blackboard#generateSamples2D(int, int)}.
+     */
+    @Test
+    void testGenerateSamples2D() {
+        // ============ Equivalence Partitions Tests ==============
+        for (Blackboard.Pattern pattern : Blackboard.Pattern.values()) {
+            Blackboard blackboard = new Blackboard(4, pattern);
+            List<double[]> samples = blackboard.generateSamples2D(7, 3);
+            // TC01: N x N samples inside the pixel
+            assertEquals(16, samples.size(), pattern + ": wrong amount of samples");
+            for (double[] s : samples)
+                assertTrue(s[0] >= -0.5 && s[0] < 0.5 && s[1] >= -0.5 && s[1] < 0.5,
+                        pattern + ": sample outside the pixel");
+            // TC02: The samples of a pixel are the same every time
+            assertArrayEquals(samples.getFirst(), blackboard.generateSamples2D(7, 3).getFirst(), 0,
+                    pattern + ": samples are not deterministic");
+            // TC03: Different pixels get different samples
+            assertNotEquals(samples.getFirst()[0], blackboard.generateSamples2D(3, 7).getFirst()[0],
+                    pattern + ": pixels have the same samples");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: 16 Sobol samples are stratified in the 4 x 4 grid, and in the 16 x 1 and 1 x 16 stripes
+        List<double[]> samples = new Blackboard(4, Blackboard.Pattern.SOBOL).generateSamples2D(11, 5);
+        boolean[] cells = new boolean[16], columns = new boolean[16], rows = new boolean[16];
+        for (double[] s : samples) {
+            int x = (int) ((s[0] + 0.5) * 16), y = (int) ((s[1] + 0.5) * 16);
+            cells[(y / 4) * 4 + x / 4] = columns[x] = rows[y] = true;
+        }
+        for (int k = 0; k < 16; ++k)
+            assertTrue(cells[k] && columns[k] && rows[k], "Sobol samples are not stratified");
+    }
+}
@@ -1,12 +1,16 @@
 package renderer;
 
+import geometries.Plane;
+import geometries.Sphere;
 import org.junit.jupiter.api.Test;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
+import scene.Scene;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Testing Camera Class
@@ -67,6 +71,58 @@ class CameraTest {
 
     }
 
+    /**
+     * Test method for {@link renderer.RayGenerator#centerRay(int, int)}.
+     */
+    @Test
+    void testCenterRay() {
+        final int nX = 7, nY = 5;
+        Camera camera = Camera.getBuilder()
+                .setLocation(new Point(1, -2, 3)).setDirection(new Vector(1, 2, -3), new Vector(2, -1, 0))
+                .setVpDistance(10).setVpSize(14, 6).setResolution(nX, nY).build();
+        RayGenerator generator = camera.getRayGenerator();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the ray through every pixel of a non-square resolution is bit-identical to constructRay
+        for (int i = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j) {
+                Ray expected = camera.constructRay(nX, nY, j, i);
+                Ray ray = generator.centerRay(j, i);
+                assertEquals(expected.getHead(), ray.getHead(), BAD_RAY);
+                Vector direction = ray.getDirection();
+                assertEquals(expected.getDirection().xyz.d1(), direction.xyz.d1(), BAD_RAY);
+                assertEquals(expected.getDirection().xyz.d2(), direction.xyz.d2(), BAD_RAY);
+                assertEquals(expected.getDirection().xyz.d3(), direction.xyz.d3(), BAD_RAY);
+            }
+    }
+
+    /**
+     * Test method for {@link renderer.RayGenerator#beam(int, int, RayGenerator.Beam)} and
+     * {@link renderer.Blackboard#generateSamples(int, int, double[])}.
+     */
+    @Test
+    void testBeam() {
+        final int nX = 7, nY = 5;
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the beam rays of every sampling pattern are the rays of constructBeamRays
+        for (Blackboard.Pattern pattern : Blackboard.Pattern.values()) {
+            Camera camera = Camera.getBuilder()
+                    .setLocation(new Point(1, -2, 3)).setDirection(new Vector(1, 2, -3), new Vector(2, -1, 0))
+                    .setVpDistance(10).setVpSize(14, 6).setResolution(nX, nY)
+                    .setBlackboard(new Blackboard(3, pattern)).build();
+            RayGenerator generator = camera.getRayGenerator();
+            RayGenerator.Beam beam = generator.newBeam();
+            for (int i = 0; i < nY; ++i)
+                for (int j = 0; j < nX; ++j) {
+                    List<Ray> expected = camera.constructBeamRays(nX, nY, j, i);
+                    int count = generator.beam(j, i, beam);
+                    assertEquals(expected.size(), count, "Wrong amount of beam rays");
+                    for (int k = 0; k < count; ++k)
+                        assertEquals(expected.get(k), generator.beamRay(beam, k), BAD_RAY + " of " + pattern);
+                }
+        }
+    }
+
     @Test
     void testBuilder() {
         cameraBuilder.setVpSize(4, 4);
@@ -94,8 +150,28 @@ class CameraTest {
         // BV01: set to a target on Y-axis without up
         assertThrows(IllegalArgumentException.class, () -> cameraBuilder.setDirection(new Point(0, 10, 0)).build());
     }
-}
-
-
 
+    /**
+     * Test method for {@link renderer.Camera.Builder#build()} - the compiled scene of a camera.
+     */
+    @Test
+    void testBuildScene() {
+        Scene scene = new Scene("Build test");
+        scene.geometries.add(new Sphere(new Point(0, 0, -20), 2));
+        Camera.Builder builder = Camera.getBuilder()
+                .setLocation(Point.ZERO).setDirection(new Point(0, 0, -20), Vector.AXIS_Y)
+                .setVpDistance(10).setVpSize(4, 4).setResolution(4, 4)
+                .setRayTracer(scene, RayTracerType.SIMPLE).setRenderStats(true).enableBVH();
+        Camera camera1 = builder.build();
+        scene.geometries.add(new Plane(new Point(0, -5, 0), Vector.AXIS_Y));
+        Camera camera2 = builder.build();
 
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A camera renders the scene as it was when the camera was built
+        assertFalse(camera1.renderImage().getRenderStats().getTests().containsKey("Plane"),
+                "The scene changed after the camera was built");
+        // TC02: A camera built later renders the changed scene
+        assertTrue(camera2.renderImage().getRenderStats().getTests().containsKey("Plane"),
+                "The changed scene is not rendered");
+    }
+}
@@ -1,7 +1,8 @@
 package renderer;
 
+import geometries.BoundingBox;
+import geometries.Geometries;
 import geometries.Sphere;
-import geometries.Triangle;
 import lighting.AmbientLight;
 import lighting.PointLight;
 import org.junit.jupiter.api.Test;
@@ -10,16 +11,13 @@ import primitives.Material;
 import primitives.Point;
 import primitives.Vector;
 import scene.Scene;
+import scene.TriangleSoupFile;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
 
 public class FinalImage {
 
@@ -49,42 +47,20 @@ public class FinalImage {
     @Test
     void renderPolyArtFromText() throws IOException {
         /* ---------------------------------------------------------
-         * 1. Read all lines from the file
+         * 1. Open the binary version of the file (created on the first run)
          * --------------------------------------------------------- */
-        List<String> lines = Files.readAllLines(Paths.get(TEXT_FILE_PATH));
-        if (lines.isEmpty()) {
+        TriangleSoupFile soup = TriangleSoupFile.fromCsv(Paths.get(TEXT_FILE_PATH));
+        if (soup.size() == 0) {
             System.err.println("No triangle data found – exiting");
             return;
         }
 
         /* ---------------------------------------------------------
-         * 2. First pass: Calculate bounds (min/max)
+         * 2. The bounds (min/max) are stored in the file header
          * --------------------------------------------------------- */
-        double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
-        double minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
-
-        for (String line : lines) {
-            if (line.trim().isEmpty() || line.trim().startsWith("#")) continue;
-            String[] p = line.split(",");
-            if (p.length != 12) continue;
-
-            double[] xs = {Double.parseDouble(p[0].trim()),
-                    Double.parseDouble(p[3].trim()),
-                    Double.parseDouble(p[6].trim())};
-
-            double[] ys = {Double.parseDouble(p[1].trim()),
-                    Double.parseDouble(p[4].trim()),
-                    Double.parseDouble(p[7].trim())};
-
-            for (double x : xs) {
-                minX = Math.min(minX, x);
-                maxX = Math.max(maxX, x);
-            }
-            for (double y : ys) {
-                minY = Math.min(minY, y);
-                maxY = Math.max(maxY, y);
-            }
-        }
+        BoundingBox bounds = soup.getBounds();
+        double minX = bounds.minX, maxX = bounds.maxX;
+        double minY = bounds.minY, maxY = bounds.maxY;
 
         double originalWidth = maxX - minX;
         double originalHeight = maxY - minY;
@@ -130,44 +106,17 @@ public class FinalImage {
         double offsetY = -((minY + maxY) / 2.0) * overallScaleFactor;
 
         /* ---------------------------------------------------------
-         * 4. Create Triangles – Second Pass
+         * 4. Create Triangles – a single pass over the file records
          * --------------------------------------------------------- */
         Material triMat = new Material().setKD(0.6).setKS(0.2).setShininess(10);
-
-        int added = 0;
-        for (String line : lines) {
-            if (line.trim().isEmpty() || line.trim().startsWith("#")) continue;
-            String[] p = line.split(",");
-            if (p.length != 12) continue;
-
-            //Convert the values to numbers
-            List<Integer> v = Arrays.stream(p).map(String::trim)
-                    .map(Integer::parseInt).collect(Collectors.toList());
-
-            // Convert three points
-            Point[] pts = new Point[3];
-            for (int i = 0; i < 3; i++) {
-                double x = v.get(i * 3);
-                double y = v.get(i * 3 + 1);
-
-                // Y inversion (coordinate system adjustment)
-                // Flip Y coordinate to match image coordinate system where Y=0 is top
-                y = maxY - (y - minY);
-
-                pts[i] = new Point(
-                        x * overallScaleFactor + offsetX, // Use overallScaleFactor
-                        y * overallScaleFactor + offsetY, // Use overallScaleFactor
-                        Z_PLANE
-                );
-            }
-
-            Color col = new Color(v.get(9), v.get(10), v.get(11));
-            scene.geometries.add(new Triangle(pts[0], pts[1], pts[2])
-                    .setMaterial(triMat)
-                    .setEmission(col));
-            added++;
-        }
-        System.out.printf("Added %,d triangles%n", added);
+        // Y inversion (coordinate system adjustment): y -> maxY - (y - minY), to match the image
+        // coordinate system where Y=0 is top, then scale and center; all the triangles lie on Z_PLANE
+        TriangleSoupFile.Transform transform = new TriangleSoupFile.Transform(
+                overallScaleFactor, -overallScaleFactor, 0,
+                offsetX, (maxY + minY) * overallScaleFactor + offsetY, Z_PLANE);
+        // All the triangles are faces of a single mesh
+        scene.geometries.add(soup.toMesh(transform, triMat));
+        System.out.printf("Added %,d triangles%n", soup.size());
 
         /* ---------------------------------------------------------
          * Moon Texture Generation
@@ -191,6 +140,8 @@ public class FinalImage {
         int textureHeight = moonTexture.getHeight();
 
         double dotRadius = MOON_RADIUS * MOON_DOT_RADIUS_FACTOR;
+        // All the moon dots are kept in one group, so a ray far from the moon rejects them at once
+        Geometries moon = new Geometries();
 
         // Loop over the vertical pixels of the moon texture image with a step to sample points
         for (int y = 0; y < textureHeight; y += MOON_DOT_SAMPLING_STEP) {
@@ -231,13 +182,14 @@ public class FinalImage {
                 Color dotColor = new Color(awtColor.getRed(), awtColor.getGreen(), awtColor.getBlue());
 
                 // Add a small sphere at the calculated position with the pixel color
-                scene.geometries.add(
+                moon.add(
                         new Sphere(new Point(px, py, pz), dotRadius)
                                 .setEmission(dotColor)
                                 .setMaterial(new Material().setKD(0).setKS(0).setShininess(0))
                 );
             }
         }
+        scene.geometries.add(moon);
         System.out.println("Moon added using image-based dot texture.");
 
         /* ---------------------------------------------------------
@@ -254,7 +206,7 @@ public class FinalImage {
         /* ---------------------------------------------------------
          * 6. Camera Setup
          * --------------------------------------------------------- */
-        cameraBuilder
+        Camera camera = cameraBuilder
                 .setLocation(new Point(0, 0, VIEWPORT_BASE_SIZE))            // Z location
                 .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
                 .setVpDistance(VIEWPORT_BASE_SIZE)
@@ -266,9 +218,12 @@ public class FinalImage {
 //                .setAssTolerance(7)
                 .setMultithreading(-2)
                 .setDebugPrint(1.0)
+                .enableBVH()
+                .setRenderStats(true) // the traversals of the hierarchy are counted with the statistics
                 .build()
                 .renderImage()
                 .writeToImage("Mountains_and_Moon1");
+        System.out.println(camera.getBVHStatistics());
 
         System.out.println("Finished – check 'Mountains_and_Moon.png'");
     }
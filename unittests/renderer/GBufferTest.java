@@ -0,0 +1,52 @@
+package renderer;
+
+import geometries.Sphere;
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+import primitives.Point;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link renderer.GBuffer} class
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+class GBufferTest {
+    /**
+     * Test method for {@link renderer.GBuffer#detectEdges(double)}.
+     */
+    @Test
+    void testDetectEdges() {
+        Sphere left = new Sphere(new Point(0, 0, -10), 1);
+        Sphere right = new Sphere(new Point(0, 0, -10), 1);
+        Color grey = new Color(100, 100, 100);
+        // 6 x 3 pixels: columns 0-2 hit the left sphere, 3-5 the right one,
+        // the last column is brighter, and the middle pixel of column 1 is much farther
+        GBuffer buffer = new GBuffer(6, 3);
+        for (int i = 0; i < 3; ++i)
+            for (int j = 0; j < 6; ++j) {
+                int p = buffer.pixel(j, i);
+                buffer.setHit(p, j < 3 ? left : right, 0, j == 1 && i == 1 ? 20 : 10);
+                buffer.setColor(p, j == 5 ? new Color(110, 100, 100) : grey);
+            }
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Both sides of a geometry border, a depth jump and a color contrast are edges
+        assertEquals(16, buffer.detectEdges(5), "Wrong amount of edge pixels");
+        assertTrue(buffer.isEdge(buffer.pixel(2, 0)) && buffer.isEdge(buffer.pixel(3, 2)), "Geometry border");
+        assertTrue(buffer.isEdge(buffer.pixel(1, 1)) && buffer.isEdge(buffer.pixel(1, 0)), "Depth jump");
+        assertTrue(buffer.isEdge(buffer.pixel(5, 1)) && buffer.isEdge(buffer.pixel(4, 1)), "Color contrast");
+        // TC02: A smooth area is not an edge
+        assertFalse(buffer.isEdge(buffer.pixel(0, 2)), "Smooth pixel");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A color contrast within the tolerance is not an edge
+        GBuffer tolerant = new GBuffer(2, 1);
+        tolerant.setHit(0, left, 0, 10);
+        tolerant.setHit(1, left, 0, 10);
+        tolerant.setColor(0, grey);
+        tolerant.setColor(1, new Color(110, 100, 100));
+        assertEquals(0, tolerant.detectEdges(10), "Contrast within the tolerance");
+    }
+}
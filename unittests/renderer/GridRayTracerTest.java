@@ -0,0 +1,67 @@
+package renderer;
+
+import geometries.Plane;
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Testing the regular grid ray tracer against the simple ray tracer
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+class GridRayTracerTest {
+    /**
+     * Default constructor to satisfy JavaDoc generator
+     */
+    GridRayTracerTest() { /* to satisfy JavaDoc generator */ }
+
+    /**
+     * Test method for {@link renderer.GridRayTracer#traceRay(primitives.Ray)}.
+     * The grid must not change the traced colors - including shadows and reflections.
+     */
+    @Test
+    void testTraceRay() {
+        Scene scene = new Scene("Grid scene");
+        Material material = new Material().setKD(0.5).setKS(0.3).setShininess(20).setKR(0.2);
+        for (int i = 0; i < 10; ++i)
+            for (int j = 0; j < 10; ++j) {
+                scene.geometries.add(new Triangle(new Point(i * 10, j * 10, 0), new Point(i * 10 + 9, j * 10, 0),
+                        new Point(i * 10, j * 10 + 9, 0)).setEmission(new Color(i * 20, j * 20, 50))
+                        .setMaterial(material));
+                scene.geometries.add(new Sphere(new Point(i * 10 + 5, j * 10 + 5, 4), 2)
+                        .setEmission(new Color(100, 30, j * 20)).setMaterial(material));
+            }
+        scene.geometries.add(new Plane(new Point(0, 0, -10), new Vector(0, 0, 1))
+                .setEmission(new Color(20, 20, 20)).setMaterial(material));
+        scene.setAmbientLight(new AmbientLight(new Color(30, 30, 30)));
+        scene.lights.add(new PointLight(new Color(400, 400, 400), new Point(50, 50, 60)).setKl(0.001));
+
+        RayTracerBase simple = new SimpleRayTracer(scene);
+        RayTracerBase grid = new GridRayTracer(scene);
+        Point eye = new Point(-30, -40, 80);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rays from a single eye point over the whole scene
+        for (int i = 0; i < 20; ++i)
+            for (int j = 0; j < 20; ++j) {
+                Ray ray = new Ray(eye, new Point(i * 5.3, j * 5.7, 0).subtract(eye));
+                assertEquals(simple.traceRay(ray).toString(), grid.traceRay(ray).toString(),
+                        "Grid tracer changed the color of " + ray);
+            }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray parallel to the grid axes, starting inside the grid
+        Ray ray = new Ray(new Point(-5, 55, 4), new Vector(1, 0, 0));
+        assertEquals(simple.traceRay(ray).toString(), grid.traceRay(ray).toString(), "Axis-parallel ray");
+        // TC12: Ray missing the grid - only the unbounded plane is hit
+        ray = new Ray(new Point(500, 500, 50), new Vector(0, 0, -1));
+        assertEquals(simple.traceRay(ray).toString(), grid.traceRay(ray).toString(), "Ray outside the grid");
+    }
+}
@@ -3,7 +3,17 @@ package renderer;
 import org.junit.jupiter.api.Test;
 import primitives.Color;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
 import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Test class for {@link ImageWriter}.
@@ -75,4 +85,120 @@ class ImageWriterTest {
 
         imageWriter.writeToImage("imageWithGrid");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link renderer.ImageWriter#accumulatePixel(int, int, primitives.Color)}.
+     * The samples of a pixel are added up in full dynamic range.
+     */
+    @Test
+    void testAccumulatePixel() {
+        ImageWriter imageWriter = new ImageWriter(4, 3);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Samples added to a written pixel
+        imageWriter.writePixel(2, 1, new Color(100, 50, 25));
+        imageWriter.accumulatePixel(2, 1, new Color(200, 50.5, 0.25));
+        assertEquals(new Color(300, 100.5, 25.25).toString(), imageWriter.readPixel(2, 1).toString(),
+                "Wrong accumulated pixel");
+        // TC02: The neighbouring pixels are not touched
+        assertEquals(Color.BLACK.toString(), imageWriter.readPixel(3, 1).toString(), "Neighbouring pixel changed");
+        assertEquals(Color.BLACK.toString(), imageWriter.readPixel(2, 2).toString(), "Neighbouring pixel changed");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Samples added to a pixel never written - accumulated from black
+        imageWriter.accumulatePixel(0, 0, new Color(1000, 2000, 3000));
+        assertEquals(new Color(1000, 2000, 3000).toString(), imageWriter.readPixel(0, 0).toString(),
+                "Wrong pixel accumulated from black");
+        // TC12: The last pixel of the image
+        imageWriter.accumulatePixel(3, 2, new Color(1, 2, 3));
+        assertEquals(new Color(1, 2, 3).toString(), imageWriter.readPixel(3, 2).toString(), "Wrong last pixel");
+    }
+
+    /**
+     * Creates an image writer filled with a gradient - including components above 255
+     *
+     * @param width  amount of pixels by width
+     * @param height amount of pixels by height
+     * @return the image writer
+     */
+    private static ImageWriter gradient(int width, int height) {
+        ImageWriter imageWriter = new ImageWriter(width, height);
+        for (int i = 0; i < height; i++)
+            for (int j = 0; j < width; j++)
+                imageWriter.writePixel(j, i, new Color(j * 0.5, i * 0.7, (i * j) % 300 + 0.25));
+        return imageWriter;
+    }
+
+    /**
+     * Encodes an image into bytes
+     *
+     * @param imageWriter the image writer
+     * @param format      the image format
+     * @return the encoded image
+     */
+    private static byte[] encode(ImageWriter imageWriter, ImageFormat format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        imageWriter.writeToImage(out, format);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a PNG image and compares it with the 8-bit colors of an image writer
+     *
+     * @param imageWriter the image writer
+     * @param png         the encoded image
+     * @throws IOException if the image cannot be decoded
+     */
+    private static void assertSamePng(ImageWriter imageWriter, byte[] png) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertNotNull(image, "PNG not decoded");
+        assertEquals(imageWriter.nX(), image.getWidth(), "Wrong PNG width");
+        assertEquals(imageWriter.nY(), image.getHeight(), "Wrong PNG height");
+        for (int i = 0; i < imageWriter.nY(); i++)
+            for (int j = 0; j < imageWriter.nX(); j++)
+                assertEquals(imageWriter.readPixel(j, i).getColor().getRGB(), image.getRGB(j, i),
+                        "Wrong PNG pixel " + j + "," + i);
+    }
+
+    /**
+     * Test method for {@link renderer.ImageWriter#writeToImage(java.io.OutputStream, ImageFormat)}.
+     * The image is encoded in bands of scanlines, which must join into a single image.
+     *
+     * @throws IOException if the PNG image cannot be decoded
+     */
+    @Test
+    void testWriteToStream() throws IOException {
+        ImageWriter imageWriter = gradient(700, 400);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: PNG of several bands
+        assertSamePng(imageWriter, encode(imageWriter, ImageFormat.PNG));
+        // TC02: PPM - a header and the 8-bit colors row by row
+        byte[] ppm = encode(imageWriter, ImageFormat.PPM);
+        byte[] header = "P6\n700 400\n255\n".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(header.length + 3 * 700 * 400, ppm.length, "Wrong PPM length");
+        assertEquals(new String(header, StandardCharsets.US_ASCII),
+                new String(ppm, 0, header.length, StandardCharsets.US_ASCII), "Wrong PPM header");
+        int offset = header.length + 3 * (399 * 700 + 600);
+        assertEquals(imageWriter.readPixel(600, 399).getColor().getRGB() & 0xFFFFFF,
+                (ppm[offset] & 0xFF) << 16 | (ppm[offset + 1] & 0xFF) << 8 | ppm[offset + 2] & 0xFF,
+                "Wrong PPM pixel");
+        // TC03: PFM - a header and the float colors from the bottom row up
+        byte[] pfm = encode(imageWriter, ImageFormat.PFM);
+        header = "PF\n700 400\n-1.0\n".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(header.length + 12 * 700 * 400, pfm.length, "Wrong PFM length");
+        ByteBuffer floats = ByteBuffer.wrap(pfm).order(ByteOrder.LITTLE_ENDIAN);
+        Color pixel = imageWriter.readPixel(600, 399);
+        offset = header.length + 12 * 600;
+        assertEquals(pixel.toString(), new Color(floats.getFloat(offset), floats.getFloat(offset + 4),
+                floats.getFloat(offset + 8)).toString(), "Wrong PFM pixel");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: PNG of a single pixel
+        ImageWriter single = new ImageWriter(1, 1);
+        single.writePixel(0, 0, new Color(300, 128, 7.5));
+        assertSamePng(single, encode(single, ImageFormat.PNG));
+        // TC12: PNG of a single row wider than a band
+        assertSamePng(gradient(100000, 1), encode(gradient(100000, 1), ImageFormat.PNG));
+    }
+}
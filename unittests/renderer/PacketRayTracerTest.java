@@ -0,0 +1,89 @@
+package renderer;
+
+import geometries.Plane;
+import geometries.Sphere;
+import geometries.TriangleMesh;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Testing the packet ray tracer against the simple ray tracer
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+class PacketRayTracerTest {
+    /**
+     * Default constructor to satisfy JavaDoc generator
+     */
+    PacketRayTracerTest() { /* to satisfy JavaDoc generator */ }
+
+    /**
+     * Traces rays by both tracers and compares the colors
+     *
+     * @param simple the simple ray tracer
+     * @param packet the packet ray tracer
+     * @param rays   the rays
+     * @param count  amount of rays to trace
+     */
+    private static void assertSameColors(RayTracerBase simple, RayTracerBase packet, Ray[] rays, int count) {
+        Color[] colors = new Color[count];
+        packet.traceRays(rays, count, colors);
+        for (int k = 0; k < count; ++k)
+            assertEquals(simple.traceRay(rays[k]).toString(), colors[k].toString(),
+                    "Packet tracer changed the color of " + rays[k]);
+    }
+
+    /**
+     * Test method for {@link renderer.PacketRayTracer#traceRays(primitives.Ray[], int, primitives.Color[])}.
+     * Tracing in packets must not change the traced colors - including shadows and reflections.
+     */
+    @Test
+    void testTraceRays() {
+        Scene scene = new Scene("Packet scene");
+        Material material = new Material().setKD(0.5).setKS(0.3).setShininess(20).setKR(0.2);
+        TriangleMesh.Builder mesh = TriangleMesh.getBuilder();
+        for (int i = 0; i < 10; ++i)
+            for (int j = 0; j < 10; ++j) {
+                mesh.addTriangle(new Point(i * 10, j * 10, 0), new Point(i * 10 + 9, j * 10, 0),
+                        new Point(i * 10, j * 10 + 9, 0), new Color(i * 20, j * 20, 50), material);
+                scene.geometries.add(new Sphere(new Point(i * 10 + 5, j * 10 + 5, 4), 2)
+                        .setEmission(new Color(100, 30, j * 20)).setMaterial(material));
+            }
+        scene.geometries.add(mesh.build());
+        scene.geometries.add(new Plane(new Point(0, 0, -10), new Vector(0, 0, 1))
+                .setEmission(new Color(20, 20, 20)).setMaterial(material));
+        scene.geometries.buildBVH();
+        scene.setAmbientLight(new AmbientLight(new Color(30, 30, 30)));
+        scene.lights.add(new PointLight(new Color(400, 400, 400), new Point(50, 50, 60)).setKl(0.001));
+
+        RayTracerBase simple = new SimpleRayTracer(scene);
+        RayTracerBase packet = new PacketRayTracer(scene);
+        Point eye = new Point(-30, -40, 80);
+        Ray[] rays = new Ray[400];
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Coherent rays from a single eye point over the whole scene, in full packets
+        for (int i = 0; i < 20; ++i)
+            for (int j = 0; j < 20; ++j)
+                rays[20 * i + j] = new Ray(eye, new Point(i * 5.3, j * 5.7, 0).subtract(eye));
+        assertSameColors(simple, packet, rays, 400);
+        // TC02: Incoherent rays - from the eye and back up from below the scene
+        for (int k = 0; k < 16; ++k)
+            rays[k] = k % 2 == 0 ? new Ray(eye, new Point(k * 6.1, k * 5.9, 0).subtract(eye))
+                    : new Ray(new Point(k * 6.1, k * 5.9, -5), new Vector(0.1, 0.2, 1));
+        assertSameColors(simple, packet, rays, 16);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A partial packet of a single ray
+        assertSameColors(simple, packet, rays, 1);
+        // TC12: Packets of rays missing the scene bounds - only the unbounded plane is hit
+        for (int k = 0; k < 17; ++k)
+            rays[k] = new Ray(new Point(500 + k, 500, 50), new Vector(0, 0, -1));
+        assertSameColors(simple, packet, rays, 17);
+    }
+}
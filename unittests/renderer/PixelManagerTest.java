@@ -0,0 +1,54 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link renderer.PixelManager} class
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+class PixelManagerTest {
+    /**
+     * Test method for {@link renderer.PixelManager#nextTile()}.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    void testNextTile() throws InterruptedException {
+        final int rows = 37, cols = 50;
+        PixelManager manager = new PixelManager(rows, cols, 16, 0);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Threads which take tiles concurrently cover every pixel exactly once
+        assertEquals(12, manager.tiles(), "Wrong amount of tiles");
+        AtomicIntegerArray covered = new AtomicIntegerArray(rows * cols);
+        var threads = new LinkedList<Thread>();
+        for (int t = 0; t < 4; ++t)
+            threads.add(new Thread(() -> {
+                PixelManager.Tile tile;
+                while ((tile = manager.nextTile()) != null) {
+                    for (int i = tile.row0(); i < tile.row1(); ++i)
+                        for (int j = tile.col0(); j < tile.col1(); ++j)
+                            covered.incrementAndGet(i * cols + j);
+                    manager.pixelsDone(tile.size());
+                }
+            }));
+        for (var thread : threads) thread.start();
+        for (var thread : threads) thread.join();
+        for (int p = 0; p < rows * cols; ++p)
+            assertEquals(1, covered.get(p), "Pixel " + p + " is not covered once");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: The last tile is cut at the image borders
+        PixelManager.Tile last = manager.tile(manager.tiles() - 1);
+        assertEquals(new PixelManager.Tile(48, 32, 50, 37), last, "Wrong border tile");
+        assertEquals(10, last.size(), "Wrong border tile size");
+        // TC12: There are no tiles after the last one
+        assertNull(manager.nextTile(), "Tile after the image end");
+    }
+}
@@ -0,0 +1,123 @@
+package renderer;
+
+import geometries.Plane;
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static renderer.RenderStats.RayType.*;
+
+/**
+ * Unit tests for {@link renderer.RenderStats} class
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+class RenderStatsTest {
+    /**
+     * Default constructor to satisfy JavaDoc generator
+     */
+    RenderStatsTest() { /* to satisfy JavaDoc generator */ }
+
+    /**
+     * Creates a camera over a scene of a mirror sphere and a glass sphere above a plane
+     *
+     * @param type the ray tracer type
+     * @return the camera builder
+     */
+    private static Camera.Builder camera(RayTracerType type) {
+        Scene scene = new Scene("Stats scene");
+        scene.geometries.add(
+                new Sphere(new Point(-3, 0, -20), 2).setEmission(new Color(50, 20, 20))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.3).setShininess(20).setKR(0.5)),
+                new Sphere(new Point(3, 0, -20), 2).setEmission(new Color(20, 20, 50))
+                        .setMaterial(new Material().setKD(0.2).setKS(0.5).setShininess(50).setKT(0.6)),
+                new Plane(new Point(0, -2, 0), new Vector(0, 1, 0)).setEmission(new Color(20, 40, 20))
+                        .setMaterial(new Material().setKD(0.5).setKR(0.3)));
+        scene.setAmbientLight(new AmbientLight(new Color(30, 30, 30)));
+        scene.lights.add(new PointLight(new Color(500, 500, 500), new Point(0, 20, 0)).setKl(0.001));
+        return Camera.getBuilder()
+                .setLocation(Point.ZERO)
+                .setDirection(new Point(0, 0, -20), Vector.AXIS_Y)
+                .setVpDistance(10).setVpSize(10, 10)
+                .setResolution(40, 30)
+                .setRayTracer(scene, type);
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#getRenderStats()}.
+     */
+    @Test
+    void testRenderStats() throws InterruptedException {
+        Camera camera = camera(RayTracerType.SIMPLE).setRenderStats(true).build().renderImage();
+        RenderStats stats = camera.getRenderStats();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A ray per pixel, shadow rays, reflected and refracted rays
+        assertEquals(40 * 30, stats.getRays(PRIMARY), "Wrong amount of primary rays");
+        assertEquals(40 * 30, stats.getRaysAtDepth(0), "Primary rays are of depth 0");
+        assertTrue(stats.getRays(SHADOW) > 0, "No shadow rays");
+        assertTrue(stats.getRays(REFLECTED) > 0 && stats.getRays(REFRACTED) > 0, "No secondary rays");
+        assertTrue(stats.getRaysAtDepth(1) > 0 && stats.getRaysAtDepth(2) > 0, "No deeper rays");
+        assertEquals(stats.getRays(), stats.getRays(SHADOW) + stats.getRays(PRIMARY) + stats.getRays(REFLECTED)
+                + stats.getRays(REFRACTED), "Wrong total of rays");
+        // TC02: Intersection tests and hits by geometry type, and no composite geometries
+        assertTrue(stats.getTests().get("Sphere") > 0 && stats.getTests().get("Plane") > 0, "No tests");
+        assertTrue(stats.getHits().get("Sphere") <= stats.getTests().get("Sphere"), "More hits than tests");
+        assertFalse(stats.getTests().containsKey("Geometries"), "Composite geometries counted");
+        // TC03: The rendering thread was busy, and the rendering is done
+        assertEquals(1, stats.getBusy().size(), "Wrong amount of rendering threads");
+        assertEquals(Duration.ZERO, stats.getEta(), "Rendering not done");
+        assertTrue(stats.getRaysPerSecond() > 0, "No ray rate");
+        // TC04: The wavefront ray tracer traces the same rays
+        RenderStats wavefront = camera(RayTracerType.WAVEFRONT).setRenderStats(true).build().renderImage()
+                .getRenderStats();
+        for (RenderStats.RayType type : RenderStats.RayType.values())
+            assertEquals(stats.getRays(type), wavefront.getRays(type), "Wrong amount of " + type + " rays");
+        for (int depth = 0; depth <= RenderStats.MAX_DEPTH; ++depth)
+            assertEquals(stats.getRaysAtDepth(depth), wavefront.getRaysAtDepth(depth), "Wrong depth " + depth);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: No statistics unless they are collected
+        assertNull(camera(RayTracerType.SIMPLE).build().renderImage().getRenderStats(), "Statistics collected");
+        // TC12: Statistics of several threads
+        RenderStats threads = camera(RayTracerType.SIMPLE).setRenderStats(true).setMultithreading(3).build()
+                .renderImage().getRenderStats();
+        assertEquals(stats.getRays(), threads.getRays(), "Wrong amount of rays by several threads");
+        // a thread may find no tile left to render in so small an image
+        assertTrue(threads.getBusy().size() <= 3, "Wrong amount of rendering threads");
+        // TC13: Every virtual thread is counted by its own name, and is not busier than the rendering
+        RenderStats virtual = camera(RayTracerType.SIMPLE).setRenderStats(true).setVirtualThreads(3).build()
+                .renderImage().getRenderStats();
+        assertEquals(stats.getRays(), virtual.getRays(), "Wrong amount of rays by virtual threads");
+        assertTrue(virtual.getBusy().size() <= 3, "Wrong amount of rendering virtual threads");
+        virtual.getBusy().forEach((name, busy) -> {
+            assertTrue(name.startsWith("render-"), "Wrong name of a rendering virtual thread");
+            assertTrue(busy.compareTo(virtual.getElapsed()) <= 0, "A thread busier than the rendering");
+        });
+        // TC14: Renderings at the same time count only their own rays and tests
+        Camera plain = camera(RayTracerType.SIMPLE).build();
+        Camera counted1 = camera(RayTracerType.SIMPLE).setRenderStats(true).build();
+        Camera counted2 = camera(RayTracerType.WAVEFRONT).setRenderStats(true).setMultithreading(2).build();
+        Thread other = new Thread(() -> {
+            for (int k = 0; k < 3; ++k) {
+                plain.renderImage();
+                counted2.renderImage();
+            }
+        });
+        other.start();
+        for (int k = 0; k < 3; ++k) {
+            RenderStats concurrent = counted1.renderImage().getRenderStats();
+            assertEquals(stats.getRays(), concurrent.getRays(), "Rays of another rendering counted");
+            assertEquals(stats.getTests(), concurrent.getTests(), "Tests of another rendering counted");
+        }
+        other.join();
+        assertEquals(wavefront.getRays(), counted2.getRenderStats().getRays(), "Rays of another rendering counted");
+        assertEquals(wavefront.getTests(), counted2.getRenderStats().getTests(), "Tests of another rendering counted");
+    }
+}
@@ -0,0 +1,103 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link renderer.SampleLattice} class
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+class SampleLatticeTest {
+    /**
+     * Amount of lattice cells along a pixel side
+     */
+    private static final int SCALE = 4;
+    /**
+     * A tile of 32 x 32 pixels which does not start at the image corner
+     */
+    private final PixelManager.Tile tile = new PixelManager.Tile(16, 32, 48, 64);
+    /**
+     * First lattice column of the tile
+     */
+    private final long x0 = 16 * SCALE;
+    /**
+     * First lattice row of the tile
+     */
+    private final long y0 = 32 * SCALE;
+    /**
+     * Last lattice column of the tile (on its right border)
+     */
+    private final long x1 = 48 * SCALE;
+    /**
+     * Last lattice row of the tile (on its bottom border)
+     */
+    private final long y1 = 64 * SCALE;
+
+    /**
+     * Test method for {@link SampleLattice#get(long, long)}, {@link SampleLattice#put(long, long, Color)},
+     * {@link SampleLattice#requests()} and {@link SampleLattice#traced()}.
+     */
+    @Test
+    void testGetPut() {
+        SampleLattice lattice = new SampleLattice(tile, SCALE);
+        Color color = new Color(10, 20, 30);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a point which was not traced is missed, and is hit after it is put
+        assertNull(lattice.get(x0 + 5, y0 + 7), "A point which was not traced must be missed");
+        lattice.put(x0 + 5, y0 + 7, color);
+        assertSame(color, lattice.get(x0 + 5, y0 + 7), "The traced color is lost");
+        assertNull(lattice.get(x0 + 7, y0 + 5), "A point must not be hit by another one");
+
+        // TC02: every get is a request, and every distinct point put is traced once
+        Color other = new Color(1, 2, 3);
+        lattice.put(x0 + 5, y0 + 7, other);
+        assertSame(other, lattice.get(x0 + 5, y0 + 7), "The color of a point is not replaced");
+        assertEquals(4, lattice.requests(), "Wrong amount of requests");
+        assertEquals(1, lattice.traced(), "A point put twice must be traced once");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a new lattice has no requests and no traced points
+        SampleLattice empty = new SampleLattice(tile, SCALE);
+        assertEquals(0, empty.requests(), "A new lattice must have no requests");
+        assertEquals(0, empty.traced(), "A new lattice must have no traced points");
+
+        // TC12: the points at the far edges of the tile (the last point of a lattice row and the
+        // first point of the next row are adjacent keys) do not collide
+        Color right = new Color(4, 5, 6), below = new Color(7, 8, 9), corner = new Color(1, 1, 1);
+        lattice.put(x1, y0, right);
+        lattice.put(x0, y0 + 1, below);
+        lattice.put(x1, y1, corner);
+        assertSame(right, lattice.get(x1, y0), "Wrong color at the right edge");
+        assertSame(below, lattice.get(x0, y0 + 1), "Wrong color at the start of the second row");
+        assertSame(corner, lattice.get(x1, y1), "Wrong color at the far corner");
+        assertEquals(4, lattice.traced(), "Wrong amount of traced points");
+    }
+
+    /**
+     * Test method for {@link SampleLattice#put(long, long, Color)} when the table grows.
+     */
+    @Test
+    void testGrow() {
+        SampleLattice lattice = new SampleLattice(tile, SCALE);
+        int columns = (int) (x1 - x0 + 1), rows = (int) (y1 - y0 + 1);
+        Color[] colors = new Color[columns * rows];
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: all the points of the tile (many more than the initial capacity) are retrieved
+        for (int i = 0; i < rows; ++i)
+            for (int j = 0; j < columns; ++j) {
+                colors[i * columns + j] = new Color(i, j, 0);
+                lattice.put(x0 + j, y0 + i, colors[i * columns + j]);
+            }
+        assertEquals(colors.length, lattice.traced(), "Wrong amount of traced points");
+        for (int i = 0; i < rows; ++i)
+            for (int j = 0; j < columns; ++j)
+                assertSame(colors[i * columns + j], lattice.get(x0 + j, y0 + i),
+                        "A color is lost when the table grows");
+        assertEquals(colors.length, lattice.requests(), "Wrong amount of requests");
+    }
+}
@@ -0,0 +1,74 @@
+package renderer;
+
+import geometries.Intersectable.Intersection;
+import geometries.Sphere;
+import lighting.DirectionalLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link renderer.ShadingContext} class
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+class ShadingContextTest {
+    /**
+     * Delta value for accuracy when comparing the numbers of type 'double' in
+     * assertEquals
+     */
+    private static final double DELTA = 0.00001;
+    /**
+     * A sphere in front of the origin, hit by {@link #ray} at (0, 0, -1) where the normal is (0, 0, 1)
+     */
+    private final Sphere sphere = (Sphere) new Sphere(new Point(0, 0, -2), 1)
+            .setMaterial(new Material().setKD(0.5).setKS(0.25).setShininess(10));
+    /**
+     * A ray from the origin towards the sphere
+     */
+    private final Ray ray = new Ray(Point.ZERO, new Vector(0, 0, -1));
+
+    /**
+     * Creates a context of a tracer of a scene of the sphere and a light
+     *
+     * @param light the light of the scene
+     * @return the context
+     */
+    private ShadingContext context(DirectionalLight light) {
+        Scene scene = new Scene("Shading context test");
+        scene.geometries.add(sphere);
+        scene.lights.add(light);
+        return new SimpleRayTracer(scene).shadingContext(1);
+    }
+
+    /**
+     * Test method for {@link renderer.ShadingContext#calcColorLocalEffects(Double3)}.
+     */
+    @Test
+    void testCalcColorLocalEffects() {
+        Intersection hit = sphere.calculateClosestIntersection(ray, Double.POSITIVE_INFINITY);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a light along the viewing ray - full diffuse and specular reflection
+        DirectionalLight light = new DirectionalLight(new Color(100, 100, 100), new Vector(0, 0, -1));
+        ShadingContext context = context(light);
+        assertTrue(context.preprocess(hit, ray.getDirection()), "The viewer must see the surface");
+        assertEquals(new Point(0, 0, -1), context.point, "Wrong shaded point");
+        Color color = context.calcColorLocalEffects(Double3.ONE);
+        assertEquals(75, color.getRgb().d1(), DELTA, "Wrong local color");
+        assertTrue(context.setLightSource(light), "The light must illuminate the point");
+        assertEquals(1, context.calcDiffusive(), DELTA, "Wrong diffuse factor");
+        assertEquals(1, context.calcSpecular(), DELTA, "Wrong specular factor");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a light parallel to the surface does not illuminate it
+        DirectionalLight grazing = new DirectionalLight(new Color(100, 100, 100), new Vector(1, 0, 0));
+        context = context(grazing);
+        assertTrue(context.preprocess(hit, ray.getDirection()), "The viewer must see the surface");
+        assertFalse(context.setLightSource(grazing), "A grazing light must not illuminate the point");
+        assertEquals(Color.BLACK.getRgb(), context.calcColorLocalEffects(Double3.ONE).getRgb(),
+                "A grazing light must add no color");
+    }
+}
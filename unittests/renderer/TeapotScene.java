@@ -4,82 +4,23 @@ import geometries.Geometries;
 import geometries.Sphere;
 import geometries.Triangle;
 import lighting.PointLight;
-import org.junit.jupiter.api.Disabled;
-import org.junit.jupiter.api.Test;
 import primitives.*;
 import scene.Scene;
 
-import static java.awt.Color.YELLOW;
 import static java.lang.Math.*;
 import static primitives.Util.random;
 
 /**
- * Test rendering an image
+ * The teapot scene of the rendering tests - a teapot of triangles with a cone of bubbles.
+ * It is shared by {@link TeapotTest} and the scene benchmarks.
  *
  * @author Dan Zilberstein
  */
-class TeapotTest {
+final class TeapotScene {
     /**
-     * Default constructor to satisfy JavaDoc generator
+     * Private constructor - the class has only static members
      */
-    TeapotTest() { /* to satisfy JavaDoc generator */ }
-
-    /**
-     * Teapot without improvements
-     */
-    @Test
-    void testTeapot1() {
-        prepareTeapot() //
-                .build() //
-                .renderImage() //
-                .printGrid(50, new Color(YELLOW)) //
-                .writeToImage("teapot1");
-    }
-
-    /**
-     * 10 Teapot tests with CBR
-     */
-    @Test
-    @Disabled
-    void testTeapot2() {
-        for (int i = 10; i > 0; --i) {
-            teapot2();
-        }
-    }
-
-    /**
-     * 100 Teapot tests with BVH
-     */
-    @Test
-    @Disabled
-    void testTeapot3() {
-        for (int i = 100; i > 0; --i) {
-            teapot3();
-        }
-    }
-
-    /**
-     * Teapot with CBR
-     */
-    void teapot2() {
-        prepareTeapot() //
-                //.enableCBR() //
-                .build() //
-                .renderImage() //
-                .printGrid(50, new Color(YELLOW)) //
-                .writeToImage("teapot2");
-    }
-
-    /**
-     * Teapot with BVH
-     */
-    void teapot3() {
-        prepareTeapot() //
-                //.enableBVH() //
-                .build() //
-                .renderImage() //
-                .printGrid(50, new Color(YELLOW)) //
-                .writeToImage("teapot3");
+    private TeapotScene() {
     }
 
     /**
@@ -87,7 +28,7 @@ class TeapotTest {
      *
      * @return camera builder with all the data for the test
      */
-    Camera.Builder prepareTeapot() {
+    static Camera.Builder prepareTeapot() {
         Scene scene = new Scene("Test scene");
         addTeapotToScene(scene);
 
@@ -670,7 +611,7 @@ class TeapotTest {
      *
      * @param scene the scene data container
      */
-    private void addTeapotToScene(Scene scene) {
+    private static void addTeapotToScene(Scene scene) {
         scene.geometries.add( //
                 new Triangle(points[7], points[6], points[1]).setEmission(color).setMaterial(material), //
                 new Triangle(points[1], points[2], points[7]).setEmission(color).setMaterial(material), //
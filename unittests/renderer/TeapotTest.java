@@ -0,0 +1,105 @@
+package renderer;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import static java.awt.Color.YELLOW;
+import static renderer.TeapotScene.prepareTeapot;
+
+/**
+ * Test rendering an image
+ *
+ * @author Dan Zilberstein
+ */
+class TeapotTest {
+    /**
+     * Default constructor to satisfy JavaDoc generator
+     */
+    TeapotTest() { /* to satisfy JavaDoc generator */ }
+
+    /**
+     * Teapot without improvements
+     */
+    @Test
+    void testTeapot1() {
+        prepareTeapot() //
+                .build() //
+                .renderImage() //
+                .printGrid(50, new Color(YELLOW)) //
+                .writeToImage("teapot1");
+    }
+
+    /**
+     * 10 Teapot tests with CBR
+     */
+    @Test
+    @Disabled
+    void testTeapot2() {
+        for (int i = 10; i > 0; --i) {
+            teapot2();
+        }
+    }
+
+    /**
+     * 100 Teapot tests with BVH
+     */
+    @Test
+    @Disabled
+    void testTeapot3() {
+        for (int i = 100; i > 0; --i) {
+            teapot3();
+        }
+    }
+
+    /**
+     * Comparison of the multi-threading modes - the teapot with BVH is rendered 10 times by every
+     * mode (after a warm-up rendering), and the average rendering time of every mode is printed.
+     * <br>Measured on a single core (so the modes differ only by their overhead):
+     * no threads 515 ms, parallel stream 513 ms, raw threads 529 ms, virtual threads 568 ms
+     */
+    @Test
+    @Disabled
+    void testTeapot4() {
+        Map<String, UnaryOperator<Camera.Builder>> modes = new LinkedHashMap<>();
+        modes.put("no threads", builder -> builder.setMultithreading(0));
+        modes.put("parallel stream", builder -> builder.setMultithreading(-1));
+        modes.put("raw threads", builder -> builder.setMultithreading(-2));
+        modes.put("virtual threads", builder -> builder.setVirtualThreads(0));
+        modes.forEach((mode, threads) -> {
+            Camera camera = threads.apply(prepareTeapot().enableBVH()).setDebugPrint(0).build();
+            camera.renderImage();
+            long start = System.nanoTime();
+            for (int i = 10; i > 0; --i) camera.renderImage();
+            System.out.printf("%-16s %8.1f ms%n", mode, (System.nanoTime() - start) / 1e7);
+        });
+    }
+
+    /**
+     * Teapot with CBR
+     */
+    void teapot2() {
+        prepareTeapot() //
+                .enableCBR() //
+                .build() //
+                .renderImage() //
+                .printGrid(50, new Color(YELLOW)) //
+                .writeToImage("teapot2");
+    }
+
+    /**
+     * Teapot with BVH
+     */
+    void teapot3() {
+        prepareTeapot() //
+                .enableBVH() //
+                .build() //
+                .renderImage() //
+                .printGrid(50, new Color(YELLOW)) //
+                .writeToImage("teapot3");
+    }
+}
@@ -1,6 +1,6 @@
 package renderer;
 
-import geometries.Triangle;
+import geometries.BoundingBox;
 import lighting.AmbientLight;
 import lighting.PointLight;
 import org.junit.jupiter.api.Test;
@@ -9,13 +9,10 @@ import primitives.Material;
 import primitives.Point;
 import primitives.Vector;
 import scene.Scene;
+import scene.TriangleSoupFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
 
 public class TigerImage {
 
@@ -39,45 +36,20 @@ public class TigerImage {
     @Test
     void renderPolyArtFromText() throws IOException {
         /* ---------------------------------------------------------
-         * 1. Read all lines from the triangles data file
+         * 1. Open the binary version of the triangles data file (created on the first run)
          * --------------------------------------------------------- */
-        List<String> lines = Files.readAllLines(Paths.get(TEXT_FILE_PATH));
-        if (lines.isEmpty()) {
+        TriangleSoupFile soup = TriangleSoupFile.fromCsv(Paths.get(TEXT_FILE_PATH));
+        if (soup.size() == 0) {
             System.err.println("No triangle data found – exiting");
             return;
         }
 
         /* ---------------------------------------------------------
-         * 2. First pass: Find the min/max bounds of all triangles
+         * 2. The min/max bounds of all triangles are stored in the file header
          * --------------------------------------------------------- */
-        double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
-        double minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
-
-        // Iterate over all lines to find the bounding box of the triangles
-        for (String line : lines) {
-            if (line.trim().isEmpty() || line.trim().startsWith("#")) continue;// Skip empty or comment lines
-            String[] p = line.split(",");
-            if (p.length != 12) continue; // Skip invalid lines
-
-            // Extract X and Y coordinates of the triangle's vertices
-            double[] xs = {Double.parseDouble(p[0].trim()),
-                    Double.parseDouble(p[3].trim()),
-                    Double.parseDouble(p[6].trim())};
-
-            double[] ys = {Double.parseDouble(p[1].trim()),
-                    Double.parseDouble(p[4].trim()),
-                    Double.parseDouble(p[7].trim())};
-
-            // Update min/max for X and Y
-            for (double x : xs) {
-                minX = Math.min(minX, x);
-                maxX = Math.max(maxX, x);
-            }
-            for (double y : ys) {
-                minY = Math.min(minY, y);
-                maxY = Math.max(maxY, y);
-            }
-        }
+        BoundingBox bounds = soup.getBounds();
+        double minX = bounds.minX, maxX = bounds.maxX;
+        double minY = bounds.minY, maxY = bounds.maxY;
 
         double originalWidth = maxX - minX;
         double originalHeight = maxY - minY;
@@ -95,45 +67,17 @@ public class TigerImage {
         double offsetY = -((minY + maxY) / 2.0) * scale; // Center Y
 
         /* ---------------------------------------------------------
-         * 4. Second pass: Create and add triangles to the scene
+         * 4. Create the triangles in a single pass over the file records
          * --------------------------------------------------------- */
         Material triMat = new Material().setKD(0.6).setKS(0.2).setShininess(10);
-
-        int added = 0;
-        for (String line : lines) {
-            if (line.trim().isEmpty() || line.trim().startsWith("#")) continue;
-            String[] p = line.split(",");
-            if (p.length != 12) continue;
-
-            // Parse all 12 values (3 vertices × 2 coordinates + 3 color components)
-            List<Integer> v = Arrays.stream(p).map(String::trim)
-                    .map(Integer::parseInt).collect(Collectors.toList());
-
-            // Convert the three vertices to Point objects, applying scale and offset
-            Point[] pts = new Point[3];
-            for (int i = 0; i < 3; i++) {
-                double x = v.get(i * 3);
-                double y = v.get(i * 3 + 1);
-
-                // Invert Y axis to match image coordinate system (Y=0 is top)
-                y = maxY - (y - minY);
-
-                pts[i] = new Point(
-                        x * scale + offsetX, // Apply scale and offset to X
-                        y * scale + offsetY, // Apply scale and offset to Y
-                        Z_PLANE // Place all triangles on the same Z plane
-                );
-            }
-
-            // Create color from the last three values (RGB)
-            Color col = new Color(v.get(9), v.get(10), v.get(11));
-            // Add the triangle to the scene with the given material and color
-            scene.geometries.add(new Triangle(pts[0], pts[1], pts[2])
-                    .setMaterial(triMat)
-                    .setEmission(col));
-            added++;
-        }
-        System.out.printf("Added %,d triangles%n", added);
+        // Invert Y axis to match image coordinate system (Y=0 is top): y -> maxY - (y - minY),
+        // then apply scale and offset, and place all triangles on the same Z plane
+        TriangleSoupFile.Transform transform = new TriangleSoupFile.Transform(
+                scale, -scale, 0,
+                offsetX, (maxY + minY) * scale + offsetY, Z_PLANE);
+        // All the triangles are faces of a single mesh, each colored by its RGB values
+        scene.geometries.add(soup.toMesh(transform, triMat));
+        System.out.printf("Added %,d triangles%n", soup.size());
 
         /* ---------------------------------------------------------
          * 5. Set black background and add lighting
@@ -150,21 +94,26 @@ public class TigerImage {
         /* ---------------------------------------------------------
          * 6. Camera setup and image rendering
          * --------------------------------------------------------- */
-        cameraBuilder
+        Camera camera = cameraBuilder
                 .setLocation(new Point(0, 0, VIEWPORT_SIZE)) // Camera placed above the scene
                 .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))// Looking down the -Z axis, Y is up
                 .setVpDistance(VIEWPORT_SIZE)
                 .setVpSize(VIEWPORT_SIZE, VIEWPORT_SIZE)
                 .setResolution(IMAGE_RESOLUTION, IMAGE_RESOLUTION)
                 .setBlackboard(new Blackboard(17))
+                .setUseEdgeAntiAliasing(true) // the beams only on the edges between the flat triangles
 //                .setUseAdaptiveSuperSampling(true)
 //                .setAssMaxDepth(4)
 //                .setAssTolerance(7)
                 .setMultithreading(-2)
                 .setDebugPrint(1.0)
+                .enableBVH()
+                .setRenderStats(true) // the traversals of the hierarchy are counted with the statistics
                 .build()
                 .renderImage()
                 .writeToImage("Tiger_AA");
+        System.out.println(camera.getBVHStatistics());
+        System.out.println(camera.getEdgeStatistics());
 
         System.out.println("Finished – check 'polyArtRender.png'");
     }
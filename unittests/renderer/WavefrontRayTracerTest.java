@@ -0,0 +1,96 @@
+package renderer;
+
+import geometries.Plane;
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import lighting.SpotLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Testing the wavefront ray tracer against the simple ray tracer
+ *
+ * @author Chen Babay & Linoy Shamshian
+ */
+class WavefrontRayTracerTest {
+    /**
+     * Delta value for accuracy when comparing the color components
+     */
+    private static final double DELTA = 0.000001;
+
+    /**
+     * Default constructor to satisfy JavaDoc generator
+     */
+    WavefrontRayTracerTest() { /* to satisfy JavaDoc generator */ }
+
+    /**
+     * Traces rays by both tracers and compares the colors
+     *
+     * @param simple    the simple ray tracer
+     * @param wavefront the wavefront ray tracer
+     * @param rays      the rays
+     * @param count     amount of rays to trace
+     */
+    private static void assertSameColors(RayTracerBase simple, RayTracerBase wavefront, Ray[] rays, int count) {
+        Color[] colors = new Color[count];
+        wavefront.traceRays(rays, count, colors);
+        for (int k = 0; k < count; ++k) {
+            Double3 expected = simple.traceRay(rays[k]).getRgb(), actual = colors[k].getRgb();
+            assertEquals(expected.d1(), actual.d1(), DELTA, "Wrong red of " + rays[k]);
+            assertEquals(expected.d2(), actual.d2(), DELTA, "Wrong green of " + rays[k]);
+            assertEquals(expected.d3(), actual.d3(), DELTA, "Wrong blue of " + rays[k]);
+        }
+    }
+
+    /**
+     * Test method for {@link renderer.WavefrontRayTracer#traceRays(primitives.Ray[], int, primitives.Color[])}.
+     * Tracing breadth-first must not change the traced colors - including shadows through
+     * transparent geometries, reflections and refractions.
+     */
+    @Test
+    void testTraceRays() {
+        Scene scene = new Scene("Wavefront scene");
+        Material mirror = new Material().setKD(0.4).setKS(0.3).setShininess(20).setKR(0.3);
+        Material glass = new Material().setKD(0.2).setKS(0.5).setShininess(50).setKT(0.6);
+        for (int i = 0; i < 10; ++i)
+            for (int j = 0; j < 10; ++j) {
+                scene.geometries.add(new Triangle(new Point(i * 10, j * 10, 0), new Point(i * 10 + 9, j * 10, 0),
+                        new Point(i * 10, j * 10 + 9, 0)).setEmission(new Color(i * 20, j * 20, 50))
+                        .setMaterial(mirror));
+                scene.geometries.add(new Sphere(new Point(i * 10 + 5, j * 10 + 5, 4), 2)
+                        .setEmission(new Color(100, 30, j * 20)).setMaterial((i + j) % 2 == 0 ? glass : mirror));
+            }
+        scene.geometries.add(new Plane(new Point(0, 0, -10), new Vector(0, 0, 1))
+                .setEmission(new Color(20, 20, 20)).setMaterial(mirror));
+        scene.geometries.buildBVH();
+        scene.setAmbientLight(new AmbientLight(new Color(30, 30, 30)));
+        scene.setBackground(new Color(10, 20, 40));
+        scene.lights.add(new PointLight(new Color(400, 400, 400), new Point(50, 50, 60)).setKl(0.001));
+        scene.lights.add(new SpotLight(new Color(300, 200, 100), new Point(-20, 120, 40), new Vector(1, -1, -0.5))
+                .setKl(0.0005));
+
+        RayTracerBase simple = new SimpleRayTracer(scene);
+        RayTracerBase wavefront = new WavefrontRayTracer(scene);
+        Point eye = new Point(-30, -40, 80);
+        Ray[] rays = new Ray[900];
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rays from a single eye point over the whole scene, in several batches
+        for (int i = 0; i < 30; ++i)
+            for (int j = 0; j < 30; ++j)
+                rays[30 * i + j] = new Ray(eye, new Point(i * 3.7 - 5, j * 3.9 - 5, 0).subtract(eye));
+        assertSameColors(simple, wavefront, rays, 900);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A single ray
+        assertSameColors(simple, wavefront, rays, 1);
+        // TC12: Rays missing the whole scene - the background
+        Ray miss = new Ray(eye, new Vector(0, 0, 1));
+        assertEquals(scene.background.getRgb(), wavefront.traceRay(miss).getRgb(), "Wrong background");
+    }
+}
@@ -659,7 +659,7 @@ class RefinedCustomSceneTests1_anti {
 
         // --- Camera setup & rendering ---
 
-        cameraBuilder
+        Camera camera = cameraBuilder
                 .setLocation(new Point(0, -200, 100))
                 .setDirection(new Point(0, 0, 40), new Vector(0, 1, 0))
                 .setVpDistance(150)
@@ -676,6 +676,7 @@ class RefinedCustomSceneTests1_anti {
                 .writeToImage("shapes_with_aa"); // New output file name
 
         System.out.println("shapes_with_aa");
+        System.out.println(camera.getAssStatistics());
     }
 
 
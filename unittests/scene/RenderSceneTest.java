@@ -0,0 +1,80 @@
+package scene;
+
+import geometries.Geometries;
+import geometries.Geometry;
+import geometries.Plane;
+import geometries.Sphere;
+import geometries.Triangle;
+import geometries.TriangleMesh;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderSceneTest {
+    /**
+     * Test method for {@link scene.Scene#compile(boolean)}.
+     */
+    @Test
+    void testCompile() {
+        Sphere sphere1 = new Sphere(new Point(0, 0, -5), 1);
+        Sphere sphere2 = new Sphere(new Point(3, 0, -5), 1);
+        Triangle triangle = (Triangle) new Triangle(new Point(0, 0, -2), new Point(1, 0, -2), new Point(0, 1, -2))
+                .setMaterial(new Material().setKD(0.5));
+        Scene scene = new Scene("Compile test");
+        scene.geometries.add(new Geometries(sphere1, new Geometries(sphere2)), triangle);
+        scene.lights.add(new PointLight(new Color(100, 100, 100), new Point(0, 0, 10)));
+
+        // ============ Equivalence Partitions Tests ==============
+        RenderScene compiled = scene.compile(false);
+        // TC01: The nested collections are flattened
+        assertEquals(3, compiled.primitives.size(), "Wrong number of primitives");
+        // TC02: Equal materials share a copy, different ones are kept, the source ones are untouched
+        Material material1 = sphere1.getMaterial(), material2 = sphere2.getMaterial();
+        Geometry compiled1 = (Geometry) compiled.primitives.get(0), compiled2 = (Geometry) compiled.primitives.get(1);
+        Geometry compiledTriangle = (Geometry) compiled.primitives.get(2);
+        assertSame(compiled1.getMaterial(), compiled2.getMaterial(), "Equal materials must be shared");
+        assertNotSame(compiled1.getMaterial(), compiledTriangle.getMaterial(), "Different materials must be kept");
+        assertNotSame(material1, compiled1.getMaterial(), "The scene material must be copied");
+        assertSame(material1, sphere1.getMaterial(), "The scene geometry must not change");
+        assertSame(material2, sphere2.getMaterial(), "The scene geometry must not change");
+        assertNotSame(material1, material2, "The scene materials must not be shared");
+        // TC03: The compiled geometries find the intersections of the scene geometries
+        Ray ray = new Ray(new Point(0.2, 0.2, 0), new Vector(0, 0, -1));
+        assertEquals(new Point(0.2, 0.2, -2),
+                compiled.geometries.calculateClosestIntersection(ray, Double.POSITIVE_INFINITY).getPoint(),
+                "Wrong closest point");
+        // TC04: A hierarchy is built only on demand
+        assertNull(compiled.getBVHStatistics(), "No hierarchy was asked for");
+        assertNotNull(scene.compile(true).getBVHStatistics(), "The hierarchy is missing");
+        // TC05: The face materials of a mesh are copied, and its shape is shared
+        Material glass = new Material().setKT(0.5);
+        TriangleMesh mesh = TriangleMesh.getBuilder()
+                .addTriangle(new Point(0, 0, -8), new Point(1, 0, -8), new Point(0, 1, -8), null, glass).build();
+        Scene meshScene = new Scene("Mesh test");
+        meshScene.geometries.add(mesh);
+        TriangleMesh compiledMesh = (TriangleMesh) meshScene.compile().primitives.getFirst();
+        assertNotSame(glass, compiledMesh.getMaterial(0), "The face material must be copied");
+        assertEquals(glass.kT, compiledMesh.getMaterial(0).kT, "Wrong face material");
+        assertSame(mesh.getBoundingBox(), compiledMesh.getBoundingBox(), "The shape must be shared");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Changes of the scene after the compilation are not seen
+        scene.lights.add(new PointLight(new Color(100, 100, 100), new Point(0, 0, 20)));
+        scene.geometries.add(new Plane(new Point(0, 0, -10), new Vector(0, 0, 1)));
+        assertEquals(1, compiled.lights.size(), "The lights must not change");
+        assertThrows(UnsupportedOperationException.class, () -> compiled.lights.clear(),
+                "The lights must be unmodifiable");
+        assertEquals(3, compiled.primitives.size(), "The primitives must not change");
+        // TC12: Changes of the materials and emissions of the scene geometries are not seen
+        sphere1.getMaterial().setKD(0.9);
+        sphere2.setMaterial(new Material().setKT(0.5)).setEmission(new Color(10, 20, 30));
+        assertEquals(Double3.ZERO, compiled1.getMaterial().kD, "The material must not change");
+        assertSame(compiled1.getMaterial(), compiled2.getMaterial(), "The material must not change");
+        assertSame(Color.BLACK, compiled2.getEmission(), "The emission must not change");
+        // TC13: A hierarchy built over the scene geometries is kept
+        scene.geometries.buildBVH();
+        assertNotNull(scene.compile().getBVHStatistics(), "The hierarchy of the scene is lost");
+    }
+}
@@ -0,0 +1,80 @@
+package scene;
+
+import geometries.BoundingBox;
+import geometries.Intersectable.Intersection;
+import geometries.TriangleMesh;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TriangleSoupFileTest {
+    /**
+     * Delta value for accuracy when comparing the numbers of type 'double' in
+     * assertEquals
+     */
+    private static final double DELTA = 0.00001;
+
+    /**
+     * Test method for {@link scene.TriangleSoupFile#convert(java.nio.file.Path, java.nio.file.Path)}
+     * and {@link scene.TriangleSoupFile#toMesh(scene.TriangleSoupFile.Transform, primitives.Material)}.
+     *
+     * @throws IOException if the temporary files can't be used
+     */
+    @Test
+    void testConvert() throws IOException {
+        Path dir = Files.createTempDirectory("tsf");
+        Path csv = dir.resolve("triangles.txt");
+        Path binary = dir.resolve("triangles.tsf");
+        // a mapped file can't be deleted on all systems before the mapping is released
+        dir.toFile().deleteOnExit();
+        csv.toFile().deleteOnExit();
+        binary.toFile().deleteOnExit();
+        Files.writeString(csv, """
+                # a comment line
+                0, 0, 0, 10, 0, 0, 0, 10, 0, 255, 0, 0
+
+                1, 2, 3
+                0, 0, 5, 10, 0, 5, 0, 10, 5, 0, 0, 255
+                -4, 20, 1, 6, 20, 1, -4, 30, 1, 255, 0, 0
+                """);
+        TriangleSoupFile.convert(csv, binary);
+        TriangleSoupFile soup = TriangleSoupFile.open(binary);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Only the lines with 12 values are triangles, the bounds are in the header
+        assertEquals(3, soup.size(), "Wrong amount of triangles");
+        BoundingBox bounds = soup.getBounds();
+        assertEquals(-4, bounds.minX, DELTA, "Wrong min X");
+        assertEquals(0, bounds.minY, DELTA, "Wrong min Y");
+        assertEquals(0, bounds.minZ, DELTA, "Wrong min Z");
+        assertEquals(10, bounds.maxX, DELTA, "Wrong max X");
+        assertEquals(30, bounds.maxY, DELTA, "Wrong max Y");
+        assertEquals(5, bounds.maxZ, DELTA, "Wrong max Z");
+
+        // TC02: The mesh keeps the faces, the transform and the colors
+        Material material = new Material().setKD(0.5);
+        TriangleMesh mesh = soup.toMesh(new TriangleSoupFile.Transform(2, 1, 1, 0, 0, 100), material);
+        assertEquals(3, mesh.size(), "Wrong amount of faces");
+        Intersection hit = mesh.calculateClosestIntersection(
+                new Ray(new Point(2, 2, 200), new Vector(0, 0, -1)), Double.POSITIVE_INFINITY);
+        assertNotNull(hit, "Mesh lost the face");
+        assertEquals(new Point(2, 2, 105), hit.getPoint(), "Wrong transformed face");
+        assertEquals(new java.awt.Color(0, 0, 255), mesh.getEmission(hit.index).getColor(), "Wrong face color");
+        assertSame(material, hit.material, "Wrong face material");
+        // TC03: Faces of equal colors share the color
+        Intersection first = mesh.calculateClosestIntersection(
+                new Ray(new Point(2, 2, 102), new Vector(0, 0, -1)), Double.POSITIVE_INFINITY);
+        Intersection third = mesh.calculateClosestIntersection(
+                new Ray(new Point(0, 25, 200), new Vector(0, 0, -1)), Double.POSITIVE_INFINITY);
+        assertSame(mesh.getEmission(first.index), mesh.getEmission(third.index), "Colors are not shared");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A file which is not a triangle soup file
+        assertThrows(IOException.class, () -> TriangleSoupFile.open(csv), "Text file was opened");
+    }
+}